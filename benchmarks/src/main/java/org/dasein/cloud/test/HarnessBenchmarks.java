@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.dasein.cloud.test.compute.StatelessVMTests;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work {@link DaseinTestManager} does for every test and every API call: deciding whether a test is
+ * skipped, rebuilding the log prefix, padding and formatting log lines, and accumulating the API audit at the end of
+ * each test. The manager is constructed against the in-memory simulated cloud so nothing goes over the network.
+ * <p>Run with java -jar target/benchmarks.jar HarnessBenchmarks after building this module.</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HarnessBenchmarks {
+    /**
+     * Swallows log events so that formatting is measured with an enabled logger without paying for I/O.
+     */
+    static private class NullAppender extends AppenderSkeleton {
+        @Override
+        protected void append(LoggingEvent event) {
+            event.getRenderedMessage();
+        }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+    }
+
+    static private void setField(Object target, String name, Object value) throws Exception {
+        Field f = DaseinTestManager.class.getDeclaredField(name);
+
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    /**
+     * The number of entries in each of dasein.inclusions and dasein.exclusions, with 0 meaning neither is set.
+     */
+    @Param({"0", "10", "200"})
+    public int filters;
+
+    /**
+     * The number of distinct APIs called across the run.
+     */
+    @Param({"300"})
+    public int apis;
+
+    private String[]           apiNames;
+    private int                apiIndex;
+    private Logger             disabledLogger;
+    private Logger             enabledLogger;
+    private DaseinTestManager  tm;
+
+    @Setup
+    public void setup() throws Exception {
+        if( System.getProperty("providerClass") == null ) {
+            System.setProperty("providerClass", "org.dasein.cloud.test.sim.SimulatedCloud");
+        }
+        System.setProperty("dasein.sim.latency", "0");
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        tm = new DaseinTestManager(StatelessVMTests.class);
+        setField(tm, "name", "compareVMListAndStatus");
+        tm.changePrefix();
+        if( filters > 0 ) {
+            TreeSet<String> inclusions = new TreeSet<String>();
+            TreeSet<String> exclusions = new TreeSet<String>();
+
+            for( int i=0; i<filters-1; i++ ) {
+                inclusions.add("statelesssuite" + i + ".test" + i);
+                exclusions.add("statefulsuite" + i);
+            }
+            // the benchmarked test is included so that isTestSkipped() takes its longest path without skipping
+            inclusions.add("statelessvmtests.comparevmlistandstatus");
+            exclusions.add("statelessvmtests");
+            setField(null, "inclusions", inclusions);
+            setField(null, "exclusions", exclusions);
+        }
+        else {
+            setField(null, "inclusions", null);
+            setField(null, "exclusions", null);
+        }
+        setField(null, "apiAudit", new HashMap<String, Integer>());
+        apiNames = new String[apis];
+        for( int i=0; i<apis; i++ ) {
+            apiNames[i] = "Service" + (i % 17) + ".operation" + i;
+        }
+        disabledLogger = Logger.getLogger("org.dasein.cloud.test.benchmarks.disabled");
+        disabledLogger.setAdditivity(false);
+        disabledLogger.setLevel(Level.WARN);
+        enabledLogger = Logger.getLogger("org.dasein.cloud.test.benchmarks.enabled");
+        enabledLogger.setAdditivity(false);
+        enabledLogger.setLevel(Level.INFO);
+        enabledLogger.addAppender(new NullAppender());
+    }
+
+    @Benchmark
+    public boolean isTestSkipped() {
+        return tm.isTestSkipped();
+    }
+
+    @Benchmark
+    public void changePrefix() {
+        tm.changePrefix();
+    }
+
+    @Benchmark
+    public void outShortKeyDisabled() {
+        DaseinTestManager.out(disabledLogger, "sim/Sim.StatelessVM.compareVMListAndStatus> ", "Matches", "true");
+    }
+
+    @Benchmark
+    public void outShortKeyEnabled() {
+        DaseinTestManager.out(enabledLogger, "sim/Sim.StatelessVM.compareVMListAndStatus> ", "Matches", "true");
+    }
+
+    @Benchmark
+    public void outLongKeyEnabled() {
+        DaseinTestManager.out(enabledLogger, null, "---> VirtualMachineSupport.listVirtualMachineStatus", "calls=12 attempts=14 recovered=2 exhausted=0");
+    }
+
+    @Benchmark
+    public void auditApi() {
+        String call = apiNames[apiIndex];
+
+        apiIndex = (apiIndex + 1) % apiNames.length;
+        DaseinTestManager.audit(call, 3);
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VmState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reconciliation of resource lists against resource status lists done by the compare*ListAndStatus
+ * tests in the stateless suites (e.g. StatelessVMTests.compareVMListAndStatus and
+ * StatelessImageTests.compareImageListAndStatus). The lists are synthetic and sized like a large account: 10,000
+ * virtual machines and 50,000 machine images, with the status lists in a different order than the resource lists as
+ * clouds generally return them.
+ * <p>The tests and the benchmarks both reconcile through {@link StatusReconciler}, so the benchmarks measure the
+ * tests' own code.</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class ReconciliationBenchmarks {
+    static private int reconcile(Iterable<ResourceStatus> status, ArrayList<String> ids, String type) {
+        String mismatch = StatusReconciler.findMismatch(status, ids);
+
+        if( mismatch != null ) {
+            throw new IllegalStateException("Status and " + type + " lists do not match for " + mismatch);
+        }
+        return ids.size();
+    }
+
+    @Param({"10000"})
+    public int vmCount;
+
+    @Param({"50000"})
+    public int imageCount;
+
+    private ArrayList<MachineImage>   images;
+    private ArrayList<ResourceStatus> imageStatus;
+    private ArrayList<VirtualMachine> vms;
+    private ArrayList<ResourceStatus> vmStatus;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42L);
+
+        vms = new ArrayList<VirtualMachine>(vmCount);
+        vmStatus = new ArrayList<ResourceStatus>(vmCount);
+        for( int i=0; i<vmCount; i++ ) {
+            VirtualMachine vm = new VirtualMachine();
+            String id = "i-" + Long.toHexString(random.nextLong());
+
+            vm.setProviderVirtualMachineId(id);
+            vm.setName("dsnvm" + i);
+            vm.setCurrentState(VmState.RUNNING);
+            vms.add(vm);
+            vmStatus.add(new ResourceStatus(id, VmState.RUNNING));
+        }
+        Collections.shuffle(vmStatus, random);
+
+        images = new ArrayList<MachineImage>(imageCount);
+        imageStatus = new ArrayList<ResourceStatus>(imageCount);
+        for( int i=0; i<imageCount; i++ ) {
+            String id = "ami-" + Long.toHexString(random.nextLong());
+
+            images.add(MachineImage.getMachineImageInstance("123456789012", "region-1", id, MachineImageState.ACTIVE, "dsnimg" + i, "Benchmark image " + i, Architecture.I64, Platform.UBUNTU));
+            imageStatus.add(new ResourceStatus(id, MachineImageState.ACTIVE));
+        }
+        Collections.shuffle(imageStatus, random);
+    }
+
+    @Benchmark
+    public int compareVMListAndStatus() {
+        ArrayList<String> ids = new ArrayList<String>(vms.size());
+
+        for( VirtualMachine vm : vms ) {
+            ids.add(vm.getProviderVirtualMachineId());
+        }
+        return reconcile(vmStatus, ids, "vm");
+    }
+
+    @Benchmark
+    public int compareImageListAndStatus() {
+        ArrayList<String> ids = new ArrayList<String>(images.size());
+
+        for( MachineImage image : images ) {
+            ids.add(image.getProviderMachineImageId());
+        }
+        return reconcile(imageStatus, ids, "image");
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.util.APITrace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the calls made against the cloud during each test in order to enforce {@link CallBudget} declarations and to
+ * detect chatty call patterns in which the same API is called with the same arguments over and over again within a
+ * single test (the N+1 problem). Calls without arguments, which mostly describe the capabilities of the cloud, are
+ * not considered repeats. Only the calls made by the test itself are counted, not those of the shared test
+ * fixtures. Since {@link APITrace} counts the remote API calls of all threads, a call is charged with the remote API
+ * calls made while it ran only if no other call overlapped it. Otherwise it is charged with at most one API call.
+ * <p>The following {@link System} properties control the audit:</p>
+ * <ul>
+ *     <li>dasein.calls.repeatThreshold - the number of calls to the same API with the same arguments in a single test that
+ *     is flagged as chatty (default 3)</li>
+ *     <li>dasein.calls.failOnRepeat - true to fail tests with chatty calls rather than just warn about them (default false)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class CallAudit implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(CallAudit.class);
+
+    static private final CallAudit instance = new CallAudit();
+
+    static private final TreeMap<String,Integer>         chatty    = new TreeMap<String, Integer>();
+    static private final TreeMap<String,ArrayList<Long>> latencies = new TreeMap<String, ArrayList<Long>>();
+    static private final HashMap<String,Integer>         repeats   = new HashMap<String, Integer>();
+
+    static private int     active;
+    static private int     apiCalls;
+    static private String  currentTest;
+    static private Boolean failOnRepeat;
+    static private int     repeatThreshold = -1;
+    static private long    started;
+    static private int     supportCalls;
+    static private boolean traced;
+
+    /**
+     * Adds the audit to the interceptor chain if it is not already there.
+     */
+    static public void install() {
+        InterceptingProvider.addInterceptor(instance);
+    }
+
+    static public int getRepeatThreshold() {
+        if( repeatThreshold < 0 ) {
+            repeatThreshold = Math.max(2, PerfUtils.getInt("dasein.calls.repeatThreshold", 3));
+        }
+        return repeatThreshold;
+    }
+
+    static public boolean isFailOnRepeat() {
+        if( failOnRepeat == null ) {
+            failOnRepeat = "true".equalsIgnoreCase(System.getProperty("dasein.calls.failOnRepeat"));
+        }
+        return failOnRepeat;
+    }
+
+    /**
+     * Starts counting calls for a new test.
+     * @param testName the fully qualified name of the test (e.g. StatelessVMTests.listVMs)
+     */
+    static public void begin(@Nonnull String testName) {
+        synchronized( repeats ) {
+            currentTest = testName;
+            apiCalls = 0;
+            supportCalls = 0;
+            traced = false;
+            latencies.clear();
+            repeats.clear();
+        }
+    }
+
+    /**
+     * Stops counting calls for the current test.
+     */
+    static public void end() {
+        synchronized( repeats ) {
+            currentTest = null;
+        }
+    }
+
+    /**
+     * Provides the number of calls the current test itself made. If the provider reported any remote API calls
+     * through {@link APITrace} during the test, this is the number of remote API calls charged to the calls of the
+     * test. Otherwise, it is the number of calls made against support objects.
+     * @return the number of calls made by the current test
+     */
+    static public int getCallCount() {
+        synchronized( repeats ) {
+            return (traced ? apiCalls : supportCalls);
+        }
+    }
+
+    /**
+     * Provides the latency of each call made during the current test, whether by the test itself or by the shared
+     * test fixtures working on its behalf.
+     * @return a mapping of each API called to the latencies in microseconds of the calls made to it
+     */
+    static public @Nonnull Map<String,ArrayList<Long>> getLatencies() {
+        TreeMap<String,ArrayList<Long>> copy = new TreeMap<String, ArrayList<Long>>();
+
+        synchronized( repeats ) {
+            for( Map.Entry<String,ArrayList<Long>> entry : latencies.entrySet() ) {
+                copy.put(entry.getKey(), new ArrayList<Long>(entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Lists the calls against the same API with the same arguments that were made at least as often as the repeat
+     * threshold during the current test and records them for the end of run report.
+     * @return a mapping of each repeated call to the number of times it was made
+     */
+    static public @Nonnull Map<String,Integer> checkRepeats() {
+        TreeMap<String,Integer> matches = new TreeMap<String, Integer>();
+        int threshold = getRepeatThreshold();
+        String test;
+
+        synchronized( repeats ) {
+            test = currentTest;
+            for( Map.Entry<String,Integer> entry : repeats.entrySet() ) {
+                if( entry.getValue() >= threshold ) {
+                    matches.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for( Map.Entry<String,Integer> entry : matches.entrySet() ) {
+            flag(test + " " + entry.getKey(), entry.getValue());
+        }
+        return matches;
+    }
+
+    /**
+     * Records a chatty call pattern for the end of run report.
+     * @param description a description of the chatty call
+     * @param count the number of calls
+     */
+    static public void flag(@Nonnull String description, int count) {
+        synchronized( chatty ) {
+            Integer current = chatty.get(description);
+
+            chatty.put(description, current == null ? count : Math.max(count, current));
+        }
+    }
+
+    /**
+     * Logs all chatty call patterns detected during the run.
+     * @param logger the logger to write the report to
+     * @return the number of chatty call patterns detected
+     */
+    static public int report(@Nonnull Logger logger) {
+        synchronized( chatty ) {
+            if( chatty.isEmpty() ) {
+                return 0;
+            }
+            logger.info("------------- Chatty Calls ------------");
+            for( Map.Entry<String,Integer> entry : chatty.entrySet() ) {
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), String.valueOf(entry.getValue()));
+            }
+            logger.info("");
+            return chatty.size();
+        }
+    }
+
+    private CallAudit() { }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        if( currentTest == null ) {
+            return call.proceed();
+        }
+        long first;
+        boolean overlapped;
+
+        synchronized( repeats ) {
+            overlapped = (active > 0);
+            first = started++;
+            active++;
+        }
+        long before = APITrace.getAPICount();
+        long start = System.nanoTime();
+
+        try {
+            return call.proceed();
+        }
+        finally {
+            long micros = (System.nanoTime() - start)/1000L;
+            long after = APITrace.getAPICount();
+
+            synchronized( repeats ) {
+                active--;
+                overlapped = overlapped || (started > first + 1);
+                if( currentTest != null ) {
+                    ArrayList<Long> samples = latencies.get(call.getApi());
+
+                    if( samples == null ) {
+                        samples = new ArrayList<Long>();
+                        latencies.put(call.getApi(), samples);
+                    }
+                    samples.add(micros);
+                    if( !call.isFixture() ) {
+                        String key = call.getKey();
+                        Integer count = repeats.get(key);
+                        int apis = (int)Math.max(0L, after - before);
+
+                        supportCalls++;
+                        if( apis > 0 ) {
+                            traced = true;
+                        }
+                        apiCalls += (overlapped ? Math.min(apis, 1) : apis);
+                        if( call.getArguments().length > 0 ) {
+                            repeats.put(key, count == null ? 1 : count + 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
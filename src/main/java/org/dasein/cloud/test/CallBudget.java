@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the maximum number of cloud API calls a test may make. The budget covers the calls made by the test itself
+ * through {@link DaseinTestManager#getProvider()} and not calls made to set up shared test fixtures. When the provider
+ * reports its API calls through {@link org.dasein.cloud.util.APITrace}, each remote API call counts against the budget.
+ * Otherwise, each call against a support object counts against the budget. A test exceeding its budget fails when
+ * {@link DaseinTestManager#end()} is called.
+ * <pre>
+ *     &#64;Test
+ *     &#64;CallBudget(2)
+ *     public void listVMs() throws CloudException, InternalException {
+ * </pre>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CallBudget {
+    /**
+     * @return the maximum number of API calls the test may make
+     */
+    int value();
+}
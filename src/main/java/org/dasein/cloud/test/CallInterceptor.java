@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Sees every call the test harness makes against a cloud provider through an {@link InterceptingProvider}.
+ * Interceptors are chained in the order in which they were registered with
+ * {@link InterceptingProvider#addInterceptor(CallInterceptor)}. An interceptor must call {@link CloudCall#proceed()}
+ * to pass the call on down the chain to the provider unless it intends to answer the call itself.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public interface CallInterceptor {
+    /**
+     * Intercepts a single call against a cloud provider.
+     * @param call the call being made
+     * @return the result of the call
+     * @throws Throwable any error resulting from the call, generally a CloudException or InternalException
+     */
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable;
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records every call made against the cloud together with its result to a local cassette file and replays those
+ * results in later runs without touching the cloud. A long stateful run against a live cloud may thus be replayed in
+ * seconds to benchmark or debug changes to the harness itself (scheduling, waiting, parallelism) without cloud cost or
+ * variance.
+ * <p>The cassette holds one JSON line per call with the API, its arguments, its latency, and its result or error as
+ * encoded by {@link CassetteCodec}. It is compressed if its name ends in .gz. On replay, a call is answered with the
+ * next unused recording of the same API with the same arguments. Once those recordings are used up, the last one is
+ * served again so that polling for a state settles on the final recorded state. A call with arguments that were
+ * never recorded, such as one naming a resource generated anew in this run, is never answered with the recording of
+ * another call. It fails with a {@link CloudException} unless pass through is enabled, in which case it goes on to the
+ * provider, so replays with pass through are generally run with
+ * -DproviderClass=org.dasein.cloud.test.sim.SimulatedCloud to stay off the network. The number of such misses is
+ * logged when the cassette is closed.</p>
+ * <p>The following {@link System} properties control the cassette:</p>
+ * <ul>
+ *     <li>dasein.cassette - the cassette file, nothing is recorded or replayed if not set</li>
+ *     <li>dasein.cassette.mode - record or replay (default record)</li>
+ *     <li>dasein.cassette.passThrough - true to pass calls without a recording on to the provider on replay rather
+ *     than fail them (default false)</li>
+ *     <li>dasein.cassette.speed - the time compression factor on replay applied to recorded call latencies and to the
+ *     polling waits of the harness, with 0 meaning no waiting at all (default 0)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class Cassette implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(Cassette.class);
+
+    static private final Cassette instance = new Cassette();
+    static private final Object   lock     = new Object();
+
+    static private class Recording {
+        public String     api;
+        public JSONObject json;
+        public long       latency;
+    }
+
+    static private final HashMap<String,LinkedList<Recording>> byCall = new HashMap<String, LinkedList<Recording>>();
+    static private final HashMap<String,Recording>             last   = new HashMap<String, Recording>();
+    static private final TreeSet<String>                       missed = new TreeSet<String>();
+
+    static private Boolean enabled;
+    static private int     misses;
+    static private boolean passThrough;
+    static private boolean replaying;
+    static private double  speed;
+    static private Writer  writer;
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            synchronized( lock ) {
+                if( enabled == null ) {
+                    String path = System.getProperty("dasein.cassette");
+                    boolean opened = false;
+
+                    if( path != null && !path.equals("") ) {
+                        replaying = "replay".equalsIgnoreCase(System.getProperty("dasein.cassette.mode"));
+                        try {
+                            if( replaying ) {
+                                load(path);
+                                speed = getSpeed();
+                                passThrough = "true".equalsIgnoreCase(System.getProperty("dasein.cassette.passThrough"));
+                            }
+                            else {
+                                OutputStream out = new FileOutputStream(path);
+
+                                if( path.endsWith(".gz") ) {
+                                    out = new GZIPOutputStream(out, 64 * 1024);
+                                }
+                                writer = new BufferedWriter(new OutputStreamWriter(out, "utf-8"), 64 * 1024);
+                            }
+                            Runtime.getRuntime().addShutdownHook(new Thread() {
+                                public void run() {
+                                    close();
+                                }
+                            });
+                            InterceptingProvider.addInterceptor(instance);
+                            opened = true;
+                        }
+                        catch( IOException e ) {
+                            logger.warn("Unable to open cassette " + path + ": " + e.getMessage());
+                        }
+                    }
+                    enabled = opened;
+                }
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * @return true if calls are being answered from a cassette rather than by the cloud
+     */
+    static public boolean isReplaying() {
+        return (isEnabled() && replaying);
+    }
+
+    static private double getSpeed() {
+        return Math.max(0.0, PerfUtils.getDouble("dasein.cassette.speed", 0.0));
+    }
+
+    /**
+     * Compresses a span of time by the replay speed so that waits recorded against a live cloud pass quickly on
+     * replay. Outside of replay, the time is returned unchanged.
+     * @param millis the time in milliseconds
+     * @return the compressed time in milliseconds
+     */
+    static public long compress(long millis) {
+        if( !isReplaying() ) {
+            return millis;
+        }
+        return (speed <= 0.0 ? 0L : (long)(millis/speed));
+    }
+
+    static private void load(@Nonnull String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        int count = 0;
+
+        if( path.endsWith(".gz") ) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "utf-8"), 64 * 1024);
+
+        try {
+            String line;
+
+            while( (line = reader.readLine()) != null ) {
+                if( line.trim().equals("") ) {
+                    continue;
+                }
+                try {
+                    JSONObject json = new JSONObject(line);
+                    Recording r = new Recording();
+
+                    r.api = json.getString("api");
+                    r.latency = json.optLong("ms");
+                    r.json = json;
+                    queue(byCall, getKey(r.api, json.optJSONArray("args")), r);
+                    count++;
+                }
+                catch( JSONException e ) {
+                    logger.warn("Skipping unreadable cassette entry: " + e.getMessage());
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        logger.info("Loaded " + count + " recorded calls from " + path);
+    }
+
+    static private void queue(@Nonnull HashMap<String,LinkedList<Recording>> index, @Nonnull String key, @Nonnull Recording r) {
+        LinkedList<Recording> list = index.get(key);
+
+        if( list == null ) {
+            list = new LinkedList<Recording>();
+            index.put(key, list);
+        }
+        list.add(r);
+    }
+
+    static private @Nonnull String getKey(@Nonnull String api, @Nullable JSONArray args) {
+        return (args == null ? api : api + args.toString());
+    }
+
+    static private @Nonnull JSONArray encodeArguments(@Nonnull Object[] arguments) {
+        JSONArray args = new JSONArray();
+
+        for( Object arg : arguments ) {
+            try {
+                args.put(CassetteCodec.encode(arg));
+            }
+            catch( IllegalArgumentException e ) {
+                args.put(String.valueOf(arg));
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Completes and closes a cassette being recorded. Nothing more is recorded once the cassette is closed. For a
+     * cassette being replayed, logs the number of calls that had no recording since the last close.
+     */
+    static public void close() {
+        synchronized( lock ) {
+            if( misses > 0 ) {
+                logger.warn(misses + " calls had no recording in the cassette and " + (passThrough ? "went to the provider" : "failed"));
+                misses = 0;
+            }
+            if( writer == null ) {
+                return;
+            }
+            try {
+                writer.close();
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to close cassette: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    static private @Nullable Recording next(@Nonnull String key) {
+        synchronized( lock ) {
+            LinkedList<Recording> list = byCall.get(key);
+
+            if( list == null || list.isEmpty() ) {
+                return last.get(key);
+            }
+            Recording r = list.removeFirst();
+
+            last.put(key, r);
+            return r;
+        }
+    }
+
+    private Cassette() { }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        if( replaying ) {
+            return replay(call);
+        }
+        long start = System.nanoTime();
+        Object result;
+
+        try {
+            result = call.proceed();
+        }
+        catch( Throwable t ) {
+            record(call, null, t, (System.nanoTime() - start)/1000000L);
+            throw t;
+        }
+        if( result instanceof Iterable && !(result instanceof Collection) ) {
+            ArrayList<Object> list = new ArrayList<Object>();
+
+            for( Object item : (Iterable<?>)result ) {
+                list.add(item);
+            }
+            result = list;
+        }
+        record(call, result, null, (System.nanoTime() - start)/1000000L);
+        return result;
+    }
+
+    private void record(@Nonnull CloudCall call, @Nullable Object result, @Nullable Throwable error, long latency) {
+        JSONObject json = new JSONObject();
+
+        try {
+            json.put("api", call.getApi());
+            json.put("args", encodeArguments(call.getArguments()));
+            json.put("ms", latency);
+            if( error != null ) {
+                json.put("error", CassetteCodec.encodeError(error));
+            }
+            else {
+                json.put("result", CassetteCodec.encode(result));
+            }
+        }
+        catch( IllegalArgumentException e ) {
+            logger.debug("Not recording " + call + ": " + e.getMessage());
+            return;
+        }
+        catch( JSONException e ) {
+            logger.debug("Not recording " + call + ": " + e.getMessage());
+            return;
+        }
+        String line = json.toString();
+
+        synchronized( lock ) {
+            if( writer == null ) {
+                return;
+            }
+            try {
+                writer.write(line);
+                writer.write("\n");
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to write cassette: " + e.getMessage());
+            }
+        }
+    }
+
+    private @Nullable Object replay(@Nonnull CloudCall call) throws Throwable {
+        String api = call.getApi();
+        Recording r = next(getKey(api, encodeArguments(call.getArguments())));
+
+        if( r == null ) {
+            synchronized( lock ) {
+                misses++;
+                if( missed.add(api) ) {
+                    logger.warn("No recording of " + api + " with the same arguments in the cassette" + (passThrough ? ", passing the call to the provider" : ""));
+                }
+            }
+            if( !passThrough ) {
+                throw new CloudException("No recording of " + call + " with the same arguments in the cassette");
+            }
+            return call.proceed();
+        }
+        long wait = compress(r.latency);
+
+        if( wait > 0L ) {
+            Thread.sleep(wait);
+        }
+        JSONObject error = r.json.optJSONObject("error");
+
+        if( error != null ) {
+            throw CassetteCodec.decodeError(error);
+        }
+        return CassetteCodec.decode(r.json.opt("result"));
+    }
+}
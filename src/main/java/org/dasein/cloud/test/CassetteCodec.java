@@ -0,0 +1,530 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts the model objects returned by cloud providers to and from JSON for {@link Cassette}. Dasein model objects
+ * are encoded field by field through reflection, so new model classes need no special handling. A value is tagged
+ * with its class under the "@" key whenever its class cannot be inferred from the declared type of the field or array
+ * in which it sits. Values of JDK classes other than strings, boxed primitives, enums, arrays, collections, maps,
+ * locales, dates, time zones, currencies and files cannot be encoded.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class CassetteCodec {
+    static private final int MAX_DEPTH = 32;
+
+    static private final ConcurrentHashMap<Class<?>,List<Field>> fields = new ConcurrentHashMap<Class<?>, List<Field>>();
+
+    static private Object unsafe;
+    static private Method allocate;
+
+    /**
+     * Encodes a value for the cassette.
+     * @param value the value to encode
+     * @return the JSON representation of the value
+     * @throws IllegalArgumentException the value is or contains something that cannot be encoded
+     */
+    static @Nonnull Object encode(@Nullable Object value) {
+        return encode(value, Object.class, 0);
+    }
+
+    /**
+     * Decodes a value from the cassette.
+     * @param json the JSON representation of the value
+     * @return the decoded value
+     * @throws IllegalArgumentException the JSON does not represent a value encoded by this codec
+     */
+    static @Nullable Object decode(@Nullable Object json) {
+        return decode(json, Object.class);
+    }
+
+    /**
+     * Encodes an error thrown by a call so that it may be thrown again on replay.
+     * @param t the error
+     * @return the JSON representation of the error
+     */
+    static @Nonnull JSONObject encodeError(@Nonnull Throwable t) {
+        JSONObject json = new JSONObject();
+
+        try {
+            json.put("!", t.getClass().getName());
+            if( t.getMessage() != null ) {
+                json.put("m", t.getMessage());
+            }
+            if( t instanceof CloudException ) {
+                CloudException e = (CloudException)t;
+
+                if( e.getErrorType() != null ) {
+                    json.put("t", e.getErrorType().name());
+                }
+                json.put("h", e.getHttpCode());
+                if( e.getProviderCode() != null ) {
+                    json.put("p", e.getProviderCode());
+                }
+            }
+        }
+        catch( JSONException e ) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        return json;
+    }
+
+    /**
+     * Reconstructs an error recorded with {@link #encodeError(Throwable)}. Errors whose class cannot be reconstructed
+     * from a message alone come back as an {@link InternalException}.
+     * @param json the JSON representation of the error
+     * @return the error
+     */
+    static @Nonnull Throwable decodeError(@Nonnull JSONObject json) {
+        String message = json.optString("m", null);
+        Class<?> type;
+
+        try {
+            type = Class.forName(json.getString("!"));
+        }
+        catch( Throwable t ) {
+            return new InternalException(message);
+        }
+        if( CloudException.class.equals(type) && json.has("t") ) {
+            return new CloudException(CloudErrorType.valueOf(json.optString("t")), json.optInt("h"), json.optString("p", null), message);
+        }
+        try {
+            Constructor<?> c = type.getConstructor(String.class);
+
+            return (Throwable)c.newInstance(message);
+        }
+        catch( Throwable ignore ) {
+            return new InternalException(message);
+        }
+    }
+
+    static private @Nonnull Object encode(@Nullable Object value, @Nonnull Class<?> declared, int depth) {
+        if( value == null ) {
+            return JSONObject.NULL;
+        }
+        if( depth > MAX_DEPTH ) {
+            throw new IllegalArgumentException("Object graph too deep or cyclic at " + value.getClass().getName());
+        }
+        Class<?> type = value.getClass();
+        boolean inferred = (declared.isPrimitive() || type.equals(declared));
+
+        if( value instanceof String || value instanceof Boolean ) {
+            return (inferred || declared.isAssignableFrom(type) ? value : tag(type, value));
+        }
+        if( value instanceof Number && type.getName().startsWith("java.lang.") ) {
+            if( (value instanceof Double && (((Double)value).isNaN() || ((Double)value).isInfinite())) || (value instanceof Float && (((Float)value).isNaN() || ((Float)value).isInfinite())) ) {
+                return tag(type, value.toString());
+            }
+            return (inferred ? value : tag(type, value));
+        }
+        if( value instanceof Character ) {
+            return (inferred ? value.toString() : tag(type, value.toString()));
+        }
+        if( value instanceof Enum ) {
+            Class<?> e = ((Enum<?>)value).getDeclaringClass();
+
+            return (e.equals(declared) ? ((Enum<?>)value).name() : tag(e, ((Enum<?>)value).name()));
+        }
+        if( type.isArray() ) {
+            JSONArray array = new JSONArray();
+            Class<?> component = type.getComponentType();
+
+            for( int i=0; i<Array.getLength(value); i++ ) {
+                array.put(encode(Array.get(value, i), component, depth+1));
+            }
+            return (inferred ? array : tag(type, array));
+        }
+        if( value instanceof Map ) {
+            JSONArray keys = new JSONArray();
+            JSONArray values = new JSONArray();
+
+            for( Map.Entry<?,?> entry : ((Map<?,?>)value).entrySet() ) {
+                keys.put(encode(entry.getKey(), Object.class, depth+1));
+                values.put(encode(entry.getValue(), Object.class, depth+1));
+            }
+            JSONObject json = tag(getMapType((Map<?,?>)value), values);
+
+            put(json, "k", keys);
+            return json;
+        }
+        if( value instanceof Iterable ) {
+            JSONArray array = new JSONArray();
+
+            for( Object item : (Iterable<?>)value ) {
+                array.put(encode(item, Object.class, depth+1));
+            }
+            return tag(getCollectionType(value), array);
+        }
+        if( value instanceof Locale ) {
+            return tag(Locale.class, value.toString());
+        }
+        if( value instanceof Date ) {
+            return tag(Date.class, ((Date)value).getTime());
+        }
+        if( value instanceof TimeZone ) {
+            return tag(TimeZone.class, ((TimeZone)value).getID());
+        }
+        if( value instanceof Currency ) {
+            return tag(Currency.class, ((Currency)value).getCurrencyCode());
+        }
+        if( value instanceof File ) {
+            return tag(File.class, ((File)value).getPath());
+        }
+        if( value instanceof Throwable ) {
+            return encodeError((Throwable)value);
+        }
+        if( type.getName().startsWith("java.") || type.getName().startsWith("javax.") || type.getName().startsWith("sun.") || type.isAnonymousClass() ) {
+            throw new IllegalArgumentException("Cannot encode " + type.getName());
+        }
+        JSONObject object = new JSONObject();
+
+        try {
+            for( Field f : getFields(type) ) {
+                Object v = f.get(value);
+
+                if( v != null ) {
+                    object.put(getKey(f), encode(v, f.getType(), depth+1));
+                }
+            }
+        }
+        catch( IllegalAccessException e ) {
+            throw new IllegalArgumentException("Cannot read " + type.getName() + ": " + e.getMessage());
+        }
+        catch( JSONException e ) {
+            throw new IllegalArgumentException("Cannot encode " + type.getName() + ": " + e.getMessage());
+        }
+        return (inferred ? object : tag(type, object));
+    }
+
+    @SuppressWarnings("unchecked")
+    static private @Nullable Object decode(@Nullable Object json, @Nonnull Class<?> declared) {
+        if( json == null || JSONObject.NULL.equals(json) ) {
+            return null;
+        }
+        Class<?> type = declared;
+        Object value = json;
+
+        if( json instanceof JSONObject && ((JSONObject)json).has("!") ) {
+            return decodeError((JSONObject)json);
+        }
+        if( json instanceof JSONObject && ((JSONObject)json).has("@") ) {
+            JSONObject tagged = (JSONObject)json;
+
+            type = forName(tagged.optString("@"));
+            value = tagged.opt("v");
+            if( value == null ) {
+                value = tagged;
+            }
+            if( Map.class.isAssignableFrom(type) ) {
+                Map<Object,Object> map = (Map<Object,Object>)instantiate(type);
+                JSONArray keys = tagged.optJSONArray("k");
+                JSONArray values = tagged.optJSONArray("v");
+
+                for( int i=0; keys != null && i<keys.length(); i++ ) {
+                    map.put(decode(keys.opt(i), Object.class), decode(values.opt(i), Object.class));
+                }
+                return map;
+            }
+            if( Collection.class.isAssignableFrom(type) ) {
+                Collection<Object> list = (Collection<Object>)instantiate(type);
+                JSONArray values = tagged.optJSONArray("v");
+
+                for( int i=0; values != null && i<values.length(); i++ ) {
+                    list.add(decode(values.opt(i), Object.class));
+                }
+                return list;
+            }
+        }
+        if( type.isPrimitive() ) {
+            type = box(type);
+        }
+        if( String.class.equals(type) || (value instanceof String && type.isAssignableFrom(String.class)) ) {
+            return value.toString();
+        }
+        if( Boolean.class.equals(type) || (value instanceof Boolean && type.isAssignableFrom(Boolean.class)) ) {
+            return (value instanceof Boolean ? value : Boolean.valueOf(value.toString()));
+        }
+        if( Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.") ) {
+            return toNumber(type, value);
+        }
+        if( Character.class.equals(type) ) {
+            return value.toString().charAt(0);
+        }
+        if( type.isEnum() ) {
+            return Enum.valueOf((Class<Enum>)type, value.toString());
+        }
+        if( type.isArray() ) {
+            JSONArray values = (JSONArray)value;
+            Object array = Array.newInstance(type.getComponentType(), values.length());
+
+            for( int i=0; i<values.length(); i++ ) {
+                Array.set(array, i, decode(values.opt(i), type.getComponentType()));
+            }
+            return array;
+        }
+        if( Locale.class.equals(type) ) {
+            String[] parts = value.toString().split("_", 3);
+
+            return new Locale(parts[0], parts.length > 1 ? parts[1] : "", parts.length > 2 ? parts[2] : "");
+        }
+        if( Date.class.equals(type) ) {
+            return new Date(((Number)value).longValue());
+        }
+        if( TimeZone.class.equals(type) ) {
+            return TimeZone.getTimeZone(value.toString());
+        }
+        if( Currency.class.equals(type) ) {
+            return Currency.getInstance(value.toString());
+        }
+        if( File.class.equals(type) ) {
+            return new File(value.toString());
+        }
+        if( !(value instanceof JSONObject) ) {
+            throw new IllegalArgumentException("Cannot decode " + type.getName() + " from " + value);
+        }
+        JSONObject object = (JSONObject)value;
+        Object result = instantiate(type);
+
+        try {
+            for( Field f : getFields(type) ) {
+                String key = getKey(f);
+
+                if( object.has(key) ) {
+                    f.set(result, decode(object.opt(key), f.getType()));
+                }
+            }
+        }
+        catch( IllegalAccessException e ) {
+            throw new IllegalArgumentException("Cannot populate " + type.getName() + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    static private @Nonnull Class<?> box(@Nonnull Class<?> primitive) {
+        if( primitive.equals(int.class) ) {
+            return Integer.class;
+        }
+        else if( primitive.equals(long.class) ) {
+            return Long.class;
+        }
+        else if( primitive.equals(boolean.class) ) {
+            return Boolean.class;
+        }
+        else if( primitive.equals(double.class) ) {
+            return Double.class;
+        }
+        else if( primitive.equals(float.class) ) {
+            return Float.class;
+        }
+        else if( primitive.equals(short.class) ) {
+            return Short.class;
+        }
+        else if( primitive.equals(byte.class) ) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
+    static private @Nonnull Class<?> forName(@Nonnull String name) {
+        try {
+            return Class.forName(name);
+        }
+        catch( ClassNotFoundException e ) {
+            throw new IllegalArgumentException("Unknown class in cassette: " + name);
+        }
+    }
+
+    static private @Nonnull Class<?> getCollectionType(@Nonnull Object collection) {
+        Class<?> type = collection.getClass();
+
+        if( isPlain(type) ) {
+            return type;
+        }
+        if( collection instanceof SortedSet ) {
+            return TreeSet.class;
+        }
+        else if( collection instanceof Set ) {
+            return LinkedHashSet.class;
+        }
+        return ArrayList.class;
+    }
+
+    static private @Nonnull Class<?> getMapType(@Nonnull Map<?,?> map) {
+        Class<?> type = map.getClass();
+
+        if( isPlain(type) ) {
+            return type;
+        }
+        if( map instanceof SortedMap ) {
+            return TreeMap.class;
+        }
+        return LinkedHashMap.class;
+    }
+
+    static private boolean isPlain(@Nonnull Class<?> type) {
+        return (type.equals(ArrayList.class) || type.equals(HashSet.class) || type.equals(LinkedHashSet.class) || type.equals(TreeSet.class) || type.equals(HashMap.class) || type.equals(LinkedHashMap.class) || type.equals(TreeMap.class));
+    }
+
+    static private @Nonnull List<Field> getFields(@Nonnull Class<?> type) {
+        List<Field> list = fields.get(type);
+
+        if( list == null ) {
+            list = new ArrayList<Field>();
+            for( Class<?> c = type; c != null && !c.equals(Object.class); c = c.getSuperclass() ) {
+                for( Field f : c.getDeclaredFields() ) {
+                    int modifiers = f.getModifiers();
+
+                    if( !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !f.isSynthetic() ) {
+                        f.setAccessible(true);
+                        list.add(f);
+                    }
+                }
+            }
+            fields.put(type, list);
+        }
+        return list;
+    }
+
+    static private @Nonnull String getKey(@Nonnull Field f) {
+        return (f.getDeclaringClass().getSimpleName() + "." + f.getName());
+    }
+
+    /**
+     * Creates an empty instance of a class. Model classes that are only created through static factory methods have
+     * no public constructor, so classes without a no-argument constructor are allocated without running one.
+     * @param type the class to instantiate
+     * @return a new instance of the class
+     */
+    static private @Nonnull Object instantiate(@Nonnull Class<?> type) {
+        try {
+            Constructor<?> c = type.getDeclaredConstructor();
+
+            c.setAccessible(true);
+            return c.newInstance();
+        }
+        catch( NoSuchMethodException ignore ) {
+            // fall through to allocation
+        }
+        catch( Exception e ) {
+            throw new IllegalArgumentException("Cannot instantiate " + type.getName() + ": " + e.getMessage());
+        }
+        try {
+            synchronized( fields ) {
+                if( allocate == null ) {
+                    Class<?> u = Class.forName("sun.misc.Unsafe");
+                    Field f = u.getDeclaredField("theUnsafe");
+
+                    f.setAccessible(true);
+                    unsafe = f.get(null);
+                    allocate = u.getMethod("allocateInstance", Class.class);
+                }
+            }
+            return allocate.invoke(unsafe, type);
+        }
+        catch( Exception e ) {
+            throw new IllegalArgumentException("Cannot instantiate " + type.getName() + ": " + e.getMessage());
+        }
+    }
+
+    static private void put(@Nonnull JSONObject json, @Nonnull String key, @Nonnull Object value) {
+        try {
+            json.put(key, value);
+        }
+        catch( JSONException e ) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    static private @Nonnull JSONObject tag(@Nonnull Class<?> type, @Nonnull Object value) {
+        JSONObject json = new JSONObject();
+
+        put(json, "@", type.getName());
+        put(json, "v", value);
+        return json;
+    }
+
+    static private @Nonnull Object toNumber(@Nonnull Class<?> type, @Nonnull Object value) {
+        if( value instanceof String ) {
+            if( type.equals(Float.class) ) {
+                return Float.valueOf((String)value);
+            }
+            else if( type.equals(Double.class) || type.equals(Number.class) ) {
+                return Double.valueOf((String)value);
+            }
+            return Long.valueOf((String)value);
+        }
+        Number n = (Number)value;
+
+        if( type.equals(Integer.class) ) {
+            return n.intValue();
+        }
+        else if( type.equals(Long.class) ) {
+            return n.longValue();
+        }
+        else if( type.equals(Double.class) ) {
+            return n.doubleValue();
+        }
+        else if( type.equals(Float.class) ) {
+            return n.floatValue();
+        }
+        else if( type.equals(Short.class) ) {
+            return n.shortValue();
+        }
+        else if( type.equals(Byte.class) ) {
+            return n.byteValue();
+        }
+        return n;
+    }
+}
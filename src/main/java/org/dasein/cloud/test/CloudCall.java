@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single call made by the test harness against a support object of a cloud provider as it passes through the
+ * chain of {@link CallInterceptor} instances. The API name of a call is the simple name of the support interface
+ * followed by the method name (e.g. "VirtualMachineSupport.getVirtualMachine") and the resource ID of a call is the
+ * first string argument to the call, if any.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class CloudCall {
+    private Object[]                        arguments;
+    private boolean                         fixture;
+    private int                             index;
+    private List<CallInterceptor>           interceptors;
+    private Method                          method;
+    private InterceptingProvider            provider;
+    private String                          service;
+    private Object                          target;
+
+    CloudCall(@Nonnull InterceptingProvider provider, boolean fixture, @Nonnull String service, @Nonnull Object target, @Nonnull Method method, @Nullable Object[] arguments, @Nonnull List<CallInterceptor> interceptors) {
+        this.provider = provider;
+        this.fixture = fixture;
+        this.service = service;
+        this.target = target;
+        this.method = method;
+        this.arguments = (arguments == null ? new Object[0] : arguments);
+        this.interceptors = interceptors;
+        this.index = 0;
+    }
+
+    /**
+     * @return the name of the API being called in the form Support.method
+     */
+    public @Nonnull String getApi() {
+        return (service + "." + method.getName());
+    }
+
+    public @Nonnull Object[] getArguments() {
+        return arguments;
+    }
+
+    public @Nonnull Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the API name followed by all of the arguments to the call, which identifies repeats of the same call
+     */
+    public @Nonnull String getKey() {
+        return (getApi() + Arrays.deepToString(arguments));
+    }
+
+    public @Nonnull InterceptingProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * @return the first string argument to the call, which is by convention the ID of the resource being operated on
+     */
+    public @Nullable String getResourceId() {
+        for( Object arg : arguments ) {
+            if( arg instanceof String ) {
+                return (String)arg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the simple name of the support interface being called (e.g. "VirtualMachineSupport")
+     */
+    public @Nonnull String getService() {
+        return service;
+    }
+
+    /**
+     * @return true if the call was made on behalf of shared test fixtures rather than by a test itself, either through
+     * a fixture provider or through a support object marked with {@link InterceptingProvider#asFixture(Object)}
+     */
+    public boolean isFixture() {
+        return fixture;
+    }
+
+    /**
+     * Passes the call to the next interceptor in the chain or, if this is the last interceptor, to the
+     * cloud provider itself.
+     * @return the result of the call
+     * @throws Throwable any error resulting from the call
+     */
+    public @Nullable Object proceed() throws Throwable {
+        if( index < interceptors.size() ) {
+            CallInterceptor interceptor = interceptors.get(index++);
+
+            try {
+                return interceptor.intercept(this);
+            }
+            finally {
+                index--;
+            }
+        }
+        try {
+            return method.invoke(target, arguments);
+        }
+        catch( InvocationTargetException e ) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        String id = getResourceId();
+
+        return (id == null ? getApi() : getApi() + "(" + id + ")");
+    }
+}
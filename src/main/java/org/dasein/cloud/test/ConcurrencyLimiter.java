@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Limits the number of calls in flight against each family of cloud services (compute, network, storage, platform,
+ * identity, and so on) so that parallel tests, provisioning, and teardown get the most out of an account without
+ * triggering provider-wide backoff. The limit for each family adapts by additive increase and multiplicative decrease:
+ * every successful call nudges the limit up so that it grows by about one per round of calls, while a throttling
+ * response or a timeout cuts it by a fixed factor. Only one cut is made for calls that were already in flight when
+ * the limit was last cut, so a single burst of throttling does not collapse the limit.
+ * <p>The following {@link System} properties control the limiter:</p>
+ * <ul>
+ *     <li>dasein.limiter - true to limit concurrency (default false)</li>
+ *     <li>dasein.limiter.initial - the starting limit for each family (default 8)</li>
+ *     <li>dasein.limiter.max - the highest the limit may grow (default 64)</li>
+ *     <li>dasein.limiter.decrease - the factor by which the limit is cut on throttling (default 0.5)</li>
+ *     <li>dasein.limiter.timeout - milliseconds after which a slow call counts as a timeout (default 60000)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ConcurrencyLimiter implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(ConcurrencyLimiter.class);
+
+    static private final ConcurrencyLimiter instance = new ConcurrencyLimiter();
+
+    static private class Limit {
+        public int    calls;
+        public long   cutAt;
+        public int    inFlight;
+        public double limit;
+        public double lowest;
+        public int    peak;
+        public double highest;
+        public int    signals;
+        public long   waitMillis;
+    }
+
+    static private final TreeMap<String,Limit> limits = new TreeMap<String, Limit>();
+
+    static private double  decrease;
+    static private Boolean enabled;
+    static private double  initial;
+    static private double  maximum;
+    static private long    timeout;
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            synchronized( limits ) {
+                if( enabled == null ) {
+                    boolean on = "true".equalsIgnoreCase(System.getProperty("dasein.limiter"));
+
+                    if( on ) {
+                        maximum = Math.max(1.0, getSetting("max", 64.0));
+                        initial = Math.min(maximum, Math.max(1.0, getSetting("initial", 8.0)));
+                        decrease = Math.min(0.95, Math.max(0.05, getSetting("decrease", 0.5)));
+                        timeout = (long)getSetting("timeout", 60000.0);
+                        InterceptingProvider.addInterceptor(instance);
+                    }
+                    enabled = on;
+                }
+            }
+        }
+        return enabled;
+    }
+
+    static private double getSetting(@Nonnull String name, double defaultValue) {
+        return PerfUtils.getDouble("dasein.limiter." + name, defaultValue);
+    }
+
+    /**
+     * Identifies the family of services to which a call belongs from the package of the support interface.
+     * @param call the call
+     * @return the service family, such as compute or network
+     */
+    static private @Nonnull String getFamily(@Nonnull CloudCall call) {
+        String pkg = call.getMethod().getDeclaringClass().getName();
+
+        pkg = pkg.substring(0, pkg.lastIndexOf('.'));
+        return (pkg.equals("org.dasein.cloud") ? "general" : pkg.substring(pkg.lastIndexOf('.') + 1));
+    }
+
+    static private @Nonnull Limit getLimit(@Nonnull String family) {
+        Limit l = limits.get(family);
+
+        if( l == null ) {
+            l = new Limit();
+            l.limit = initial;
+            l.lowest = initial;
+            l.highest = initial;
+            limits.put(family, l);
+        }
+        return l;
+    }
+
+    static private boolean isThrottled(@Nullable Throwable t) {
+        while( t != null ) {
+            if( t instanceof CloudException ) {
+                CloudException e = (CloudException)t;
+
+                if( CloudErrorType.THROTTLING.equals(e.getErrorType()) || e.getHttpCode() == 429 || e.getHttpCode() == 503 ) {
+                    return true;
+                }
+            }
+            if( t instanceof SocketTimeoutException ) {
+                return true;
+            }
+            t = t.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Provides the current concurrency limit for a service family.
+     * @param family the service family (e.g. compute)
+     * @return the current limit or 0 if no calls have been made against that family
+     */
+    static public int getCurrentLimit(@Nonnull String family) {
+        synchronized( limits ) {
+            Limit l = limits.get(family);
+
+            return (l == null ? 0 : (int)l.limit);
+        }
+    }
+
+    /**
+     * Logs the current, lowest, and highest concurrency limit for each service family along with the number of
+     * throttling or timeout signals and the time calls spent waiting for a slot.
+     * @param logger the logger to write the report to
+     * @return the number of throttling or timeout signals seen across all families
+     */
+    static public int report(@Nonnull Logger logger) {
+        int signals = 0;
+
+        synchronized( limits ) {
+            if( limits.isEmpty() ) {
+                return 0;
+            }
+            logger.info("---------- Concurrency Limits ---------");
+            for( Map.Entry<String,Limit> entry : limits.entrySet() ) {
+                Limit l = entry.getValue();
+
+                signals += l.signals;
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), "limit=" + (int)l.limit + " lowest=" + (int)l.lowest + " highest=" + (int)l.highest + " peak=" + l.peak + " calls=" + l.calls + " throttled=" + l.signals + " queued=" + l.waitMillis + " ms");
+            }
+            logger.info("");
+        }
+        return signals;
+    }
+
+    private ConcurrencyLimiter() { }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        String family = getFamily(call);
+        Limit l;
+        long start;
+
+        synchronized( limits ) {
+            long queued = System.currentTimeMillis();
+
+            l = getLimit(family);
+            while( l.inFlight >= (int)l.limit ) {
+                limits.wait();
+            }
+            l.inFlight++;
+            l.calls++;
+            l.peak = Math.max(l.peak, l.inFlight);
+            start = System.currentTimeMillis();
+            l.waitMillis += start - queued;
+        }
+        Throwable error = null;
+
+        try {
+            return call.proceed();
+        }
+        catch( Throwable t ) {
+            error = t;
+            throw t;
+        }
+        finally {
+            long now = System.currentTimeMillis();
+
+            synchronized( limits ) {
+                l.inFlight--;
+                if( isThrottled(error) || now - start > timeout ) {
+                    l.signals++;
+                    if( start >= l.cutAt ) {
+                        l.limit = Math.max(1.0, l.limit * decrease);
+                        l.lowest = Math.min(l.lowest, l.limit);
+                        l.cutAt = now;
+                        logger.debug("Cut " + family + " concurrency limit to " + (int)l.limit + " after " + call);
+                    }
+                }
+                else if( error == null ) {
+                    l.limit = Math.min(maximum, l.limit + 1.0/l.limit);
+                    l.highest = Math.max(l.highest, l.limit);
+                }
+                limits.notifyAll();
+            }
+        }
+    }
+}
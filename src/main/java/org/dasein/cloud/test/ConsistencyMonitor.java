@@ -0,0 +1,374 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.util.CalendarWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Measures how long it takes a cloud to reflect a create or a remove through its get and list APIs. When
+ * enabled with the {@link System} property dasein.consistency, stateful tests hand the monitor a probe for
+ * the get path and a probe for the list path right after a create or remove operation. The monitor polls both
+ * at a high frequency until each reflects the change or the polling budget runs out and records the observed
+ * lag per resource type. The recorded lag distribution is reported at the end of the run and is used to size
+ * the settle waits elsewhere in the test suite via {@link #getSettleTime(String, boolean, long)}. If a profile
+ * file is named, a measuring run saves the 95th percentile lags to it and later runs that are not measuring
+ * load it to size their settle waits.
+ * <p>The following {@link System} properties control the monitor:</p>
+ * <ul>
+ *     <li>dasein.consistency - true to enable measurement (default false)</li>
+ *     <li>dasein.consistency.interval - milliseconds between polls (default 250)</li>
+ *     <li>dasein.consistency.budget - maximum milliseconds to poll for a single change (default 120000)</li>
+ *     <li>dasein.consistency.threshold - maximum acceptable lag in milliseconds before a test fails (default 30000)</li>
+ *     <li>dasein.consistency.backoff - milliseconds before the first retry of a test waiting on a change (default 250)</li>
+ *     <li>dasein.consistency.maxBackoff - most milliseconds between retries of a test waiting on a change (default 5000)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ConsistencyMonitor {
+    static private final Logger logger = Logger.getLogger(ConsistencyMonitor.class);
+
+    /**
+     * Checks whether the cloud reflects the expected state for a resource, meaning the resource is present after
+     * a create or absent after a remove.
+     */
+    public interface Probe {
+        public boolean reflects() throws CloudException, InternalException;
+    }
+
+    /**
+     * The lag observed for a single create or remove operation. A lag of -1 means the path never reflected
+     * the change within the polling budget and a lag of -2 means the path was not measured.
+     */
+    static public class Lag {
+        private long getLag;
+        private long listLag;
+
+        private Lag(long getLag, long listLag) {
+            this.getLag = getLag;
+            this.listLag = listLag;
+        }
+
+        public long getGetLag() {
+            return getLag;
+        }
+
+        public long getListLag() {
+            return listLag;
+        }
+
+        public boolean isComplete() {
+            return (getLag != -1L && listLag != -1L);
+        }
+
+        public long getMaximum() {
+            return Math.max(getLag, listLag);
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return "get=" + format(getLag) + ", list=" + format(listLag);
+        }
+
+        static private String format(long lag) {
+            if( lag == -1L ) {
+                return "never";
+            }
+            else if( lag == -2L ) {
+                return "n/a";
+            }
+            return lag + " ms";
+        }
+    }
+
+    static private final TreeMap<String,ArrayList<Long>> samples = new TreeMap<String, ArrayList<Long>>();
+
+    static private long       backoff    = -1L;
+    static private long       budget     = -1L;
+    static private Boolean    enabled    = null;
+    static private long       interval   = -1L;
+    static private long       maxBackoff = -1L;
+    static private Properties profile    = null;
+    static private long       threshold  = -1L;
+
+    static private long getLongProperty(@Nonnull String name, long defaultValue) {
+        return PerfUtils.getLong(name, defaultValue);
+    }
+
+    /**
+     * Provides the wait before the next check by a test that is waiting for the cloud to reflect a change. Unlike
+     * the polling of the monitor itself, these waits start short and double up to a bound so that slow clouds are
+     * not hammered with calls while fast clouds still pass quickly.
+     * @param previous the previous wait or 0 for the first one
+     * @return the milliseconds to wait before checking again
+     */
+    static public long getBackoff(long previous) {
+        if( backoff < 0L ) {
+            backoff = Math.max(1L, getLongProperty("dasein.consistency.backoff", 250L));
+            maxBackoff = Math.max(backoff, getLongProperty("dasein.consistency.maxBackoff", CalendarWrapper.SECOND * 5L));
+        }
+        if( previous <= 0L ) {
+            return backoff;
+        }
+        return Math.min(previous * 2L, maxBackoff);
+    }
+
+    static public long getBudget() {
+        if( budget < 0L ) {
+            budget = getLongProperty("dasein.consistency.budget", CalendarWrapper.MINUTE * 2L);
+        }
+        return budget;
+    }
+
+    static public long getInterval() {
+        if( interval < 0L ) {
+            interval = getLongProperty("dasein.consistency.interval", 250L);
+        }
+        return interval;
+    }
+
+    static public long getThreshold() {
+        if( threshold < 0L ) {
+            threshold = getLongProperty("dasein.consistency.threshold", CalendarWrapper.SECOND * 30L);
+        }
+        return threshold;
+    }
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            enabled = "true".equalsIgnoreCase(System.getProperty("dasein.consistency"));
+        }
+        return enabled;
+    }
+
+    static private @Nonnull String key(@Nonnull String resourceType, boolean create, @Nonnull String path) {
+        return resourceType + (create ? " create" : " remove") + " (" + path + ")";
+    }
+
+    /**
+     * Polls the get and list probes until both reflect the change or the polling budget is exhausted. Errors
+     * thrown by a probe count as the change not yet being reflected.
+     * @param resourceType the type of resource being measured (e.g. "Firewall")
+     * @param create true if the change was a create, false if it was a remove
+     * @param get a probe against the get API for the resource, or null if the get path should not be measured
+     * @param list a probe against the list API for the resource, or null if the list path should not be measured
+     * @return the lag observed on each path
+     */
+    static public @Nonnull Lag measure(@Nonnull String resourceType, boolean create, @Nullable Probe get, @Nullable Probe list) {
+        long start = System.currentTimeMillis();
+        long timeout = start + getBudget();
+        long getLag = (get == null ? -2L : -1L);
+        long listLag = (list == null ? -2L : -1L);
+
+        while( true ) {
+            if( getLag == -1L && reflects(get) ) {
+                getLag = System.currentTimeMillis() - start;
+            }
+            if( listLag == -1L && reflects(list) ) {
+                listLag = System.currentTimeMillis() - start;
+            }
+            if( (getLag != -1L && listLag != -1L) || System.currentTimeMillis() >= timeout ) {
+                break;
+            }
+            try { TimelineRecorder.pause(getInterval()); }
+            catch( InterruptedException e ) { break; }
+        }
+        record(key(resourceType, create, "get"), getLag, timeout - start);
+        record(key(resourceType, create, "list"), listLag, timeout - start);
+        return new Lag(getLag, listLag);
+    }
+
+    static private boolean reflects(@Nullable Probe probe) {
+        if( probe == null ) {
+            return false;
+        }
+        try {
+            return probe.reflects();
+        }
+        catch( Throwable t ) {
+            logger.debug("Consistency probe failed: " + t.getMessage());
+            return false;
+        }
+    }
+
+    static private void record(@Nonnull String key, long lag, long budget) {
+        if( lag == -2L ) {
+            return;
+        }
+        synchronized( samples ) {
+            ArrayList<Long> list = samples.get(key);
+
+            if( list == null ) {
+                list = new ArrayList<Long>();
+                samples.put(key, list);
+            }
+            // a change that never showed up counts as the full budget so it dominates the distribution
+            list.add(lag == -1L ? budget : lag);
+        }
+    }
+
+    /**
+     * Provides a wait, sized from observed lags, that code should allow for a create or remove to be reflected
+     * by the cloud. This is the 95th percentile of the lags observed on either path for the resource type during
+     * this run or, absent any observations in this run, the value saved in the consistency profile. If nothing is
+     * known about the resource type, the default wait is used.
+     * @param resourceType the type of resource
+     * @param create true for the wait after a create, false for the wait after a remove
+     * @param defaultWait the wait to use absent any observations
+     * @return the number of milliseconds to wait
+     */
+    static public long getSettleTime(@Nonnull String resourceType, boolean create, long defaultWait) {
+        long wait = -1L;
+
+        synchronized( samples ) {
+            for( String path : new String[] { "get", "list" } ) {
+                String key = key(resourceType, create, path);
+                ArrayList<Long> list = samples.get(key);
+
+                if( list != null && !list.isEmpty() ) {
+                    wait = Math.max(wait, PerfUtils.percentile(list, 0.95));
+                }
+                else {
+                    String value = getProfile().getProperty(key);
+
+                    if( value != null ) {
+                        try {
+                            wait = Math.max(wait, Long.parseLong(value));
+                        }
+                        catch( NumberFormatException ignore ) {
+                            // ignore
+                        }
+                    }
+                }
+            }
+        }
+        return (wait < 0L ? defaultWait : wait);
+    }
+
+    /**
+     * Waits for the settle time of the specified resource type after a create or remove so that dependent code
+     * does not trip over eventual consistency. Nothing happens while the monitor is measuring since the tests
+     * themselves then wait for the change to be reflected.
+     * @param resourceType the type of resource
+     * @param create true for the wait after a create, false for the wait after a remove
+     */
+    static public void settle(@Nonnull String resourceType, boolean create) {
+        if( isEnabled() ) {
+            return;
+        }
+        long wait = getSettleTime(resourceType, create, 0L);
+
+        if( wait > 0L ) {
+            try { TimelineRecorder.pause(wait); }
+            catch( InterruptedException ignore ) { }
+        }
+    }
+
+    static private @Nonnull Properties getProfile() {
+        if( profile == null ) {
+            Properties properties = new Properties();
+            String path = System.getProperty("dasein.consistency.profile");
+
+            if( path != null && !isEnabled() && new File(path).exists() ) {
+                try {
+                    FileInputStream input = new FileInputStream(path);
+
+                    try {
+                        properties.load(input);
+                    }
+                    finally {
+                        input.close();
+                    }
+                }
+                catch( IOException e ) {
+                    logger.warn("Unable to load consistency profile " + path + ": " + e.getMessage());
+                }
+            }
+            profile = properties;
+        }
+        return profile;
+    }
+
+    static private void saveProfile() {
+        String path = System.getProperty("dasein.consistency.profile");
+
+        if( path == null || !isEnabled() ) {
+            return;
+        }
+        Properties properties = new Properties();
+
+        for( Map.Entry<String,ArrayList<Long>> entry : samples.entrySet() ) {
+            properties.setProperty(entry.getKey(), String.valueOf(PerfUtils.percentile(entry.getValue(), 0.95)));
+        }
+        try {
+            FileOutputStream output = new FileOutputStream(path);
+
+            try {
+                properties.store(output, "Dasein Cloud consistency profile (95th percentile lag in milliseconds)");
+            }
+            finally {
+                output.close();
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to save consistency profile " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Logs the lag distribution for each resource type and path measured during the run and saves the
+     * consistency profile if one is configured.
+     * @param logger the logger to write the report to
+     * @return the number of changes measured
+     */
+    static public int report(@Nonnull Logger logger) {
+        int count = 0;
+
+        synchronized( samples ) {
+            if( samples.isEmpty() ) {
+                return 0;
+            }
+            logger.info("----------- Consistency Log -----------");
+            for( Map.Entry<String,ArrayList<Long>> entry : samples.entrySet() ) {
+                ArrayList<Long> list = entry.getValue();
+
+                count += list.size();
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), "n=" + list.size() + " min=" + PerfUtils.percentile(list, 0.0) + " ms p50=" + PerfUtils.percentile(list, 0.5) + " ms p95=" + PerfUtils.percentile(list, 0.95) + " ms max=" + PerfUtils.percentile(list, 1.0) + " ms");
+            }
+            logger.info("");
+            saveProfile();
+        }
+        return count;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.dasein.cloud.test;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.CloudProvider;
 import org.dasein.cloud.ProviderContext;
@@ -40,6 +41,9 @@ import org.dasein.cloud.util.APITrace;
 import org.dasein.util.CalendarWrapper;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.junit.internal.AssumptionViolatedException;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -52,8 +56,11 @@ import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
+import static org.junit.Assert.fail;
+
 /**
  * Consolidates and manages cloud resources shared across many different tests.
  * <p>Created by George Reese: 2/17/13 3:23 PM</p>
@@ -88,6 +95,18 @@ public class DaseinTestManager {
     }
 
     static public @Nonnull CloudProvider constructProvider(@Nullable String overrideAccount, @Nullable String overrideShared, @Nullable String overrideSecret) {
+        return constructProvider(overrideAccount, overrideShared, overrideSecret, false);
+    }
+
+    /**
+     * Constructs a provider whose calls are treated as those of the shared test resources rather than of a test.
+     * @return a provider for fixture calls
+     */
+    static @Nonnull CloudProvider constructFixtureProvider() {
+        return constructProvider(null, null, null, true);
+    }
+
+    static private @Nonnull CloudProvider constructProvider(@Nullable String overrideAccount, @Nullable String overrideShared, @Nullable String overrideSecret, boolean fixture) {
         String cname = System.getProperty("providerClass");
         CloudProvider provider;
 
@@ -95,7 +114,7 @@ public class DaseinTestManager {
             throw new RuntimeException("Invalid class name for provider: " + cname);
         }
         try {
-            provider = (CloudProvider)Class.forName(cname).newInstance();
+            provider = new InterceptingProvider((CloudProvider)Class.forName(cname).newInstance(), fixture);
         }
         catch( Exception e ) {
             throw new RuntimeException("Invalid class name " + cname + " for provider: " + e.getMessage());
@@ -184,6 +203,13 @@ public class DaseinTestManager {
         catch( JSONException e ) {
             throw new RuntimeException("Failed to understand custom properties JSON: " + e.getMessage());
         }
+        CallAudit.install();
+        ResultsWriter.isEnabled();
+        TimelineRecorder.isEnabled();
+        RetryPolicy.install();
+        ConcurrencyLimiter.isEnabled();
+        FaultInjector.isEnabled();
+        Cassette.isEnabled();
         provider.connect(ctx);
         return provider;
     }
@@ -216,14 +242,16 @@ public class DaseinTestManager {
         Logger logger = Logger.getLogger(DaseinTestManager.class);
 
         logger.info("BEGIN Test Initialization ------------------------------------------------------------------------------");
+        TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Test Initialization");
+
         try {
             testStart = System.currentTimeMillis();
-            storageResources = new StorageResources(constructProvider());
-            platformResources = new PlatformResources(constructProvider());
-            networkResources = new NetworkResources(constructProvider());
-            identityResources = new IdentityResources(constructProvider());
-            ciResources = new CIResources(constructProvider());
-            computeResources = new ComputeResources(constructProvider());
+            storageResources = new StorageResources(constructProvider(null, null, null, true));
+            platformResources = new PlatformResources(constructProvider(null, null, null, true));
+            networkResources = new NetworkResources(constructProvider(null, null, null, true));
+            identityResources = new IdentityResources(constructProvider(null, null, null, true));
+            ciResources = new CIResources(constructProvider(null, null, null, true));
+            computeResources = new ComputeResources(constructProvider(null, null, null, true));
             computeResources.init();
 
             String prop = System.getProperty("dasein.inclusions");
@@ -259,6 +287,7 @@ public class DaseinTestManager {
             APITrace.reset();
         }
         finally {
+            span.end();
             logger.info("END Test Initialization ------------------------------------------------------------------------------");
             logger.info("");
         }
@@ -269,43 +298,56 @@ public class DaseinTestManager {
         int provisioned = 0;
         int cleaned = 0;
 
+        TestLog.flush();
         logger.info("");
         logger.info("BEGIN Test Clean Up ------------------------------------------------------------------------------");
         try {
             APITrace.report("Clean Up");
             if( ciResources != null ) {
+                TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Clean Up CI Resources");
                 int count = ciResources.close();
 
+                span.end();
                 out(logger, null, "CI Resources", String.valueOf(count));
                 cleaned += count;
             }
             if( computeResources != null ) {
+                TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Clean Up Compute Resources");
                 int count = computeResources.close();
 
+                span.end();
                 out(logger, null, "Compute Resources", String.valueOf(count));
                 cleaned += count;
             }
             if( networkResources != null ) {
+                TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Clean Up Network Resources");
                 int count = networkResources.close();
 
+                span.end();
                 out(logger, null, "Network Resources", String.valueOf(count));
                 cleaned += count;
             }
             if( identityResources != null ) {
+                TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Clean Up Identity Resources");
                 int count = identityResources.close();
 
+                span.end();
                 out(logger, null, "Identity Resources", String.valueOf(count));
                 cleaned += count;
             }
             if( platformResources != null ) {
+                TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Clean Up Platform Resources");
                 int count = platformResources.close();
 
+                span.end();
                 out(logger, null, "Platform Resources", String.valueOf(count));
                 cleaned += count;
             }
             if( storageResources != null ) {
+                TimelineRecorder.Span span = TimelineRecorder.start("fixture", "Clean Up Storage Resources");
                 int count = storageResources.close();
 
+                span.end();
                 out(logger, null, "Storage Resources", String.valueOf(count));
                 cleaned += count;
             }
@@ -329,6 +371,13 @@ public class DaseinTestManager {
         out(logger, null, "---> Total Calls", String.valueOf(total));
         logger.info("");
 
+        ConsistencyMonitor.report(logger);
+        CallAudit.report(logger);
+        FaultInjector.report(logger);
+        ConcurrencyLimiter.report(logger);
+        RetryPolicy.report(logger);
+        MemoryProfiler.report(logger);
+
         logger.info("----------- Provisioning Log ----------");
         if( computeResources != null ) {
             provisioned += computeResources.report();
@@ -357,38 +406,91 @@ public class DaseinTestManager {
         out(logger, null, "Resources De-provisioned", String.valueOf(cleaned));
         out(logger, null, "Duration", minutes + " minutes " + seconds + " seconds");
         logger.info("-------------------------------------------------------------------------------------------------");
+        ResultsWriter.summary(apiAudit, testCount, skipCount, provisioned, cleaned, duration);
+        TimelineRecorder.close();
+
+        String baseline = System.getProperty("dasein.results.baseline");
+
+        if( baseline != null && !baseline.equals("") && ResultsWriter.isEnabled() ) {
+            logger.info("");
+            try {
+                new ResultsComparator().compare(baseline, System.getProperty("dasein.results"), logger);
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to compare results with " + baseline + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the calls made against an API during a test to the running totals for the whole run.
+     * @param call the API that was called
+     * @param count the number of calls made during the test
+     */
+    static void audit(@Nonnull String call, int count) {
+        if( apiAudit.containsKey(call) ) {
+            apiAudit.put(call, count + apiAudit.get(call));
+        }
+        else {
+            apiAudit.put(call, count);
+        }
+    }
+
+    static private @Nullable <T> T used(@Nullable T resource) {
+        ResultsWriter.used(resource);
+        return resource;
     }
 
     static public void out(@Nonnull Logger logger, @Nullable String prefix, @Nonnull String key, @Nullable String value) {
-        StringBuilder str = new StringBuilder();
+        if( logger.isInfoEnabled() ) {
+            logger.info(format(prefix, key, value));
+        }
+    }
+
+    /**
+     * Formats a key/value line with the key padded or truncated to a fixed width in the formatting buffer of the
+     * current thread.
+     * @param prefix the prefix of the line, if any
+     * @param key the key
+     * @param value the value
+     * @return the formatted line
+     */
+    static private @Nonnull String format(@Nullable String prefix, @Nonnull String key, @Nullable Object value) {
+        StringBuilder str = TestLog.buffer();
+        int start;
 
+        if( prefix != null ) {
+            str.append(prefix);
+        }
+        start = str.length();
         if( key.length() > 36 ) {
-            str.append(key.substring(0, 36)).append(": ");
+            str.append(key, 0, 36).append(": ");
         }
         else {
             str.append(key).append(": ");
-            while( str.length() < 38 ) {
-                str.append(" ");
+            while( str.length() - start < 38 ) {
+                str.append(' ');
             }
         }
-        if( prefix == null ) {
-            logger.info(str.toString() + value);
-        }
-        else {
-            logger.info( prefix + str.toString() + value);
-        }
+        str.append(value);
+        return str.toString();
     }
 
 
+    private TreeMap<String,Integer> items = new TreeMap<String, Integer>();
     private Logger                  logger;
+    private MemoryProfiler.Usage    memory;
     private String                  name;
     private String                  prefix;
     private CloudProvider           provider;
     private long                    startTimestamp;
     private String                  suite;
+    private Class<?>                testClass;
+    private TimelineRecorder.Span   testSpan;
 
     public DaseinTestManager(@Nonnull Class<?> testClass) {
         logger = Logger.getLogger(testClass);
+        this.testClass = testClass;
         suite = testClass.getSimpleName();
         provider = constructProvider();
         changePrefix();
@@ -396,16 +498,21 @@ public class DaseinTestManager {
 
     public void begin(@Nonnull String name) {
         this.name = name;
+        items.clear();
         APITrace.report("Setup");
         APITrace.reset();
         changePrefix();
         startTimestamp = System.currentTimeMillis();
+        CallAudit.begin(suite + "." + name);
+        ResultsWriter.begin(provider.getProviderName(), provider.getCloudName(), suite, name);
+        testSpan = TimelineRecorder.start("test", suite + "." + name);
         testCount++;
         out("");
         out(">>> BEGIN ---------------------------------------------------------------------------------------------->>>");
+        memory = MemoryProfiler.begin(suite + "." + name);
     }
 
-    private void changePrefix() {
+    void changePrefix() {
         StringBuilder str = new StringBuilder();
         String s;
 
@@ -434,12 +541,38 @@ public class DaseinTestManager {
         }
     }
 
+    /**
+     * Measures how long the cloud takes to reflect a create or remove through its get and list APIs when
+     * consistency measurement is enabled (see {@link ConsistencyMonitor}). Nothing happens when measurement
+     * is not enabled. The current test fails if either path never reflects the change within the polling budget
+     * or if the lag on either path exceeds the configured threshold.
+     * @param resourceType the type of resource being measured (e.g. "Firewall")
+     * @param create true if the change was a create, false if it was a remove
+     * @param get a probe against the get API for the resource, or null if the resource has no get API
+     * @param list a probe against the list API for the resource, or null if the resource has no list API
+     */
+    public void checkConsistency(@Nonnull String resourceType, boolean create, @Nullable ConsistencyMonitor.Probe get, @Nullable ConsistencyMonitor.Probe list) {
+        if( !ConsistencyMonitor.isEnabled() ) {
+            return;
+        }
+        ConsistencyMonitor.Lag lag = ConsistencyMonitor.measure(resourceType, create, get, list);
+
+        out("Visibility Lag", lag);
+        if( !lag.isComplete() ) {
+            fail("The " + (create ? "creation" : "removal") + " of the " + resourceType + " was not reflected within " + ConsistencyMonitor.getBudget() + " ms (" + lag + ")");
+        }
+        if( lag.getMaximum() > ConsistencyMonitor.getThreshold() ) {
+            fail("The " + (create ? "creation" : "removal") + " of the " + resourceType + " took longer than " + ConsistencyMonitor.getThreshold() + " ms to be reflected (" + lag + ")");
+        }
+    }
+
     public void close() {
         getProvider().close();
     }
 
     public void end() {
         String[] calls = APITrace.listApis(provider.getProviderName(), provider.getCloudName());
+        TreeMap<String,Integer> apiCalls = new TreeMap<String, Integer>();
 
         if( calls.length > 0 ) {
             out("---------- API Log ----------");
@@ -448,24 +581,96 @@ public class DaseinTestManager {
             for( String call : calls ) {
                 int count = (int)APITrace.getAPICountAcrossAccounts(provider.getProviderName(), provider.getCloudName(), call);
 
-                if( apiAudit.containsKey(call) ) {
-                    apiAudit.put(call, count + apiAudit.get(call));
-                }
-                else {
-                    apiAudit.put(call, count);
-                }
+                audit(call, count);
+                apiCalls.put(call, count);
                 out("---> " + call, count);
                 total += count;
             }
             out("---> Total Calls", total);
         }
-        out("Duration", (((float)(System.currentTimeMillis()-startTimestamp))/1000f) + " seconds");
+        if( memory != null ) {
+            boolean over = MemoryProfiler.end(memory);
+
+            out("---------- Memory ----------");
+            out("---> Heap Used", (memory.getHeapBefore()/1024L) + " KB -> " + (memory.getHeapAfter()/1024L) + " KB");
+            out("---> Allocated", memory.getAllocated() < 0L ? "n/a" : (memory.getAllocated()/1024L) + " KB");
+            out("---> GC", memory.getGcCount() + " collections in " + memory.getGcMillis() + " ms");
+            if( over ) {
+                warn("Test allocated " + (memory.getAllocated()/(1024L * 1024L)) + " MB on its thread");
+            }
+            memory = null;
+        }
+        String failure = checkCalls();
+        long duration = System.currentTimeMillis() - startTimestamp;
+
+        ResultsWriter.end(duration, apiCalls, CallAudit.getCallCount(), CallAudit.getLatencies());
+        if( testSpan != null ) {
+            testSpan.end();
+            testSpan = null;
+        }
+        if( TestLog.getVerbosity() != TestLog.Verbosity.FULL ) {
+            for( Map.Entry<String,Integer> entry : items.entrySet() ) {
+                out("---> Listed " + entry.getKey(), entry.getValue());
+            }
+        }
+        items.clear();
+        out("Duration", (((float)duration)/1000f) + " seconds");
         out("<<< END   ----------------------------------------------------------------------------------------------<<<");
         out("");
+        TestLog.flush();
         APITrace.report(prefix);
         APITrace.reset();
+        CallAudit.end();
         name = null;
         changePrefix();
+        if( failure != null ) {
+            fail(failure);
+        }
+    }
+
+    /**
+     * Checks the calls made during the current test against any {@link CallBudget} declared for the test and looks
+     * for chatty call patterns, both calls to the same API with the same arguments repeated within the test and
+     * provider methods that issue many API calls each time they are invoked (see {@link CallAudit}).
+     * @return a description of why the test should fail or null if the calls were acceptable
+     */
+    private @Nullable String checkCalls() {
+        int threshold = CallAudit.getRepeatThreshold();
+        String failure = null;
+
+        for( Map.Entry<String,Integer> entry : CallAudit.checkRepeats().entrySet() ) {
+            warn("Chatty call: " + entry.getKey() + " was called " + entry.getValue() + " times");
+            if( failure == null && CallAudit.isFailOnRepeat() ) {
+                failure = entry.getKey() + " was called " + entry.getValue() + " times during the test";
+            }
+        }
+        for( String operation : APITrace.listOperations(provider.getProviderName(), provider.getCloudName()) ) {
+            long invocations = APITrace.getOperationCountAcrossAccounts(provider.getProviderName(), provider.getCloudName(), operation);
+            long apis = APITrace.getAPICountForOperationAcrossAccounts(provider.getProviderName(), provider.getCloudName(), operation);
+
+            if( invocations > 0 && apis/invocations >= threshold ) {
+                warn("Chatty provider method: " + operation + " made " + (apis/invocations) + " API calls per invocation");
+                CallAudit.flag(operation + " (API calls per invocation)", (int)(apis/invocations));
+            }
+        }
+        if( name != null ) {
+            try {
+                CallBudget budget = testClass.getMethod(name).getAnnotation(CallBudget.class);
+
+                if( budget != null ) {
+                    int count = CallAudit.getCallCount();
+
+                    out("Call Budget", count + "/" + budget.value());
+                    if( count > budget.value() ) {
+                        failure = "Test made " + count + " API calls, exceeding its budget of " + budget.value();
+                    }
+                }
+            }
+            catch( NoSuchMethodException ignore ) {
+                // ignore
+            }
+        }
+        return failure;
     }
 
     public @Nonnull ProviderContext getContext() {
@@ -506,80 +711,80 @@ public class DaseinTestManager {
 
     public @Nullable Blob getTestBucket(@Nonnull String label, boolean root, boolean provisionIfNull) {
         if( root ) {
-            return (storageResources == null ? null : storageResources.getTestRootBucket(label, provisionIfNull, null));
+            return used(storageResources == null ? null : storageResources.getTestRootBucket(label, provisionIfNull, null));
         }
         else {
-            return (storageResources == null ? null : storageResources.getTestChildBucket(label, provisionIfNull, null, null));
+            return used(storageResources == null ? null : storageResources.getTestChildBucket(label, provisionIfNull, null, null));
         }
     }
 
     public @Nullable String getTestDistributionId(@Nonnull String label, boolean provisionIfNull, @Nullable String origin) {
-        return (platformResources == null ? null : platformResources.getTestDistributionId(label, provisionIfNull, origin));
+        return used(platformResources == null ? null : platformResources.getTestDistributionId(label, provisionIfNull, origin));
     }
 
     public @Nullable String getTestGeneralFirewallId(@Nonnull String label, boolean provisionIfNull) {
-        return (networkResources == null ? null : networkResources.getTestFirewallId(label, provisionIfNull, null));
+        return used(networkResources == null ? null : networkResources.getTestFirewallId(label, provisionIfNull, null));
     }
 
     public @Nullable String getTestGroupId(@Nonnull String label, boolean provisionIfNull) {
-        return (identityResources == null ? null : identityResources.getTestGroupId(label, provisionIfNull));
+        return used(identityResources == null ? null : identityResources.getTestGroupId(label, provisionIfNull));
     }
 
     public @Nullable String getTestImageId(@Nonnull String label, boolean provisionIfNull) {
-        return (computeResources == null ? null : computeResources.getTestImageId(label, provisionIfNull));
+        return used(computeResources == null ? null : computeResources.getTestImageId(label, provisionIfNull));
     }
 
     public @Nullable String getTestKeypairId(@Nonnull String label, boolean provisionIfNull) {
-        return (identityResources == null ? null : identityResources.getTestKeypairId(label, provisionIfNull));
+        return used(identityResources == null ? null : identityResources.getTestKeypairId(label, provisionIfNull));
     }
 
     public @Nullable String getTestLoadBalancerId(@Nonnull String label, boolean provisionIfNull) {
-        return (networkResources == null ? null : networkResources.getTestLoadBalancerId(label, provisionIfNull));
+        return used(networkResources == null ? null : networkResources.getTestLoadBalancerId(label, provisionIfNull));
     }
 
     public @Nullable String getTestNetworkFirewallId(@Nonnull String label, boolean provisionIfNull, @Nullable String inVlanId) {
-        return (networkResources == null ? null : networkResources.getTestNetworkFirewallId(label, provisionIfNull, inVlanId));
+        return used(networkResources == null ? null : networkResources.getTestNetworkFirewallId(label, provisionIfNull, inVlanId));
     }
 
     public @Nullable Blob getTestObject(@Nonnull String label, boolean root, boolean provisionIfNull) {
         if( root ) {
-            return (storageResources == null ? null : storageResources.getTestRootObject(label, provisionIfNull, null));
+            return used(storageResources == null ? null : storageResources.getTestRootObject(label, provisionIfNull, null));
         }
         else {
-            return (storageResources == null ? null : storageResources.getTestChildObject(label, provisionIfNull, null, null));
+            return used(storageResources == null ? null : storageResources.getTestChildObject(label, provisionIfNull, null, null));
         }
     }
 
     public @Nullable String getTestQueueId(@Nonnull String label, boolean provisionIfNull) {
-        return (platformResources == null ? null : platformResources.getTestQueueId(label, provisionIfNull));
+        return used(platformResources == null ? null : platformResources.getTestQueueId(label, provisionIfNull));
     }
 
     public @Nullable String getTestRDBMSId(@Nonnull String label, boolean provisionIfNull, @Nullable DatabaseEngine engine) {
-        return (platformResources == null ? null : platformResources.getTestRDBMSId(label, provisionIfNull, engine));
+        return used(platformResources == null ? null : platformResources.getTestRDBMSId(label, provisionIfNull, engine));
     }
 
     public @Nullable String getTestSnapshotId(@Nonnull String label, boolean provisionIfNull) {
-        return (computeResources == null ? null : computeResources.getTestSnapshotId(label, provisionIfNull));
+        return used(computeResources == null ? null : computeResources.getTestSnapshotId(label, provisionIfNull));
     }
 
     public @Nullable String getTestStaticIpId(@Nonnull String label, boolean provisionIfNull, @Nullable IPVersion version, boolean forVLAN, @Nullable String vlanId) {
-        return networkResources == null ? null : networkResources.getTestStaticIpId(label, provisionIfNull, version, forVLAN, vlanId);
+        return used(networkResources == null ? null : networkResources.getTestStaticIpId(label, provisionIfNull, version, forVLAN, vlanId));
     }
 
     public @Nullable String getTestSubnetId(@Nonnull String label, boolean provisionIfNull, @Nullable String vlanId, @Nullable String preferredDataCenterId) {
-        return (networkResources == null ? null : networkResources.getTestSubnetId(label, provisionIfNull, vlanId, preferredDataCenterId));
+        return used(networkResources == null ? null : networkResources.getTestSubnetId(label, provisionIfNull, vlanId, preferredDataCenterId));
     }
 
     public @Nullable String getTestTopicId(@Nonnull String label, boolean provisionIfNull) {
-        return (platformResources == null ? null : platformResources.getTestTopicId(label, provisionIfNull));
+        return used(platformResources == null ? null : platformResources.getTestTopicId(label, provisionIfNull));
     }
 
     public @Nullable String getTestTopologyId(@Nonnull String label, boolean provisionIfNull) {
-        return (ciResources == null ? null : ciResources.getTestTopologyId(label, provisionIfNull));
+        return used(ciResources == null ? null : ciResources.getTestTopologyId(label, provisionIfNull));
     }
 
     public @Nullable String getTestUserId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredGroupId) {
-        return (identityResources == null ? null : identityResources.getTestUserId(label, provisionIfNull, preferredGroupId));
+        return used(identityResources == null ? null : identityResources.getTestUserId(label, provisionIfNull, preferredGroupId));
     }
 
     public @Nullable String getTestVLANFirewallId(@Nonnull String label, boolean provisionIfNull, @Nullable String inVlanId) {
@@ -611,18 +816,18 @@ public class DaseinTestManager {
                 // ignore
             }
         }
-        return id;
+        return used(id);
     }
 
     public @Nullable String getTestVLANId(@Nonnull String label, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
-        return (networkResources == null ? null : networkResources.getTestVLANId(label, provisionIfNull, preferredDataCenterId));
+        return used(networkResources == null ? null : networkResources.getTestVLANId(label, provisionIfNull, preferredDataCenterId));
     }
 
     public @Nullable String getTestVMId(@Nonnull String label, @Nullable VmState desiredState, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
         if( computeResources == null ) {
             return null;
         }
-        return computeResources.getTestVmId(label, desiredState, provisionIfNull, preferredDataCenterId);
+        return used(computeResources.getTestVmId(label, desiredState, provisionIfNull, preferredDataCenterId));
     }
 
     public @Nullable String getTestVMProductId() {
@@ -633,7 +838,7 @@ public class DaseinTestManager {
         if( computeResources == null ) {
             return null;
         }
-        return computeResources.getTestVolumeId(label, provisionIfNull, preferredFormat, preferredDataCenterId);
+        return used(computeResources.getTestVolumeId(label, provisionIfNull, preferredFormat, preferredDataCenterId));
     }
 
     public @Nullable String getTestVolumeProductId() {
@@ -641,13 +846,37 @@ public class DaseinTestManager {
     }
 
     public @Nullable String getTestZoneId(@Nonnull String label, boolean provisionIfNull) {
-        return (networkResources == null ? null : networkResources.getTestZoneId(label, provisionIfNull));
+        return used(networkResources == null ? null : networkResources.getTestZoneId(label, provisionIfNull));
     }
 
     public @Nonnull CloudProvider getProvider() {
         return provider;
     }
 
+    /**
+     * Checks whether any test of a suite is to be run under the inclusions and exclusions set in dasein.inclusions and
+     * dasein.exclusions (see {@link #isTestSkipped()}). Resources use this to prepare fixtures only for suites that
+     * will actually run.
+     * @param suite the simple name of the test class (e.g. "StatefulObjectStoreTests")
+     * @return true if at least one test of the suite may be run
+     */
+    static public boolean isSuiteIncluded(@Nonnull String suite) {
+        String s = suite.toLowerCase();
+        boolean testIncluded = false;
+
+        if( inclusions != null ) {
+            for( String inclusion : inclusions ) {
+                if( inclusion.startsWith(s + ".") ) {
+                    testIncluded = true;
+                }
+            }
+            if( !testIncluded && !inclusions.contains(s) ) {
+                return false;
+            }
+        }
+        return (testIncluded || exclusions == null || !exclusions.contains(s) || (inclusions != null && inclusions.contains(s)));
+    }
+
     /**
      * Checks to see if the test currently being executed is supposed to be skipped.
      * A test is assumed to be run unless there are a list of inclusions and the test is not
@@ -706,48 +935,140 @@ public class DaseinTestManager {
         return false;
     }
 
+    /**
+     * Logs an element of a list of resources returned by the cloud, such as a virtual machine from
+     * listVirtualMachines(), subject to the verbosity set in dasein.verbosity (see {@link TestLog}). At full verbosity
+     * every element is logged; at sample verbosity only the first few of each kind in each test; at summary verbosity
+     * none. Outside of full verbosity, the number of elements of each kind is logged at the end of the test. The
+     * element is only turned into a string if it is actually logged.
+     * @param key the kind of element (e.g. "VM")
+     * @param value the element
+     */
+    public void item(@Nonnull String key, @Nullable Object value) {
+        TestLog.Verbosity verbosity = TestLog.getVerbosity();
+
+        if( verbosity == TestLog.Verbosity.FULL ) {
+            out(key, value);
+            return;
+        }
+        Integer count = items.get(key);
+
+        count = (count == null ? 1 : count + 1);
+        items.put(key, count);
+        if( verbosity == TestLog.Verbosity.SAMPLE && count <= TestLog.getSampleSize() ) {
+            out(key, value);
+        }
+    }
+
     public void ok(@Nonnull String message) {
-        logger.info(prefix + message + " (OK)");
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, TestLog.buffer().append(prefix).append(message).append(" (OK)").toString());
+        }
     }
 
     public void out(@Nonnull String message) {
-        logger.info(prefix + message);
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, TestLog.buffer().append(prefix).append(message).toString());
+        }
     }
 
     public void out(@Nonnull String key, boolean value) {
-        out(key, String.valueOf(value));
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, format(prefix, key, value));
+        }
     }
 
     public void out(@Nonnull String key, int value) {
-        out(key, String.valueOf(value));
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, format(prefix, key, value));
+        }
     }
 
     public void out(@Nonnull String key, long value) {
-        out(key, String.valueOf(value));
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, format(prefix, key, value));
+        }
     }
 
     public void out(@Nonnull String key, double value) {
-        out(key, String.valueOf(value));
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, format(prefix, key, value));
+        }
     }
 
     public void out(@Nonnull String key, float value) {
-        out(key, String.valueOf(value));
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, format(prefix, key, value));
+        }
     }
 
     public void out(@Nonnull String key, Object value) {
-        out(key, value == null ? "null" : value.toString());
+        if( logger.isInfoEnabled() ) {
+            TestLog.write(logger, Level.INFO, format(prefix, key, value));
+        }
     }
 
     public void out(@Nonnull String key, @Nullable String value) {
-        out(logger, prefix, key, value);
+        out(key, (Object)value);
     }
 
     public void skip() {
         skipCount++;
+        ResultsWriter.skipped();
         out("SKIPPING");
     }
 
+    /**
+     * Provides a rule that reports the outcome of each test in the results written by {@link ResultsWriter}. Test
+     * classes should declare it alongside their {@link org.junit.rules.TestName} rule:
+     * <pre>
+     *     &#64;Rule
+     *     public final TestWatcher watcher = tm.watcher();
+     * </pre>
+     * @return a rule watching the outcome of each test
+     */
+    public @Nonnull TestWatcher watcher() {
+        return new TestWatcher() {
+            @Override
+            protected void succeeded(Description description) {
+                ResultsWriter.status("passed", null);
+            }
+
+            @Override
+            protected void failed(Throwable t, Description description) {
+                if( t instanceof AssumptionViolatedException ) {
+                    ResultsWriter.status("skipped", t.getMessage());
+                }
+                else {
+                    ResultsWriter.status("failed", t.getMessage());
+                }
+            }
+
+            @Override
+            protected void finished(Description description) {
+                // JUnit rethrows assumption failures without calling failed(), so a test with no outcome was skipped
+                if( "unknown".equals(ResultsWriter.getStatus()) ) {
+                    ResultsWriter.status("skipped", null);
+                }
+                ResultsWriter.finish();
+            }
+        };
+    }
+
+    /**
+     * Starts a probe of the streaming behavior of a list API when streaming checks are enabled (see
+     * {@link StreamingProbe}). The probe must be started before the list call is made, for example:
+     * <pre>
+     *     Iterable&lt;VirtualMachine&gt; vms = tm.stream("listVirtualMachines").of(support.listVirtualMachines());
+     * </pre>
+     * @param api the name of the list API
+     * @return a probe to wrap the results of the list call
+     */
+    public @Nonnull StreamingProbe stream(@Nonnull String api) {
+        return StreamingProbe.start(this, api);
+    }
+
     public void warn(@Nonnull String message) {
-        logger.warn(prefix + "WARNING: " + message);
+        TestLog.write(logger, Level.WARN, TestLog.buffer().append(prefix).append("WARNING: ").append(message).toString());
     }
 }
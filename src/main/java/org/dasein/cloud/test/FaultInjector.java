@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.storage.Blob;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Injects the misbehavior of production clouds into the calls the harness makes so that the tests and the
+ * provisioning and teardown paths of the shared test resources may be observed under stress. Calls may be slowed down,
+ * throttled, failed with a transient server error, or stalled for a long time before they go through.
+ * <p>Each setting may be given for all calls, for a support interface by appending its name, or for a single API by
+ * appending the interface and method names (e.g. dasein.faults.throttle.VirtualMachineSupport.launch). The most
+ * specific setting wins. The following {@link System} properties control the injection:</p>
+ * <ul>
+ *     <li>dasein.faults.latency - milliseconds added to each call (default 0)</li>
+ *     <li>dasein.faults.throttle - probability that a call is rejected with a THROTTLING CloudException (default 0)</li>
+ *     <li>dasein.faults.failure - probability that a call fails with a transient 500 CloudException (default 0)</li>
+ *     <li>dasein.faults.stall - probability that a call hangs before going through (default 0)</li>
+ *     <li>dasein.faults.stallTime - milliseconds a stalled call hangs (default 120000)</li>
+ *     <li>dasein.faults.seed - seed for the random choice of faults to make runs repeatable</li>
+ * </ul>
+ * <p>The report shows, for each test and each provisioning or teardown path in the resources classes, how many calls
+ * it made, the faults injected into them, the retries it made after a fault, the calls that failed, the time spent in
+ * calls, and the resources it provisioned that were never de-provisioned.</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class FaultInjector implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(FaultInjector.class);
+
+    static private final String PREFIX = "dasein.faults.";
+
+    static private final FaultInjector instance = new FaultInjector();
+
+    static private class Settings {
+        public double failure;
+        public long   latency;
+        public double stall;
+        public double throttle;
+    }
+
+    static private class Path {
+        public int  calls;
+        public int  errors;
+        public int  failures;
+        public int  leaked;
+        public long millis;
+        public int  retries;
+        public int  stalls;
+        public int  throttles;
+    }
+
+    static private final ConcurrentHashMap<String,Settings> settings = new ConcurrentHashMap<String, Settings>();
+    static private final TreeMap<String,Path>               paths    = new TreeMap<String, Path>();
+    static private final HashMap<String,String>             faulted  = new HashMap<String, String>();
+    static private final HashMap<String,String>             live     = new HashMap<String, String>();
+
+    static private Boolean enabled;
+    static private Random  random;
+    static private long    stallTime;
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            synchronized( paths ) {
+                if( enabled == null ) {
+                    boolean configured = false;
+
+                    for( Object key : System.getProperties().keySet() ) {
+                        String name = key.toString();
+
+                        if( name.startsWith(PREFIX) && !name.startsWith(PREFIX + "seed") && !name.startsWith(PREFIX + "stallTime") ) {
+                            configured = true;
+                            break;
+                        }
+                    }
+                    if( configured ) {
+                        random = new Random(PerfUtils.getLong(PREFIX + "seed", System.nanoTime()));
+                        stallTime = (long)getSetting("stallTime", null, 120000.0);
+                        InterceptingProvider.addInterceptor(instance);
+                    }
+                    enabled = configured;
+                }
+            }
+        }
+        return enabled;
+    }
+
+    static private double getSetting(@Nonnull String name, @Nullable String api, double defaultValue) {
+        String property = PREFIX + name;
+
+        if( api != null ) {
+            int idx = api.indexOf('.');
+
+            if( System.getProperty(property + "." + api) != null ) {
+                property = property + "." + api;
+            }
+            else if( idx > 0 && System.getProperty(property + "." + api.substring(0, idx)) != null ) {
+                property = property + "." + api.substring(0, idx);
+            }
+        }
+        return PerfUtils.getDouble(property, defaultValue);
+    }
+
+    /**
+     * Identifies a provisioned resource for leak accounting. Objects in a blob store are identified by their bucket
+     * and object name together since that pair, not the object name alone, is what the calls that remove them take.
+     * @param resource the resource returned by a provisioning call
+     * @return the key under which the resource is tracked or null if it cannot be identified
+     */
+    static private @Nullable String getLiveKey(@Nullable Object resource) {
+        if( resource instanceof Blob ) {
+            Blob blob = (Blob)resource;
+
+            if( blob.getObjectName() != null ) {
+                return (blob.getBucketName() + "/" + blob.getObjectName());
+            }
+            return blob.getBucketName();
+        }
+        return ResultsWriter.identify(resource);
+    }
+
+    static private @Nonnull Settings getSettings(@Nonnull String api) {
+        Settings s = settings.get(api);
+
+        if( s == null ) {
+            s = new Settings();
+            s.failure = getSetting("failure", api, 0.0);
+            s.latency = (long)getSetting("latency", api, 0.0);
+            s.stall = getSetting("stall", api, 0.0);
+            s.throttle = getSetting("throttle", api, 0.0);
+            settings.put(api, s);
+        }
+        return s;
+    }
+
+    /**
+     * Identifies the test or the method of a resources class on whose behalf a call is being made by finding the
+     * innermost caller outside of the harness itself.
+     * @return the name of the calling test or resources method
+     */
+    static private @Nonnull String getPath() {
+        for( StackTraceElement frame : Thread.currentThread().getStackTrace() ) {
+            String cls = frame.getClassName();
+
+            if( cls.startsWith("org.dasein.cloud.test.") && cls.indexOf('.', "org.dasein.cloud.test.".length()) > 0 && !cls.startsWith("org.dasein.cloud.test.sim.") ) {
+                int idx = cls.indexOf('$');
+
+                if( idx > 0 ) {
+                    cls = cls.substring(0, idx);
+                }
+                return cls.substring(cls.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return "(unknown)";
+    }
+
+    static private @Nonnull Path getPath(@Nonnull String name) {
+        Path path = paths.get(name);
+
+        if( path == null ) {
+            path = new Path();
+            paths.put(name, path);
+        }
+        return path;
+    }
+
+    /**
+     * Stops tracking the resources removed by a successful teardown call. Removing an object matches the same bucket
+     * and object pair recorded when it was uploaded and removing or clearing a bucket also covers everything in it.
+     * @param call the teardown call
+     */
+    static private void release(@Nonnull CloudCall call) {
+        Object[] args = call.getArguments();
+        String method = call.getMethod().getName();
+
+        if( method.equals("removeObject") && args.length == 2 && args[1] instanceof String ) {
+            live.remove(args[0] + "/" + args[1]);
+            return;
+        }
+        String id = call.getResourceId();
+
+        if( id == null ) {
+            return;
+        }
+        live.remove(id);
+        if( method.equals("removeBucket") || method.equals("clearBucket") ) {
+            Iterator<String> it = live.keySet().iterator();
+
+            while( it.hasNext() ) {
+                if( it.next().startsWith(id + "/") ) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    static private boolean roll(double probability) {
+        if( probability <= 0.0 ) {
+            return false;
+        }
+        synchronized( random ) {
+            return (random.nextDouble() < probability);
+        }
+    }
+
+    /**
+     * Logs the behavior of each test and provisioning or teardown path under the injected faults.
+     * @param logger the logger to write the report to
+     * @return the number of resources leaked across all paths
+     */
+    static public int report(@Nonnull Logger logger) {
+        int leaked = 0;
+
+        synchronized( paths ) {
+            if( paths.isEmpty() ) {
+                return 0;
+            }
+            for( String name : live.values() ) {
+                getPath(name).leaked++;
+            }
+            logger.info("------------ Injected Faults ----------");
+            for( Map.Entry<String,Path> entry : paths.entrySet() ) {
+                Path p = entry.getValue();
+
+                leaked += p.leaked;
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), "calls=" + p.calls + " throttled=" + p.throttles + " failed=" + p.failures + " stalled=" + p.stalls + " retries=" + p.retries + " errors=" + p.errors + " time=" + p.millis + " ms leaked=" + p.leaked);
+            }
+            logger.info("");
+        }
+        return leaked;
+    }
+
+    private FaultInjector() { }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        String api = call.getApi();
+        String name = getPath();
+        String key = call.toString();
+        String type = ResultsWriter.getEventType(call.getMethod().getName());
+        Settings s = getSettings(api);
+        long start = System.currentTimeMillis();
+        Object result = null;
+        boolean failed = true;
+
+        synchronized( paths ) {
+            Path path = getPath(name);
+
+            path.calls++;
+            if( name.equals(faulted.remove(key)) ) {
+                path.retries++;
+            }
+        }
+        try {
+            if( s.latency > 0L ) {
+                Thread.sleep(s.latency);
+            }
+            if( roll(s.stall) ) {
+                synchronized( paths ) {
+                    getPath(name).stalls++;
+                }
+                Thread.sleep(stallTime);
+            }
+            if( roll(s.throttle) ) {
+                synchronized( paths ) {
+                    getPath(name).throttles++;
+                    faulted.put(key, name);
+                }
+                throw new CloudException(CloudErrorType.THROTTLING, 503, "Throttling", "Injected throttling of " + api);
+            }
+            if( roll(s.failure) ) {
+                synchronized( paths ) {
+                    getPath(name).failures++;
+                    faulted.put(key, name);
+                }
+                throw new CloudException(CloudErrorType.GENERAL, 500, "InternalError", "Injected transient failure of " + api);
+            }
+            result = call.proceed();
+            failed = false;
+            return result;
+        }
+        finally {
+            synchronized( paths ) {
+                Path path = getPath(name);
+
+                path.millis += System.currentTimeMillis() - start;
+                if( failed ) {
+                    path.errors++;
+                }
+                else if( "provision".equals(type) ) {
+                    String id = getLiveKey(result);
+
+                    if( id != null ) {
+                        live.put(id, name);
+                    }
+                }
+                else if( "teardown".equals(type) || call.getMethod().getName().equals("clearBucket") ) {
+                    release(call);
+                }
+            }
+        }
+    }
+}
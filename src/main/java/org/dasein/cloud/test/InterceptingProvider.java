@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.admin.AdminServices;
+import org.dasein.cloud.ci.CIServices;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.dc.DataCenterServices;
+import org.dasein.cloud.identity.IdentityServices;
+import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.platform.PlatformServices;
+import org.dasein.cloud.storage.StorageServices;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Wraps the cloud provider under test so that every call the test harness makes against a support object passes
+ * through the registered {@link CallInterceptor} chain. Services objects are wrapped so that the support objects they
+ * hand out are in turn wrapped. Calls to methods that merely check for the presence of a service or support object
+ * (has*) and calls to {@link Object} methods are not intercepted. Calls through a fixture provider, or through a
+ * support object marked with {@link #asFixture(Object)}, are fixture calls.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class InterceptingProvider extends CloudProvider {
+    static private final List<CallInterceptor> interceptors = new CopyOnWriteArrayList<CallInterceptor>();
+
+    /**
+     * Adds an interceptor to the end of the interceptor chain shared by all intercepting providers. Adding an
+     * interceptor that is already in the chain has no effect.
+     * @param interceptor the interceptor to add
+     */
+    static public void addInterceptor(@Nonnull CallInterceptor interceptor) {
+        synchronized( interceptors ) {
+            if( !interceptors.contains(interceptor) ) {
+                interceptors.add(interceptor);
+            }
+        }
+    }
+
+    static public void removeInterceptor(@Nonnull CallInterceptor interceptor) {
+        interceptors.remove(interceptor);
+    }
+
+    /**
+     * Marks a support object a test hands to the shared test resources so that the calls the resources make through
+     * it are fixture calls, just as if they had gone through a fixture provider.
+     * @param support a support object obtained from an intercepting provider
+     * @return a support object whose calls are fixture calls or the support object itself if it is not intercepted
+     */
+    @SuppressWarnings("unchecked")
+    static public @Nonnull <T> T asFixture(@Nonnull T support) {
+        if( !Proxy.isProxyClass(support.getClass()) || !(Proxy.getInvocationHandler(support) instanceof Handler) ) {
+            return support;
+        }
+        Handler handler = (Handler)Proxy.getInvocationHandler(support);
+
+        if( handler.fixture ) {
+            return support;
+        }
+        return (T)Proxy.newProxyInstance(support.getClass().getClassLoader(), support.getClass().getInterfaces(), handler.getProvider().new Handler(handler.service, handler.target, true));
+    }
+
+    private class Handler implements InvocationHandler {
+        private boolean fixture;
+        private String  service;
+        private Object  target;
+
+        Handler(@Nonnull String service, @Nonnull Object target, boolean fixture) {
+            this.service = service;
+            this.target = target;
+            this.fixture = fixture;
+        }
+
+        @Nonnull InterceptingProvider getProvider() {
+            return InterceptingProvider.this;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if( method.getDeclaringClass().equals(Object.class) ) {
+                if( method.getName().equals("equals") ) {
+                    return (proxy == args[0]);
+                }
+                else if( method.getName().equals("hashCode") ) {
+                    return System.identityHashCode(proxy);
+                }
+                return invokeDirect(method, args);
+            }
+            if( method.getName().startsWith("has") ) {
+                return invokeDirect(method, args);
+            }
+            Class<?> type = method.getReturnType();
+
+            if( method.getName().startsWith("get") && (args == null || args.length < 1) && isWrappable(type) ) {
+                return wrap(type, invokeDirect(method, args), fixture);
+            }
+            return new CloudCall(InterceptingProvider.this, fixture, service, target, method, args, interceptors).proceed();
+        }
+
+        private Object invokeDirect(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            }
+            catch( InvocationTargetException e ) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    static private boolean isWrappable(@Nonnull Class<?> type) {
+        if( !type.isInterface() || !type.getName().startsWith("org.dasein.cloud.") ) {
+            return false;
+        }
+        String name = type.getSimpleName();
+
+        return (name.endsWith("Services") || name.endsWith("Support"));
+    }
+
+    private boolean       connecting;
+    private CloudProvider delegate;
+    private boolean       fixture;
+
+    /**
+     * Constructs a wrapper around the specified provider for calls made by tests themselves.
+     * @param delegate the provider being wrapped
+     */
+    public InterceptingProvider(@Nonnull CloudProvider delegate) {
+        this(delegate, false);
+    }
+
+    /**
+     * Constructs a wrapper around the specified provider.
+     * @param delegate the provider being wrapped
+     * @param fixture true if the provider is used to manage shared test fixtures rather than by tests themselves
+     */
+    public InterceptingProvider(@Nonnull CloudProvider delegate, boolean fixture) {
+        this.delegate = delegate;
+        this.fixture = fixture;
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable <T> T wrap(@Nonnull Class<T> type, @Nullable Object target, boolean fixture) {
+        if( target == null ) {
+            return null;
+        }
+        return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Handler(type.getSimpleName(), target, fixture));
+    }
+
+    @Override
+    public void close() {
+        if( !connecting ) {
+            delegate.close();
+        }
+    }
+
+    @Override
+    public void connect(@Nonnull ProviderContext context, @Nullable CloudProvider computeProvider) {
+        delegate.connect(context, computeProvider);
+        connecting = true;
+        try {
+            super.connect(context, computeProvider);
+        }
+        finally {
+            connecting = false;
+        }
+    }
+
+    @Override
+    public @Nullable AdminServices getAdminServices() {
+        return wrap(AdminServices.class, delegate.getAdminServices(), fixture);
+    }
+
+    @Override
+    public @Nullable CIServices getCIServices() {
+        return wrap(CIServices.class, delegate.getCIServices(), fixture);
+    }
+
+    @Override
+    public @Nonnull String getCloudName() {
+        return delegate.getCloudName();
+    }
+
+    @Override
+    public @Nullable ComputeServices getComputeServices() {
+        return wrap(ComputeServices.class, delegate.getComputeServices(), fixture);
+    }
+
+    @Override
+    public @Nonnull DataCenterServices getDataCenterServices() {
+        //noinspection ConstantConditions
+        return wrap(DataCenterServices.class, delegate.getDataCenterServices(), fixture);
+    }
+
+    /**
+     * @return the provider being wrapped
+     */
+    public @Nonnull CloudProvider getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public @Nullable IdentityServices getIdentityServices() {
+        return wrap(IdentityServices.class, delegate.getIdentityServices(), fixture);
+    }
+
+    @Override
+    public @Nullable NetworkServices getNetworkServices() {
+        return wrap(NetworkServices.class, delegate.getNetworkServices(), fixture);
+    }
+
+    @Override
+    public @Nullable PlatformServices getPlatformServices() {
+        return wrap(PlatformServices.class, delegate.getPlatformServices(), fixture);
+    }
+
+    @Override
+    public @Nonnull String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public @Nullable StorageServices getStorageServices() {
+        return wrap(StorageServices.class, delegate.getStorageServices(), fixture);
+    }
+
+    @Override
+    public boolean hasComputeServices() {
+        return delegate.hasComputeServices();
+    }
+
+    @Override
+    public boolean hasIdentityServices() {
+        return delegate.hasIdentityServices();
+    }
+
+    @Override
+    public boolean hasNetworkServices() {
+        return delegate.hasNetworkServices();
+    }
+
+    @Override
+    public boolean hasPlatformServices() {
+        return delegate.hasPlatformServices();
+    }
+
+    @Override
+    public boolean hasStorageServices() {
+        return delegate.hasStorageServices();
+    }
+
+    @Override
+    public void hold() {
+        delegate.hold();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    /**
+     * @return true if this provider is used to manage shared test fixtures rather than by tests themselves
+     */
+    public boolean isFixture() {
+        return fixture;
+    }
+
+    @Override
+    public void release() {
+        delegate.release();
+    }
+
+    @Override
+    public @Nullable String testContext() {
+        return delegate.testContext();
+    }
+}
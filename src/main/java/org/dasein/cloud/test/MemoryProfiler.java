@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures the heap used, the garbage collection activity, and the bytes allocated by the test thread over the
+ * course of each test so that provider implementations that materialize huge result sets (e.g. listVirtualMachines()
+ * or searchPublicImages() on a large account) show up in the test run before they exhaust the heap of a production
+ * service. Allocation is measured for the thread running the test only and is unavailable on JVMs that do not
+ * provide com.sun.management.ThreadMXBean.
+ * <p>The following {@link System} properties control profiling:</p>
+ * <ul>
+ *     <li>dasein.memory - true to profile each test (default false)</li>
+ *     <li>dasein.memory.threshold - megabytes allocated by a test above which a warning is logged (default 256)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class MemoryProfiler {
+    static private final Logger logger = Logger.getLogger(MemoryProfiler.class);
+
+    /**
+     * The memory used by a single test.
+     */
+    static public class Usage {
+        private long   allocated = -1L;
+        private long   gcCount;
+        private long   gcMillis;
+        private long   heapAfter;
+        private long   heapBefore;
+        private String test;
+
+        /**
+         * @return the bytes allocated by the test thread or -1 if the JVM does not measure allocation
+         */
+        public long getAllocated() {
+            return allocated;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        public long getHeapAfter() {
+            return heapAfter;
+        }
+
+        public long getHeapBefore() {
+            return heapBefore;
+        }
+
+        public @Nonnull String getTest() {
+            return test;
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return test + " [heap=" + mb(heapBefore) + "->" + mb(heapAfter) + " allocated=" + (allocated < 0L ? "n/a" : mb(allocated)) + " gc=" + gcCount + "/" + gcMillis + " ms]";
+        }
+    }
+
+    static private final ArrayList<Usage> usages = new ArrayList<Usage>();
+
+    static private Boolean      enabled;
+    static private long         peakHeap;
+    static private long         threshold;
+    static private ThreadMXBean threads;
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            synchronized( usages ) {
+                if( enabled == null ) {
+                    boolean on = "true".equalsIgnoreCase(System.getProperty("dasein.memory"));
+
+                    if( on ) {
+                        threshold = PerfUtils.getLong("dasein.memory.threshold", 256L) * 1024L * 1024L;
+                        try {
+                            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+                            if( bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported() ) {
+                                ((com.sun.management.ThreadMXBean)bean).setThreadAllocatedMemoryEnabled(true);
+                                threads = bean;
+                            }
+                        }
+                        catch( Throwable t ) {
+                            logger.info("Per-thread allocation is not measured on this JVM: " + t.getMessage());
+                        }
+                    }
+                    enabled = on;
+                }
+            }
+        }
+        return enabled;
+    }
+
+    static private @Nonnull String mb(long bytes) {
+        return (bytes/(1024L * 1024L)) + " MB";
+    }
+
+    static private long getAllocated() {
+        if( threads == null ) {
+            return -1L;
+        }
+        try {
+            return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        catch( Throwable ignore ) {
+            return -1L;
+        }
+    }
+
+    static private long[] getGc() {
+        long[] gc = new long[2];
+
+        for( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() ) {
+            gc[0] += Math.max(0L, bean.getCollectionCount());
+            gc[1] += Math.max(0L, bean.getCollectionTime());
+        }
+        return gc;
+    }
+
+    /**
+     * @return the measurements of all tests completed so far in the order they completed
+     */
+    static public @Nonnull List<Usage> getUsages() {
+        synchronized( usages ) {
+            return new ArrayList<Usage>(usages);
+        }
+    }
+
+    /**
+     * Starts measuring a test on the current thread.
+     * @param test the name of the test
+     * @return the measurement to be completed by {@link #end(Usage)}, or null if profiling is not enabled
+     */
+    static public @Nullable Usage begin(@Nonnull String test) {
+        if( !isEnabled() ) {
+            return null;
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long[] gc = getGc();
+        Usage usage = new Usage();
+
+        usage.test = test;
+        usage.heapBefore = memory.getHeapMemoryUsage().getUsed();
+        usage.gcCount = gc[0];
+        usage.gcMillis = gc[1];
+        usage.allocated = getAllocated();
+        return usage;
+    }
+
+    /**
+     * Completes the measurement of a test. This must be called from the thread that began it.
+     * @param usage the measurement from {@link #begin(String)}
+     * @return true if the test allocated more than the configured threshold
+     */
+    static public boolean end(@Nonnull Usage usage) {
+        long allocated = getAllocated();
+        long[] gc = getGc();
+
+        usage.allocated = ((allocated < 0L || usage.allocated < 0L) ? -1L : allocated - usage.allocated);
+        usage.gcCount = gc[0] - usage.gcCount;
+        usage.gcMillis = gc[1] - usage.gcMillis;
+        usage.heapAfter = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        synchronized( usages ) {
+            usages.add(usage);
+            peakHeap = Math.max(peakHeap, Math.max(usage.heapBefore, usage.heapAfter));
+        }
+        return (usage.allocated > threshold);
+    }
+
+    /**
+     * Logs the tests that allocated the most memory along with the peak heap use observed across the run.
+     * @param logger the logger to write the report to
+     * @return the number of tests that allocated more than the configured threshold
+     */
+    static public int report(@Nonnull Logger logger) {
+        ArrayList<Usage> sorted;
+        long peak;
+
+        synchronized( usages ) {
+            if( usages.isEmpty() ) {
+                return 0;
+            }
+            sorted = new ArrayList<Usage>(usages);
+            peak = peakHeap;
+        }
+        Collections.sort(sorted, new Comparator<Usage>() {
+            @Override
+            public int compare(Usage u1, Usage u2) {
+                return (u1.allocated == u2.allocated ? u1.test.compareTo(u2.test) : (u1.allocated > u2.allocated ? -1 : 1));
+            }
+        });
+        int over = 0;
+
+        for( Usage u : sorted ) {
+            if( u.allocated > threshold ) {
+                over++;
+            }
+        }
+        logger.info("---------------- Memory ---------------");
+        DaseinTestManager.out(logger, null, "---> Peak Heap Used", mb(peak));
+        DaseinTestManager.out(logger, null, "---> Over Threshold", over + " tests over " + mb(threshold));
+        for( int i=0; i<sorted.size() && i<10; i++ ) {
+            Usage u = sorted.get(i);
+
+            if( u.allocated < 0L ) {
+                break;
+            }
+            DaseinTestManager.out(logger, null, "---> " + u.test, "allocated=" + mb(u.allocated) + " heap=" + mb(u.heapBefore) + "->" + mb(u.heapAfter) + " gc=" + u.gcCount + "/" + u.gcMillis + " ms");
+        }
+        logger.info("");
+        return over;
+    }
+
+    private MemoryProfiler() { }
+}
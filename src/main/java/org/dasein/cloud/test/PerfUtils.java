@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the {@link System} properties that configure the performance suites and computes the statistics they
+ * report. Invalid property values are logged and replaced by the default.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class PerfUtils {
+    static private final Logger logger = Logger.getLogger(PerfUtils.class);
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set
+     * @return the trimmed value of the property or the default if it is not set
+     */
+    static public @Nonnull String getString(@Nonnull String property, @Nonnull String defaultValue) {
+        String prop = System.getProperty(property);
+
+        if( prop == null || prop.trim().equals("") ) {
+            return defaultValue;
+        }
+        return prop.trim();
+    }
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set
+     * @return the comma-separated values of the property or of the default if it is not set
+     */
+    static public @Nonnull String[] getList(@Nonnull String property, @Nonnull String defaultValue) {
+        String[] values = getString(property, defaultValue).split(",");
+
+        for( int i=0; i<values.length; i++ ) {
+            values[i] = values[i].trim();
+        }
+        return values;
+    }
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set or invalid
+     * @return the value of the property
+     */
+    static public int getInt(@Nonnull String property, int defaultValue) {
+        return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, getLong(property, defaultValue)));
+    }
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set or invalid
+     * @return the value of the property
+     */
+    static public long getLong(@Nonnull String property, long defaultValue) {
+        String prop = getString(property, "");
+
+        if( !prop.equals("") ) {
+            try {
+                return Long.parseLong(prop);
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Invalid value for " + property + ": " + prop);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set or invalid
+     * @return the value of the property, at least 1
+     */
+    static public int getPositiveInt(@Nonnull String property, int defaultValue) {
+        return (int)Math.min(Integer.MAX_VALUE, getPositiveLong(property, defaultValue));
+    }
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set or invalid
+     * @return the value of the property, at least 1
+     */
+    static public long getPositiveLong(@Nonnull String property, long defaultValue) {
+        return Math.max(1L, getLong(property, defaultValue));
+    }
+
+    /**
+     * @param property the name of the property
+     * @param defaultValue the value to use if the property is not set or invalid
+     * @return the value of the property
+     */
+    static public double getDouble(@Nonnull String property, double defaultValue) {
+        String prop = getString(property, "");
+
+        if( !prop.equals("") ) {
+            try {
+                return Double.parseDouble(prop);
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Invalid value for " + property + ": " + prop);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Parses a size such as 64KB, 16MB, or 1GB into bytes. A size with no unit is in bytes.
+     * @param size the size to parse
+     * @return the number of bytes
+     * @throws NumberFormatException the size is not a number with an optional unit
+     */
+    static public long parseSize(@Nonnull String size) {
+        String s = size.toUpperCase();
+        long multiplier = 1L;
+
+        if( s.endsWith("GB") ) {
+            multiplier = 1024L * 1024L * 1024L;
+        }
+        else if( s.endsWith("MB") ) {
+            multiplier = 1024L * 1024L;
+        }
+        else if( s.endsWith("KB") ) {
+            multiplier = 1024L;
+        }
+        s = s.replaceAll("[A-Z]", "");
+        return Long.parseLong(s) * multiplier;
+    }
+
+    /**
+     * Computes a percentile by the nearest-rank method.
+     * @param values the samples, which are not modified
+     * @param p the percentile as a fraction from 0.0 (the minimum) to 1.0 (the maximum)
+     * @return the percentile or 0 if there are no samples
+     */
+    static public long percentile(@Nonnull List<Long> values, double p) {
+        if( values.isEmpty() ) {
+            return 0L;
+        }
+        ArrayList<Long> sorted = new ArrayList<Long>(values);
+
+        Collections.sort(sorted);
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, (int)Math.ceil(p * sorted.size()) - 1)));
+    }
+
+    private PerfUtils() { }
+}
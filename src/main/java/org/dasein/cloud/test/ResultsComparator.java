@@ -0,0 +1,551 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compares the results of two test runs written by {@link ResultsWriter} in order to spot performance regressions,
+ * for example after upgrading a provider library. Tests and APIs are aligned by name across the two runs and the
+ * comparator reports deltas for everything {@link DaseinTestManager} reports: test durations, API call counts, and
+ * the number of resources provisioned, plus per-API call latency.
+ * <p>A results file may hold several runs, for example when written with -Ddasein.results.append=true, in which case
+ * the samples of all of its runs are pooled and its totals and API call counts are averaged over its runs. Latency and
+ * duration deltas are tested for statistical significance with a two-sided Mann-Whitney U test on the pooled samples
+ * from each file. A latency or duration that grew by more than the latency threshold is flagged as a regression only
+ * if both files have at least the minimum number of samples and the difference is significant. Without enough
+ * samples, as is the case for test durations when each file holds a single run, the growth is marked as untested
+ * instead. Call and resource counts are deterministic for a given provider and are flagged whenever they grow by more
+ * than the count threshold.</p>
+ * <p>The comparator runs either standalone:</p>
+ * <pre>
+ *     java org.dasein.cloud.test.ResultsComparator baseline.jsonl candidate.jsonl
+ * </pre>
+ * <p>or at the end of a test run by naming the baseline with -Ddasein.results.baseline alongside -Ddasein.results.
+ * The following {@link System} properties control the comparison:</p>
+ * <ul>
+ *     <li>dasein.compare.latencyThreshold - percent growth in latency or duration flagged as a regression (default 20)</li>
+ *     <li>dasein.compare.countThreshold - percent growth in a call or resource count flagged as a regression (default 0)</li>
+ *     <li>dasein.compare.alpha - significance level for the Mann-Whitney test (default 0.05)</li>
+ *     <li>dasein.compare.minimumSamples - samples required from each run before testing significance (default 5)</li>
+ *     <li>dasein.compare.minimumMs - latency or duration growth in milliseconds below which nothing is flagged (default 10)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ResultsComparator {
+    static private final Logger logger = Logger.getLogger(ResultsComparator.class);
+
+    /**
+     * The samples gathered from a single run of the tests.
+     */
+    static private class Run {
+        private final TreeMap<String,Long>            apiCalls     = new TreeMap<String, Long>();
+        private final TreeMap<String,ArrayList<Long>> durations    = new TreeMap<String, ArrayList<Long>>();
+        private final TreeMap<String,ArrayList<Long>> latencies    = new TreeMap<String, ArrayList<Long>>();
+        private final TreeMap<String,ArrayList<Long>> testCalls    = new TreeMap<String, ArrayList<Long>>();
+        private final TreeMap<String,ArrayList<Long>> provisions   = new TreeMap<String, ArrayList<Long>>();
+        private final TreeMap<String,Long>            totals       = new TreeMap<String, Long>();
+        private int                                   runs;
+
+        /**
+         * @param sum the sum of a count over all runs in the file
+         * @return the mean of the count per run
+         */
+        private double perRun(long sum) {
+            return (runs > 1 ? sum/(double)runs : sum);
+        }
+    }
+
+    /**
+     * The comparison of a single metric between the two runs.
+     */
+    static public class Delta {
+        private String  metric;
+        private double  baseline;
+        private double  candidate;
+        private double  pValue;
+        private boolean regression;
+        private boolean untested;
+
+        private Delta(@Nonnull String metric, double baseline, double candidate, double pValue, boolean regression, boolean untested) {
+            this.metric = metric;
+            this.baseline = baseline;
+            this.candidate = candidate;
+            this.pValue = pValue;
+            this.regression = regression;
+            this.untested = untested;
+        }
+
+        public double getBaseline() {
+            return baseline;
+        }
+
+        public double getCandidate() {
+            return candidate;
+        }
+
+        public @Nonnull String getMetric() {
+            return metric;
+        }
+
+        /**
+         * @return the two-sided p-value of the difference or {@link Double#NaN} if significance was not tested
+         */
+        public double getPValue() {
+            return pValue;
+        }
+
+        public boolean isRegression() {
+            return regression;
+        }
+
+        /**
+         * @return true if the metric grew by more than the threshold but there were too few samples to tell whether
+         * the growth is significant
+         */
+        public boolean isUntested() {
+            return untested;
+        }
+
+        public double getPercentChange() {
+            if( baseline == 0.0 ) {
+                return (candidate == 0.0 ? 0.0 : Double.POSITIVE_INFINITY);
+            }
+            return ((candidate - baseline)/baseline) * 100.0;
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            StringBuilder str = new StringBuilder();
+
+            str.append(format(baseline)).append(" -> ").append(format(candidate));
+            str.append(" (").append(String.format("%+.1f", getPercentChange())).append("%");
+            if( !Double.isNaN(pValue) ) {
+                str.append(", p=").append(String.format("%.4f", pValue));
+            }
+            str.append(")");
+            if( regression ) {
+                str.append(" REGRESSION");
+            }
+            else if( untested ) {
+                str.append(" UNTESTED");
+            }
+            return str.toString();
+        }
+
+        static private @Nonnull String format(double value) {
+            if( value == Math.rint(value) ) {
+                return String.valueOf((long)value);
+            }
+            return String.format("%.2f", value);
+        }
+    }
+
+    static private double getDoubleProperty(@Nonnull String name, double defaultValue) {
+        return PerfUtils.getDouble(name, defaultValue);
+    }
+
+    static public void main(String ... args) {
+        if( args.length != 2 ) {
+            System.err.println("Usage: java " + ResultsComparator.class.getName() + " <baseline results> <candidate results>");
+            System.exit(2);
+        }
+        if( !Logger.getRootLogger().getAllAppenders().hasMoreElements() ) {
+            BasicConfigurator.configure();
+        }
+        try {
+            ResultsComparator comparator = new ResultsComparator();
+
+            System.exit(comparator.compare(args[0], args[1], logger) > 0 ? 1 : 0);
+        }
+        catch( IOException e ) {
+            System.err.println("Unable to compare results: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Computes the two-sided p-value of the Mann-Whitney U test that two sets of samples come from the same
+     * distribution, using the normal approximation with a correction for ties and for continuity.
+     * @param a the first set of samples
+     * @param b the second set of samples
+     * @return the p-value of the test, or {@link Double#NaN} if either set of samples is empty
+     */
+    static public double mannWhitney(@Nonnull ArrayList<Long> a, @Nonnull ArrayList<Long> b) {
+        int n1 = a.size();
+        int n2 = b.size();
+        int n = n1 + n2;
+
+        if( n1 < 1 || n2 < 1 ) {
+            return Double.NaN;
+        }
+        long[] values = new long[n];
+        boolean[] first = new boolean[n];
+        Integer[] order = new Integer[n];
+
+        for( int i=0; i<n; i++ ) {
+            values[i] = (i < n1 ? a.get(i) : b.get(i - n1));
+            first[i] = (i < n1);
+            order[i] = i;
+        }
+        final long[] v = values;
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return (v[i1] < v[i2] ? -1 : (v[i1] == v[i2] ? 0 : 1));
+            }
+        });
+        double rankSum = 0.0;
+        double ties = 0.0;
+        int i = 0;
+
+        while( i < n ) {
+            int j = i;
+
+            while( j + 1 < n && values[order[j + 1]] == values[order[i]] ) {
+                j++;
+            }
+            double rank = (i + j + 2)/2.0;
+            int t = j - i + 1;
+
+            ties += ((double)t*t*t - t);
+            for( int k=i; k<=j; k++ ) {
+                if( first[order[k]] ) {
+                    rankSum += rank;
+                }
+            }
+            i = j + 1;
+        }
+        double u = rankSum - (n1 * (n1 + 1.0))/2.0;
+        double mean = (n1 * (double)n2)/2.0;
+        double variance = ((n1 * (double)n2)/12.0) * ((n + 1.0) - ties/(n * (n - 1.0)));
+
+        if( variance <= 0.0 ) {
+            return 1.0;
+        }
+        double z = (Math.abs(u - mean) - 0.5)/Math.sqrt(variance);
+
+        if( z <= 0.0 ) {
+            return 1.0;
+        }
+        return Math.min(1.0, 2.0 * (1.0 - normal(z)));
+    }
+
+    /**
+     * Approximates the standard normal cumulative distribution function (Abramowitz and Stegun 26.2.17).
+     */
+    static private double normal(double z) {
+        double t = 1.0/(1.0 + 0.2316419 * z);
+        double d = 0.3989422804014327 * Math.exp(-z * z/2.0);
+        double p = d * t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+
+        return 1.0 - p;
+    }
+
+    static private double median(@Nonnull ArrayList<Long> samples) {
+        ArrayList<Long> sorted = new ArrayList<Long>(samples);
+
+        Collections.sort(sorted);
+        int size = sorted.size();
+
+        if( size % 2 == 1 ) {
+            return sorted.get(size/2);
+        }
+        return (sorted.get(size/2 - 1) + sorted.get(size/2))/2.0;
+    }
+
+    static private double mean(@Nonnull ArrayList<Long> samples) {
+        long sum = 0L;
+
+        for( Long sample : samples ) {
+            sum += sample;
+        }
+        return (samples.isEmpty() ? 0.0 : sum/(double)samples.size());
+    }
+
+    static private void add(@Nonnull TreeMap<String,ArrayList<Long>> map, @Nonnull String key, long value) {
+        ArrayList<Long> list = map.get(key);
+
+        if( list == null ) {
+            list = new ArrayList<Long>();
+            map.put(key, list);
+        }
+        list.add(value);
+    }
+
+    static private @Nonnull Run load(@Nonnull String path) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path), "utf-8"));
+        Run run = new Run();
+
+        try {
+            String line;
+
+            while( (line = reader.readLine()) != null ) {
+                line = line.trim();
+                if( line.equals("") ) {
+                    continue;
+                }
+                try {
+                    JSONObject json = new JSONObject(line);
+                    String type = json.optString("type");
+
+                    if( type.equals("test") ) {
+                        loadTest(run, json);
+                    }
+                    else if( type.equals("summary") ) {
+                        loadSummary(run, json);
+                    }
+                }
+                catch( JSONException e ) {
+                    logger.warn("Skipping unreadable result in " + path + ": " + e.getMessage());
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return run;
+    }
+
+    static private void loadTest(@Nonnull Run run, @Nonnull JSONObject json) throws JSONException {
+        if( json.optBoolean("skipped") || !json.has("durationMs") ) {
+            return;
+        }
+        String test = json.getString("suite") + "." + json.getString("method");
+
+        add(run.durations, test, json.getLong("durationMs"));
+        add(run.testCalls, test, json.optLong("totalApiCalls", json.optLong("callCount")));
+        JSONArray provisioned = json.optJSONArray("provisioned");
+
+        add(run.provisions, test, provisioned == null ? 0L : provisioned.length());
+        JSONObject latencies = json.optJSONObject("latencies");
+
+        if( latencies != null ) {
+            Iterator<?> it = latencies.keys();
+
+            while( it.hasNext() ) {
+                String api = (String)it.next();
+                JSONArray samples = latencies.getJSONObject(api).optJSONArray("samplesUs");
+
+                if( samples != null ) {
+                    for( int i=0; i<samples.length(); i++ ) {
+                        add(run.latencies, api, samples.getLong(i));
+                    }
+                }
+            }
+        }
+    }
+
+    static private void loadSummary(@Nonnull Run run, @Nonnull JSONObject json) throws JSONException {
+        run.runs++;
+        for( String key : new String[] { "tests", "skipped", "run", "totalApiCalls", "resourcesProvisioned", "resourcesDeprovisioned", "durationMs" } ) {
+            if( json.has(key) ) {
+                Long current = run.totals.get(key);
+
+                run.totals.put(key, json.getLong(key) + (current == null ? 0L : current));
+            }
+        }
+        JSONObject apis = json.optJSONObject("apiCalls");
+
+        if( apis != null ) {
+            Iterator<?> it = apis.keys();
+
+            while( it.hasNext() ) {
+                String api = (String)it.next();
+                Long current = run.apiCalls.get(api);
+
+                run.apiCalls.put(api, apis.getLong(api) + (current == null ? 0L : current));
+            }
+        }
+    }
+
+    private double alpha;
+    private double countThreshold;
+    private double latencyThreshold;
+    private double minimumMs;
+    private int    minimumSamples;
+
+    public ResultsComparator() {
+        alpha = getDoubleProperty("dasein.compare.alpha", 0.05);
+        countThreshold = getDoubleProperty("dasein.compare.countThreshold", 0.0);
+        latencyThreshold = getDoubleProperty("dasein.compare.latencyThreshold", 20.0);
+        minimumMs = getDoubleProperty("dasein.compare.minimumMs", 10.0);
+        minimumSamples = (int)getDoubleProperty("dasein.compare.minimumSamples", 5.0);
+    }
+
+    /**
+     * Compares two sets of samples of a latency or duration by their medians. Growth beyond the thresholds is a
+     * regression if it is significant and untested if either set has fewer than the minimum number of samples.
+     * @param metric the name of the metric
+     * @param baseline the samples from the baseline run
+     * @param candidate the samples from the candidate run
+     * @param scale the factor by which samples are divided to yield milliseconds
+     * @return the comparison
+     */
+    public @Nonnull Delta compareLatency(@Nonnull String metric, @Nonnull ArrayList<Long> baseline, @Nonnull ArrayList<Long> candidate, double scale) {
+        double b = median(baseline)/scale;
+        double c = median(candidate)/scale;
+        double p = Double.NaN;
+        boolean regression = false;
+        boolean untested = false;
+
+        if( baseline.size() >= minimumSamples && candidate.size() >= minimumSamples ) {
+            p = mannWhitney(baseline, candidate);
+        }
+        if( c - b >= minimumMs && ((c - b)/Math.max(b, Double.MIN_VALUE)) * 100.0 > latencyThreshold ) {
+            if( Double.isNaN(p) ) {
+                untested = true;
+            }
+            else {
+                regression = (p < alpha);
+            }
+        }
+        return new Delta(metric, b, c, p, regression, untested);
+    }
+
+    /**
+     * Compares a call or resource count between the two runs.
+     * @param metric the name of the metric
+     * @param baseline the count in the baseline run
+     * @param candidate the count in the candidate run
+     * @return the comparison
+     */
+    public @Nonnull Delta compareCount(@Nonnull String metric, double baseline, double candidate) {
+        boolean regression;
+
+        if( baseline == 0.0 ) {
+            regression = (candidate > 0.0);
+        }
+        else {
+            regression = (((candidate - baseline)/baseline) * 100.0 > countThreshold);
+        }
+        return new Delta(metric, baseline, candidate, Double.NaN, regression, false);
+    }
+
+    /**
+     * Compares two results files and logs the deltas between them.
+     * @param baselinePath the results of the baseline run
+     * @param candidatePath the results of the candidate run
+     * @param logger the logger to write the comparison to
+     * @return the number of regressions found
+     * @throws IOException an error occurred reading either file
+     */
+    public int compare(@Nonnull String baselinePath, @Nonnull String candidatePath, @Nonnull Logger logger) throws IOException {
+        Run baseline = load(baselinePath);
+        Run candidate = load(candidatePath);
+        ArrayList<Delta> deltas = compare(baseline, candidate);
+        TreeSet<String> removed = new TreeSet<String>(baseline.durations.keySet());
+        TreeSet<String> added = new TreeSet<String>(candidate.durations.keySet());
+        int regressions = 0;
+        int untested = 0;
+
+        removed.removeAll(candidate.durations.keySet());
+        added.removeAll(baseline.durations.keySet());
+        logger.info("---------- Results Comparison ---------");
+        DaseinTestManager.out(logger, null, "Baseline", baselinePath);
+        DaseinTestManager.out(logger, null, "Candidate", candidatePath);
+        DaseinTestManager.out(logger, null, "Runs", baseline.runs + " -> " + candidate.runs);
+        DaseinTestManager.out(logger, null, "Tests Only in Baseline", removed.size() + " " + removed);
+        DaseinTestManager.out(logger, null, "Tests Only in Candidate", added.size() + " " + added);
+        for( Delta delta : deltas ) {
+            DaseinTestManager.out(logger, null, "---> " + delta.getMetric(), delta.toString());
+            if( delta.isRegression() ) {
+                regressions++;
+            }
+            else if( delta.isUntested() ) {
+                untested++;
+            }
+        }
+        logger.info("");
+        if( regressions > 0 ) {
+            logger.info("------------- Regressions -------------");
+            for( Delta delta : deltas ) {
+                if( delta.isRegression() ) {
+                    DaseinTestManager.out(logger, null, "---> " + delta.getMetric(), delta.toString());
+                }
+            }
+            logger.info("");
+        }
+        DaseinTestManager.out(logger, null, "Untested Growth", String.valueOf(untested));
+        DaseinTestManager.out(logger, null, "Regressions", String.valueOf(regressions));
+        return regressions;
+    }
+
+    private @Nonnull ArrayList<Delta> compare(@Nonnull Run baseline, @Nonnull Run candidate) {
+        ArrayList<Delta> deltas = new ArrayList<Delta>();
+
+        for( String key : intersect(baseline.totals, candidate.totals) ) {
+            if( key.equals("durationMs") ) {
+                deltas.add(new Delta("Run Duration (ms)", baseline.perRun(baseline.totals.get(key)), candidate.perRun(candidate.totals.get(key)), Double.NaN, false, false));
+            }
+            else if( key.equals("totalApiCalls") ) {
+                deltas.add(compareCount("Total Calls", baseline.perRun(baseline.totals.get(key)), candidate.perRun(candidate.totals.get(key))));
+            }
+            else if( key.equals("resourcesProvisioned") ) {
+                deltas.add(compareCount("Resources Provisioned", baseline.perRun(baseline.totals.get(key)), candidate.perRun(candidate.totals.get(key))));
+            }
+        }
+        for( String api : intersect(baseline.apiCalls, candidate.apiCalls) ) {
+            deltas.add(compareCount("API Calls " + api, baseline.perRun(baseline.apiCalls.get(api)), candidate.perRun(candidate.apiCalls.get(api))));
+        }
+        for( String test : intersect(baseline.durations, candidate.durations) ) {
+            deltas.add(compareLatency("Duration (ms) " + test, baseline.durations.get(test), candidate.durations.get(test), 1.0));
+            deltas.add(compareCount("Calls " + test, mean(baseline.testCalls.get(test)), mean(candidate.testCalls.get(test))));
+            deltas.add(compareCount("Provisioned " + test, mean(baseline.provisions.get(test)), mean(candidate.provisions.get(test))));
+        }
+        for( String api : intersect(baseline.latencies, candidate.latencies) ) {
+            deltas.add(compareLatency("Latency (ms) " + api, baseline.latencies.get(api), candidate.latencies.get(api), 1000.0));
+        }
+        return deltas;
+    }
+
+    static private @Nonnull TreeSet<String> intersect(@Nonnull Map<String,?> a, @Nullable Map<String,?> b) {
+        TreeSet<String> keys = new TreeSet<String>(a.keySet());
+
+        if( b == null ) {
+            keys.clear();
+        }
+        else {
+            keys.retainAll(b.keySet());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,496 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.storage.Blob;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Streams structured test results to a file as JSON lines for analysis outside of the test logs. One record is written
+ * for each test with its status, duration, API call counts and latencies, and the resources it provisioned or reused.
+ * The latency statistics for each API include the raw per-call samples in microseconds so that runs may be compared
+ * statistically by {@link ResultsComparator}. One record is written for each provisioning or teardown call made
+ * against the cloud, naming the current test only when the call was made from that test's thread, and a final
+ * summary record matching the report from {@link DaseinTestManager#cleanUp()} is written at the end of the run. Every
+ * record has a "type" of test, provision, teardown, or summary.
+ * <p>Records are collected in a buffer and written to the file through a {@link FileChannel} whenever the buffer fills
+ * and on a timer rather than as each record is produced.</p>
+ * <p>The following {@link System} properties control the writer:</p>
+ * <ul>
+ *     <li>dasein.results - the file to which results are written, nothing is written if not set</li>
+ *     <li>dasein.results.append - true to add this run to the runs already in the file so that the comparator pools
+ *     them, rather than replace them (default false)</li>
+ *     <li>dasein.results.flushInterval - milliseconds between flushes of the buffer to the file (default 5000)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ResultsWriter implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(ResultsWriter.class);
+
+    static private final int BUFFER_SIZE = 64 * 1024;
+
+    static private final String[] PROVISION_PREFIXES = { "add", "allocate", "capture", "create", "launch", "provision", "snapshot", "upload" };
+    static private final String[] TEARDOWN_PREFIXES  = { "delete", "release", "remove", "terminate" };
+
+    static private final ResultsWriter instance = new ResultsWriter();
+    static private final Object        lock     = new Object();
+
+    static private ByteBuffer      buffer;
+    static private FileChannel     channel;
+    static private JSONObject      current;
+    static private Boolean         enabled;
+    static private TreeSet<String> provisioned;
+    static private Thread          testThread;
+    static private Timer           timer;
+    static private TreeSet<String> used;
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            String path = System.getProperty("dasein.results");
+
+            enabled = false;
+            if( path != null && !path.equals("") ) {
+                try {
+                    open(path);
+                    enabled = true;
+                }
+                catch( IOException e ) {
+                    logger.warn("Unable to open results file " + path + ": " + e.getMessage());
+                }
+            }
+        }
+        return enabled;
+    }
+
+    static private void open(@Nonnull String path) throws IOException {
+        long interval = Math.max(100L, PerfUtils.getLong("dasein.results.flushInterval", 5000L));
+
+        channel = new FileOutputStream(path, "true".equalsIgnoreCase(System.getProperty("dasein.results.append"))).getChannel();
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        timer = new Timer("Dasein Results Writer", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, interval, interval);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                close();
+            }
+        });
+        InterceptingProvider.addInterceptor(instance);
+    }
+
+    /**
+     * Writes all buffered records to the results file.
+     */
+    static public void flush() {
+        synchronized( lock ) {
+            if( channel == null ) {
+                return;
+            }
+            try {
+                drain();
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to write results: " + e.getMessage());
+            }
+        }
+    }
+
+    static private void drain() throws IOException {
+        buffer.flip();
+        while( buffer.hasRemaining() ) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes any buffered records and closes the results file. Nothing more will be written once the file is closed.
+     */
+    static public void close() {
+        synchronized( lock ) {
+            if( channel == null ) {
+                return;
+            }
+            if( current != null ) {
+                finish();
+            }
+            timer.cancel();
+            try {
+                drain();
+                channel.close();
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to close results file: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    static private void write(@Nonnull JSONObject record) {
+        byte[] line;
+
+        try {
+            line = (record.toString() + "\n").getBytes("utf-8");
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to encode result: " + e.getMessage());
+            return;
+        }
+        synchronized( lock ) {
+            if( channel == null ) {
+                return;
+            }
+            try {
+                if( line.length > buffer.remaining() ) {
+                    drain();
+                }
+                if( line.length > buffer.capacity() ) {
+                    ByteBuffer wrapped = ByteBuffer.wrap(line);
+
+                    while( wrapped.hasRemaining() ) {
+                        channel.write(wrapped);
+                    }
+                }
+                else {
+                    buffer.put(line);
+                }
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to write results: " + e.getMessage());
+            }
+        }
+    }
+
+    static private void put(@Nonnull JSONObject record, @Nonnull String key, @Nullable Object value) {
+        try {
+            record.put(key, value);
+        }
+        catch( JSONException e ) {
+            logger.warn("Unable to record " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the record for a test. Any record for a previous test that was never finished is written first.
+     * @param provider the name of the cloud provider being tested
+     * @param cloud the name of the cloud being tested
+     * @param suite the test class
+     * @param method the test method
+     */
+    static public void begin(@Nonnull String provider, @Nonnull String cloud, @Nonnull String suite, @Nonnull String method) {
+        if( !isEnabled() ) {
+            return;
+        }
+        synchronized( lock ) {
+            if( current != null ) {
+                finish();
+            }
+            current = new JSONObject();
+            testThread = Thread.currentThread();
+            provisioned = new TreeSet<String>();
+            used = new TreeSet<String>();
+            put(current, "type", "test");
+            put(current, "provider", provider);
+            put(current, "cloud", cloud);
+            put(current, "suite", suite);
+            put(current, "method", method);
+            put(current, "timestamp", System.currentTimeMillis());
+            put(current, "status", "unknown");
+            put(current, "skipped", false);
+        }
+    }
+
+    /**
+     * Marks the current test as skipped.
+     */
+    static public void skipped() {
+        synchronized( lock ) {
+            if( current != null ) {
+                put(current, "status", "skipped");
+                put(current, "skipped", true);
+            }
+        }
+    }
+
+    /**
+     * Notes that the current test was handed the specified shared test resource.
+     * @param resource the resource or the ID of the resource, ignored if null
+     */
+    static public void used(@Nullable Object resource) {
+        String id = identify(resource);
+
+        if( id == null ) {
+            return;
+        }
+        synchronized( lock ) {
+            if( used != null ) {
+                used.add(id);
+            }
+        }
+    }
+
+    /**
+     * Records the statistics for the current test gathered when the test ends.
+     * @param durationMs the duration of the test in milliseconds
+     * @param apiCalls the number of calls to each API reported by the provider
+     * @param callCount the number of calls counted against the test's call budget
+     * @param latencies the latencies in microseconds of the calls made against each support API
+     */
+    static public void end(long durationMs, @Nonnull Map<String,Integer> apiCalls, int callCount, @Nonnull Map<String,ArrayList<Long>> latencies) {
+        synchronized( lock ) {
+            if( current == null ) {
+                return;
+            }
+            TreeMap<String,JSONObject> stats = new TreeMap<String, JSONObject>();
+            int total = 0;
+
+            for( Integer count : apiCalls.values() ) {
+                total += count;
+            }
+            for( Map.Entry<String,ArrayList<Long>> entry : latencies.entrySet() ) {
+                stats.put(entry.getKey(), toStats(entry.getValue()));
+            }
+            put(current, "durationMs", durationMs);
+            put(current, "apiCalls", new JSONObject(apiCalls));
+            put(current, "totalApiCalls", total);
+            put(current, "callCount", callCount);
+            put(current, "latencies", new JSONObject(stats));
+        }
+    }
+
+    static private @Nonnull JSONObject toStats(@Nonnull ArrayList<Long> samples) {
+        ArrayList<Long> sorted = new ArrayList<Long>(samples);
+        JSONObject json = new JSONObject();
+        long sum = 0L;
+
+        Collections.sort(sorted);
+        for( Long sample : sorted ) {
+            sum += sample;
+        }
+        put(json, "count", sorted.size());
+        put(json, "meanMs", (sum/(double)sorted.size())/1000.0);
+        put(json, "p50Ms", sorted.get((sorted.size()-1)/2)/1000.0);
+        put(json, "p95Ms", sorted.get(Math.max(0, (int)Math.ceil(0.95 * sorted.size()) - 1))/1000.0);
+        put(json, "maxMs", sorted.get(sorted.size()-1)/1000.0);
+        put(json, "samplesUs", samples);
+        return json;
+    }
+
+    /**
+     * @return the outcome recorded so far for the current test or null if no test is being recorded
+     */
+    static public @Nullable String getStatus() {
+        synchronized( lock ) {
+            return (current == null ? null : current.optString("status", null));
+        }
+    }
+
+    /**
+     * Sets the outcome of the current test. A test that skipped itself through {@link DaseinTestManager#skip()} and
+     * then returned normally remains skipped rather than passed.
+     * @param status the status of the test (passed, failed, or skipped)
+     * @param message a message explaining a failure or skip
+     */
+    static public void status(@Nonnull String status, @Nullable String message) {
+        synchronized( lock ) {
+            if( current != null ) {
+                if( status.equals("passed") && "skipped".equals(current.optString("status")) ) {
+                    return;
+                }
+                put(current, "status", status);
+                if( status.equals("skipped") ) {
+                    put(current, "skipped", true);
+                }
+                if( message != null ) {
+                    put(current, "message", message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the record for the current test.
+     */
+    static public void finish() {
+        synchronized( lock ) {
+            if( current == null ) {
+                return;
+            }
+            TreeSet<String> reused = new TreeSet<String>(used);
+
+            reused.removeAll(provisioned);
+            put(current, "provisioned", new ArrayList<String>(provisioned));
+            put(current, "reused", new ArrayList<String>(reused));
+            write(current);
+            current = null;
+            testThread = null;
+        }
+    }
+
+    /**
+     * Writes the summary record for the run and closes the results file.
+     * @param apiCalls the number of calls to each API across the run
+     * @param tests the number of tests
+     * @param skipped the number of skipped tests
+     * @param provisioned the number of resources provisioned
+     * @param deprovisioned the number of resources de-provisioned
+     * @param durationMs the duration of the run in milliseconds
+     */
+    static public void summary(@Nonnull Map<String,Integer> apiCalls, int tests, int skipped, int provisioned, int deprovisioned, long durationMs) {
+        if( !isEnabled() ) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        int total = 0;
+
+        for( Integer count : apiCalls.values() ) {
+            total += count;
+        }
+        put(json, "type", "summary");
+        put(json, "timestamp", System.currentTimeMillis());
+        put(json, "apiCalls", new JSONObject(apiCalls));
+        put(json, "totalApiCalls", total);
+        put(json, "tests", tests);
+        put(json, "skipped", skipped);
+        put(json, "run", tests - skipped);
+        put(json, "resourcesProvisioned", provisioned);
+        put(json, "resourcesDeprovisioned", deprovisioned);
+        put(json, "durationMs", durationMs);
+        write(json);
+        close();
+    }
+
+    static @Nullable String getEventType(@Nonnull String method) {
+        for( String prefix : PROVISION_PREFIXES ) {
+            if( method.startsWith(prefix) ) {
+                return "provision";
+            }
+        }
+        for( String prefix : TEARDOWN_PREFIXES ) {
+            if( method.startsWith(prefix) ) {
+                return "teardown";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Identifies a resource returned by the cloud or handed out by the shared test fixtures.
+     * @param resource the resource or resource ID
+     * @return the ID of the resource or null if it cannot be identified
+     */
+    static @Nullable String identify(@Nullable Object resource) {
+        if( resource == null ) {
+            return null;
+        }
+        if( resource instanceof String ) {
+            return (String)resource;
+        }
+        if( resource instanceof Blob ) {
+            Blob blob = (Blob)resource;
+
+            return (blob.getObjectName() == null ? blob.getBucketName() : blob.getObjectName());
+        }
+        try {
+            Method m = resource.getClass().getMethod("getProvider" + resource.getClass().getSimpleName() + "Id");
+
+            if( m.getReturnType().equals(String.class) ) {
+                return (String)m.invoke(resource);
+            }
+        }
+        catch( Throwable ignore ) {
+            // ignore
+        }
+        return null;
+    }
+
+    private ResultsWriter() { }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        String type = getEventType(call.getMethod().getName());
+
+        if( type == null ) {
+            return call.proceed();
+        }
+        long start = System.currentTimeMillis();
+        Object result = null;
+        String error = null;
+
+        try {
+            result = call.proceed();
+            return result;
+        }
+        catch( Throwable t ) {
+            error = t.getMessage();
+            throw t;
+        }
+        finally {
+            JSONObject json = new JSONObject();
+            String id = (type.equals("provision") ? identify(result) : null);
+
+            if( id == null ) {
+                id = call.getResourceId();
+            }
+            put(json, "type", type);
+            put(json, "timestamp", start);
+            put(json, "api", call.getApi());
+            put(json, "resourceId", id);
+            put(json, "fixture", call.isFixture());
+            put(json, "durationMs", System.currentTimeMillis() - start);
+            put(json, "success", error == null);
+            if( error != null ) {
+                put(json, "error", error);
+            }
+            synchronized( lock ) {
+                // calls from other threads, such as fixtures prepared in the background, belong to no test
+                if( current != null && Thread.currentThread() == testThread ) {
+                    put(json, "test", current.optString("suite") + "." + current.optString("method"));
+                    if( id != null && error == null && type.equals("provision") ) {
+                        provisioned.add(id);
+                    }
+                }
+            }
+            write(json);
+        }
+    }
+}
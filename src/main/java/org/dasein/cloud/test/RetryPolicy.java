@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Retries calls made by the shared test resources (the provisioning and clean up in ComputeResources,
+ * NetworkResources, StorageResources, IdentityResources, PlatformResources and CIResources) when they fail for
+ * transient reasons, so that a single throttling response or server error neither leaks a resource nor fails a test.
+ * A call belongs to the shared resources if it goes through a fixture provider or through a support object the
+ * provisioning helpers of each resources class have marked with {@link InterceptingProvider#asFixture(Object)}
+ * because it was passed in by a test. Any other calls made by the tests themselves are never retried since how a
+ * test copes with errors is what it tests.
+ * <p>Throttling is retried for any call since a throttled request was never carried out. Server errors and
+ * communication failures are retried for everything but provisioning calls, which might have gone through in spite
+ * of the error and would then create a duplicate resource. Retries back off exponentially with full jitter and stop
+ * at the maximum number of attempts or when the next attempt would pass the deadline for the call.</p>
+ * <p>The policy may be replaced by naming a subclass that overrides {@link #isRetryable(CloudCall, Throwable)} or
+ * {@link #getDelay(int)} in the dasein.retry.policy {@link System} property. The following properties control the
+ * default policy:</p>
+ * <ul>
+ *     <li>dasein.retry.attempts - the maximum number of attempts at a call, with 1 disabling retries (default 3)</li>
+ *     <li>dasein.retry.baseDelay - milliseconds of backoff before the first retry (default 1000)</li>
+ *     <li>dasein.retry.maxDelay - the most milliseconds of backoff before any one retry (default 30000)</li>
+ *     <li>dasein.retry.deadline - milliseconds after the first attempt by which a call must succeed (default 300000)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class RetryPolicy implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(RetryPolicy.class);
+
+    static private final Random random = new Random();
+
+    static private class Stats {
+        public int  attempts;
+        public long backoffMillis;
+        public int  calls;
+        public int  exhausted;
+        public int  recovered;
+        public long totalMillis;
+    }
+
+    static private final TreeMap<String,Stats> stats = new TreeMap<String, Stats>();
+
+    static private boolean installed;
+
+    /**
+     * Adds the configured retry policy to the interceptor chain unless retries are disabled. Installing the policy
+     * more than once has no effect.
+     */
+    static public void install() {
+        synchronized( stats ) {
+            if( installed ) {
+                return;
+            }
+            installed = true;
+        }
+        String cname = System.getProperty("dasein.retry.policy");
+        RetryPolicy policy = null;
+
+        if( cname != null && !cname.equals("") ) {
+            try {
+                policy = (RetryPolicy)Class.forName(cname).newInstance();
+            }
+            catch( Exception e ) {
+                logger.warn("Invalid retry policy " + cname + ", using the default policy: " + e.getMessage());
+            }
+        }
+        if( policy == null ) {
+            policy = new RetryPolicy();
+        }
+        if( policy.getMaxAttempts() > 1 ) {
+            InterceptingProvider.addInterceptor(policy);
+        }
+    }
+
+    static private long getSetting(@Nonnull String name, long defaultValue) {
+        return PerfUtils.getLong("dasein.retry." + name, defaultValue);
+    }
+
+    /**
+     * Logs the calls that needed retries with the number of attempts made, how many recovered and how many gave up,
+     * and the time spent in backoff and in the calls overall.
+     * @param logger the logger to write the report to
+     * @return the number of calls that were retried
+     */
+    static public int report(@Nonnull Logger logger) {
+        int count = 0;
+
+        synchronized( stats ) {
+            if( stats.isEmpty() ) {
+                return 0;
+            }
+            logger.info("--------------- Retries ---------------");
+            for( Map.Entry<String,Stats> entry : stats.entrySet() ) {
+                Stats s = entry.getValue();
+
+                count += s.calls;
+                DaseinTestManager.out(logger, null, "---> " + entry.getKey(), "calls=" + s.calls + " attempts=" + s.attempts + " recovered=" + s.recovered + " exhausted=" + s.exhausted + " backoff=" + s.backoffMillis + " ms total=" + s.totalMillis + " ms");
+            }
+            logger.info("");
+        }
+        return count;
+    }
+
+    private long baseDelay;
+    private long deadline;
+    private int  maxAttempts;
+    private long maxDelay;
+
+    public RetryPolicy() {
+        maxAttempts = (int)Math.max(1L, getSetting("attempts", 3L));
+        baseDelay = Math.max(0L, getSetting("baseDelay", 1000L));
+        maxDelay = Math.max(baseDelay, getSetting("maxDelay", 30000L));
+        deadline = getSetting("deadline", 300000L);
+    }
+
+    /**
+     * Provides the time to back off before the specified retry as a random time up to an exponentially growing cap.
+     * @param retry the number of the retry, starting at 1
+     * @return the number of milliseconds to wait before the retry
+     */
+    protected long getDelay(int retry) {
+        long cap = baseDelay;
+
+        for( int i=1; i<retry && cap < maxDelay; i++ ) {
+            cap *= 2;
+        }
+        cap = Math.min(cap, maxDelay);
+        synchronized( random ) {
+            return (long)(random.nextDouble() * cap);
+        }
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Decides whether a failed call is worth another attempt.
+     * @param call the call that failed
+     * @param t the error from the call
+     * @return true if the call should be retried
+     */
+    protected boolean isRetryable(@Nonnull CloudCall call, @Nonnull Throwable t) {
+        boolean provisioning = "provision".equals(ResultsWriter.getEventType(call.getMethod().getName()));
+
+        for( Throwable cause = t; cause != null; cause = cause.getCause() ) {
+            if( cause instanceof CloudException ) {
+                CloudException e = (CloudException)cause;
+                int code = e.getHttpCode();
+
+                if( CloudErrorType.THROTTLING.equals(e.getErrorType()) || code == 429 ) {
+                    return true;
+                }
+                if( !provisioning && (CloudErrorType.COMMUNICATION.equals(e.getErrorType()) || code >= 500) ) {
+                    return true;
+                }
+            }
+            else if( cause instanceof IOException ) {
+                return !provisioning;
+            }
+        }
+        return false;
+    }
+
+    private void record(@Nonnull CloudCall call, int attempts, long backoff, long total, boolean success) {
+        synchronized( stats ) {
+            Stats s = stats.get(call.getApi());
+
+            if( s == null ) {
+                s = new Stats();
+                stats.put(call.getApi(), s);
+            }
+            s.calls++;
+            s.attempts += attempts;
+            s.backoffMillis += backoff;
+            s.totalMillis += total;
+            if( success ) {
+                s.recovered++;
+            }
+            else {
+                s.exhausted++;
+            }
+        }
+    }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        if( !call.isFixture() ) {
+            return call.proceed();
+        }
+        long start = System.currentTimeMillis();
+        long backoff = 0L;
+        int attempt = 1;
+
+        while( true ) {
+            try {
+                Object result = call.proceed();
+
+                if( attempt > 1 ) {
+                    record(call, attempt, backoff, System.currentTimeMillis() - start, true);
+                }
+                return result;
+            }
+            catch( Throwable t ) {
+                long delay = getDelay(attempt);
+
+                if( attempt >= maxAttempts || !isRetryable(call, t) || System.currentTimeMillis() + delay - start > deadline ) {
+                    if( attempt > 1 ) {
+                        record(call, attempt, backoff, System.currentTimeMillis() - start, false);
+                    }
+                    throw t;
+                }
+                logger.debug("Retrying " + call + " in " + delay + " ms after attempt " + attempt + " failed: " + t.getMessage());
+                TimelineRecorder.pause(delay);
+                backoff += delay;
+                attempt++;
+            }
+        }
+    }
+}
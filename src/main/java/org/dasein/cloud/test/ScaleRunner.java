@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunListener;
+
+import javax.annotation.Nonnull;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the stateless tests against accounts of growing size to show how the list, get, and compare tests scale with
+ * the number of resources in the account. For each size given in dasein.scale, the account is seeded up to that many
+ * resources of each kind by {@link ScaleSeeder} and the suite is run again, recording the duration and the bytes
+ * allocated (see {@link MemoryProfiler}) of every test. The run ends with a scaling curve for each test and an
+ * estimate of the exponent k in time ~ N^k, so a test that grows quadratically with the account stands out. Run it as
+ * a program with the usual provider properties, for example:
+ * <pre>
+ *     java -DproviderClass=org.dasein.cloud.test.sim.SimulatedCloud -Ddasein.scale=100,1000,5000 org.dasein.cloud.test.ScaleRunner
+ * </pre>
+ * <p>The following {@link System} properties control the run in addition to those of {@link ScaleSeeder}:</p>
+ * <ul>
+ *     <li>dasein.scale - the comma-separated account sizes at which to run the suite (required)</li>
+ *     <li>dasein.scale.suite - the suite or test class to run (default org.dasein.cloud.test.StatelessTestSuite)</li>
+ *     <li>dasein.scale.output - a CSV file to which each measurement is written (optional)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ScaleRunner {
+    static private final Logger logger = Logger.getLogger(ScaleRunner.class);
+
+    static private final String[] MEASURED = { "list", "get", "compare" };
+
+    static private class Point {
+        public long allocated = -1L;
+        public long millis;
+        public int  size;
+    }
+
+    static private class Timer extends RunListener {
+        private final HashMap<String,Long>   started = new HashMap<String, Long>();
+        private final TreeMap<String,Long>   times   = new TreeMap<String, Long>();
+
+        static private @Nonnull String getName(@Nonnull Description description) {
+            String cls = description.getClassName();
+
+            return cls.substring(cls.lastIndexOf('.') + 1) + "." + description.getMethodName();
+        }
+
+        @Override
+        public void testStarted(Description description) {
+            started.put(getName(description), System.nanoTime());
+        }
+
+        @Override
+        public void testFinished(Description description) {
+            String name = getName(description);
+            Long start = started.remove(name);
+
+            if( start != null ) {
+                times.put(name, (System.nanoTime() - start)/1000000L);
+            }
+        }
+    }
+
+    static private boolean isMeasured(@Nonnull String test) {
+        String method = test.substring(test.indexOf('.') + 1);
+
+        for( String prefix : MEASURED ) {
+            if( method.startsWith(prefix) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static public void main(String ... args) throws Exception {
+        String prop = System.getProperty("dasein.scale");
+
+        if( prop == null || prop.trim().equals("") ) {
+            System.err.println("Specify the account sizes to test in dasein.scale (e.g. -Ddasein.scale=100,1000,5000)");
+            System.exit(1);
+        }
+        ArrayList<Integer> sizes = new ArrayList<Integer>();
+
+        for( String size : prop.split(",") ) {
+            sizes.add(Integer.parseInt(size.trim()));
+        }
+        if( System.getProperty("dasein.memory") == null ) {
+            System.setProperty("dasein.memory", "true");
+        }
+        Class<?> suite = Class.forName(System.getProperty("dasein.scale.suite", StatelessTestSuite.class.getName()));
+        TreeMap<String,List<Point>> curves = new TreeMap<String, List<Point>>();
+        int failures = 0;
+
+        DaseinTestManager.init();
+        try {
+            for( int size : sizes ) {
+                logger.info("Seeding the account with " + size + " resources of each kind");
+                ScaleSeeder.seed(size);
+
+                int done = MemoryProfiler.getUsages().size();
+                Timer timer = new Timer();
+                JUnitCore junit = new JUnitCore();
+
+                junit.addListener(timer);
+                Result result = junit.run(suite);
+
+                failures += result.getFailureCount();
+                List<MemoryProfiler.Usage> usages = MemoryProfiler.getUsages();
+                HashMap<String,Long> allocated = new HashMap<String, Long>();
+
+                for( MemoryProfiler.Usage usage : usages.subList(done, usages.size()) ) {
+                    allocated.put(usage.getTest(), usage.getAllocated());
+                }
+                for( Map.Entry<String,Long> entry : timer.times.entrySet() ) {
+                    if( !isMeasured(entry.getKey()) ) {
+                        continue;
+                    }
+                    List<Point> curve = curves.get(entry.getKey());
+                    Point p = new Point();
+
+                    if( curve == null ) {
+                        curve = new ArrayList<Point>();
+                        curves.put(entry.getKey(), curve);
+                    }
+                    p.size = size;
+                    p.millis = entry.getValue();
+                    if( allocated.containsKey(entry.getKey()) ) {
+                        p.allocated = allocated.get(entry.getKey());
+                    }
+                    curve.add(p);
+                }
+            }
+        }
+        finally {
+            DaseinTestManager.cleanUp();
+        }
+        report(logger, curves);
+        write(curves);
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    /**
+     * Estimates the exponent k in time ~ N^k from the smallest and largest non-zero sizes measured.
+     * @param curve the measurements of one test
+     * @return the estimated exponent or NaN if there are not enough measurements
+     */
+    static private double getExponent(@Nonnull List<Point> curve) {
+        Point first = null, last = null;
+
+        for( Point p : curve ) {
+            if( p.size > 0 && p.millis > 0 ) {
+                if( first == null || p.size < first.size ) {
+                    first = p;
+                }
+                if( last == null || p.size > last.size ) {
+                    last = p;
+                }
+            }
+        }
+        if( first == null || last == null || first.size == last.size ) {
+            return Double.NaN;
+        }
+        return Math.log(((double)last.millis)/first.millis)/Math.log(((double)last.size)/first.size);
+    }
+
+    static private void report(@Nonnull Logger logger, @Nonnull Map<String,List<Point>> curves) {
+        logger.info("------------- Scaling Curve -----------");
+        for( Map.Entry<String,List<Point>> entry : curves.entrySet() ) {
+            StringBuilder str = new StringBuilder();
+            double k = getExponent(entry.getValue());
+
+            for( Point p : entry.getValue() ) {
+                str.append("N=").append(p.size).append(": ").append(p.millis).append(" ms");
+                if( p.allocated >= 0L ) {
+                    str.append("/").append(p.allocated/1024L).append(" KB");
+                }
+                str.append("  ");
+            }
+            if( !Double.isNaN(k) ) {
+                str.append(String.format("k=%.2f", k));
+            }
+            logger.info("---> " + entry.getKey() + ": " + str.toString().trim());
+        }
+        logger.info("");
+    }
+
+    static private void write(@Nonnull Map<String,List<Point>> curves) {
+        String path = System.getProperty("dasein.scale.output");
+
+        if( path == null || path.equals("") ) {
+            return;
+        }
+        try {
+            PrintWriter out = new PrintWriter(new FileWriter(path));
+
+            try {
+                out.println("test,size,millis,allocated");
+                for( Map.Entry<String,List<Point>> entry : curves.entrySet() ) {
+                    for( Point p : entry.getValue() ) {
+                        out.println(entry.getKey() + "," + p.size + "," + p.millis + "," + p.allocated);
+                    }
+                }
+            }
+            finally {
+                out.close();
+            }
+        }
+        catch( IOException e ) {
+            logger.warn("Unable to write scaling curve to " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.compute.SnapshotSupport;
+import org.dasein.cloud.identity.IdentityAndAccessSupport;
+import org.dasein.cloud.identity.IdentityServices;
+import org.dasein.cloud.network.DNSRecordType;
+import org.dasein.cloud.network.DNSSupport;
+import org.dasein.cloud.network.Direction;
+import org.dasein.cloud.network.FirewallSupport;
+import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.network.Permission;
+import org.dasein.cloud.network.Protocol;
+import org.dasein.cloud.network.RuleTarget;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.compute.ComputeResources;
+import org.dasein.cloud.test.identity.IdentityResources;
+import org.dasein.cloud.test.network.NetworkResources;
+import org.dasein.cloud.test.storage.StorageResources;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Seeds the account with large numbers of resources so that the stateless tests run against something like a large
+ * production account rather than a nearly empty one. Resources are created through the provision helpers of the
+ * shared test resources (or, for firewall rules and DNS records, which have no helpers, directly against a test
+ * firewall and zone) so that they are cleaned up with the rest of the test resources. Creation runs in parallel in
+ * batches; each batch completes before the next one starts so that progress is logged and a failing cloud is not
+ * flooded. Seeding is incremental: asking for 5000 after 1000 have been seeded creates only the missing 4000.
+ * <p>Seeding many resources is expensive against a real cloud and is meant for the simulated provider
+ * (org.dasein.cloud.test.sim.SimulatedCloud) or a dedicated account. The following {@link System} properties
+ * control seeding:</p>
+ * <ul>
+ *     <li>dasein.scale.kinds - the kinds of resources to seed out of rules, records, blobs, users, and snapshots
+ *     (default all of them)</li>
+ *     <li>dasein.scale.threads - the number of resources created in parallel (default 8)</li>
+ *     <li>dasein.scale.batch - the number of resources created per batch (default 100)</li>
+ * </ul>
+ * @see ScaleRunner
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ScaleSeeder {
+    static private final Logger logger = Logger.getLogger(ScaleSeeder.class);
+
+    static public final String LABEL = "scale";
+
+    static private final String[] KINDS = { "rules", "records", "blobs", "users", "snapshots" };
+
+    static private final TreeMap<String,Integer> seeded = new TreeMap<String, Integer>();
+
+    static private int getSetting(@Nonnull String name, int defaultValue) {
+        return PerfUtils.getPositiveInt("dasein.scale." + name, defaultValue);
+    }
+
+    /**
+     * @return the kinds of resources to seed as given in dasein.scale.kinds
+     */
+    static public @Nonnull String[] getKinds() {
+        String prop = System.getProperty("dasein.scale.kinds");
+
+        if( prop == null || prop.trim().equals("") ) {
+            return KINDS;
+        }
+        ArrayList<String> kinds = new ArrayList<String>();
+
+        for( String kind : prop.split(",") ) {
+            kind = kind.trim().toLowerCase();
+            if( !kind.equals("") ) {
+                kinds.add(kind);
+            }
+        }
+        return kinds.toArray(new String[kinds.size()]);
+    }
+
+    /**
+     * @return the number of resources of each kind seeded so far
+     */
+    static public @Nonnull Map<String,Integer> getSeeded() {
+        synchronized( seeded ) {
+            return new TreeMap<String, Integer>(seeded);
+        }
+    }
+
+    /**
+     * Brings the number of seeded resources of each configured kind up to the specified count. The shared test
+     * resources must have been initialized with {@link DaseinTestManager#init()}.
+     * @param count the number of resources of each kind the account should hold
+     */
+    static public void seed(int count) {
+        CloudProvider provider = DaseinTestManager.constructFixtureProvider();
+        ExecutorService executor = Executors.newFixedThreadPool(getSetting("threads", 8));
+        int batch = getSetting("batch", 100);
+
+        if( !String.valueOf(System.getProperty("providerClass")).endsWith(".SimulatedCloud") ) {
+            logger.warn("Seeding " + count + " resources of each kind in " + provider.getCloudName() + "; this should be a dedicated account");
+        }
+        try {
+            for( String kind : getKinds() ) {
+                Seed seed = getSeed(provider, kind);
+                int start;
+
+                synchronized( seeded ) {
+                    Integer n = seeded.get(kind);
+
+                    start = (n == null ? 0 : n);
+                }
+                if( seed == null ) {
+                    logger.info("Not seeding " + kind + " since " + provider.getCloudName() + " does not support them");
+                    continue;
+                }
+                long began = System.currentTimeMillis();
+                int failed = 0;
+
+                for( int i=start; i<count; i+=batch ) {
+                    ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+
+                    for( int j=i; j<Math.min(count, i+batch); j++ ) {
+                        futures.add(executor.submit(seed.task(j)));
+                    }
+                    for( Future<?> f : futures ) {
+                        try {
+                            f.get();
+                        }
+                        catch( Exception e ) {
+                            if( failed++ == 0 ) {
+                                logger.warn("Failed to seed " + kind + ": " + (e.getCause() == null ? e.getMessage() : e.getCause().getMessage()));
+                            }
+                        }
+                    }
+                    logger.debug("Seeded " + Math.min(count, i+batch) + " of " + count + " " + kind);
+                }
+                synchronized( seeded ) {
+                    seeded.put(kind, Math.max(start, count - failed));
+                }
+                if( count > start ) {
+                    logger.info("Seeded " + (count - start - failed) + " " + kind + " in " + (System.currentTimeMillis() - began) + " ms (" + failed + " failed)");
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates one resource of a kind with a unique index.
+     */
+    static private abstract class Seed {
+        public abstract void create(int index) throws Exception;
+
+        public @Nonnull Runnable task(final int index) {
+            return new Runnable() {
+                public void run() {
+                    try {
+                        create(index);
+                    }
+                    catch( RuntimeException e ) {
+                        throw e;
+                    }
+                    catch( Exception e ) {
+                        throw new RuntimeException(e.getMessage(), e);
+                    }
+                }
+            };
+        }
+    }
+
+    static private @Nonnull String address(int index) {
+        return "10." + ((index >> 16) & 0xFF) + "." + ((index >> 8) & 0xFF) + "." + (index & 0xFF);
+    }
+
+    static private @Nullable Seed getSeed(@Nonnull CloudProvider provider, @Nonnull String kind) {
+        if( kind.equals("rules") ) {
+            NetworkServices services = provider.getNetworkServices();
+            final FirewallSupport support = (services == null ? null : services.getFirewallSupport());
+            NetworkResources resources = DaseinTestManager.getNetworkResources();
+            final String firewallId = (support == null || resources == null ? null : resources.getTestFirewallId(LABEL, true, null));
+
+            if( firewallId == null ) {
+                return null;
+            }
+            return new Seed() {
+                public void create(int index) throws Exception {
+                    int port = 1024 + (index % 60000);
+
+                    support.authorize(firewallId, Direction.INGRESS, Permission.ALLOW, RuleTarget.getCIDR(address(index) + "/32"), Protocol.TCP, RuleTarget.getGlobal(firewallId), port, port, 0);
+                }
+            };
+        }
+        else if( kind.equals("records") ) {
+            NetworkServices services = provider.getNetworkServices();
+            final DNSSupport support = (services == null ? null : services.getDnsSupport());
+            NetworkResources resources = DaseinTestManager.getNetworkResources();
+            final String zoneId = (support == null || resources == null ? null : resources.getTestZoneId(LABEL, true));
+
+            if( zoneId == null ) {
+                return null;
+            }
+            return new Seed() {
+                public void create(int index) throws Exception {
+                    support.addDnsRecord(zoneId, DNSRecordType.A, "dsnscale" + index, 3600, address(index));
+                }
+            };
+        }
+        else if( kind.equals("blobs") ) {
+            StorageServices services = provider.getStorageServices();
+            final BlobStoreSupport support = (services == null ? null : services.getBlobStoreSupport());
+            final StorageResources resources = DaseinTestManager.getStorageResources();
+            Blob bucket = (support == null || resources == null ? null : resources.getTestRootBucket(LABEL, true, "dsnscale"));
+
+            if( bucket == null || bucket.getBucketName() == null ) {
+                return null;
+            }
+            final String bucketName = bucket.getBucketName();
+
+            return new Seed() {
+                public void create(int index) throws Exception {
+                    resources.provisionChildObject(support, LABEL + index, bucketName, "dsnscale" + index + "-", "Dasein Cloud scale test object " + index);
+                }
+            };
+        }
+        else if( kind.equals("users") ) {
+            IdentityServices services = provider.getIdentityServices();
+            final IdentityAndAccessSupport support = (services == null ? null : services.getIdentityAndAccessSupport());
+            final IdentityResources resources = DaseinTestManager.getIdentityResources();
+
+            if( support == null || resources == null ) {
+                return null;
+            }
+            return new Seed() {
+                public void create(int index) throws Exception {
+                    resources.provisionUser(support, LABEL + index, "dsnscale" + index + "-");
+                }
+            };
+        }
+        else if( kind.equals("snapshots") ) {
+            ComputeServices services = provider.getComputeServices();
+            final SnapshotSupport support = (services == null ? null : services.getSnapshotSupport());
+            final ComputeResources resources = DaseinTestManager.getComputeResources();
+            final String volumeId = (support == null || resources == null ? null : resources.getTestVolumeId(LABEL, true, null, null));
+
+            if( volumeId == null ) {
+                return null;
+            }
+            return new Seed() {
+                public void create(int index) throws Exception {
+                    resources.provisionSnapshot(support, LABEL + index, "dsnscale" + index + "-", volumeId);
+                }
+            };
+        }
+        logger.warn("Unknown kind of resource to seed: " + kind);
+        return null;
+    }
+
+    private ScaleSeeder() { }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.dasein.cloud.ResourceStatus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reconciles the list of a resource type against its status list as done by the compare*ListAndStatus tests in the
+ * stateless suites. Each resource must appear in both lists. The tests and the reconciliation benchmark share this
+ * logic so that the benchmark measures exactly what the tests do.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class StatusReconciler {
+    /**
+     * Matches the resource IDs from a status list against the IDs of the resources in the full resource list.
+     * @param status the status list
+     * @param ids the IDs of the resources in the resource list
+     * @return an ID that appears in only one of the two lists or null if the lists match
+     */
+    static public @Nullable String findMismatch(@Nonnull Iterable<ResourceStatus> status, @Nonnull Iterable<String> ids) {
+        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
+
+        for( ResourceStatus s : status ) {
+            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+
+            if( current == null ) {
+                current = new HashMap<String, Boolean>();
+                map.put(s.getProviderResourceId(), current);
+            }
+            current.put("status", true);
+        }
+        for( String id : ids ) {
+            Map<String,Boolean> current = map.get(id);
+
+            if( current == null ) {
+                current = new HashMap<String, Boolean>();
+                map.put(id, current);
+            }
+            current.put("resource", true);
+        }
+        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
+            Boolean s = entry.getValue().get("status");
+            Boolean r = entry.getValue().get("resource");
+
+            if( !(s != null && r != null && s && r) ) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private StatusReconciler() { }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.util.APITrace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Collection;
+import java.util.Iterator;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Observes how a list API delivers its results to check that it streams them rather than fetching the whole account
+ * before yielding the first element. A probe is started before the list call is made and wraps the {@link Iterable}
+ * it returns:
+ * <pre>
+ *     Iterable&lt;VirtualMachine&gt; vms = tm.stream("listVirtualMachines").of(support.listVirtualMachines());
+ * </pre>
+ * Since Java evaluates the probe before the arguments to {@link #of(Iterable)}, the time of the list call itself is
+ * included. Once the results have been iterated to the end, the probe logs the number of elements, the time to the
+ * first and to the last element, the peak growth of the heap, and the number of API calls (pages) the provider traced
+ * while the results were fetched. A list API is taken to have materialized its results if it returned at least
+ * the minimum number of elements and either handed back a {@link Collection} or took nearly all of its time before
+ * yielding the first element.
+ * <p>The following {@link System} properties control the probes:</p>
+ * <ul>
+ *     <li>dasein.streaming - off, warn, or fail (default off, meaning the results are passed through untouched)</li>
+ *     <li>dasein.streaming.minElements - the fewest elements for which materialization is flagged (default 1000)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class StreamingProbe {
+    static private final Logger logger = Logger.getLogger(StreamingProbe.class);
+
+    static private final int HEAP_SAMPLE_INTERVAL = 256;
+
+    static private final StreamingProbe disabled = new StreamingProbe(null, "");
+
+    static private boolean failOnMaterialize;
+    static private int     minElements;
+    static private String  mode;
+
+    static {
+        mode = PerfUtils.getString("dasein.streaming", "off").toLowerCase();
+        if( !mode.equals("warn") && !mode.equals("fail") ) {
+            if( !mode.equals("off") && !mode.equals("") ) {
+                logger.warn("Invalid value for dasein.streaming: " + mode);
+            }
+            mode = "off";
+        }
+        failOnMaterialize = mode.equals("fail");
+        minElements = PerfUtils.getInt("dasein.streaming.minElements", 1000);
+    }
+
+    static public boolean isEnabled() {
+        return !mode.equals("off");
+    }
+
+    /**
+     * Starts a probe of a list API. Tests generally get probes through {@link DaseinTestManager#stream(String)}.
+     * @param tm the manager of the running test
+     * @param api the name of the list API being probed
+     * @return a probe to wrap the results of the list call
+     */
+    static public @Nonnull StreamingProbe start(@Nonnull DaseinTestManager tm, @Nonnull String api) {
+        if( !isEnabled() ) {
+            return disabled;
+        }
+        return new StreamingProbe(tm, api);
+    }
+
+    private String            api;
+    private boolean           done;
+    private int               elements;
+    private long              firstNanos = -1L;
+    private long              heapBefore;
+    private long              heapPeak;
+    private MemoryMXBean      memory;
+    private long              pagesBefore;
+    private long              start;
+    private DaseinTestManager tm;
+
+    private StreamingProbe(@Nullable DaseinTestManager tm, @Nonnull String api) {
+        this.tm = tm;
+        this.api = api;
+        if( tm != null ) {
+            memory = ManagementFactory.getMemoryMXBean();
+            pagesBefore = getPages();
+            heapBefore = memory.getHeapMemoryUsage().getUsed();
+            heapPeak = heapBefore;
+            start = System.nanoTime();
+        }
+    }
+
+    /**
+     * Counts the API calls traced so far for a provider across all accounts. The difference between two counts taken
+     * around a list call is the number of pages the provider fetched (along with any other calls made meanwhile).
+     * @param provider the provider whose calls are counted
+     * @return the number of calls traced
+     */
+    static public long countApiCalls(@Nonnull CloudProvider provider) {
+        long count = 0L;
+
+        for( String call : APITrace.listApis(provider.getProviderName(), provider.getCloudName()) ) {
+            count += APITrace.getAPICountAcrossAccounts(provider.getProviderName(), provider.getCloudName(), call);
+        }
+        return count;
+    }
+
+    private long getPages() {
+        return countApiCalls(tm.getProvider());
+    }
+
+    private void sampleHeap() {
+        heapPeak = Math.max(heapPeak, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    private void finish(boolean collection) {
+        if( done ) {
+            return;
+        }
+        done = true;
+        sampleHeap();
+
+        long last = (System.nanoTime() - start)/1000000L;
+        long first = (firstNanos < 0L ? last : (firstNanos - start)/1000000L);
+        long pages = getPages() - pagesBefore;
+
+        tm.out("Streaming " + api, "elements=" + elements + " first=" + first + " ms last=" + last + " ms heap=+" + ((heapPeak - heapBefore)/1024L) + " KB pages=" + pages);
+        if( elements >= minElements && (collection || (last >= 100L && first >= last * 0.9)) ) {
+            String message = api + " materialized all " + elements + " results before yielding the first (" + (collection ? "returned a collection" : "first element after " + first + " of " + last + " ms") + ")";
+
+            if( failOnMaterialize ) {
+                fail(message);
+            }
+            tm.warn(message);
+        }
+    }
+
+    /**
+     * Wraps the results of the list call being probed. The results are returned untouched if probing is disabled.
+     * @param items the results of the list call
+     * @param <T> the type of element listed
+     * @return the results, observed as they are iterated
+     */
+    public @Nullable <T> Iterable<T> of(@Nullable final Iterable<T> items) {
+        if( tm == null || items == null ) {
+            return items;
+        }
+        final boolean collection = (items instanceof Collection);
+
+        return new Iterable<T>() {
+            @Override
+            public @Nonnull Iterator<T> iterator() {
+                final Iterator<T> it = items.iterator();
+
+                return new Iterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        boolean more = it.hasNext();
+
+                        if( !more ) {
+                            finish(collection);
+                        }
+                        return more;
+                    }
+
+                    @Override
+                    public T next() {
+                        T item = it.next();
+
+                        if( !done ) {
+                            if( firstNanos < 0L ) {
+                                firstNanos = System.nanoTime();
+                            }
+                            if( ++elements % HEAP_SAMPLE_INTERVAL == 0 ) {
+                                sampleHeap();
+                            }
+                        }
+                        return item;
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+        };
+    }
+}
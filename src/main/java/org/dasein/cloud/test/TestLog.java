@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Writes the log output of the tests on behalf of {@link DaseinTestManager}. Lines are formatted into a reused buffer
+ * per thread and, if asynchronous logging is enabled, handed to a background writer through a bounded ring buffer so
+ * that tests do not wait on log appenders. A test that fills the ring waits for the writer to catch up rather than
+ * losing output.
+ * <p>The following {@link System} properties control test logging:</p>
+ * <ul>
+ *     <li>dasein.verbosity - summary, sample, or full (default full); see {@link Verbosity}</li>
+ *     <li>dasein.verbosity.sample - the number of elements of each kind logged per test at sample verbosity (default 10)</li>
+ *     <li>dasein.log.async - the capacity of the ring buffer for asynchronous logging, with 0 logging synchronously (default 0)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class TestLog {
+    /**
+     * How much of the resources listed by a test is logged.
+     */
+    static public enum Verbosity {
+        /** only the number of elements of each kind is logged at the end of the test */
+        SUMMARY,
+        /** the first few elements of each kind are logged followed by the number of elements at the end of the test */
+        SAMPLE,
+        /** every element is logged */
+        FULL
+    }
+
+    static private final Logger logger = Logger.getLogger(TestLog.class);
+
+    static private final Object lock = new Object();
+
+    static private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    static private Logger[]  loggers;
+    static private Level[]   levels;
+    static private String[]  messages;
+    static private int       head;
+    static private int       size;
+    static private boolean   writing;
+    static private int       sampleSize;
+    static private Verbosity verbosity;
+
+    static {
+        String prop = PerfUtils.getString("dasein.verbosity", "");
+
+        verbosity = Verbosity.FULL;
+        if( !prop.equals("") ) {
+            try {
+                verbosity = Verbosity.valueOf(prop.toUpperCase());
+            }
+            catch( IllegalArgumentException e ) {
+                logger.warn("Invalid value for dasein.verbosity: " + prop);
+            }
+        }
+        sampleSize = getSetting("dasein.verbosity.sample", 10);
+
+        int capacity = getSetting("dasein.log.async", 0);
+
+        if( capacity > 0 ) {
+            loggers = new Logger[capacity];
+            levels = new Level[capacity];
+            messages = new String[capacity];
+
+            Thread t = new Thread() {
+                public void run() {
+                    drain();
+                }
+            };
+
+            t.setName("Dasein Test Log");
+            t.setDaemon(true);
+            t.start();
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    static private int getSetting(@Nonnull String name, int defaultValue) {
+        return Math.max(0, PerfUtils.getInt(name, defaultValue));
+    }
+
+    static public @Nonnull Verbosity getVerbosity() {
+        return verbosity;
+    }
+
+    /**
+     * @return the number of elements of each kind logged per test at {@link Verbosity#SAMPLE} verbosity
+     */
+    static public int getSampleSize() {
+        return sampleSize;
+    }
+
+    static public boolean isAsynchronous() {
+        return (messages != null);
+    }
+
+    /**
+     * Provides the formatting buffer of the current thread, emptied for a new line. Buffers that grew very large for a
+     * long line are replaced so that they do not hold on to the memory.
+     * @return an empty buffer owned by the current thread
+     */
+    static @Nonnull StringBuilder buffer() {
+        StringBuilder str = buffers.get();
+
+        if( str.capacity() > 64 * 1024 ) {
+            str = new StringBuilder(256);
+            buffers.set(str);
+        }
+        str.setLength(0);
+        return str;
+    }
+
+    /**
+     * Writes a line to the specified logger, either directly or through the ring buffer if logging is asynchronous.
+     * The caller is expected to have checked that the level is enabled before formatting the line.
+     * @param target the logger to which the line belongs
+     * @param level the level of the line
+     * @param message the line
+     */
+    static void write(@Nonnull Logger target, @Nonnull Level level, @Nonnull String message) {
+        if( messages == null ) {
+            target.log(level, message);
+            return;
+        }
+        synchronized( lock ) {
+            while( size == messages.length ) {
+                try {
+                    lock.wait();
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    target.log(level, message);
+                    return;
+                }
+            }
+            int idx = (head + size) % messages.length;
+
+            loggers[idx] = target;
+            levels[idx] = level;
+            messages[idx] = message;
+            size++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the background writer to write out everything queued so far. Nothing happens if logging is synchronous.
+     */
+    static public void flush() {
+        if( messages == null ) {
+            return;
+        }
+        synchronized( lock ) {
+            while( size > 0 || writing ) {
+                try {
+                    lock.wait(1000L);
+                }
+                catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    static private void drain() {
+        Logger target;
+        Level level;
+        String message;
+
+        while( true ) {
+            synchronized( lock ) {
+                writing = false;
+                lock.notifyAll();
+                while( size == 0 ) {
+                    try {
+                        lock.wait();
+                    }
+                    catch( InterruptedException e ) {
+                        return;
+                    }
+                }
+                target = loggers[head];
+                level = levels[head];
+                message = messages[head];
+                loggers[head] = null;
+                levels[head] = null;
+                messages[head] = null;
+                head = (head + 1) % messages.length;
+                size--;
+                writing = true;
+                lock.notifyAll();
+            }
+            try {
+                target.log(level, message);
+            }
+            catch( Throwable ignore ) {
+                // ignore
+            }
+        }
+    }
+
+    private TestLog() { }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.test.sim.Simulation;
+import org.json.JSONObject;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+
+/**
+ * Records a timeline of a test run in the Chrome trace-event format so that the run can be opened in a trace viewer
+ * such as chrome://tracing or Perfetto to see where the time goes. Spans are recorded for each test, each call made
+ * against the cloud, each provisioning and teardown call, each polling wait, and the initialization and clean up of
+ * shared test resources. Each thread gets its own track, so long waits and serialized teardown stand out at a glance.
+ * <p>The timeline is written to the file named by the {@link System} property dasein.timeline. Nothing is recorded if
+ * the property is not set.</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class TimelineRecorder implements CallInterceptor {
+    static private final Logger logger = Logger.getLogger(TimelineRecorder.class);
+
+    static private final TimelineRecorder instance = new TimelineRecorder();
+    static private final Object           lock     = new Object();
+
+    /**
+     * A span of time on the timeline that is recorded once it is ended.
+     */
+    static public class Span {
+        private String category;
+        private String name;
+        private long   start;
+
+        private Span(@Nullable String category, @Nullable String name) {
+            this.category = category;
+            this.name = name;
+            this.start = now();
+        }
+
+        /**
+         * Ends the span and records it on the timeline of the current thread. Ending a span more than once has no effect.
+         */
+        public void end() {
+            if( name != null ) {
+                event(category, name, start, now() - start);
+                name = null;
+            }
+        }
+    }
+
+    static private final Span NONE = new Span(null, null);
+
+    static private long          base;
+    static private Boolean       enabled;
+    static private boolean       first   = true;
+    static private HashSet<Long> threads = new HashSet<Long>();
+    static private Writer        writer;
+
+    static public boolean isEnabled() {
+        if( enabled == null ) {
+            synchronized( lock ) {
+                if( enabled == null ) {
+                    String path = System.getProperty("dasein.timeline");
+                    boolean opened = false;
+
+                    if( path != null && !path.equals("") ) {
+                        try {
+                            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), "utf-8"), 64 * 1024);
+                            writer.write("[\n");
+                            base = System.nanoTime();
+                            InterceptingProvider.addInterceptor(instance);
+                            Runtime.getRuntime().addShutdownHook(new Thread() {
+                                public void run() {
+                                    close();
+                                }
+                            });
+                            opened = true;
+                        }
+                        catch( IOException e ) {
+                            logger.warn("Unable to open timeline file " + path + ": " + e.getMessage());
+                        }
+                    }
+                    enabled = opened;
+                }
+            }
+        }
+        return enabled;
+    }
+
+    static private long now() {
+        return (System.nanoTime() - base)/1000L;
+    }
+
+    /**
+     * Starts a span on the timeline of the current thread.
+     * @param category the category of the span (test, api, provision, teardown, wait, or fixture)
+     * @param name the name of the span
+     * @return the span, which must be ended to be recorded
+     */
+    static public @Nonnull Span start(@Nonnull String category, @Nonnull String name) {
+        if( !isEnabled() ) {
+            return NONE;
+        }
+        return new Span(category, name);
+    }
+
+    /**
+     * Sleeps as part of a polling wait, recording the sleep as a wait span attributed to the calling method. When
+     * replaying a {@link Cassette}, the sleep is compressed by the replay speed, and when running against the
+     * simulated cloud by the simulation speed.
+     * @param millis the number of milliseconds to sleep
+     * @throws InterruptedException the sleep was interrupted
+     */
+    static public void pause(long millis) throws InterruptedException {
+        millis = Simulation.compress(Cassette.compress(millis));
+        if( !isEnabled() ) {
+            Thread.sleep(millis);
+            return;
+        }
+        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
+        String name = "wait";
+
+        if( trace.length > 2 ) {
+            String cls = trace[2].getClassName();
+
+            name = "wait " + cls.substring(cls.lastIndexOf('.') + 1) + "." + trace[2].getMethodName();
+        }
+        Span span = start("wait", name);
+
+        try {
+            Thread.sleep(millis);
+        }
+        finally {
+            span.end();
+        }
+    }
+
+    static private void event(@Nonnull String category, @Nonnull String name, long start, long duration) {
+        Thread thread = Thread.currentThread();
+        long tid = thread.getId();
+
+        synchronized( lock ) {
+            if( writer == null ) {
+                return;
+            }
+            try {
+                if( threads.add(tid) ) {
+                    write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + tid + ",\"args\":{\"name\":" + JSONObject.quote(thread.getName()) + "}}");
+                }
+                write("{\"name\":" + JSONObject.quote(name) + ",\"cat\":" + JSONObject.quote(category) + ",\"ph\":\"X\",\"ts\":" + start + ",\"dur\":" + duration + ",\"pid\":1,\"tid\":" + tid + "}");
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to write timeline: " + e.getMessage());
+            }
+        }
+    }
+
+    static private void write(@Nonnull String event) throws IOException {
+        if( !first ) {
+            writer.write(",\n");
+        }
+        first = false;
+        writer.write(event);
+    }
+
+    /**
+     * Completes and closes the timeline file. Nothing more is recorded once the timeline is closed.
+     */
+    static public void close() {
+        synchronized( lock ) {
+            if( writer == null ) {
+                return;
+            }
+            try {
+                writer.write("\n]\n");
+                writer.close();
+            }
+            catch( IOException e ) {
+                logger.warn("Unable to close timeline file: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private TimelineRecorder() { }
+
+    @Override
+    public @Nullable Object intercept(@Nonnull CloudCall call) throws Throwable {
+        String category = ResultsWriter.getEventType(call.getMethod().getName());
+        Span span = start(category == null ? "api" : category, call.toString());
+
+        try {
+            return call.proceed();
+        }
+        finally {
+            span.end();
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import java.util.Date;
@@ -70,6 +71,9 @@ public class StatelessTopologyTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testTopologyId;
 
     public StatelessTopologyTests() { }
@@ -286,7 +290,7 @@ public class StatelessTopologyTests {
                 assertNotNull("listTopologies() must return a non-null list of topologies even if a private library is not supported", topologies);
                 for( Topology t : topologies ) {
                     count++;
-                    tm.out("Topology", t);
+                    tm.item("Topology", t);
                 }
                 tm.out("Total Topology Count", count);
                 for( Topology t : topologies ) {
@@ -32,6 +32,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.*;
@@ -62,6 +63,9 @@ public class StatelessAuthenticationTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private CloudProvider provider;
 
     public StatelessAuthenticationTests() { }
@@ -32,6 +32,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
@@ -64,6 +65,9 @@ public class StatelessDCTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testDataCenterId;
 
     public StatelessDCTests() { }
@@ -159,7 +163,7 @@ public class StatelessDCTests {
         assertNotNull("Null set of regions returned from listRegions()", regions);
         for( Region region : regions ) {
             count++;
-            tm.out("Region", region);
+            tm.item("Region", region);
             if( region.getProviderRegionId().equals(tm.getContext().getRegionId()) ) {
                 found = true;
             }
@@ -217,7 +221,7 @@ public class StatelessDCTests {
         assertNotNull("Null set of data centers returned from listDataCenters()", dataCenters);
         for( DataCenter dc : dataCenters ) {
             count++;
-            tm.out("Data Center", dc);
+            tm.item("Data Center", dc);
             if( dc.getProviderDataCenterId().equals(testDataCenterId) ) {
                 found = true;
             }
@@ -54,6 +54,8 @@ import org.dasein.cloud.dc.DataCenter;
 import org.dasein.cloud.network.Subnet;
 import org.dasein.cloud.network.VLAN;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.InterceptingProvider;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.cloud.test.identity.IdentityResources;
 import org.dasein.cloud.test.network.NetworkResources;
 import org.dasein.util.CalendarWrapper;
@@ -63,6 +65,7 @@ import org.dasein.util.uom.storage.Storage;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
@@ -86,6 +89,9 @@ public class ComputeResources {
     private final HashMap<String,String> testVMs           = new HashMap<String, String>();
     private final HashMap<String,String> testVolumes       = new HashMap<String, String>();
 
+    private final HashSet<String> terminatedVMs = new HashSet<String>();
+
+    private String        statelessVMId;
     private String        testDataCenterId;
     private Platform      testImagePlatform;
     private String        testVMProductId;
@@ -225,7 +231,7 @@ public class ComputeResources {
                         }
                     }
                 }
-                try { Thread.sleep(60000L); }
+                try { TimelineRecorder.pause(60000L); }
                 catch( InterruptedException ignore ) { }
                 for( Map.Entry<String,String> entry : testVolumes.entrySet() ) {
                     if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
@@ -412,21 +418,20 @@ public class ComputeResources {
 
     public @Nullable String getTestVmId(@Nonnull String label, @Nullable VmState desiredState, boolean provisionIfNull, @Nullable String preferredDataCenterId) {
         if( label.equals(DaseinTestManager.STATELESS) ) {
+            // stateless tests ask for a VM before every test, so check the VM handed out last time before looking at the others
+            if( statelessVMId != null ) {
+                if( testVMs.containsValue(statelessVMId) && isLiveVM(statelessVMId) ) {
+                    return statelessVMId;
+                }
+                statelessVMId = null;
+            }
             for( Map.Entry<String,String> entry : testVMs.entrySet() ) {
                 if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
                     String id = entry.getValue();
 
-                    if( id != null ) {
-                        try {
-                            @SuppressWarnings("ConstantConditions") VirtualMachine vm = provider.getComputeServices().getVirtualMachineSupport().getVirtualMachine(id);
-
-                            if( vm != null && !VmState.TERMINATED.equals(vm.getCurrentState()) ) {
-                                return id;
-                            }
-                        }
-                        catch( Throwable ignore ) {
-                            // ignore
-                        }
+                    if( id != null && !terminatedVMs.contains(id) && isLiveVM(id) ) {
+                        statelessVMId = id;
+                        return id;
                     }
                 }
             }
@@ -470,6 +475,30 @@ public class ComputeResources {
         return null;
     }
 
+    /**
+     * Checks whether a test VM may still be handed out to stateless tests. Only VMs actually seen in the terminated
+     * state are remembered as gone since a VM that cannot be found may simply not be visible yet.
+     * @param vmId the VM to check
+     * @return true if the VM exists and is not terminated
+     */
+    private boolean isLiveVM(@Nonnull String vmId) {
+        try {
+            @SuppressWarnings("ConstantConditions") VirtualMachine vm = provider.getComputeServices().getVirtualMachineSupport().getVirtualMachine(vmId);
+
+            if( vm == null ) {
+                return false;
+            }
+            if( VmState.TERMINATED.equals(vm.getCurrentState()) ) {
+                terminatedVMs.add(vmId);
+                return false;
+            }
+            return true;
+        }
+        catch( Throwable ignore ) {
+            return false;
+        }
+    }
+
     public @Nullable String getTestVMProductId() {
         return testVMProductId;
     }
@@ -697,6 +726,7 @@ public class ComputeResources {
     }
 
     public @Nonnull String provisionImage(@Nonnull MachineImageSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable String vmId) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         VirtualMachineSupport vmSupport = null;
 
         ComputeServices services = provider.getComputeServices();
@@ -769,13 +799,13 @@ public class ComputeResources {
                 long timeout = System.currentTimeMillis() + (CalendarWrapper.MINUTE*20L);
 
                 while( timeout > System.currentTimeMillis() ) {
-                    try { Thread.sleep(15000L); }
-                    catch( InterruptedException ignore ) { }
-                    try { volume = vs.getVolume(volumeId); }
-                    catch( Throwable ignore ) { }
                     if( volume == null || volume.getCurrentState().equals(VolumeState.AVAILABLE) || volume.getCurrentState().equals(VolumeState.DELETED) ) {
                         break;
                     }
+                    try { TimelineRecorder.pause(15000L); }
+                    catch( InterruptedException ignore ) { }
+                    try { volume = vs.getVolume(volumeId); }
+                    catch( Throwable ignore ) { }
                 }
             }
             if( volume != null && volume.getProviderVirtualMachineId() == null && support.identifyAttachmentRequirement().equals(Requirement.REQUIRED) ) {
@@ -815,6 +845,7 @@ public class ComputeResources {
     }
 
     public @Nonnull String provisionVM(@Nonnull VirtualMachineSupport support, @Nonnull String label, @Nonnull VMLaunchOptions options, @Nullable String preferredDataCenter) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
 
         if( preferredDataCenter != null ) {
             options.inDataCenter(preferredDataCenter);
@@ -944,6 +975,7 @@ public class ComputeResources {
     }
 
     public @Nonnull String provisionVolume(@Nonnull VolumeSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable VolumeFormat desiredFormat, @Nullable String preferredDataCenterId) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         VolumeCreateOptions options;
 
         if( desiredFormat == null ) {
@@ -1061,7 +1093,7 @@ public class ComputeResources {
             if( !currentState.equals(VmState.PENDING) && !currentState.equals(VmState.PAUSING) && !currentState.equals(VmState.REBOOTING) && !currentState.equals(VmState.STOPPING) && !currentState.equals(VmState.SUSPENDING) ) {
                 break;
             }
-            try { Thread.sleep(15000L); }
+            try { TimelineRecorder.pause(15000L); }
             catch( InterruptedException ignore ) { }
             try {
                 VirtualMachine v = support.getVirtualMachine(id);
@@ -1123,7 +1155,7 @@ public class ComputeResources {
             if( state.equals(currentState) ) {
                 return true;
             }
-            try { Thread.sleep(15000L); }
+            try { TimelineRecorder.pause(15000L); }
             catch( InterruptedException ignore ) { }
             try {
                 VirtualMachine v = support.getVirtualMachine(id);
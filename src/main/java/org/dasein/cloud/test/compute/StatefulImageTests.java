@@ -35,6 +35,7 @@ import org.dasein.cloud.compute.VirtualMachine;
 import org.dasein.cloud.compute.VirtualMachineSupport;
 import org.dasein.cloud.compute.VmState;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -44,6 +45,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Random;
 
@@ -76,6 +78,9 @@ public class StatefulImageTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String bundleLocation;
     private String provisionedImage;
     private String testShareAccount;
@@ -238,7 +243,7 @@ public class StatefulImageTests {
                                 if( found ) {
                                     break;
                                 }
-                                try { Thread.sleep(15000L); }
+                                try { TimelineRecorder.pause(15000L); }
                                 catch( InterruptedException ignore ) { }
                                 try { shares = support.listShares(testImageId); }
                                 catch( Throwable ignore ) { }
@@ -321,7 +326,7 @@ public class StatefulImageTests {
                                 if( !found ) {
                                     break;
                                 }
-                                try { Thread.sleep(15000L); }
+                                try { TimelineRecorder.pause(15000L); }
                                 catch( InterruptedException ignore ) { }
                                 try { shares = support.listShares(testImageId); }
                                 catch( Throwable ignore ) { }
@@ -392,7 +397,7 @@ public class StatefulImageTests {
                             if( shared ) {
                                 break;
                             }
-                            try { Thread.sleep(15000L); }
+                            try { TimelineRecorder.pause(15000L); }
                             catch( InterruptedException ignore ) { }
                         }
                         tm.out("After", shared);
@@ -451,7 +456,7 @@ public class StatefulImageTests {
                             if( !shared ) {
                                 break;
                             }
-                            try { Thread.sleep(15000L); }
+                            try { TimelineRecorder.pause(15000L); }
                             catch( InterruptedException ignore ) { }
                         }
                         tm.out("After", shared);
@@ -517,7 +522,7 @@ public class StatefulImageTests {
                                 break;
                             }
                         }
-                        try { Thread.sleep(15000L); }
+                        try { TimelineRecorder.pause(15000L); }
                         catch( InterruptedException ignore ) { }
                     }
                     tm.out("After [Public]", support.isImageSharedWithPublic(testImageId));
@@ -552,7 +557,7 @@ public class StatefulImageTests {
     @Test
     public void capture() throws CloudException, InternalException {
         if( capturedOnce ) {
-            try { Thread.sleep(CalendarWrapper.MINUTE * 2L); }
+            try { TimelineRecorder.pause(CalendarWrapper.MINUTE * 2L); }
             catch( InterruptedException ignore ) { }
         }
         else {
@@ -610,7 +615,7 @@ public class StatefulImageTests {
                             catch( Throwable t ) {
                                 tm.warn("Error fetching captured image " + provisionedImage);
                             }
-                            try { Thread.sleep(15000L); }
+                            try { TimelineRecorder.pause(15000L); }
                             catch( InterruptedException ignore ) { }
                         }
                         MachineImage image = support.getImage(provisionedImage);
@@ -648,7 +653,7 @@ public class StatefulImageTests {
     @Test
     public void captureAsync() throws Throwable {
         if( capturedOnce ) {
-            try { Thread.sleep(CalendarWrapper.MINUTE * 2L); }
+            try { TimelineRecorder.pause(CalendarWrapper.MINUTE * 2L); }
             catch( InterruptedException ignore ) { }
         }
         else {
@@ -709,7 +714,7 @@ public class StatefulImageTests {
                             else {
                                 tm.out("-->", task.getPercentComplete() + "%");
                             }
-                            try { Thread.sleep(15000L); }
+                            try { TimelineRecorder.pause(15000L); }
                             catch( InterruptedException ignore ) { }
                         }
                         MachineImage image = task.getResult();
@@ -735,7 +740,7 @@ public class StatefulImageTests {
                             catch( Throwable t ) {
                                 tm.warn("Error fetching captured image " + provisionedImage);
                             }
-                            try { Thread.sleep(15000L); }
+                            try { TimelineRecorder.pause(15000L); }
                             catch( InterruptedException ignore ) { }
                         }
                         image = support.getImage(provisionedImage);
@@ -815,7 +820,7 @@ public class StatefulImageTests {
                                     catch( Throwable t ) {
                                         tm.warn("Error fetching captured image " + provisionedImage);
                                     }
-                                    try { Thread.sleep(15000L); }
+                                    try { TimelineRecorder.pause(15000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 MachineImage image = support.getImage(provisionedImage);
@@ -913,7 +918,7 @@ public class StatefulImageTests {
                                     else {
                                         tm.out("-->", task.getPercentComplete() + "%");
                                     }
-                                    try { Thread.sleep(15000L); }
+                                    try { TimelineRecorder.pause(15000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 bundleLocation = task.getResult();
@@ -942,7 +947,7 @@ public class StatefulImageTests {
                                     catch( Throwable t ) {
                                         tm.warn("Error fetching captured image " + provisionedImage);
                                     }
-                                    try { Thread.sleep(15000L); }
+                                    try { TimelineRecorder.pause(15000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 MachineImage image = support.getImage(provisionedImage);
@@ -34,6 +34,7 @@ import org.dasein.cloud.compute.VmState;
 import org.dasein.cloud.compute.VolumeSupport;
 import org.dasein.cloud.dc.Region;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -42,6 +43,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Calendar;
 
@@ -73,6 +75,9 @@ public class StatefulSnapshotTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String provisionedSnapshotId;
 
     private String testShareAccount;
@@ -183,7 +188,7 @@ public class StatefulSnapshotTests {
                     catch( Throwable ignore ) {
                         // ignore
                     }
-                    try { Thread.sleep(15000L); }
+                    try { TimelineRecorder.pause(15000L); }
                     catch( InterruptedException ignore ) { }
                 }
             }
@@ -28,6 +28,7 @@ import org.dasein.cloud.compute.VirtualMachine;
 import org.dasein.cloud.compute.VirtualMachineSupport;
 import org.dasein.cloud.compute.VmState;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -36,6 +37,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -68,6 +70,9 @@ public class StatefulVMTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testVmId = null;
 
     public StatefulVMTests() { }
@@ -81,7 +86,7 @@ public class StatefulVMTests {
             if( targetState.equals(currentState) ) {
                 return v;
             }
-            try { Thread.sleep(15000L); }
+            try { TimelineRecorder.pause(15000L); }
             catch( InterruptedException ignore ) { }
             try {
                 //noinspection ConstantConditions
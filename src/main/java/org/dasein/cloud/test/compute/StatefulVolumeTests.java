@@ -35,6 +35,7 @@ import org.dasein.cloud.compute.VolumeProduct;
 import org.dasein.cloud.compute.VolumeState;
 import org.dasein.cloud.compute.VolumeSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.dasein.util.uom.storage.Gigabyte;
 import org.dasein.util.uom.storage.Storage;
@@ -45,6 +46,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.UUID;
 
@@ -77,6 +79,9 @@ public class StatefulVolumeTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String provisionedVolume;
     private String testSnapshotId;
     private String testVLANId;
@@ -146,7 +151,7 @@ public class StatefulVolumeTests {
                     if( v != null && v.getProviderVirtualMachineId() != null ) {
                         //noinspection ConstantConditions
                         tm.getProvider().getComputeServices().getVolumeSupport().detach(testVolumeId, true);
-                        try { Thread.sleep(60000L); }
+                        try { TimelineRecorder.pause(60000L); }
                         catch( InterruptedException ignore ) { }
                     }
                 }
@@ -205,7 +210,7 @@ public class StatefulVolumeTests {
                         if( volume.getProviderVirtualMachineId() != null ) {
                             break;
                         }
-                        try { Thread.sleep(30000L); }
+                        try { TimelineRecorder.pause(30000L); }
                         catch( InterruptedException e ) { }
                     }
                 }
@@ -224,7 +229,7 @@ public class StatefulVolumeTests {
                     if( v != null && v.getProviderVirtualMachineId() != null ) {
                         //noinspection ConstantConditions
                         tm.getProvider().getComputeServices().getVolumeSupport().detach(testVolumeId, true);
-                        try { Thread.sleep(60000L); }
+                        try { TimelineRecorder.pause(60000L); }
                         catch( InterruptedException ignore ) { }
                     }
                 }
@@ -243,7 +248,7 @@ public class StatefulVolumeTests {
                     if( v != null && v.getProviderVirtualMachineId() != null ) {
                         //noinspection ConstantConditions
                         tm.getProvider().getComputeServices().getVolumeSupport().detach(testVolumeId, true);
-                        try { Thread.sleep(60000L); }
+                        try { TimelineRecorder.pause(60000L); }
                         catch( InterruptedException ignore ) { }
                     }
                 }
@@ -282,7 +287,7 @@ public class StatefulVolumeTests {
                         catch( Throwable ignore ) {
                             // ignore
                         }
-                        try { Thread.sleep(10000L); }
+                        try { TimelineRecorder.pause(10000L); }
                         catch( InterruptedException ignore ) { }
                         try {
                             support.remove(provisionedVolume);
@@ -636,7 +641,7 @@ public class StatefulVolumeTests {
                                 assertEquals("Volume attachment does not match target server", testVMId, volume.getProviderVirtualMachineId());
                                 return;
                             }
-                            try { Thread.sleep(30000L); }
+                            try { TimelineRecorder.pause(30000L); }
                             catch( InterruptedException e ) { }
                         }
                         fail("System timed out verifying attachment");
@@ -694,7 +699,7 @@ public class StatefulVolumeTests {
                         if( volume.getProviderVirtualMachineId() == null ) {
                             return;
                         }
-                        try { Thread.sleep(30000L); }
+                        try { TimelineRecorder.pause(30000L); }
                         catch( InterruptedException e ) { }
                     }
                     fail("System timed out verifying attachment");
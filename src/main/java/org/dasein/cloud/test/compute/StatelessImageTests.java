@@ -31,6 +31,7 @@ import org.dasein.cloud.compute.MachineImageSupport;
 import org.dasein.cloud.compute.MachineImageType;
 import org.dasein.cloud.compute.Platform;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -38,12 +39,12 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
@@ -78,6 +79,9 @@ public class StatelessImageTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testImageId;
 
     public StatelessImageTests() { }
@@ -376,13 +380,13 @@ public class StatelessImageTests {
                         supported = true;
                     }
                 }
-                Iterable<MachineImage> images = support.listImages(ImageFilterOptions.getInstance(ImageClass.MACHINE));
+                Iterable<MachineImage> images = tm.stream("listImages").of(support.listImages(ImageFilterOptions.getInstance(ImageClass.MACHINE)));
                 int count = 0;
 
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     count++;
-                    tm.out("Image", image);
+                    tm.item("Image", image);
                 }
                 tm.out("Total Machine Image Count", count);
                 if( !supported ) {
@@ -423,7 +427,7 @@ public class StatelessImageTests {
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     count++;
-                    tm.out("Image", image);
+                    tm.item("Image", image);
                 }
                 tm.out("Total Kernel Image Count", count);
                 if( !supported ) {
@@ -467,7 +471,7 @@ public class StatelessImageTests {
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     count++;
-                    tm.out("Image", image);
+                    tm.item("Image", image);
                 }
                 tm.out("Total Ramdisk Image Count", count);
                 if( !supported ) {
@@ -511,7 +515,7 @@ public class StatelessImageTests {
                 assertNotNull("listImageStatus() must return a non-null list of images even if the image class is not supported", images);
                 for( ResourceStatus status : images ) {
                     count++;
-                    tm.out("Image Status", status);
+                    tm.item("Image Status", status);
                 }
                 tm.out("Total Machine Image Status Count", count);
                 if( !supported ) {
@@ -549,7 +553,7 @@ public class StatelessImageTests {
                 assertNotNull("listImageStatus() must return a non-null list of images even if the image class is not supported", images);
                 for( ResourceStatus status : images ) {
                     count++;
-                    tm.out("Image Status", status);
+                    tm.item("Image Status", status);
                 }
                 tm.out("Total Kernel Image Status Count", count);
                 if( !supported ) {
@@ -587,7 +591,7 @@ public class StatelessImageTests {
                 assertNotNull("listImageStatus() must return a non-null list of images even if the image class is not supported", images);
                 for( ResourceStatus status : images ) {
                     count++;
-                    tm.out("Image Status", status);
+                    tm.item("Image Status", status);
                 }
                 tm.out("Total Ramdisk Image Status Count", count);
                 if( !supported ) {
@@ -612,36 +616,19 @@ public class StatelessImageTests {
             MachineImageSupport support = services.getImageSupport();
 
             if( support != null ) {
-                HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
                 Iterable<MachineImage> images = support.listImages(ImageFilterOptions.getInstance(ImageClass.MACHINE));
                 Iterable<ResourceStatus> status = support.listImageStatus(ImageClass.MACHINE);
 
                 assertNotNull("listImages() must return at least an empty collections and may not be null", images);
                 assertNotNull("listImageStatus() must return at least an empty collections and may not be null", status);
-                for( ResourceStatus s : status ) {
-                    Map<String,Boolean> current = map.get(s.getProviderResourceId());
+                ArrayList<String> ids = new ArrayList<String>();
 
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(s.getProviderResourceId(), current);
-                    }
-                    current.put("status", true);
-                }
                 for( MachineImage image : images ) {
-                    Map<String,Boolean> current = map.get(image.getProviderMachineImageId());
-
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(image.getProviderMachineImageId(), current);
-                    }
-                    current.put("image", true);
+                    ids.add(image.getProviderMachineImageId());
                 }
-                for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-                    Boolean s = entry.getValue().get("status");
-                    Boolean i = entry.getValue().get("image");
+                String mismatch = StatusReconciler.findMismatch(status, ids);
 
-                    assertTrue("Status and image lists do not match for " + entry.getKey(), s != null && i != null && s && i);
-                }
+                assertNull("Status and image lists do not match for " + mismatch, mismatch);
                 tm.out("Matches");
             }
             else {
@@ -675,7 +662,7 @@ public class StatelessImageTests {
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     ubuntu++;
-                    tm.out("Ubuntu Image", image);
+                    tm.item("Ubuntu Image", image);
                 }
                 tm.out("Total Ubuntu Image Count", ubuntu);
                 if( !supported ) {
@@ -691,7 +678,7 @@ public class StatelessImageTests {
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     rhel++;
-                    tm.out("RHEL Image", image);
+                    tm.item("RHEL Image", image);
                 }
                 tm.out("Total RHEL Image Count", rhel);
                 if( !supported ) {
@@ -707,7 +694,7 @@ public class StatelessImageTests {
                 assertNotNull("listImages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     windows++;
-                    tm.out("Windows Image", image);
+                    tm.item("Windows Image", image);
                 }
                 tm.out("Total Windows Image Count", windows);
                 if( !supported ) {
@@ -754,13 +741,13 @@ public class StatelessImageTests {
                         supported = true;
                     }
                 }
-                Iterable<MachineImage> images = support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(Platform.UBUNTU));
+                Iterable<MachineImage> images = tm.stream("searchPublicImages").of(support.searchPublicImages(ImageFilterOptions.getInstance(ImageClass.MACHINE).onPlatform(Platform.UBUNTU)));
                 int ubuntu = 0;
 
                 assertNotNull("searchPublicImages() must return a non-null list of images even if the image class is not supported or public libraries are not supported", images);
                 for( MachineImage image : images ) {
                     ubuntu++;
-                    tm.out("Ubuntu Public Image", image);
+                    tm.item("Ubuntu Public Image", image);
                 }
                 tm.out("Total Public Ubuntu Image Count", ubuntu);
                 if( !supported || !support.supportsPublicLibrary(ImageClass.MACHINE) ) {
@@ -780,7 +767,7 @@ public class StatelessImageTests {
                 assertNotNull("searchPublicIMages() must return a non-null list of images even if the image class is not supported", images);
                 for( MachineImage image : images ) {
                     rhel++;
-                    tm.out("RHEL Image", image);
+                    tm.item("RHEL Image", image);
                 }
                 tm.out("Total Public RHEL Image Count", rhel);
                 if( !supported || !support.supportsPublicLibrary(ImageClass.MACHINE) ) {
@@ -801,7 +788,7 @@ public class StatelessImageTests {
                 assertNotNull("searchPublicImages() must return a non-null list of images even if the image class is not supported or public libraries are not supported", images);
                 for( MachineImage image : images ) {
                     windows++;
-                    tm.out("Windows Public Image", image);
+                    tm.item("Windows Public Image", image);
                 }
                 tm.out("Total Public Windows Image Count", windows);
                 if( !supported || !support.supportsPublicLibrary(ImageClass.MACHINE) ) {
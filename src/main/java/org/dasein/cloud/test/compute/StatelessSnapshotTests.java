@@ -26,6 +26,7 @@ import org.dasein.cloud.compute.ComputeServices;
 import org.dasein.cloud.compute.Snapshot;
 import org.dasein.cloud.compute.SnapshotSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -33,10 +34,11 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
@@ -69,6 +71,9 @@ public class StatelessSnapshotTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testSnapshotId;
 
     public StatelessSnapshotTests() { }
@@ -244,7 +249,7 @@ public class StatelessSnapshotTests {
         assertNotNull("Snapshot list may be empty, but it cannot be null");
         for( Snapshot snapshot : snapshots ) {
             count++;
-            tm.out("Snapshot", snapshot);
+            tm.item("Snapshot", snapshot);
         }
         tm.out("Total Snapshot Count", count);
 
@@ -281,7 +286,7 @@ public class StatelessSnapshotTests {
         assertNotNull("Snapshot status list may be empty, but it cannot be null");
         for( ResourceStatus snapshot : snapshots ) {
             count++;
-            tm.out("Snapshot Status", snapshot);
+            tm.item("Snapshot Status", snapshot);
         }
         tm.out("Total Snapshot Status Count", count);
 
@@ -307,36 +312,19 @@ public class StatelessSnapshotTests {
             tm.ok("Snapshots are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<Snapshot> snapshots = support.listSnapshots();
         Iterable<ResourceStatus> status = support.listSnapshotStatus();
 
         assertNotNull("listSnapshots() must return at least an empty collections and may not be null", snapshots);
         assertNotNull("listSnapshotStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( Snapshot snapshot : snapshots ) {
-            Map<String,Boolean> current = map.get(snapshot.getProviderSnapshotId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(snapshot.getProviderSnapshotId(), current);
-            }
-            current.put("snapshot", true);
+            ids.add(snapshot.getProviderSnapshotId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean v = entry.getValue().get("snapshot");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and snapshot lists do not match for " + entry.getKey(), s != null && v != null && s && v);
-        }
+        assertNull("Status and snapshot lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 }
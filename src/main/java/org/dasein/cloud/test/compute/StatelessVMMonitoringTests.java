@@ -34,6 +34,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Date;
 
@@ -69,6 +70,9 @@ public class StatelessVMMonitoringTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testVMId;
 
     public StatelessVMMonitoringTests() { }
@@ -32,7 +32,9 @@ import org.dasein.cloud.compute.VirtualMachine;
 import org.dasein.cloud.compute.VirtualMachineProduct;
 import org.dasein.cloud.compute.VirtualMachineSupport;
 import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.test.CallBudget;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -40,6 +42,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -77,6 +80,9 @@ public class StatelessVMTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testVMId;
 
     public StatelessVMTests() { }
@@ -488,6 +494,7 @@ public class StatelessVMTests {
     }
 
     @Test
+    @CallBudget(2)
     public void listVMs() throws CloudException, InternalException {
         assumeTrue(!tm.isTestSkipped());
         ComputeServices services = tm.getProvider().getComputeServices();
@@ -496,14 +503,14 @@ public class StatelessVMTests {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
 
             if( support != null ) {
-                Iterable<VirtualMachine> vms = support.listVirtualMachines();
+                Iterable<VirtualMachine> vms = tm.stream("listVirtualMachines").of(support.listVirtualMachines());
                 boolean found = false;
                 int count = 0;
 
                 assertNotNull("listVirtualMachines() must return at least an empty collections and may not be null", vms);
                 for( VirtualMachine vm : vms ) {
                     count++;
-                    tm.out("VM", vm);
+                    tm.item("VM", vm);
                     if( testVMId != null && testVMId.equals(vm.getProviderVirtualMachineId()) ) {
                         found = true;
                     }
@@ -546,7 +553,7 @@ public class StatelessVMTests {
                 assertNotNull("listVirtualMachineStatus() must return at least an empty collections and may not be null", vms);
                 for( ResourceStatus vm : vms ) {
                     count++;
-                    tm.out("VM Status", vm);
+                    tm.item("VM Status", vm);
                     if( testVMId != null && testVMId.equals(vm.getProviderResourceId()) ) {
                         found = true;
                     }
@@ -582,36 +589,19 @@ public class StatelessVMTests {
             VirtualMachineSupport support = services.getVirtualMachineSupport();
 
             if( support != null ) {
-                HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
                 Iterable<VirtualMachine> vms = support.listVirtualMachines();
                 Iterable<ResourceStatus> status = support.listVirtualMachineStatus();
 
                 assertNotNull("listVirtualMachines() must return at least an empty collections and may not be null", vms);
                 assertNotNull("listVirtualMachineStatus() must return at least an empty collections and may not be null", status);
-                for( ResourceStatus s : status ) {
-                    Map<String,Boolean> current = map.get(s.getProviderResourceId());
+                ArrayList<String> ids = new ArrayList<String>();
 
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(s.getProviderResourceId(), current);
-                    }
-                    current.put("status", true);
-                }
                 for( VirtualMachine vm : vms ) {
-                    Map<String,Boolean> current = map.get(vm.getProviderVirtualMachineId());
-
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(vm.getProviderVirtualMachineId(), current);
-                    }
-                    current.put("vm", true);
+                    ids.add(vm.getProviderVirtualMachineId());
                 }
-                for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-                    Boolean s = entry.getValue().get("status");
-                    Boolean v = entry.getValue().get("vm");
+                String mismatch = StatusReconciler.findMismatch(status, ids);
 
-                    assertTrue("Status and VM lists do not match for " + entry.getKey(), s != null && v != null && s && v);
-                }
+                assertNull("Status and VM lists do not match for " + mismatch, mismatch);
                 tm.out("Matches");
             }
             else {
@@ -30,6 +30,7 @@ import org.dasein.cloud.compute.VolumeFormat;
 import org.dasein.cloud.compute.VolumeProduct;
 import org.dasein.cloud.compute.VolumeSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.dasein.util.uom.storage.Gigabyte;
 import org.dasein.util.uom.storage.Storage;
 import org.junit.After;
@@ -39,10 +40,11 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
@@ -74,6 +76,9 @@ public class StatelessVolumeTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testProductId;
     private String testVolumeId;
 
@@ -278,7 +283,7 @@ public class StatelessVolumeTests {
                 assertNotNull("The volume product list may possibly be empty, but it may not be null", products);
                 for( VolumeProduct product : products ) {
                     count++;
-                    tm.out("Volume Product", product);
+                    tm.item("Volume Product", product);
                 }
                 tm.out("Total Volume Product Count", count);
 
@@ -436,7 +441,7 @@ public class StatelessVolumeTests {
                 assertNotNull("The volumes list may be empty, but it may not be null", volumes);
                 for( Volume volume : volumes ) {
                     count++;
-                    tm.out("Volume", volume);
+                    tm.item("Volume", volume);
                 }
                 tm.out("Total Volume Count", count);
 
@@ -475,7 +480,7 @@ public class StatelessVolumeTests {
                 assertNotNull("The volume status list may be empty, but it may not be null", volumes);
                 for( ResourceStatus volume : volumes ) {
                     count++;
-                    tm.out("Volume Status", volume);
+                    tm.item("Volume Status", volume);
                 }
                 tm.out("Total Volume Status Count", count);
 
@@ -503,36 +508,19 @@ public class StatelessVolumeTests {
             VolumeSupport support = services.getVolumeSupport();
 
             if( support != null ) {
-                HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
                 Iterable<Volume> volumes = support.listVolumes();
                 Iterable<ResourceStatus> status = support.listVolumeStatus();
 
                 assertNotNull("listVolumes() must return at least an empty collections and may not be null", volumes);
                 assertNotNull("listVolumeStatus() must return at least an empty collection and may not be null", status);
-                for( ResourceStatus s : status ) {
-                    Map<String,Boolean> current = map.get(s.getProviderResourceId());
+                ArrayList<String> ids = new ArrayList<String>();
 
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(s.getProviderResourceId(), current);
-                    }
-                    current.put("status", true);
-                }
                 for( Volume volume : volumes ) {
-                    Map<String,Boolean> current = map.get(volume.getProviderVolumeId());
-
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(volume.getProviderVolumeId(), current);
-                    }
-                    current.put("volume", true);
+                    ids.add(volume.getProviderVolumeId());
                 }
-                for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-                    Boolean s = entry.getValue().get("status");
-                    Boolean v = entry.getValue().get("volume");
+                String mismatch = StatusReconciler.findMismatch(status, ids);
 
-                    assertTrue("Status and volume lists do not match for " + entry.getKey(), s != null && v != null && s && v);
-                }
+                assertNull("Status and volume lists do not match for " + mismatch, mismatch);
                 tm.out("Matches");
             }
             else {
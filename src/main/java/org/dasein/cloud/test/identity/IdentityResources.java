@@ -30,7 +30,9 @@ import org.dasein.cloud.identity.IdentityAndAccessSupport;
 import org.dasein.cloud.identity.IdentityServices;
 import org.dasein.cloud.identity.SSHKeypair;
 import org.dasein.cloud.identity.ShellKeySupport;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.InterceptingProvider;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -358,6 +360,7 @@ public class IdentityResources {
     }
 
     public @Nonnull String provisionGroup(@Nonnull IdentityAndAccessSupport support, @Nonnull String label, @Nonnull String namePrefix) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String id = support.createGroup(namePrefix + " " + System.currentTimeMillis(), "/dsntest", false).getProviderGroupId();
 
         if( id == null ) {
@@ -373,6 +376,7 @@ public class IdentityResources {
     }
 
     public @Nonnull String provisionKeypair(@Nonnull ShellKeySupport support, @Nonnull String label, @Nonnull String namePrefix) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String id = null;
 
         if( support.getKeyImportSupport().equals(Requirement.REQUIRED) ) {
@@ -399,6 +403,7 @@ public class IdentityResources {
     }
 
     public @Nonnull String provisionUser(@Nonnull IdentityAndAccessSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable String ... preferredGroups) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String id = support.createUser(namePrefix + (System.currentTimeMillis()%10000), "/dsntest", preferredGroups == null ? new String[0] : preferredGroups).getProviderUserId();
 
         if( id == null ) {
@@ -410,6 +415,7 @@ public class IdentityResources {
             }
             testUsers.put(label, id);
         }
+        ConsistencyMonitor.settle("User", true);
         return id;
     }
 }
@@ -28,7 +28,9 @@ import org.dasein.cloud.identity.CloudUser;
 import org.dasein.cloud.identity.IdentityAndAccessSupport;
 import org.dasein.cloud.identity.IdentityServices;
 import org.dasein.cloud.network.FirewallSupport;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -37,6 +39,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
@@ -66,6 +69,9 @@ public class StatefulIAMTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testGroupId;
     private String testPolicyId;
     private String testUserId;
@@ -439,7 +445,7 @@ public class StatefulIAMTests {
             tm.ok("Identity services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
+        final IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
 
         if( support == null ) {
             tm.ok("Identity and access management is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -448,10 +454,26 @@ public class StatefulIAMTests {
         IdentityResources identity = DaseinTestManager.getIdentityResources();
 
         assertNotNull("The tests failed to initialize a proper set of identity services", identity);
-        String userId = identity.provisionUser(support, "provision", "dsncusr");
+        final String userId = identity.provisionUser(support, "provision", "dsncusr");
 
         tm.out("New User", userId);
         assertNotNull("The newly created user ID may not be null", userId);
+        tm.checkConsistency("User", true, new ConsistencyMonitor.Probe() {
+            @Override
+            public boolean reflects() throws CloudException, InternalException {
+                return (support.getUser(userId) != null);
+            }
+        }, new ConsistencyMonitor.Probe() {
+            @Override
+            public boolean reflects() throws CloudException, InternalException {
+                for( CloudUser user : support.listUsersInPath(null) ) {
+                    if( userId.equals(user.getProviderUserId()) ) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
 
         CloudUser user = support.getUser(userId);
 
@@ -500,7 +522,7 @@ public class StatefulIAMTests {
                 if( present ) {
                     break;
                 }
-                try { Thread.sleep(5000L); }
+                try { TimelineRecorder.pause(5000L); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", groups);
@@ -558,7 +580,7 @@ public class StatefulIAMTests {
                 if( !present ) {
                     break;
                 }
-                try { Thread.sleep(5000L); }
+                try { TimelineRecorder.pause(5000L); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", groups);
@@ -718,19 +740,36 @@ public class StatefulIAMTests {
             tm.ok("Identity services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
+        final IdentityAndAccessSupport support = services.getIdentityAndAccessSupport();
 
         if( support == null ) {
             tm.ok("Identity and access management is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
         if( testUserId != null ) {
+            final String userId = testUserId;
             CloudUser user = support.getUser(testUserId);
 
             assertNotNull("The test user does not exist prior to running this test", user);
             tm.out("Before", user);
 
             support.removeUser(testUserId);
+            tm.checkConsistency("User", false, new ConsistencyMonitor.Probe() {
+                @Override
+                public boolean reflects() throws CloudException, InternalException {
+                    return (support.getUser(userId) == null);
+                }
+            }, new ConsistencyMonitor.Probe() {
+                @Override
+                public boolean reflects() throws CloudException, InternalException {
+                    for( CloudUser u : support.listUsersInPath(null) ) {
+                        if( userId.equals(u.getProviderUserId()) ) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            });
 
             user = support.getUser(testUserId);
             tm.out("After", user);
@@ -27,6 +27,7 @@ import org.dasein.cloud.identity.IdentityServices;
 import org.dasein.cloud.identity.SSHKeypair;
 import org.dasein.cloud.identity.ShellKeySupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -34,6 +35,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
@@ -62,6 +64,9 @@ public class StatefulKeypairTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testKeyId;
 
     public StatefulKeypairTests() { }
@@ -193,7 +198,7 @@ public class StatefulKeypairTests {
 
                     tm.out("Before", keypair != null ? "exists" : "doesn't exist");
                     support.deleteKeypair(testKeyId);
-                    try { Thread.sleep(3000L); }
+                    try { TimelineRecorder.pause(3000L); }
                     catch( InterruptedException ignore ) { }
                     keypair = support.getKeypair(testKeyId);
                     tm.out("After", keypair != null ? "exists" : "doesn't exist");
@@ -34,6 +34,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import java.util.UUID;
@@ -66,6 +67,9 @@ public class StatelessIAMTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testGroupId;
     private String testUserId;
 
@@ -209,14 +213,14 @@ public class StatelessIAMTests {
             tm.ok("Identity and access management is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        Iterable<CloudGroup> groups = support.listGroups(null);
+        Iterable<CloudGroup> groups = tm.stream("listGroups").of(support.listGroups(null));
         int count = 0;
 
         assertNotNull("The groups listing may not be null regardless of subscription level or requested path base", groups);
 
         for( CloudGroup group : groups ) {
             count++;
-            tm.out("Group", group);
+            tm.item("Group", group);
         }
         tm.out("Total Group Count", count);
         if( count < 1 ) {
@@ -383,14 +387,14 @@ public class StatelessIAMTests {
             tm.ok("Identity and access management is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        Iterable<CloudUser> users = support.listUsersInPath(null);
+        Iterable<CloudUser> users = tm.stream("listUsersInPath").of(support.listUsersInPath(null));
         int count = 0;
 
         assertNotNull("The users listing may not be null regardless of subscription level or requested path base", users);
 
         for( CloudUser user : users ) {
             count++;
-            tm.out("User", user);
+            tm.item("User", user);
         }
         tm.out("Total User Count", count);
         if( count < 1 ) {
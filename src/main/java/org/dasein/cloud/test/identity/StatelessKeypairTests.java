@@ -32,6 +32,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
@@ -63,6 +64,9 @@ public class StatelessKeypairTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testKeyId;
 
     public StatelessKeypairTests() { }
@@ -205,7 +209,7 @@ public class StatelessKeypairTests {
                 assertNotNull("The list of keypairs may not be null", keypairs);
                 for( SSHKeypair keypair : keypairs ) {
                     count++;
-                    tm.out("Keypair", keypair);
+                    tm.item("Keypair", keypair);
                     if( testKeyId != null && testKeyId.equals(keypair.getProviderKeypairId()) ) {
                         found = true;
                     }
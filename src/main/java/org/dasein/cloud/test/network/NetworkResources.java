@@ -52,7 +52,10 @@ import org.dasein.cloud.network.SubnetState;
 import org.dasein.cloud.network.VLAN;
 import org.dasein.cloud.network.VLANState;
 import org.dasein.cloud.network.VLANSupport;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.InterceptingProvider;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.cloud.test.compute.ComputeResources;
 
 import javax.annotation.Nonnull;
@@ -199,7 +202,7 @@ public class NetworkResources {
         int count = 0;
 
         try {
-            try { Thread.sleep(10000L); }
+            try { TimelineRecorder.pause(10000L); }
             catch( InterruptedException ignore ) { }
             NetworkServices networkServices = provider.getNetworkServices();
 
@@ -285,7 +288,7 @@ public class NetworkResources {
                                     if( addr != null ) {
                                         ipSupport.releaseFromServer(entry.getValue());
                                     }
-                                    try { Thread.sleep(3000L); }
+                                    try { TimelineRecorder.pause(3000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 catch( Throwable ignore ) {
@@ -318,7 +321,7 @@ public class NetworkResources {
                                     if( addr != null ) {
                                         ipSupport.releaseFromServer(entry.getValue());
                                     }
-                                    try { Thread.sleep(3000L); }
+                                    try { TimelineRecorder.pause(3000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 catch( Throwable ignore ) {
@@ -351,7 +354,7 @@ public class NetworkResources {
                                     if( addr != null ) {
                                         ipSupport.releaseFromServer(entry.getValue());
                                     }
-                                    try { Thread.sleep(3000L); }
+                                    try { TimelineRecorder.pause(3000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 catch( Throwable ignore ) {
@@ -384,7 +387,7 @@ public class NetworkResources {
                                     if( addr != null ) {
                                         ipSupport.releaseFromServer(entry.getValue());
                                     }
-                                    try { Thread.sleep(3000L); }
+                                    try { TimelineRecorder.pause(3000L); }
                                     catch( InterruptedException ignore ) { }
                                 }
                                 catch( Throwable ignore ) {
@@ -524,7 +527,7 @@ public class NetworkResources {
                                     }
                                     catch( Throwable t ) {
                                         logger.warn("Failed to de-provision subnet (1) " + entry.getValue() + " post-test: " + t.getMessage());
-                                        try { Thread.sleep(30000L); }
+                                        try { TimelineRecorder.pause(30000L); }
                                         catch( InterruptedException ignore ) { }
                                         try {
                                             vlanSupport.removeSubnet(entry.getValue());
@@ -669,7 +672,7 @@ public class NetworkResources {
         return null;
     }
 
-    private @Nullable String findStatelessFirewall(boolean inVlan) {
+    private @Nullable String findStatelessFirewall(@Nullable String vlanId) {
         NetworkServices networkServices = provider.getNetworkServices();
 
         if( networkServices != null ) {
@@ -680,12 +683,12 @@ public class NetworkResources {
                     Firewall defaultFirewall = null;
 
                     for( Firewall firewall : support.list() ) {
-                        if( (firewall.getProviderVlanId() != null) == inVlan ) {
+                        if( vlanId == null ? firewall.getProviderVlanId() == null : vlanId.equals(firewall.getProviderVlanId()) ) {
                             if( firewall.isActive() && firewall.isAvailable() ) {
                                 String id = firewall.getProviderFirewallId();
 
                                 if( id != null && support.getRules(id).iterator().hasNext() ) {
-                                    if( inVlan ) {
+                                    if( vlanId != null ) {
                                         testVLANFirewalls.put(DaseinTestManager.STATELESS, id);
                                     }
                                     else {
@@ -706,7 +709,7 @@ public class NetworkResources {
                         String id = defaultFirewall.getProviderFirewallId();
 
                         if( id != null ) {
-                            if( inVlan ) {
+                            if( vlanId != null ) {
                                 testVLANFirewalls.put(DaseinTestManager.STATELESS, id);
                             }
                             else {
@@ -913,7 +916,8 @@ public class NetworkResources {
 
         if( label.equalsIgnoreCase(DaseinTestManager.STATELESS) ) {
             for( Map.Entry<String,String> entry : map.entrySet() ) {
-                if( !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
+                // a known VLAN firewall may be in a different VLAN, so VLAN firewalls are looked up in the VLAN asked for
+                if( vlanId == null && !entry.getKey().equals(DaseinTestManager.REMOVED) ) {
                     String id = entry.getValue();
 
                     if( id != null ) {
@@ -921,7 +925,7 @@ public class NetworkResources {
                     }
                 }
             }
-            return findStatelessFirewall(vlanId != null);
+            return findStatelessFirewall(vlanId);
         }
         String id = map.get(label);
 
@@ -1234,6 +1238,7 @@ public class NetworkResources {
     }
 
     public @Nonnull String provisionAddress(@Nonnull IpAddressSupport support, @Nonnull String label, @Nullable IPVersion version, @Nullable String vlanId) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         if( version == null ) {
             for( IPVersion v : support.listSupportedIPVersions() ) {
                 if( support.isRequestable(v) ) {
@@ -1306,6 +1311,7 @@ public class NetworkResources {
                 testVLANFirewalls.put(label, id);
             }
         }
+        ConsistencyMonitor.settle("Firewall", true);
         return id;
     }
 
@@ -1484,6 +1490,7 @@ public class NetworkResources {
     }
 
     public @Nonnull String provisionSubnet(@Nonnull VLANSupport support, @Nonnull String label, @Nonnull String vlanId, @Nonnull String namePrefix, @Nullable String preferredDataCenterId) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         if( preferredDataCenterId == null && support.isSubnetDataCenterConstrained() ) {
             VLAN vlan = support.getVlan(vlanId);
 
@@ -1533,10 +1540,12 @@ public class NetworkResources {
             }
             testSubnets.put(label, id);
         }
+        ConsistencyMonitor.settle("Subnet", true);
         return id;
     }
 
     public @Nonnull String provisionVLAN(@Nonnull VLANSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable String preferredDataCenterId) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String id;
 
         //if( support.isVlanDataCenterConstrained() && preferredDataCenterId == null ) {
@@ -1556,6 +1565,7 @@ public class NetworkResources {
     }
 
     public @Nonnull String provisionDNSZone(@Nonnull DNSSupport support, @Nonnull String label, @Nonnull String domainPrefix, @Nonnull String tld) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String name = domainPrefix + (System.currentTimeMillis()%10000) + "." + tld;
         String id = support.createDnsZone(name, name, "Dasein Cloud Test Zone");
 
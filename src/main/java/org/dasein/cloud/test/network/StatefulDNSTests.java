@@ -26,6 +26,7 @@ import org.dasein.cloud.network.DNSRecordType;
 import org.dasein.cloud.network.DNSSupport;
 import org.dasein.cloud.network.DNSZone;
 import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -34,7 +35,9 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
+import javax.annotation.Nonnull;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertFalse;
@@ -68,6 +71,9 @@ public class StatefulDNSTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private DNSRecord testRecord;
     private String    testZoneId;
     private String    testRecordName;
@@ -140,6 +146,20 @@ public class StatefulDNSTests {
         tm.end();
     }
 
+    private boolean isListed(@Nonnull DNSSupport support, @Nonnull String zoneId, @Nonnull DNSRecord target) throws CloudException, InternalException {
+        for( DNSRecord record : support.listDnsRecords(zoneId, DNSRecordType.A, null) ) {
+            if( record.getName().equals(target.getName()) ) {
+                String[] testValues = target.getValues();
+                String[] values = record.getValues();
+
+                if( Arrays.equals(testValues, values) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Test
     public void createZone() throws CloudException, InternalException {
         NetworkServices services = tm.getProvider().getNetworkServices();
@@ -212,17 +232,24 @@ public class StatefulDNSTests {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        DNSSupport support = services.getDnsSupport();
+        final DNSSupport support = services.getDnsSupport();
 
         if( support == null ) {
             tm.ok("DNS is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
         if( testZoneId != null && testRecordName != null ) {
-            DNSRecord record = support.addDnsRecord(testZoneId, DNSRecordType.A, testRecordName, 3600, "210.10.10.10");
+            final String zoneId = testZoneId;
+            final DNSRecord record = support.addDnsRecord(testZoneId, DNSRecordType.A, testRecordName, 3600, "210.10.10.10");
 
             tm.out("New DNS Record", record);
             assertNotNull("No DNS record was created for the test", record);
+            tm.checkConsistency("DNS Record", true, null, new ConsistencyMonitor.Probe() {
+                @Override
+                public boolean reflects() throws CloudException, InternalException {
+                    return isListed(support, zoneId, record);
+                }
+            });
         }
         else {
             if( !support.isSubscribed() ) {
@@ -242,28 +269,24 @@ public class StatefulDNSTests {
             tm.ok("Network services are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        DNSSupport support = services.getDnsSupport();
+        final DNSSupport support = services.getDnsSupport();
 
         if( support == null ) {
             tm.ok("DNS is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
         if( testRecord != null ) {
-            support.deleteDnsRecords(testRecord);
-            boolean found = false;
+            final String zoneId = testZoneId;
+            final DNSRecord removed = testRecord;
 
-            for( DNSRecord record : support.listDnsRecords(testZoneId, DNSRecordType.A, null) ) {
-                if( record.getName().equals(testRecord.getName()) ) {
-                    String[] testValues = testRecord.getValues();
-                    String[] values = record.getValues();
-
-                    if( Arrays.equals(testValues, values) ) {
-                        found = true;
-                        break;
-                    }
+            support.deleteDnsRecords(testRecord);
+            tm.checkConsistency("DNS Record", false, null, new ConsistencyMonitor.Probe() {
+                @Override
+                public boolean reflects() throws CloudException, InternalException {
+                    return !isListed(support, zoneId, removed);
                 }
-            }
-            assertFalse("The DNS record still exists in the system", found);
+            });
+            assertFalse("The DNS record still exists in the system", isListed(support, testZoneId, testRecord));
         }
         else {
             if( !support.isSubscribed() ) {
@@ -40,7 +40,9 @@ import org.dasein.cloud.network.RuleTarget;
 import org.dasein.cloud.network.RuleTargetType;
 import org.dasein.cloud.network.Subnet;
 import org.dasein.cloud.network.VLAN;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.cloud.test.compute.ComputeResources;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -49,6 +51,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import java.util.Arrays;
@@ -83,6 +86,9 @@ public class StatefulFirewallTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String  testFirewallId;
     private String  testRuleId;
     private String  testVLANId;
@@ -404,17 +410,33 @@ public class StatefulFirewallTests {
         NetworkServices services = tm.getProvider().getNetworkServices();
 
         if( services != null ) {
-            FirewallSupport support = services.getFirewallSupport();
+            final FirewallSupport support = services.getFirewallSupport();
 
             if( support != null ) {
                 NetworkResources net = DaseinTestManager.getNetworkResources();
 
                 if( net != null ) {
                     if( support.supportsFirewallCreation(false) ) {
-                        String id = net.provisionFirewall("provisionKeypair", null);
+                        final String id = net.provisionFirewall("provisionKeypair", null);
 
                         tm.out("New Firewall", id);
                         assertNotNull("No firewall was created by this test", id);
+                        tm.checkConsistency("Firewall", true, new ConsistencyMonitor.Probe() {
+                            @Override
+                            public boolean reflects() throws CloudException, InternalException {
+                                return (support.getFirewall(id) != null);
+                            }
+                        }, new ConsistencyMonitor.Probe() {
+                            @Override
+                            public boolean reflects() throws CloudException, InternalException {
+                                for( Firewall firewall : support.list() ) {
+                                    if( id.equals(firewall.getProviderFirewallId()) ) {
+                                        return true;
+                                    }
+                                }
+                                return false;
+                            }
+                        });
                     }
                     else {
                         try {
@@ -657,18 +679,41 @@ public class StatefulFirewallTests {
         NetworkServices services = tm.getProvider().getNetworkServices();
 
         if( services != null ) {
-            FirewallSupport support = services.getFirewallSupport();
+            final FirewallSupport support = services.getFirewallSupport();
 
             if( support != null ) {
                 if( testFirewallId != null ) {
+                    final String id = testFirewallId;
                     Firewall firewall = support.getFirewall(testFirewallId);
 
                     tm.out("Before", firewall);
                     assertNotNull("Test firewall no longer exists, cannot test removing it", firewall);
                     tm.out("Active", firewall.isActive());
                     support.delete(testFirewallId);
-                    try { Thread.sleep(5000L); }
-                    catch( InterruptedException ignore ) { }
+                    if( ConsistencyMonitor.isEnabled() ) {
+                        tm.checkConsistency("Firewall", false, new ConsistencyMonitor.Probe() {
+                            @Override
+                            public boolean reflects() throws CloudException, InternalException {
+                                Firewall f = support.getFirewall(id);
+
+                                return (f == null || !f.isActive());
+                            }
+                        }, new ConsistencyMonitor.Probe() {
+                            @Override
+                            public boolean reflects() throws CloudException, InternalException {
+                                for( Firewall f : support.list() ) {
+                                    if( id.equals(f.getProviderFirewallId()) && f.isActive() ) {
+                                        return false;
+                                    }
+                                }
+                                return true;
+                            }
+                        });
+                    }
+                    else {
+                        try { TimelineRecorder.pause(ConsistencyMonitor.getSettleTime("Firewall", false, 5000L)); }
+                        catch( InterruptedException ignore ) { }
+                    }
                     firewall = support.getFirewall(testFirewallId);
                     tm.out("After", firewall);
                     tm.out("Active", (firewall == null ? "false" : firewall.isActive()));
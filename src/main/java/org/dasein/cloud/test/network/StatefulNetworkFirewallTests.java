@@ -31,6 +31,7 @@ import org.dasein.cloud.network.Permission;
 import org.dasein.cloud.network.Protocol;
 import org.dasein.cloud.network.RuleTarget;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -38,6 +39,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -77,6 +79,9 @@ public class StatefulNetworkFirewallTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String  testFirewallId;
     private String  testRuleId;
     private String  testSubnetId;
@@ -373,7 +378,7 @@ public class StatefulNetworkFirewallTests {
             assertNotNull("Test firewall no longer exists, cannot test removing it", firewall);
             tm.out("Active", firewall.isActive());
             support.removeFirewall(testFirewallId);
-            try { Thread.sleep(5000L); }
+            try { TimelineRecorder.pause(5000L); }
             catch( InterruptedException ignore ) { }
             firewall = support.getFirewall(testFirewallId);
             tm.out("After", firewall);
@@ -416,7 +421,7 @@ public class StatefulNetworkFirewallTests {
 
                 support.associateWithSubnet(testFirewallId, testSubnetId);
 
-                try { Thread.sleep(5000L); }
+                try { TimelineRecorder.pause(5000L); }
                 catch( InterruptedException ignore ) { }
 
                 firewall = support.getFirewall(testFirewallId);
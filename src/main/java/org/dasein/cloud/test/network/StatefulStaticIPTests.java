@@ -37,6 +37,7 @@ import org.dasein.cloud.network.Subnet;
 import org.dasein.cloud.network.VLAN;
 import org.dasein.cloud.network.VLANSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.cloud.test.compute.ComputeResources;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
@@ -46,6 +47,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 
@@ -84,6 +86,9 @@ public class StatefulStaticIPTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testIpAddress;
     private String testRuleId;
     private String testVlanId;
@@ -453,7 +458,7 @@ public class StatefulStaticIPTests {
                 if( address.getServerId() != null && vm.getProviderAssignedIpAddressId() != null ) {
                     break;
                 }
-                try { Thread.sleep(10000L); }
+                try { TimelineRecorder.pause(10000L); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("VM After", vm.getProviderAssignedIpAddressId());
@@ -579,7 +584,7 @@ public class StatefulStaticIPTests {
                     if( address.getServerId() == null && vm.getProviderAssignedIpAddressId() == null ) {
                         break;
                     }
-                    try { Thread.sleep(10000L); }
+                    try { TimelineRecorder.pause(10000L); }
                     catch( InterruptedException ignore ) { }
                 }
                 tm.out("VM After", vm.getProviderAssignedIpAddressId());
@@ -693,7 +698,7 @@ public class StatefulStaticIPTests {
                     if( !exists ) {
                         break;
                     }
-                    try { Thread.sleep(10000L); }
+                    try { TimelineRecorder.pause(10000L); }
                     catch( InterruptedException ignore ) { }
                 }
                 tm.out("Rule Exists", exists);
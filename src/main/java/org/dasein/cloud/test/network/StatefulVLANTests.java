@@ -33,7 +33,9 @@ import org.dasein.cloud.network.NetworkServices;
 import org.dasein.cloud.network.Subnet;
 import org.dasein.cloud.network.VLAN;
 import org.dasein.cloud.network.VLANSupport;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.cloud.test.compute.ComputeResources;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
@@ -43,6 +45,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
@@ -71,6 +74,9 @@ public class StatefulVLANTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testVLANId;
     private String testSubnetId;
 
@@ -176,7 +182,7 @@ public class StatefulVLANTests {
         NetworkServices services = tm.getProvider().getNetworkServices();
 
         if( services != null ) {
-            VLANSupport support = services.getVlanSupport();
+            final VLANSupport support = services.getVlanSupport();
 
             if( support != null ) {
                 boolean supported = (support.allowsNewSubnetCreation() && support.isSubscribed());
@@ -189,8 +195,25 @@ public class StatefulVLANTests {
                             VLAN vlan = support.getVlan(testVLANId);
 
                             assertNotNull("The test VLAN does not exist", vlan);
-                            String id = resources.provisionSubnet(support, "provisionKeypair", testVLANId, "dsnsub", vlan.getProviderDataCenterId());
+                            final String vlanId = testVLANId;
+                            final String id = resources.provisionSubnet(support, "provisionKeypair", testVLANId, "dsnsub", vlan.getProviderDataCenterId());
                             tm.out("New Subnet", id);
+                            tm.checkConsistency("Subnet", true, new ConsistencyMonitor.Probe() {
+                                @Override
+                                public boolean reflects() throws CloudException, InternalException {
+                                    return (support.getSubnet(id) != null);
+                                }
+                            }, new ConsistencyMonitor.Probe() {
+                                @Override
+                                public boolean reflects() throws CloudException, InternalException {
+                                    for( Subnet subnet : support.listSubnets(vlanId) ) {
+                                        if( id.equals(subnet.getProviderSubnetId()) ) {
+                                            return true;
+                                        }
+                                    }
+                                    return false;
+                                }
+                            });
                             assertNotNull("Could not find the subnet in the cloud after provisioning", support.getSubnet(id));
                         }
                         else {
@@ -281,7 +304,7 @@ public class StatefulVLANTests {
                     assertNotNull("Test VLAN no longer exists, cannot test removing it", vlan);
                     tm.out("State", vlan.getCurrentState());
                     support.removeVlan(testVLANId);
-                    try { Thread.sleep(5000L); }
+                    try { TimelineRecorder.pause(5000L); }
                     catch( InterruptedException ignore ) { }
                     vlan = support.getVlan(testVLANId);
                     tm.out("After", vlan);
@@ -314,18 +337,41 @@ public class StatefulVLANTests {
         NetworkServices services = tm.getProvider().getNetworkServices();
 
         if( services != null ) {
-            VLANSupport support = services.getVlanSupport();
+            final VLANSupport support = services.getVlanSupport();
 
             if( support != null ) {
                 if( testSubnetId != null ) {
+                    final String id = testSubnetId;
                     Subnet subnet = support.getSubnet(testSubnetId);
 
                     tm.out("Before", subnet);
                     assertNotNull("Test subnet no longer exists, cannot test removing it", subnet);
                     tm.out("State", subnet.getCurrentState());
+                    final String vlanId = subnet.getProviderVlanId();
+
                     support.removeSubnet(testSubnetId);
-                    try { Thread.sleep(5000L); }
-                    catch( InterruptedException ignore ) { }
+                    if( ConsistencyMonitor.isEnabled() ) {
+                        tm.checkConsistency("Subnet", false, new ConsistencyMonitor.Probe() {
+                            @Override
+                            public boolean reflects() throws CloudException, InternalException {
+                                return (support.getSubnet(id) == null);
+                            }
+                        }, new ConsistencyMonitor.Probe() {
+                            @Override
+                            public boolean reflects() throws CloudException, InternalException {
+                                for( Subnet s : support.listSubnets(vlanId) ) {
+                                    if( id.equals(s.getProviderSubnetId()) ) {
+                                        return false;
+                                    }
+                                }
+                                return true;
+                            }
+                        });
+                    }
+                    else {
+                        try { TimelineRecorder.pause(ConsistencyMonitor.getSettleTime("Subnet", false, 5000L)); }
+                        catch( InterruptedException ignore ) { }
+                    }
                     subnet = support.getSubnet(testSubnetId);
                     tm.out("After", subnet);
                     tm.out("State", (subnet == null ? "DELETED" : subnet.getCurrentState()));
@@ -438,7 +484,7 @@ public class StatefulVLANTests {
                 if( VmState.RUNNING.equals(vm.getCurrentState()) ) {
                     break;
                 }
-                try { Thread.sleep(15000L); }
+                try { TimelineRecorder.pause(15000L); }
                 catch( InterruptedException ignore ) { }
                 try { vm = support.getVirtualMachine(vmId); }
                 catch( Throwable ignore ) { }
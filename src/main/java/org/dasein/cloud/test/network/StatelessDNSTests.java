@@ -34,6 +34,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import java.util.Arrays;
@@ -68,6 +69,9 @@ public class StatelessDNSTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private DNSRecord testRecord;
     private String    testZoneId;
 
@@ -244,13 +248,13 @@ public class StatelessDNSTests {
             tm.ok("DNS is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        Iterable<DNSZone> zones = support.listDnsZones();
+        Iterable<DNSZone> zones = tm.stream("listDnsZones").of(support.listDnsZones());
         int count = 0;
 
         assertNotNull("The list of DNS zones may not be null even if the account is not subscribed", zones);
         for( DNSZone zone : zones ) {
             count++;
-            tm.out("DNS Zone", zone);
+            tm.item("DNS Zone", zone);
         }
         tm.out("Total DNS Zone Count", count);
         if( count < 1 ) {
@@ -322,7 +326,7 @@ public class StatelessDNSTests {
             int total = 0;
 
             for( DNSRecordType type : DNSRecordType.values() ) {
-                Iterable<DNSRecord> records = support.listDnsRecords(testZoneId, type, null);
+                Iterable<DNSRecord> records = tm.stream("listDnsRecords").of(support.listDnsRecords(testZoneId, type, null));
                 int count = 0;
 
                 assertNotNull("DNS records for any type may not be null", records);
@@ -30,6 +30,7 @@ import org.dasein.cloud.network.NetworkServices;
 import org.dasein.cloud.network.Permission;
 import org.dasein.cloud.network.RuleTargetType;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -37,10 +38,11 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
@@ -73,6 +75,9 @@ public class StatelessFirewallTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testGeneralFirewallId;
     private String testVLANFirewallId;
 
@@ -435,13 +440,13 @@ public class StatelessFirewallTests {
             FirewallSupport support = services.getFirewallSupport();
 
             if( support != null ) {
-                Iterable<Firewall> firewalls = support.list();
+                Iterable<Firewall> firewalls = tm.stream("list").of(support.list());
                 int count = 0;
 
                 assertNotNull("The list of firewalls may be empty, but it may never be null", firewalls);
                 for( Firewall fw : firewalls ) {
                     count++;
-                    tm.out("Firewall", fw);
+                    tm.item("Firewall", fw);
                 }
                 tm.out("Total Firewall Count", count);
                 if( support.isSubscribed() && count == 0 ) {
@@ -476,7 +481,7 @@ public class StatelessFirewallTests {
                 assertNotNull("The list of firewall status may be empty, but it may never be null", firewalls);
                 for( ResourceStatus fw : firewalls ) {
                     count++;
-                    tm.out("Firewall Status", fw);
+                    tm.item("Firewall Status", fw);
                 }
                 tm.out("Total Firewall Status Count", count);
                 if( support.isSubscribed() && count == 0 ) {
@@ -501,36 +506,19 @@ public class StatelessFirewallTests {
             FirewallSupport support = services.getFirewallSupport();
 
             if( support != null ) {
-                HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
                 Iterable<Firewall> firewalls = support.list();
                 Iterable<ResourceStatus> status = support.listFirewallStatus();
 
                 assertNotNull("listFirewalls() must return at least an empty collections and may not be null", firewalls);
                 assertNotNull("listFirewallStatus() must return at least an empty collection and may not be null", status);
-                for( ResourceStatus s : status ) {
-                    Map<String,Boolean> current = map.get(s.getProviderResourceId());
+                ArrayList<String> ids = new ArrayList<String>();
 
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(s.getProviderResourceId(), current);
-                    }
-                    current.put("status", true);
-                }
                 for( Firewall fw : firewalls ) {
-                    Map<String,Boolean> current = map.get(fw.getProviderFirewallId());
-
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(fw.getProviderFirewallId(), current);
-                    }
-                    current.put("firewall", true);
+                    ids.add(fw.getProviderFirewallId());
                 }
-                for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-                    Boolean s = entry.getValue().get("status");
-                    Boolean f = entry.getValue().get("firewall");
+                String mismatch = StatusReconciler.findMismatch(status, ids);
 
-                    assertTrue("Status and firewall lists do not match for " + entry.getKey(), s != null && f != null && s && f);
-                }
+                assertNull("Status and firewall lists do not match for " + mismatch, mismatch);
                 tm.out("Matches");
             }
             else {
@@ -35,6 +35,7 @@ import org.dasein.cloud.network.LoadBalancerEndpoint;
 import org.dasein.cloud.network.LoadBalancerSupport;
 import org.dasein.cloud.network.NetworkServices;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -42,13 +43,13 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -78,6 +79,9 @@ public class StatelessLoadBalancerTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testLoadBalancerId;
 
     public StatelessLoadBalancerTests() { }
@@ -357,7 +361,7 @@ public class StatelessLoadBalancerTests {
             }
             for( LoadBalancerEndpoint endpoint : endpoints ) {
                 count++;
-                tm.out("Endpoint", endpoint);
+                tm.item("Endpoint", endpoint);
             }
             tm.out("Endpoint Count", count);
             if( count < 1 ) {
@@ -394,7 +398,7 @@ public class StatelessLoadBalancerTests {
         assertNotNull("The list of load balancers may not be null", loadBalancers);
         for( LoadBalancer lb : loadBalancers ) {
             count++;
-            tm.out("Load Balancer", lb);
+            tm.item("Load Balancer", lb);
         }
         tm.out("Load Balancer Count", count);
 
@@ -431,7 +435,7 @@ public class StatelessLoadBalancerTests {
         assertNotNull("The list of load balancers may not be null", loadBalancers);
         for( ResourceStatus lb : loadBalancers ) {
             count++;
-            tm.out("Load Balancer Status", lb);
+            tm.item("Load Balancer Status", lb);
         }
         tm.out("Load Balancer Status Count", count);
 
@@ -457,36 +461,19 @@ public class StatelessLoadBalancerTests {
             tm.ok("Load balancers are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<LoadBalancer> loadBalancers = support.listLoadBalancers();
         Iterable<ResourceStatus> status = support.listLoadBalancerStatus();
 
         assertNotNull("listLoadBalancers() must return at least an empty collections and may not be null", loadBalancers);
         assertNotNull("listLoadBalancerStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( LoadBalancer lb : loadBalancers ) {
-            Map<String,Boolean> current = map.get(lb.getProviderLoadBalancerId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(lb.getProviderLoadBalancerId(), current);
-            }
-            current.put("lb", true);
+            ids.add(lb.getProviderLoadBalancerId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean l = entry.getValue().get("lb");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and load balancer lists do not match for " + entry.getKey(), s != null && l != null && s && l);
-        }
+        assertNull("Status and load balancer lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 }
@@ -31,6 +31,7 @@ import org.dasein.cloud.network.Permission;
 import org.dasein.cloud.network.RuleTargetType;
 import org.dasein.cloud.network.VLAN;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -38,10 +39,11 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
@@ -75,6 +77,9 @@ public class StatelessNetworkFirewallTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testFirewallId;
 
     public StatelessNetworkFirewallTests() { }
@@ -269,7 +274,7 @@ public class StatelessNetworkFirewallTests {
         assertNotNull("The list of firewalls may be empty, but it may never be null", firewalls);
         for( Firewall fw : firewalls ) {
             count++;
-            tm.out("Network Firewall", fw);
+            tm.item("Network Firewall", fw);
         }
         tm.out("Total Network Firewall Count", count);
         if( !support.isSubscribed() ) {
@@ -305,7 +310,7 @@ public class StatelessNetworkFirewallTests {
         assertNotNull("The list of network firewall status may be empty, but it may never be null", firewalls);
         for( ResourceStatus fw : firewalls ) {
             count++;
-            tm.out("Network Firewall Status", fw);
+            tm.item("Network Firewall Status", fw);
         }
         tm.out("Total Network Firewall Status Count", count);
         if( !support.isSubscribed() ) {
@@ -330,36 +335,19 @@ public class StatelessNetworkFirewallTests {
             tm.ok("Network firewalls are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<Firewall> firewalls = support.listFirewalls();
         Iterable<ResourceStatus> status = support.listFirewallStatus();
 
         assertNotNull("listFirewalls() must return at least an empty collections and may not be null", firewalls);
         assertNotNull("listFirewallStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( Firewall fw : firewalls ) {
-            Map<String,Boolean> current = map.get(fw.getProviderFirewallId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(fw.getProviderFirewallId(), current);
-            }
-            current.put("firewall", true);
+            ids.add(fw.getProviderFirewallId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean f = entry.getValue().get("firewall");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and network firewall lists do not match for " + entry.getKey(), s != null && f != null && s && f);
-        }
+        assertNull("Status and network firewall lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 
@@ -28,6 +28,7 @@ import org.dasein.cloud.network.IpAddressSupport;
 import org.dasein.cloud.network.IpForwardingRule;
 import org.dasein.cloud.network.NetworkServices;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -36,11 +37,11 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Locale;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -104,6 +105,9 @@ public class StatelessStaticIPTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testIpAddress;
 
     public StatelessStaticIPTests() { }
@@ -228,36 +232,19 @@ public class StatelessStaticIPTests {
             IpAddressSupport support = services.getIpAddressSupport();
 
             if( support != null ) {
-                HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
                 Iterable<IpAddress> addresses = support.listIpPool(version, false);
                 Iterable<ResourceStatus> status = support.listIpPoolStatus(version);
 
                 assertNotNull("listipPool() must return at least an empty collections and may not be null", addresses);
                 assertNotNull("listIpPoolStatus() must return at least an empty collection and may not be null", status);
-                for( ResourceStatus s : status ) {
-                    Map<String,Boolean> current = map.get(s.getProviderResourceId());
+                ArrayList<String> ids = new ArrayList<String>();
 
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(s.getProviderResourceId(), current);
-                    }
-                    current.put("status", true);
-                }
                 for( IpAddress address : addresses ) {
-                    Map<String,Boolean> current = map.get(address.getProviderIpAddressId());
-
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(address.getProviderIpAddressId(), current);
-                    }
-                    current.put("address", true);
+                    ids.add(address.getProviderIpAddressId());
                 }
-                for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-                    Boolean s = entry.getValue().get("status");
-                    Boolean a = entry.getValue().get("address");
+                String mismatch = StatusReconciler.findMismatch(status, ids);
 
-                    assertTrue("Status and IP address lists do not match for " + entry.getKey(), s != null && a != null && s && a);
-                }
+                assertNull("Status and IP address lists do not match for " + mismatch, mismatch);
                 tm.out("Matches");
             }
             else {
@@ -490,7 +477,7 @@ public class StatelessStaticIPTests {
 
             for( IpForwardingRule rule : rules ) {
                 count++;
-                tm.out("Rule", rule);
+                tm.item("Rule", rule);
             }
             tm.out("Total Rule Count", count);
             if( count < 1 ) {
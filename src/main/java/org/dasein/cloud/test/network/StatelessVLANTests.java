@@ -30,6 +30,7 @@ import org.dasein.cloud.network.Subnet;
 import org.dasein.cloud.network.VLAN;
 import org.dasein.cloud.network.VLANSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -37,11 +38,12 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
@@ -73,6 +75,9 @@ public class StatelessVLANTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testSubnetId;
     private String testVLANId;
 
@@ -317,7 +322,7 @@ public class StatelessVLANTests {
                 assertNotNull("The list of VLANs may not be null (though it can be empty)", vlans);
                 for( VLAN vlan : vlans ) {
                     count++;
-                    tm.out("VLAN", vlan);
+                    tm.item("VLAN", vlan);
                 }
                 tm.out("Total VLAN Count", count);
 
@@ -356,7 +361,7 @@ public class StatelessVLANTests {
                 assertNotNull("The VLAN status list may not be null (though it can be empty)", vlans);
                 for( ResourceStatus status : vlans ) {
                     count++;
-                    tm.out("VLAN Status", status);
+                    tm.item("VLAN Status", status);
                 }
                 tm.out("Total VLAN Status Count", count);
 
@@ -384,36 +389,19 @@ public class StatelessVLANTests {
             VLANSupport support = services.getVlanSupport();
 
             if( support != null ) {
-                HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
                 Iterable<VLAN> vlans = support.listVlans();
                 Iterable<ResourceStatus> status = support.listVlanStatus();
 
                 assertNotNull("listVLANs() must return at least an empty collections and may not be null", vlans);
                 assertNotNull("listVLANStatus() must return at least an empty collection and may not be null", status);
-                for( ResourceStatus s : status ) {
-                    Map<String,Boolean> current = map.get(s.getProviderResourceId());
+                ArrayList<String> ids = new ArrayList<String>();
 
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(s.getProviderResourceId(), current);
-                    }
-                    current.put("status", true);
-                }
                 for( VLAN vlan : vlans ) {
-                    Map<String,Boolean> current = map.get(vlan.getProviderVlanId());
-
-                    if( current == null ) {
-                        current = new HashMap<String, Boolean>();
-                        map.put(vlan.getProviderVlanId(), current);
-                    }
-                    current.put("vlan", true);
+                    ids.add(vlan.getProviderVlanId());
                 }
-                for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-                    Boolean s = entry.getValue().get("status");
-                    Boolean v = entry.getValue().get("vlan");
+                String mismatch = StatusReconciler.findMismatch(status, ids);
 
-                    assertTrue("Status and VLAN lists do not match for " + entry.getKey(), s != null && v != null && s && v);
-                }
+                assertNull("Status and VLAN lists do not match for " + mismatch, mismatch);
                 tm.out("Matches");
             }
             else {
@@ -555,7 +543,7 @@ public class StatelessVLANTests {
                     assertNotNull("The list of subnets may not be null (though it can be empty)", subnets);
                     for( Subnet subnet : subnets ) {
                         count++;
-                        tm.out("Subnet", subnet);
+                        tm.item("Subnet", subnet);
                     }
                     tm.out("Total Subnet Count for " + testVLANId, count);
 
@@ -604,7 +592,7 @@ public class StatelessVLANTests {
                     assertNotNull("The list of VLAN resources may be empty, but it cannot be null", resources);
                     for( Networkable n : resources ) {
                         count++;
-                        tm.out("VLAN Resource", n);
+                        tm.item("VLAN Resource", n);
                     }
                     tm.out("Total VLAN Resource Count", count);
                     if( !support.isSubscribed() ) {
@@ -38,6 +38,8 @@ import org.dasein.cloud.platform.RelationalDatabaseSupport;
 import org.dasein.cloud.platform.Topic;
 import org.dasein.cloud.storage.Blob;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.InterceptingProvider;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.cloud.test.storage.StorageResources;
 import org.dasein.util.CalendarWrapper;
 
@@ -179,7 +181,7 @@ public class PlatformResources {
                                     if( canRemove(db) ) {
                                         break;
                                     }
-                                    try { Thread.sleep(15000L); }
+                                    try { TimelineRecorder.pause(15000L); }
                                     catch( InterruptedException ignore ) { }
                                     try { db = rdbmsSupport.getDatabase(db.getProviderDatabaseId()); }
                                     catch( Throwable ignore ) { }
@@ -204,7 +206,7 @@ public class PlatformResources {
 
                 do {
                     done = true;
-                    try { Thread.sleep(15000L); }
+                    try { TimelineRecorder.pause(15000L); }
                     catch( InterruptedException ignore ) { }
                     for( Future<Boolean> result : results ) {
                         if( !result.isDone() ) {
@@ -524,6 +526,7 @@ public class PlatformResources {
     }
 
     public @Nonnull String provisionDistribution(@Nonnull CDNSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable String origin) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         if( origin == null ) {
             StorageResources r = DaseinTestManager.getStorageResources();
 
@@ -550,6 +553,7 @@ public class PlatformResources {
     }
 
     public @Nonnull String provisionMQ(@Nonnull MQSupport support, @Nonnull String label, @Nonnull String namePrefix) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         MQCreateOptions options = MQCreateOptions.getInstance(namePrefix + (System.currentTimeMillis()%10000), "Test MQ auto-provisioned by Dasein Cloud integration tests");
         String id;
 
@@ -565,6 +569,7 @@ public class PlatformResources {
     }
 
     public @Nonnull String provisionRDBMS(@Nonnull RelationalDatabaseSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable DatabaseEngine engine) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String password = "a" + random.nextInt(100000000);
         String id;
 
@@ -608,6 +613,7 @@ public class PlatformResources {
     }
 
     public @Nonnull String provisionTopic(@Nonnull PushNotificationSupport support, @Nonnull String label, @Nonnull String namePrefix) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String id = support.createTopic(namePrefix + random.nextInt(10000)).getProviderTopicId();
 
         synchronized( testTopics ) {
@@ -26,6 +26,7 @@ import org.dasein.cloud.platform.Distribution;
 import org.dasein.cloud.platform.PlatformServices;
 import org.dasein.cloud.storage.Blob;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -34,6 +35,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -67,6 +69,9 @@ public class StatefulCDNTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testDistributionId;
     private Blob   testOrigin;
 
@@ -291,7 +296,7 @@ public class StatefulCDNTests {
                 catch( Throwable ignore ) {
                     // ignore
                 }
-                try { Thread.sleep(15000L); }
+                try { TimelineRecorder.pause(15000L); }
                 catch( InterruptedException ignore ) { }
             }
             assertNotNull("The distribution disappeared after update", updated);
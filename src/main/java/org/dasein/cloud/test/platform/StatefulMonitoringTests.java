@@ -28,6 +28,7 @@ import org.dasein.cloud.platform.*;
 import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.*;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Collection;
 import java.util.Map;
@@ -59,6 +60,9 @@ public class StatefulMonitoringTests {
   @Rule
   public final TestName name = new TestName();
 
+  @Rule
+  public final TestWatcher watcher = tm.watcher();
+
   @BeforeClass
   static public void configure() {
     tm = new DaseinTestManager( StatefulMonitoringTests.class );
@@ -26,6 +26,7 @@ import org.dasein.cloud.platform.DatabaseState;
 import org.dasein.cloud.platform.PlatformServices;
 import org.dasein.cloud.platform.RelationalDatabaseSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -34,6 +35,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nullable;
 
@@ -67,6 +69,9 @@ public class StatefulRDBMSTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testDatabaseId;
 
     public StatefulRDBMSTests() { }
@@ -134,7 +139,7 @@ public class StatefulRDBMSTests {
                 if( canRemove(db) ) {
                     break;
                 }
-                try { Thread.sleep(15000L); }
+                try { TimelineRecorder.pause(15000L); }
                 catch( InterruptedException ignore ) { }
                 try { db = support.getDatabase(db.getProviderDatabaseId()); }
                 catch( Throwable ignore ) { }
@@ -26,6 +26,7 @@ import org.dasein.cloud.platform.CDNSupport;
 import org.dasein.cloud.platform.Distribution;
 import org.dasein.cloud.platform.PlatformServices;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -33,12 +34,12 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -68,6 +69,9 @@ public class StatelessCDNTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testDistributionId;
 
     public StatelessCDNTests() { }
@@ -221,7 +225,7 @@ public class StatelessCDNTests {
         assertNotNull("The list of distributions must be non-null, even if not supported or subscribed", dists);
         for( Distribution d : dists ) {
             count++;
-            tm.out("Distribution", d);
+            tm.item("Distribution", d);
         }
         tm.out("Total Distribution Count", count);
         if( count < 1 ) {
@@ -260,7 +264,7 @@ public class StatelessCDNTests {
         assertNotNull("The list of distribution status objects must be non-null, even if not supported or subscribed", dists);
         for( ResourceStatus d : dists ) {
             count++;
-            tm.out("Distribution Status", d);
+            tm.item("Distribution Status", d);
         }
         tm.out("Total Distribution Status Count", count);
         if( count < 1 ) {
@@ -290,36 +294,19 @@ public class StatelessCDNTests {
             tm.ok("CDN is not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<Distribution> distributions = support.list();
         Iterable<ResourceStatus> status = support.listDistributionStatus();
 
         assertNotNull("list() must return at least an empty collections and may not be null", distributions);
         assertNotNull("listDistributionStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( Distribution d : distributions ) {
-            Map<String,Boolean> current = map.get(d.getProviderDistributionId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(d.getProviderDistributionId(), current);
-            }
-            current.put("distribution", true);
+            ids.add(d.getProviderDistributionId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean d = entry.getValue().get("distribution");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and distribution lists do not match for " + entry.getKey(), s != null && d != null && s && d);
-        }
+        assertNull("Status and distribution lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 }
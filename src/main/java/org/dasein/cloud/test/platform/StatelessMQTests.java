@@ -26,6 +26,7 @@ import org.dasein.cloud.platform.MQSupport;
 import org.dasein.cloud.platform.MessageQueue;
 import org.dasein.cloud.platform.PlatformServices;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -33,8 +34,9 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
@@ -42,7 +44,6 @@ import java.util.UUID;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
-import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 
@@ -70,6 +71,9 @@ public class StatelessMQTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testMQId;
 
     public StatelessMQTests() { }
@@ -235,7 +239,7 @@ public class StatelessMQTests {
         assertNotNull("The list of message queues must be non-null, even if not supported or subscribed", queues);
         for( MessageQueue q : queues ) {
             count++;
-            tm.out("Message Queue", q);
+            tm.item("Message Queue", q);
         }
         tm.out("Total MQ Count", count);
         if( count < 1 ) {
@@ -274,7 +278,7 @@ public class StatelessMQTests {
         assertNotNull("The list of message queue status objects must be non-null, even if not supported or subscribed", queues);
         for( ResourceStatus q : queues ) {
             count++;
-            tm.out("MQ Status", q);
+            tm.item("MQ Status", q);
         }
         tm.out("Total MQ Status Count", count);
         if( count < 1 ) {
@@ -304,36 +308,19 @@ public class StatelessMQTests {
             tm.ok("Message queues are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<MessageQueue> queues = support.listMessageQueues();
         Iterable<ResourceStatus> status = support.listMessageQueueStatus();
 
         assertNotNull("listMessageQueues() must return at least an empty collections and may not be null", queues);
         assertNotNull("listMessageQueueStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( MessageQueue q : queues ) {
-            Map<String,Boolean> current = map.get(q.getProviderMessageQueueId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(q.getProviderMessageQueueId(), current);
-            }
-            current.put("queue", true);
+            ids.add(q.getProviderMessageQueueId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean q = entry.getValue().get("queue");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and message queue lists do not match for " + entry.getKey(), s != null && q != null && s && q);
-        }
+        assertNull("Status and message queue lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 }
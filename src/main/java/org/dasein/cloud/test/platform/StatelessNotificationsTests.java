@@ -27,6 +27,7 @@ import org.dasein.cloud.platform.PushNotificationSupport;
 import org.dasein.cloud.platform.Subscription;
 import org.dasein.cloud.platform.Topic;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -34,12 +35,12 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Locale;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -69,6 +70,9 @@ public class StatelessNotificationsTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testTopicId;
 
     public StatelessNotificationsTests() { }
@@ -236,7 +240,7 @@ public class StatelessNotificationsTests {
         assertNotNull("The list of topics may not be null", topics);
         for( Topic topic : topics ) {
             count++;
-            tm.out("Topic", topic);
+            tm.item("Topic", topic);
         }
         tm.out("Total Topic Count", count);
         if( count < 1 ) {
@@ -275,7 +279,7 @@ public class StatelessNotificationsTests {
         assertNotNull("The list of topics may not be null", topics);
         for( ResourceStatus topic : topics ) {
             count++;
-            tm.out("Topic Status", topic);
+            tm.item("Topic Status", topic);
         }
         tm.out("Total Topic Status Count", count);
         if( count < 1 ) {
@@ -305,36 +309,19 @@ public class StatelessNotificationsTests {
             tm.ok("Push notifications are not supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<Topic> topics = support.listTopics();
         Iterable<ResourceStatus> status = support.listTopicStatus();
 
         assertNotNull("listTopics() must return at least an empty collections and may not be null", topics);
         assertNotNull("listTopicStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( Topic t : topics ) {
-            Map<String,Boolean> current = map.get(t.getProviderTopicId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(t.getProviderTopicId(), current);
-            }
-            current.put("topic", true);
+            ids.add(t.getProviderTopicId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean t = entry.getValue().get("topic");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and topic lists do not match for " + entry.getKey(), s != null && t != null && s && t);
-        }
+        assertNull("Status and topic lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 
@@ -359,7 +346,7 @@ public class StatelessNotificationsTests {
             assertNotNull("The list of subscriptions may not be null", list);
             for( Subscription subscription : list ) {
                 count++;
-                tm.out("Subscription", subscription);
+                tm.item("Subscription", subscription);
             }
             tm.out("Total Subscription Count to " + testTopicId, count);
             if( count < 1 ) {
@@ -28,6 +28,7 @@ import org.dasein.cloud.platform.DatabaseProduct;
 import org.dasein.cloud.platform.PlatformServices;
 import org.dasein.cloud.platform.RelationalDatabaseSupport;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.StatusReconciler;
 import org.dasein.util.uom.time.Day;
 import org.dasein.util.uom.time.TimePeriod;
 import org.junit.After;
@@ -37,12 +38,12 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -73,6 +74,9 @@ public class StatelessRDBMSTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private String testDatabaseId;
 
     public StatelessRDBMSTests() { }
@@ -165,7 +169,7 @@ public class StatelessRDBMSTests {
         assertNotNull("The list of database engines may not be null", engines);
         for( DatabaseEngine engine : engines ) {
             count++;
-            tm.out("RDBMS Engine", engine);
+            tm.item("RDBMS Engine", engine);
         }
         tm.out("Total Database Engine Count", count);
         if( count < 1 ) {
@@ -349,7 +353,7 @@ public class StatelessRDBMSTests {
         assertNotNull("The list of databases may not be null, even if not subscribed", databases);
         for( Database db : databases ) {
             count++;
-            tm.out("Database", db);
+            tm.item("Database", db);
         }
         tm.out("Total Database Count", count);
         if( !support.isSubscribed() ) {
@@ -383,7 +387,7 @@ public class StatelessRDBMSTests {
         assertNotNull("The list of databases may not be null, even if not subscribed", databases);
         for( ResourceStatus db : databases ) {
             count++;
-            tm.out("Database Status", db);
+            tm.item("Database Status", db);
         }
         tm.out("Total Database Status Count", count);
         if( !support.isSubscribed() ) {
@@ -408,36 +412,19 @@ public class StatelessRDBMSTests {
             tm.ok("Relational database support is not implemented for " + tm.getContext().getRegionId() + " in " + tm.getProvider().getCloudName());
             return;
         }
-        HashMap<String,Map<String,Boolean>> map = new HashMap<String, Map<String, Boolean>>();
         Iterable<Database> databases = support.listDatabases();
         Iterable<ResourceStatus> status = support.listDatabaseStatus();
 
         assertNotNull("listDatabases() must return at least an empty collections and may not be null", databases);
         assertNotNull("listDatabaseStatus() must return at least an empty collection and may not be null", status);
-        for( ResourceStatus s : status ) {
-            Map<String,Boolean> current = map.get(s.getProviderResourceId());
+        ArrayList<String> ids = new ArrayList<String>();
 
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(s.getProviderResourceId(), current);
-            }
-            current.put("status", true);
-        }
         for( Database db : databases ) {
-            Map<String,Boolean> current = map.get(db.getProviderDatabaseId());
-
-            if( current == null ) {
-                current = new HashMap<String, Boolean>();
-                map.put(db.getProviderDatabaseId(), current);
-            }
-            current.put("database", true);
+            ids.add(db.getProviderDatabaseId());
         }
-        for( Map.Entry<String,Map<String,Boolean>> entry : map.entrySet() ) {
-            Boolean s = entry.getValue().get("status");
-            Boolean d = entry.getValue().get("database");
+        String mismatch = StatusReconciler.findMismatch(status, ids);
 
-            assertTrue("Status and database lists do not match for " + entry.getKey(), s != null && d != null && s && d);
-        }
+        assertNull("Status and database lists do not match for " + mismatch, mismatch);
         tm.out("Matches");
     }
 }
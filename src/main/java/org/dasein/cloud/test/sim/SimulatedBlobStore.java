@@ -0,0 +1,384 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.NameRules;
+import org.dasein.cloud.OperationNotSupportedException;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.FileTransfer;
+import org.dasein.util.uom.storage.Byte;
+import org.dasein.util.uom.storage.Storage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated object storage holding object content in temporary files so that objects of any supported size are
+ * streamed rather than held in memory. Buckets are flat and owned by the account that created them; root objects and
+ * nested buckets are not supported. Transfers complete synchronously before the {@link FileTransfer} is handed back.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedBlobStore extends SimulatedSupport {
+    static private final long MAX_OBJECT_SIZE = 5L * 1024L * 1024L * 1024L;
+
+    static private final ConcurrentHashMap<String,Blob>              buckets = new ConcurrentHashMap<String, Blob>();
+    static private final ConcurrentHashMap<String,Map<String,Entry>> objects = new ConcurrentHashMap<String, Map<String, Entry>>();
+
+    static private class Entry {
+        public Blob blob;
+        public File content;
+    }
+
+    SimulatedBlobStore(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull Blob require(@Nonnull String bucket) throws CloudException {
+        Blob blob = getBucket(bucket);
+
+        if( blob == null ) {
+            throw notFound("bucket", bucket);
+        }
+        return blob;
+    }
+
+    private @Nonnull Entry require(@Nonnull String bucket, @Nonnull String object) throws CloudException {
+        require(bucket);
+        Entry entry = objects.get(bucket).get(object);
+
+        if( entry == null ) {
+            throw notFound("object", bucket + "/" + object);
+        }
+        return entry;
+    }
+
+    static private void copy(@Nonnull File from, @Nonnull File to) throws IOException {
+        FileChannel in = new FileInputStream(from).getChannel();
+
+        try {
+            FileChannel out = new FileOutputStream(to).getChannel();
+
+            try {
+                long size = in.size();
+                long position = 0L;
+
+                while( position < size ) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+            finally {
+                out.close();
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    static private void discard(@Nullable Entry entry) {
+        if( entry != null && entry.content.exists() ) {
+            //noinspection ResultOfMethodCallIgnored
+            entry.content.delete();
+        }
+    }
+
+    /**
+     * Places content under an object name, replacing and discarding any content already stored under that name.
+     * @param bucket the bucket in which to store the object
+     * @param object the name of the object
+     * @param content the file holding the content, which now belongs to the store
+     * @return the stored object
+     */
+    private @Nonnull Entry store(@Nonnull String bucket, @Nonnull String object, @Nonnull File content) {
+        Entry entry = new Entry();
+
+        entry.content = content;
+        entry.blob = Blob.getInstance(getRegionId(), "sim://" + bucket + "/" + object, bucket, object, System.currentTimeMillis(), new Storage<Byte>(content.length(), Storage.BYTE));
+        Entry old = objects.get(bucket).put(object, entry);
+
+        if( old != null && old.content != content ) {
+            discard(old);
+        }
+        return entry;
+    }
+
+    public boolean allowsNestedBuckets() {
+        return false;
+    }
+
+    public boolean allowsPublicSharing() {
+        return true;
+    }
+
+    public boolean allowsRootObjects() {
+        return false;
+    }
+
+    public void clearBucket(@Nonnull String bucket) throws CloudException {
+        require(bucket);
+        Map<String,Entry> contents = objects.get(bucket);
+
+        for( String object : contents.keySet() ) {
+            discard(contents.remove(object));
+            removeSharing(bucket + "/" + object);
+        }
+        removeBucket(bucket);
+    }
+
+    public @Nonnull Blob createBucket(@Nonnull String bucket, boolean findFreeName) throws CloudException, InternalException {
+        if( bucket.contains("/") ) {
+            throw new OperationNotSupportedException("Nested buckets are not supported");
+        }
+        String name = bucket;
+        int i = 1;
+
+        while( buckets.containsKey(name) ) {
+            if( !findFreeName ) {
+                throw new CloudException(CloudErrorType.GENERAL, 409, "BucketAlreadyExists", "Bucket " + bucket + " already exists");
+            }
+            name = bucket + "-" + (i++);
+        }
+        Blob blob = Blob.getInstance(getRegionId(), "sim://" + name, name, System.currentTimeMillis());
+
+        objects.put(name, new ConcurrentHashMap<String, Entry>());
+        setOwner(name, getOwner());
+        buckets.put(name, blob);
+        return blob;
+    }
+
+    public @Nonnull FileTransfer download(@Nullable String bucket, @Nonnull String objectName, @Nonnull File toFile) throws CloudException, InternalException {
+        if( bucket == null ) {
+            throw new OperationNotSupportedException("Root objects are not supported");
+        }
+        Entry entry = require(bucket, objectName);
+        FileTransfer transfer = new FileTransfer();
+        long length = entry.content.length();
+
+        transfer.setBytesToTransfer(length);
+        try {
+            copy(entry.content, toFile);
+        }
+        catch( IOException e ) {
+            throw new InternalException(e);
+        }
+        transfer.setBytesTransferred(length);
+        transfer.completeWithResult(toFile);
+        return transfer;
+    }
+
+    public boolean exists(@Nonnull String bucket) {
+        return (getBucket(bucket) != null);
+    }
+
+    public @Nullable Blob getBucket(@Nonnull String bucket) {
+        Blob blob = buckets.get(bucket);
+
+        if( blob == null || !isOwner(bucket, getOwner()) || !blob.getProviderRegionId().equals(getRegionId()) ) {
+            return null;
+        }
+        return blob;
+    }
+
+    public @Nonnull NameRules getBucketNameRules() {
+        return NameRules.getInstance(3, 63, false, true, true, new char[] { '-', '.' });
+    }
+
+    public int getMaxBuckets() {
+        return 100;
+    }
+
+    public @Nonnull Storage<Byte> getMaxObjectSize() {
+        return new Storage<Byte>(MAX_OBJECT_SIZE, Storage.BYTE);
+    }
+
+    public int getMaxObjectsPerBucket() {
+        return -2;
+    }
+
+    public @Nullable Blob getObject(@Nullable String bucket, @Nonnull String objectName) throws CloudException {
+        if( bucket == null || getBucket(bucket) == null ) {
+            return null;
+        }
+        Entry entry = objects.get(bucket).get(objectName);
+
+        return (entry == null ? null : entry.blob);
+    }
+
+    public @Nonnull NameRules getObjectNameRules() {
+        return NameRules.getInstance(1, 1024, true, true, true, new char[] { '-', '.', '_', '/' });
+    }
+
+    public @Nullable Storage<Byte> getObjectSize(@Nullable String bucket, @Nullable String objectName) throws CloudException {
+        if( bucket == null || objectName == null ) {
+            return null;
+        }
+        Blob blob = getObject(bucket, objectName);
+
+        return (blob == null ? null : blob.getSize());
+    }
+
+    public @Nonnull String getProviderTermForBucket(@Nonnull Locale locale) {
+        return "bucket";
+    }
+
+    public @Nonnull String getProviderTermForObject(@Nonnull Locale locale) {
+        return "object";
+    }
+
+    public boolean isPublic(@Nullable String bucket, @Nullable String objectName) throws CloudException {
+        if( bucket == null ) {
+            return false;
+        }
+        require(bucket);
+        return isSharedWith(objectName == null ? bucket : bucket + "/" + objectName, PUBLIC);
+    }
+
+    public @Nonnull Iterable<Blob> list(@Nullable String bucket) throws CloudException {
+        ArrayList<Blob> list = new ArrayList<Blob>();
+
+        if( bucket == null ) {
+            for( String name : buckets.keySet() ) {
+                Blob blob = getBucket(name);
+
+                if( blob != null ) {
+                    list.add(blob);
+                }
+            }
+        }
+        else {
+            require(bucket);
+            for( Entry entry : objects.get(bucket).values() ) {
+                list.add(entry.blob);
+            }
+        }
+        return list;
+    }
+
+    public void makePublic(@Nonnull String bucket) throws CloudException {
+        require(bucket);
+        getSharing(bucket).add(PUBLIC);
+    }
+
+    public void makePublic(@Nullable String bucket, @Nonnull String objectName) throws CloudException {
+        if( bucket == null ) {
+            throw notFound("object", objectName);
+        }
+        require(bucket, objectName);
+        getSharing(bucket + "/" + objectName).add(PUBLIC);
+    }
+
+    public void move(@Nullable String fromBucket, @Nullable String objectName, @Nullable String toBucket) throws CloudException {
+        if( fromBucket == null || objectName == null || toBucket == null ) {
+            throw new CloudException(CloudErrorType.GENERAL, 400, "InvalidRequest", "Source bucket, object, and target bucket are required");
+        }
+        Entry entry = require(fromBucket, objectName);
+
+        require(toBucket);
+        if( fromBucket.equals(toBucket) ) {
+            return;
+        }
+        store(toBucket, objectName, entry.content);
+        objects.get(fromBucket).remove(objectName);
+    }
+
+    public void removeBucket(@Nonnull String bucket) throws CloudException {
+        require(bucket);
+        if( !objects.get(bucket).isEmpty() ) {
+            throw new CloudException(CloudErrorType.GENERAL, 409, "BucketNotEmpty", "Bucket " + bucket + " is not empty");
+        }
+        buckets.remove(bucket);
+        objects.remove(bucket);
+        setOwner(bucket, null);
+        removeSharing(bucket);
+    }
+
+    public void removeObject(@Nullable String bucket, @Nonnull String objectName) throws CloudException {
+        if( bucket == null ) {
+            throw notFound("object", objectName);
+        }
+        require(bucket, objectName);
+        discard(objects.get(bucket).remove(objectName));
+        removeSharing(bucket + "/" + objectName);
+    }
+
+    public @Nonnull String renameBucket(@Nonnull String oldName, @Nonnull String newName, boolean findFreeName) throws CloudException, InternalException {
+        require(oldName);
+        Blob blob = createBucket(newName, findFreeName);
+        Map<String,Entry> contents = objects.get(oldName);
+
+        for( Map.Entry<String,Entry> e : contents.entrySet() ) {
+            store(blob.getBucketName(), e.getKey(), e.getValue().content);
+        }
+        contents.clear();
+        removeBucket(oldName);
+        return blob.getBucketName();
+    }
+
+    public void renameObject(@Nullable String bucket, @Nonnull String oldName, @Nonnull String newName) throws CloudException {
+        if( bucket == null ) {
+            throw notFound("object", oldName);
+        }
+        Entry entry = require(bucket, oldName);
+
+        if( oldName.equals(newName) ) {
+            return;
+        }
+        store(bucket, newName, entry.content);
+        objects.get(bucket).remove(oldName);
+    }
+
+    public @Nonnull Blob upload(@Nonnull File sourceFile, @Nullable String bucket, @Nonnull String objectName) throws CloudException, InternalException {
+        if( bucket == null ) {
+            throw new OperationNotSupportedException("Root objects are not supported");
+        }
+        require(bucket);
+        if( sourceFile.length() > MAX_OBJECT_SIZE ) {
+            throw new CloudException(CloudErrorType.GENERAL, 400, "EntityTooLarge", "Object exceeds " + MAX_OBJECT_SIZE + " bytes");
+        }
+        File content = null;
+
+        try {
+            content = File.createTempFile("dsnsim", ".obj");
+            content.deleteOnExit();
+            copy(sourceFile, content);
+        }
+        catch( IOException e ) {
+            if( content != null ) {
+                //noinspection ResultOfMethodCallIgnored
+                content.delete();
+            }
+            throw new InternalException(e);
+        }
+        return store(bucket, objectName, content).blob;
+    }
+}
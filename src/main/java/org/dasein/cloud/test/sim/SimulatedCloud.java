@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudProvider;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.admin.AdminServices;
+import org.dasein.cloud.ci.CIServices;
+import org.dasein.cloud.compute.ComputeServices;
+import org.dasein.cloud.compute.MachineImageSupport;
+import org.dasein.cloud.compute.SnapshotSupport;
+import org.dasein.cloud.compute.VirtualMachineSupport;
+import org.dasein.cloud.compute.VolumeSupport;
+import org.dasein.cloud.dc.DataCenterServices;
+import org.dasein.cloud.identity.IdentityAndAccessSupport;
+import org.dasein.cloud.identity.IdentityServices;
+import org.dasein.cloud.identity.ShellKeySupport;
+import org.dasein.cloud.network.DNSSupport;
+import org.dasein.cloud.network.FirewallSupport;
+import org.dasein.cloud.network.IpAddressSupport;
+import org.dasein.cloud.network.LoadBalancerSupport;
+import org.dasein.cloud.network.NetworkServices;
+import org.dasein.cloud.network.VLANSupport;
+import org.dasein.cloud.platform.PlatformServices;
+import org.dasein.cloud.platform.RelationalDatabaseSupport;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.storage.StorageServices;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * An in-memory cloud for running the test suites offline. The simulated cloud implements data center, compute
+ * (virtual machines, images, volumes, and snapshots), network (firewalls, IP addresses, VLANs, load balancers, and
+ * DNS), identity, relational database, and blob storage services with the same state transitions a real cloud goes
+ * through, so the whole {@link org.dasein.cloud.test.GlobalTestSuite} runs in minutes without network access. This
+ * makes it possible to measure the overhead of the test harness itself and to benchmark changes to scheduling and
+ * waiting without the noise of a live cloud.
+ * <p>Select it with -DproviderClass=org.dasein.cloud.test.sim.SimulatedCloud. Any numeric account number works, and
+ * a secret key, if one is given, must be the one the run was started with (-DaccessPrivate). The regions are
+ * sim-east-1 and sim-west-1. See {@link Simulation} for control over latency, jitter, throttling, and
+ * transition times.</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class SimulatedCloud extends CloudProvider {
+    static public final String DEFAULT_ACCOUNT = "000000000000";
+
+    private ComputeServices    computeServices;
+    private DataCenterServices dataCenterServices;
+    private IdentityServices   identityServices;
+    private NetworkServices    networkServices;
+    private PlatformServices   platformServices;
+    private StorageServices    storageServices;
+
+    public SimulatedCloud() {
+        dataCenterServices = Simulation.getSupport(this, DataCenterServices.class, new SimulatedDataCenters(this));
+        computeServices = Simulation.getServices(ComputeServices.class,
+                Simulation.getSupport(this, VirtualMachineSupport.class, new SimulatedVirtualMachines(this)),
+                Simulation.getSupport(this, MachineImageSupport.class, new SimulatedImages(this)),
+                Simulation.getSupport(this, VolumeSupport.class, new SimulatedVolumes(this)),
+                Simulation.getSupport(this, SnapshotSupport.class, new SimulatedSnapshots(this)));
+        networkServices = Simulation.getServices(NetworkServices.class,
+                Simulation.getSupport(this, FirewallSupport.class, new SimulatedFirewalls(this)),
+                Simulation.getSupport(this, IpAddressSupport.class, new SimulatedIpAddresses(this)),
+                Simulation.getSupport(this, VLANSupport.class, new SimulatedVlans(this)),
+                Simulation.getSupport(this, LoadBalancerSupport.class, new SimulatedLoadBalancers(this)),
+                Simulation.getSupport(this, DNSSupport.class, new SimulatedDns(this)));
+        identityServices = Simulation.getServices(IdentityServices.class,
+                Simulation.getSupport(this, IdentityAndAccessSupport.class, new SimulatedIdentity(this)),
+                Simulation.getSupport(this, ShellKeySupport.class, new SimulatedShellKeys(this)));
+        platformServices = Simulation.getServices(PlatformServices.class,
+                Simulation.getSupport(this, RelationalDatabaseSupport.class, new SimulatedDatabases(this)));
+        storageServices = Simulation.getServices(StorageServices.class,
+                Simulation.getSupport(this, BlobStoreSupport.class, new SimulatedBlobStore(this)));
+    }
+
+    @Override
+    public @Nullable AdminServices getAdminServices() {
+        return null;
+    }
+
+    @Override
+    public @Nonnull String getCloudName() {
+        ProviderContext ctx = getContext();
+        String name = (ctx == null ? null : ctx.getCloudName());
+
+        return (name == null ? "Simulated Cloud" : name);
+    }
+
+    @Override
+    public @Nonnull DataCenterServices getDataCenterServices() {
+        return dataCenterServices;
+    }
+
+    @Override
+    public @Nullable CIServices getCIServices() {
+        return null;
+    }
+
+    @Override
+    public @Nonnull ComputeServices getComputeServices() {
+        return computeServices;
+    }
+
+    @Override
+    public @Nonnull IdentityServices getIdentityServices() {
+        return identityServices;
+    }
+
+    @Override
+    public @Nonnull NetworkServices getNetworkServices() {
+        return networkServices;
+    }
+
+    @Override
+    public @Nonnull PlatformServices getPlatformServices() {
+        return platformServices;
+    }
+
+    @Override
+    public @Nonnull String getProviderName() {
+        ProviderContext ctx = getContext();
+        String name = (ctx == null ? null : ctx.getProviderName());
+
+        return (name == null ? "Simulated" : name);
+    }
+
+    @Override
+    public synchronized @Nonnull StorageServices getStorageServices() {
+        return storageServices;
+    }
+
+    @Override
+    public @Nullable String testContext() {
+        ProviderContext ctx = getContext();
+
+        if( ctx == null ) {
+            return null;
+        }
+        String account = (ctx.getAccountNumber() == null ? DEFAULT_ACCOUNT : ctx.getAccountNumber());
+        String secret = System.getProperty("accessPrivate");
+
+        if( !account.matches("[0-9]+") ) {
+            return null;
+        }
+        if( ctx.getAccessPrivate() != null && (secret == null || !Arrays.equals(secret.getBytes(), ctx.getAccessPrivate())) ) {
+            return null;
+        }
+        return account;
+    }
+}
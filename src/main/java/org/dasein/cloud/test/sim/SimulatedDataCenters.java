@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.dc.DataCenter;
+import org.dasein.cloud.dc.Region;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Simulated data center services with two regions of two data centers each.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedDataCenters extends SimulatedSupport {
+    static public final String   REGION  = "sim-east-1";
+    static public final String[] REGIONS = { REGION, "sim-west-1" };
+
+    static @Nonnull String getDefaultDataCenterId(@Nonnull String regionId) {
+        return regionId + "a";
+    }
+
+    SimulatedDataCenters(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    public @Nullable DataCenter getDataCenter(@Nonnull String dataCenterId) {
+        for( String regionId : REGIONS ) {
+            for( DataCenter dc : listDataCenters(regionId) ) {
+                if( dc.getProviderDataCenterId().equals(dataCenterId) ) {
+                    return dc;
+                }
+            }
+        }
+        return null;
+    }
+
+    public @Nonnull String getProviderTermForDataCenter(@Nonnull Locale locale) {
+        return "zone";
+    }
+
+    public @Nonnull String getProviderTermForRegion(@Nonnull Locale locale) {
+        return "region";
+    }
+
+    public @Nullable Region getRegion(@Nonnull String regionId) {
+        for( Region region : listRegions() ) {
+            if( region.getProviderRegionId().equals(regionId) ) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    public @Nonnull Collection<DataCenter> listDataCenters(@Nonnull String regionId) {
+        ArrayList<DataCenter> dataCenters = new ArrayList<DataCenter>();
+
+        for( String id : REGIONS ) {
+            if( id.equals(regionId) ) {
+                dataCenters.add(new DataCenter(regionId + "a", regionId + "a", regionId, true, true));
+                dataCenters.add(new DataCenter(regionId + "b", regionId + "b", regionId, true, true));
+            }
+        }
+        return dataCenters;
+    }
+
+    public @Nonnull Collection<Region> listRegions() {
+        ArrayList<Region> regions = new ArrayList<Region>();
+
+        for( String id : REGIONS ) {
+            Region region = new Region(id, id, true, true);
+
+            region.setJurisdiction("US");
+            regions.add(region);
+        }
+        return regions;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.platform.Database;
+import org.dasein.cloud.platform.DatabaseEngine;
+import org.dasein.cloud.platform.DatabaseProduct;
+import org.dasein.cloud.platform.DatabaseState;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated relational database support offering MySQL only. Databases are created in the pending state and become
+ * available after the Database transition time.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedDatabases extends SimulatedSupport {
+    static private final String TYPE = "Database";
+
+    static private final ConcurrentHashMap<String,Database> databases = new ConcurrentHashMap<String, Database>();
+
+    static private @Nonnull DatabaseProduct product(@Nonnull String size, @Nonnull String name, int storageInGb, float rate) {
+        DatabaseProduct product = new DatabaseProduct(size, name);
+
+        product.setEngine(DatabaseEngine.MYSQL);
+        product.setStorageInGigabytes(storageInGb);
+        product.setStandardHourlyRate(rate);
+        product.setCurrency("USD");
+        return product;
+    }
+
+    SimulatedDatabases(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    public @Nonnull String createFromScratch(@Nonnull String dataSourceName, @Nonnull DatabaseProduct product, @Nullable String databaseVersion, @Nonnull String withAdminUser, @Nonnull String withAdminPassword, int hostPort) throws CloudException {
+        if( product.getEngine() != null && !DatabaseEngine.MYSQL.equals(product.getEngine()) ) {
+            throw new CloudException(CloudErrorType.GENERAL, 400, "InvalidParameterValue", "Unsupported engine: " + product.getEngine());
+        }
+        for( Database db : listDatabases() ) {
+            if( db.getName().equals(dataSourceName) ) {
+                throw new CloudException(CloudErrorType.GENERAL, 409, "DBInstanceAlreadyExists", "Database " + dataSourceName + " already exists");
+            }
+        }
+        Database db = new Database();
+        String databaseId = dataSourceName;
+
+        db.setProviderDatabaseId(databaseId);
+        db.setName(dataSourceName);
+        db.setAdminUser(withAdminUser);
+        db.setAllocatedStorageInGb(product.getStorageInGigabytes());
+        db.setCreationTimestamp(System.currentTimeMillis());
+        db.setCurrentState(DatabaseState.PENDING);
+        db.setEngine(DatabaseEngine.MYSQL);
+        db.setHostName(databaseId + "." + getRegionId() + ".db.sim.example.com");
+        db.setHostPort(hostPort < 1 ? 3306 : hostPort);
+        db.setProductSize(product.getProductSize());
+        db.setProviderOwnerId(getOwner());
+        db.setProviderRegionId(getRegionId());
+        db.setProviderDataCenterId(getDataCenterId(product.getProviderDataCenterId()));
+        databases.put(databaseId, db);
+        transition(TYPE, databaseId, DatabaseState.AVAILABLE);
+        return databaseId;
+    }
+
+    public @Nullable Database getDatabase(@Nonnull String providerDatabaseId) {
+        Database db = databases.get(providerDatabaseId);
+
+        if( db == null || !db.getProviderOwnerId().equals(getOwner()) || !db.getProviderRegionId().equals(getRegionId()) ) {
+            return null;
+        }
+        db.setCurrentState(settle(providerDatabaseId, db.getCurrentState()));
+        return db;
+    }
+
+    public @Nonnull Iterable<DatabaseEngine> getDatabaseEngines() {
+        return Collections.singletonList(DatabaseEngine.MYSQL);
+    }
+
+    public @Nonnull Iterable<DatabaseProduct> getDatabaseProducts(@Nonnull DatabaseEngine forEngine) {
+        ArrayList<DatabaseProduct> products = new ArrayList<DatabaseProduct>();
+
+        if( DatabaseEngine.MYSQL.equals(forEngine) ) {
+            products.add(product("sim.db.small", "Simulated Small Database", 5, 0.05f));
+            products.add(product("sim.db.large", "Simulated Large Database", 50, 0.4f));
+        }
+        return products;
+    }
+
+    public @Nullable String getDefaultVersion(@Nonnull DatabaseEngine forEngine) {
+        return (DatabaseEngine.MYSQL.equals(forEngine) ? "5.5" : null);
+    }
+
+    public @Nonnull String getProviderTermForDatabase(@Nonnull Locale locale) {
+        return "database instance";
+    }
+
+    public @Nonnull String getProviderTermForSnapshot(@Nonnull Locale locale) {
+        return "database snapshot";
+    }
+
+    public @Nonnull Iterable<String> getSupportedVersions(@Nonnull DatabaseEngine forEngine) {
+        if( DatabaseEngine.MYSQL.equals(forEngine) ) {
+            ArrayList<String> versions = new ArrayList<String>();
+
+            versions.add("5.1");
+            versions.add("5.5");
+            return versions;
+        }
+        return Collections.emptyList();
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listDatabaseStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( Database db : listDatabases() ) {
+            status.add(new ResourceStatus(db.getProviderDatabaseId(), db.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<Database> listDatabases() {
+        ArrayList<Database> list = new ArrayList<Database>();
+
+        for( String databaseId : databases.keySet() ) {
+            Database db = getDatabase(databaseId);
+
+            if( db != null ) {
+                list.add(db);
+            }
+        }
+        return list;
+    }
+
+    public void removeDatabase(@Nonnull String providerDatabaseId) throws CloudException {
+        Database db = getDatabase(providerDatabaseId);
+
+        if( db == null ) {
+            throw notFound(TYPE, providerDatabaseId);
+        }
+        db.setCurrentState(DatabaseState.DELETING);
+        transition(TYPE, providerDatabaseId, DatabaseState.DELETED);
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.network.DNSRecord;
+import org.dasein.cloud.network.DNSRecordType;
+import org.dasein.cloud.network.DNSZone;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Simulated DNS support with zones and records that take effect immediately. As with a real hosted zone, a new zone
+ * starts out with an NS record for its name servers.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedDns extends SimulatedSupport {
+    static private final ConcurrentHashMap<String,List<DNSRecord>> records = new ConcurrentHashMap<String, List<DNSRecord>>();
+    static private final ConcurrentHashMap<String,DNSZone>         zones   = new ConcurrentHashMap<String, DNSZone>();
+
+    SimulatedDns(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull DNSZone require(@Nonnull String zoneId) throws CloudException {
+        DNSZone zone = getDnsZone(zoneId);
+
+        if( zone == null ) {
+            throw notFound("DNS zone", zoneId);
+        }
+        return zone;
+    }
+
+    public @Nonnull DNSRecord addDnsRecord(@Nonnull String zoneId, @Nonnull DNSRecordType type, @Nonnull String name, int ttl, @Nonnull String ... values) throws CloudException {
+        DNSZone zone = require(zoneId);
+        DNSRecord record = new DNSRecord();
+
+        record.setProviderZoneId(zoneId);
+        record.setType(type);
+        record.setName(name.endsWith(".") || name.endsWith(zone.getDomainName()) ? name : name + "." + zone.getDomainName());
+        record.setTtl(ttl);
+        record.setValues(values);
+        records.get(zoneId).add(record);
+        return record;
+    }
+
+    public @Nonnull String createDnsZone(@Nonnull String domainName, @Nonnull String name, @Nonnull String description) throws CloudException {
+        DNSZone zone = new DNSZone();
+        String zoneId = newId("zone");
+
+        zone.setProviderDnsZoneId(zoneId);
+        zone.setProviderOwnerId(getOwner());
+        zone.setDomainName(domainName);
+        zone.setName(name);
+        zone.setDescription(description);
+        zone.setNameservers(new String[] { "ns1.sim.example.com", "ns2.sim.example.com" });
+        records.put(zoneId, new CopyOnWriteArrayList<DNSRecord>());
+        zones.put(zoneId, zone);
+        addDnsRecord(zoneId, DNSRecordType.NS, domainName, 172800, zone.getNameservers());
+        return zoneId;
+    }
+
+    public void deleteDnsRecords(@Nonnull DNSRecord ... dnsRecords) throws CloudException {
+        for( DNSRecord record : dnsRecords ) {
+            require(record.getProviderZoneId());
+            for( DNSRecord r : records.get(record.getProviderZoneId()) ) {
+                if( r.getType().equals(record.getType()) && r.getName().equals(record.getName()) ) {
+                    records.get(record.getProviderZoneId()).remove(r);
+                }
+            }
+        }
+    }
+
+    public void deleteDnsZone(@Nonnull String zoneId) throws CloudException {
+        require(zoneId);
+        zones.remove(zoneId);
+        records.remove(zoneId);
+    }
+
+    public @Nullable DNSZone getDnsZone(@Nonnull String zoneId) {
+        DNSZone zone = zones.get(zoneId);
+
+        if( zone == null || !zone.getProviderOwnerId().equals(getOwner()) ) {
+            return null;
+        }
+        return zone;
+    }
+
+    public @Nonnull String getProviderTermForRecord(@Nonnull Locale locale) {
+        return "record";
+    }
+
+    public @Nonnull String getProviderTermForZone(@Nonnull Locale locale) {
+        return "hosted zone";
+    }
+
+    public @Nonnull Iterable<DNSRecord> listDnsRecords(@Nonnull String zoneId, @Nullable DNSRecordType type, @Nullable String name) throws CloudException {
+        ArrayList<DNSRecord> list = new ArrayList<DNSRecord>();
+
+        require(zoneId);
+        for( DNSRecord record : records.get(zoneId) ) {
+            if( (type == null || type.equals(record.getType())) && (name == null || name.equals(record.getName())) ) {
+                list.add(record);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listDnsZoneStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( DNSZone zone : listDnsZones() ) {
+            status.add(new ResourceStatus(zone.getProviderDnsZoneId(), true));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<DNSZone> listDnsZones() {
+        ArrayList<DNSZone> list = new ArrayList<DNSZone>();
+
+        for( String zoneId : zones.keySet() ) {
+            DNSZone zone = getDnsZone(zoneId);
+
+            if( zone != null ) {
+                list.add(zone);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.Tag;
+import org.dasein.cloud.network.Direction;
+import org.dasein.cloud.network.Firewall;
+import org.dasein.cloud.network.FirewallCreateOptions;
+import org.dasein.cloud.network.FirewallRule;
+import org.dasein.cloud.network.Permission;
+import org.dasein.cloud.network.Protocol;
+import org.dasein.cloud.network.RuleTarget;
+import org.dasein.cloud.network.RuleTargetType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated firewall support for allow rules in either direction with CIDR sources. Every VLAN has a default firewall
+ * named "default" that is created and removed along with the VLAN.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedFirewalls extends SimulatedSupport {
+    static final String DEFAULT = "default";
+
+    static private final String TYPE = "Firewall";
+
+    static private final ConcurrentHashMap<String,Firewall>                 firewalls = new ConcurrentHashMap<String, Firewall>();
+    static private final ConcurrentHashMap<String,Map<String,FirewallRule>> rules     = new ConcurrentHashMap<String, Map<String, FirewallRule>>();
+
+    static void removeDefault(@Nonnull String vlanId) {
+        for( Firewall firewall : firewalls.values() ) {
+            if( vlanId.equals(firewall.getProviderVlanId()) && DEFAULT.equals(firewall.getName()) ) {
+                firewalls.remove(firewall.getProviderFirewallId());
+                rules.remove(firewall.getProviderFirewallId());
+                setOwner(firewall.getProviderFirewallId(), null);
+            }
+        }
+    }
+
+    SimulatedFirewalls(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull Firewall require(@Nonnull String firewallId) throws CloudException {
+        Firewall firewall = getFirewall(firewallId);
+
+        if( firewall == null ) {
+            throw notFound(TYPE, firewallId);
+        }
+        return firewall;
+    }
+
+    public @Nonnull String authorize(@Nonnull String firewallId, @Nonnull String cidr, @Nonnull Protocol protocol, int beginPort, int endPort) throws CloudException {
+        return authorize(firewallId, Direction.INGRESS, Permission.ALLOW, cidr, protocol, beginPort, endPort);
+    }
+
+    public @Nonnull String authorize(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull String cidr, @Nonnull Protocol protocol, int beginPort, int endPort) throws CloudException {
+        return authorize(firewallId, direction, Permission.ALLOW, cidr, protocol, beginPort, endPort);
+    }
+
+    public @Nonnull String authorize(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull Permission permission, @Nonnull String cidr, @Nonnull Protocol protocol, int beginPort, int endPort) throws CloudException {
+        return authorize(firewallId, direction, permission, cidr, protocol, RuleTarget.getGlobal(firewallId), beginPort, endPort);
+    }
+
+    public @Nonnull String authorize(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull Permission permission, @Nonnull String cidr, @Nonnull Protocol protocol, @Nonnull RuleTarget target, int beginPort, int endPort) throws CloudException {
+        if( Direction.INGRESS.equals(direction) ) {
+            return authorize(firewallId, direction, permission, RuleTarget.getCIDR(cidr), protocol, target, beginPort, endPort, 0);
+        }
+        return authorize(firewallId, direction, permission, target, protocol, RuleTarget.getCIDR(cidr), beginPort, endPort, 0);
+    }
+
+    public @Nonnull String authorize(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull Permission permission, @Nonnull RuleTarget source, @Nonnull Protocol protocol, @Nonnull RuleTarget destination, int beginPort, int endPort, int precedence) throws CloudException {
+        require(firewallId);
+        String ruleId = FirewallRule.getRuleId(firewallId, source, direction, protocol, permission, destination, beginPort, endPort);
+        Map<String,FirewallRule> list = rules.get(firewallId);
+
+        synchronized( list ) {
+            if( list.containsKey(ruleId) ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "DuplicateRule", "The rule " + ruleId + " already exists");
+            }
+            list.put(ruleId, FirewallRule.getInstance(ruleId, firewallId, source, direction, protocol, permission, destination, beginPort, endPort));
+        }
+        return ruleId;
+    }
+
+    public @Nonnull String create(@Nonnull String name, @Nonnull String description) throws CloudException {
+        return create(FirewallCreateOptions.getInstance(name, description));
+    }
+
+    public @Nonnull String create(@Nonnull FirewallCreateOptions options) throws CloudException {
+        if( options.getProviderVlanId() != null && SimulatedVlans.find(options.getProviderVlanId()) == null ) {
+            throw notFound("VLAN", options.getProviderVlanId());
+        }
+        Firewall firewall = new Firewall();
+        String firewallId = newId("sg");
+
+        firewall.setProviderFirewallId(firewallId);
+        firewall.setName(options.getName());
+        firewall.setDescription(options.getDescription());
+        firewall.setRegionId(getRegionId());
+        firewall.setProviderVlanId(options.getProviderVlanId());
+        firewall.setActive(true);
+        firewall.setAvailable(true);
+        if( options.getMetaData() != null ) {
+            for( Map.Entry<String,String> entry : options.getMetaData().entrySet() ) {
+                firewall.setTag(entry.getKey(), entry.getValue());
+            }
+        }
+        setOwner(firewallId, getOwner());
+        rules.put(firewallId, new ConcurrentHashMap<String, FirewallRule>());
+        firewalls.put(firewallId, firewall);
+        return firewallId;
+    }
+
+    public @Nonnull String createInVLAN(@Nonnull String name, @Nonnull String description, @Nonnull String vlanId) throws CloudException {
+        return create(FirewallCreateOptions.getInstance(vlanId, name, description));
+    }
+
+    public void delete(@Nonnull String firewallId) throws CloudException {
+        require(firewallId);
+        firewalls.remove(firewallId);
+        rules.remove(firewallId);
+        setOwner(firewallId, null);
+    }
+
+    public @Nullable Firewall getFirewall(@Nonnull String firewallId) {
+        Firewall firewall = firewalls.get(firewallId);
+
+        if( firewall == null || !isOwner(firewallId, getOwner()) || !getRegionId().equals(firewall.getRegionId()) ) {
+            return null;
+        }
+        return firewall;
+    }
+
+    public @Nonnull String getProviderTermForFirewall(@Nonnull Locale locale) {
+        return "security group";
+    }
+
+    public @Nonnull Collection<FirewallRule> getRules(@Nonnull String firewallId) throws CloudException {
+        require(firewallId);
+        return new ArrayList<FirewallRule>(rules.get(firewallId).values());
+    }
+
+    public @Nonnull Collection<Firewall> list() {
+        ArrayList<Firewall> list = new ArrayList<Firewall>();
+
+        for( String firewallId : firewalls.keySet() ) {
+            Firewall firewall = getFirewall(firewallId);
+
+            if( firewall != null ) {
+                list.add(firewall);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listFirewallStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( Firewall firewall : list() ) {
+            status.add(new ResourceStatus(firewall.getProviderFirewallId(), true));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<RuleTargetType> listSupportedDestinationTypes(boolean inVlan) {
+        return Arrays.asList(RuleTargetType.GLOBAL, RuleTargetType.CIDR);
+    }
+
+    public @Nonnull Iterable<Direction> listSupportedDirections(boolean inVlan) {
+        return (inVlan ? Arrays.asList(Direction.INGRESS, Direction.EGRESS) : Collections.singletonList(Direction.INGRESS));
+    }
+
+    public @Nonnull Iterable<Permission> listSupportedPermissions(boolean inVlan) {
+        return Collections.singletonList(Permission.ALLOW);
+    }
+
+    public @Nonnull Iterable<RuleTargetType> listSupportedSourceTypes(boolean inVlan) {
+        return Arrays.asList(RuleTargetType.CIDR, RuleTargetType.GLOBAL);
+    }
+
+    public void revoke(@Nonnull String ruleId) throws CloudException {
+        for( Map<String,FirewallRule> list : rules.values() ) {
+            if( list.remove(ruleId) != null ) {
+                return;
+            }
+        }
+        throw notFound("firewall rule", ruleId);
+    }
+
+    public void revoke(@Nonnull String firewallId, @Nonnull String cidr, @Nonnull Protocol protocol, int beginPort, int endPort) throws CloudException {
+        revoke(firewallId, Direction.INGRESS, Permission.ALLOW, cidr, protocol, beginPort, endPort);
+    }
+
+    public void revoke(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull String cidr, @Nonnull Protocol protocol, int beginPort, int endPort) throws CloudException {
+        revoke(firewallId, direction, Permission.ALLOW, cidr, protocol, beginPort, endPort);
+    }
+
+    public void revoke(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull Permission permission, @Nonnull String cidr, @Nonnull Protocol protocol, int beginPort, int endPort) throws CloudException {
+        revoke(firewallId, direction, permission, cidr, protocol, RuleTarget.getGlobal(firewallId), beginPort, endPort);
+    }
+
+    public void revoke(@Nonnull String firewallId, @Nonnull Direction direction, @Nonnull Permission permission, @Nonnull String cidr, @Nonnull Protocol protocol, @Nonnull RuleTarget target, int beginPort, int endPort) throws CloudException {
+        require(firewallId);
+        String ruleId;
+
+        if( Direction.INGRESS.equals(direction) ) {
+            ruleId = FirewallRule.getRuleId(firewallId, RuleTarget.getCIDR(cidr), direction, protocol, permission, target, beginPort, endPort);
+        }
+        else {
+            ruleId = FirewallRule.getRuleId(firewallId, target, direction, protocol, permission, RuleTarget.getCIDR(cidr), beginPort, endPort);
+        }
+        rules.get(firewallId).remove(ruleId);
+    }
+
+    public boolean supportsRules(@Nonnull Direction direction, @Nonnull Permission permission, boolean inVlan) {
+        return Permission.ALLOW.equals(permission) && (inVlan || Direction.INGRESS.equals(direction));
+    }
+
+    public boolean supportsFirewallCreation(boolean inVlan) {
+        return true;
+    }
+
+    public void updateTags(@Nonnull String firewallId, @Nonnull Tag ... tags) throws CloudException {
+        updateTags(require(firewallId).getTags(), tags);
+    }
+
+    public void updateTags(@Nonnull String[] firewallIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String firewallId : firewallIds ) {
+            updateTags(firewallId, tags);
+        }
+    }
+
+    public void removeTags(@Nonnull String firewallId, @Nonnull Tag ... tags) throws CloudException {
+        removeTags(require(firewallId).getTags(), tags);
+    }
+
+    public void removeTags(@Nonnull String[] firewallIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String firewallId : firewallIds ) {
+            removeTags(firewallId, tags);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.identity.CloudGroup;
+import org.dasein.cloud.identity.CloudPermission;
+import org.dasein.cloud.identity.CloudPolicy;
+import org.dasein.cloud.identity.CloudUser;
+import org.dasein.cloud.identity.ServiceAction;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated identity and access management with users, groups, group membership, and user and group policies.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedIdentity extends SimulatedSupport {
+    static private final ConcurrentHashMap<String,CloudGroup>              groups   = new ConcurrentHashMap<String, CloudGroup>();
+    static private final ConcurrentHashMap<String,Set<String>>             members  = new ConcurrentHashMap<String, Set<String>>();
+    static private final ConcurrentHashMap<String,Map<String,CloudPolicy>> policies = new ConcurrentHashMap<String, Map<String, CloudPolicy>>();
+    static private final ConcurrentHashMap<String,CloudUser>               users    = new ConcurrentHashMap<String, CloudUser>();
+
+    SimulatedIdentity(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull CloudGroup requireGroup(@Nonnull String groupId) throws CloudException {
+        CloudGroup group = getGroup(groupId);
+
+        if( group == null ) {
+            throw notFound("group", groupId);
+        }
+        return group;
+    }
+
+    private @Nonnull CloudUser requireUser(@Nonnull String userId) throws CloudException {
+        CloudUser user = getUser(userId);
+
+        if( user == null ) {
+            throw notFound("user", userId);
+        }
+        return user;
+    }
+
+    private @Nonnull String[] savePolicy(@Nonnull String id, @Nonnull String name, @Nonnull CloudPermission permission, @Nullable ServiceAction action, @Nullable String resourceId) {
+        Map<String,CloudPolicy> list = policies.get(id);
+        String policyId = newId("policy");
+
+        // policies are removed by ID, but saving a policy under an existing name replaces it
+        for( CloudPolicy policy : list.values() ) {
+            if( policy.getName().equals(name) ) {
+                list.remove(policy.getProviderPolicyId());
+            }
+        }
+        list.put(policyId, CloudPolicy.getInstance(policyId, name, permission, action, resourceId));
+        return new String[] { policyId };
+    }
+
+    public void addUserToGroups(@Nonnull String userId, @Nonnull String ... groupIds) throws CloudException {
+        requireUser(userId);
+        for( String groupId : groupIds ) {
+            requireGroup(groupId);
+            members.get(groupId).add(userId);
+        }
+    }
+
+    public @Nonnull CloudGroup createGroup(@Nonnull String groupName, @Nullable String path, boolean asAdminGroup) throws CloudException {
+        for( CloudGroup group : listGroups(null) ) {
+            if( group.getName().equals(groupName) ) {
+                throw new CloudException(CloudErrorType.GENERAL, 409, "EntityAlreadyExists", "Group " + groupName + " already exists");
+            }
+        }
+        CloudGroup group = new CloudGroup();
+        String groupId = newId("group");
+
+        group.setProviderGroupId(groupId);
+        group.setProviderOwnerId(getOwner());
+        group.setName(groupName);
+        group.setPath(path == null ? "/" : path);
+        members.put(groupId, Collections.synchronizedSet(new TreeSet<String>()));
+        policies.put(groupId, new ConcurrentHashMap<String, CloudPolicy>());
+        groups.put(groupId, group);
+        if( asAdminGroup ) {
+            saveGroupPolicy(groupId, "admin", CloudPermission.ALLOW, null, null);
+        }
+        return group;
+    }
+
+    public @Nonnull CloudUser createUser(@Nonnull String userName, @Nullable String path, @Nullable String ... groupIds) throws CloudException {
+        for( CloudUser user : listUsersInPath(null) ) {
+            if( user.getUserName().equals(userName) ) {
+                throw new CloudException(CloudErrorType.GENERAL, 409, "EntityAlreadyExists", "User " + userName + " already exists");
+            }
+        }
+        CloudUser user = new CloudUser();
+        String userId = newId("user");
+
+        user.setProviderUserId(userId);
+        user.setProviderOwnerId(getOwner());
+        user.setUserName(userName);
+        user.setPath(path == null ? "/" : path);
+        policies.put(userId, new ConcurrentHashMap<String, CloudPolicy>());
+        users.put(userId, user);
+        if( groupIds != null ) {
+            for( String groupId : groupIds ) {
+                // callers with no preferred group pass a null group
+                if( groupId != null ) {
+                    addUserToGroups(userId, groupId);
+                }
+            }
+        }
+        return user;
+    }
+
+    public @Nullable CloudGroup getGroup(@Nonnull String groupId) {
+        CloudGroup group = groups.get(groupId);
+
+        return (group == null || !group.getProviderOwnerId().equals(getOwner()) ? null : group);
+    }
+
+    public @Nullable CloudUser getUser(@Nonnull String userId) {
+        CloudUser user = users.get(userId);
+
+        return (user == null || !user.getProviderOwnerId().equals(getOwner()) ? null : user);
+    }
+
+    public @Nonnull Iterable<CloudGroup> listGroups(@Nullable String pathBase) {
+        ArrayList<CloudGroup> list = new ArrayList<CloudGroup>();
+
+        for( String groupId : groups.keySet() ) {
+            CloudGroup group = getGroup(groupId);
+
+            if( group != null && (pathBase == null || group.getPath().startsWith(pathBase)) ) {
+                list.add(group);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<CloudGroup> listGroupsForUser(@Nonnull String userId) throws CloudException {
+        ArrayList<CloudGroup> list = new ArrayList<CloudGroup>();
+
+        requireUser(userId);
+        for( CloudGroup group : listGroups(null) ) {
+            if( members.get(group.getProviderGroupId()).contains(userId) ) {
+                list.add(group);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<CloudPolicy> listPoliciesForGroup(@Nonnull String groupId) throws CloudException {
+        requireGroup(groupId);
+        return new ArrayList<CloudPolicy>(policies.get(groupId).values());
+    }
+
+    public @Nonnull Iterable<CloudPolicy> listPoliciesForUser(@Nonnull String userId) throws CloudException {
+        requireUser(userId);
+        return new ArrayList<CloudPolicy>(policies.get(userId).values());
+    }
+
+    public @Nonnull Iterable<CloudUser> listUsersInGroup(@Nonnull String groupId) throws CloudException {
+        ArrayList<CloudUser> list = new ArrayList<CloudUser>();
+
+        requireGroup(groupId);
+        for( String userId : new ArrayList<String>(members.get(groupId)) ) {
+            CloudUser user = getUser(userId);
+
+            if( user != null ) {
+                list.add(user);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<CloudUser> listUsersInPath(@Nullable String pathBase) {
+        ArrayList<CloudUser> list = new ArrayList<CloudUser>();
+
+        for( String userId : users.keySet() ) {
+            CloudUser user = getUser(userId);
+
+            if( user != null && (pathBase == null || user.getPath().startsWith(pathBase)) ) {
+                list.add(user);
+            }
+        }
+        return list;
+    }
+
+    public void removeGroup(@Nonnull String groupId) throws CloudException {
+        requireGroup(groupId);
+        groups.remove(groupId);
+        members.remove(groupId);
+        policies.remove(groupId);
+    }
+
+    public void removeGroupPolicy(@Nonnull String groupId, @Nonnull String policyId) throws CloudException {
+        requireGroup(groupId);
+        policies.get(groupId).remove(policyId);
+    }
+
+    public void removeUser(@Nonnull String userId) throws CloudException {
+        requireUser(userId);
+        for( Set<String> s : members.values() ) {
+            s.remove(userId);
+        }
+        users.remove(userId);
+        policies.remove(userId);
+    }
+
+    public void removeUserFromGroup(@Nonnull String userId, @Nonnull String groupId) throws CloudException {
+        requireUser(userId);
+        requireGroup(groupId);
+        members.get(groupId).remove(userId);
+    }
+
+    public void removeUserPolicy(@Nonnull String userId, @Nonnull String policyId) throws CloudException {
+        requireUser(userId);
+        policies.get(userId).remove(policyId);
+    }
+
+    public void saveGroup(@Nonnull String groupId, @Nullable String newGroupName, @Nullable String newPath) throws CloudException {
+        CloudGroup group = requireGroup(groupId);
+
+        if( newGroupName != null ) {
+            group.setName(newGroupName);
+        }
+        if( newPath != null ) {
+            group.setPath(newPath);
+        }
+    }
+
+    public @Nonnull String[] saveGroupPolicy(@Nonnull String groupId, @Nonnull String name, @Nonnull CloudPermission permission, @Nullable ServiceAction action, @Nullable String resourceId) throws CloudException {
+        requireGroup(groupId);
+        return savePolicy(groupId, name, permission, action, resourceId);
+    }
+
+    public @Nonnull String[] saveUserPolicy(@Nonnull String userId, @Nonnull String name, @Nonnull CloudPermission permission, @Nullable ServiceAction action, @Nullable String resourceId) throws CloudException {
+        requireUser(userId);
+        return savePolicy(userId, name, permission, action, resourceId);
+    }
+
+    public void saveUser(@Nonnull String userId, @Nullable String newUserName, @Nullable String newPath) throws CloudException {
+        CloudUser user = requireUser(userId);
+
+        if( newUserName != null ) {
+            user.setUserName(newUserName);
+        }
+        if( newPath != null ) {
+            user.setPath(newPath);
+        }
+    }
+
+    public boolean supportsAccessControls() {
+        return true;
+    }
+}
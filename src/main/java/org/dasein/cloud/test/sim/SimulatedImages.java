@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.AsynchronousTask;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.Tag;
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.ImageCreateOptions;
+import org.dasein.cloud.compute.ImageFilterOptions;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.MachineImageState;
+import org.dasein.cloud.compute.MachineImageType;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.cloud.compute.VirtualMachine;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated machine image support with a public library of Ubuntu, CentOS, and Windows images in each region. Captured
+ * images start out pending and become active after the transition time for MachineImage.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedImages extends SimulatedSupport {
+    static private final String TYPE         = "MachineImage";
+    static private final String PUBLIC_OWNER = "simulated";
+
+    static private final ConcurrentHashMap<String,MachineImage> images = new ConcurrentHashMap<String, MachineImage>();
+
+    static {
+        for( String regionId : SimulatedDataCenters.REGIONS ) {
+            library(regionId, "ubuntu-64", "Ubuntu 12.04 64-bit", Architecture.I64, Platform.UBUNTU);
+            library(regionId, "ubuntu-32", "Ubuntu 12.04 32-bit", Architecture.I32, Platform.UBUNTU);
+            library(regionId, "centos-64", "CentOS 6.4 64-bit", Architecture.I64, Platform.CENT_OS);
+            library(regionId, "windows-64", "Windows Server 2012 64-bit", Architecture.I64, Platform.WINDOWS);
+        }
+    }
+
+    static private void library(@Nonnull String regionId, @Nonnull String name, @Nonnull String description, @Nonnull Architecture architecture, @Nonnull Platform platform) {
+        String imageId = "img-" + name + "-" + regionId;
+        MachineImage image = MachineImage.getImageInstance(PUBLIC_OWNER, regionId, imageId, ImageClass.MACHINE, MachineImageState.ACTIVE, name, description, architecture, platform);
+
+        image.setSoftware("");
+        image.setType(MachineImageType.VOLUME);
+        image.setCreationTimestamp(System.currentTimeMillis());
+        images.put(imageId, image);
+        getSharing(imageId).add(PUBLIC);
+    }
+
+    static @Nullable MachineImage find(@Nullable String imageId) {
+        MachineImage image = (imageId == null ? null : images.get(imageId));
+
+        if( image != null ) {
+            image.setCurrentState(settle(imageId, image.getCurrentState()));
+        }
+        return image;
+    }
+
+    SimulatedImages(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private boolean isVisible(@Nonnull MachineImage image) {
+        return image.getProviderOwnerId().equals(getOwner()) || isSharedWith(image.getProviderMachineImageId(), getOwner());
+    }
+
+    private @Nonnull MachineImage require(@Nonnull String imageId) throws CloudException {
+        MachineImage image = find(imageId);
+
+        if( image == null || !image.getProviderOwnerId().equals(getOwner()) ) {
+            throw notFound(TYPE, imageId);
+        }
+        return image;
+    }
+
+    private @Nonnull Set<String> getShares(@Nonnull String imageId) throws CloudException {
+        return getSharing(require(imageId).getProviderMachineImageId());
+    }
+
+    public void addImageShare(@Nonnull String imageId, @Nonnull String accountNumber) throws CloudException {
+        getShares(imageId).add(accountNumber);
+    }
+
+    public void addPublicShare(@Nonnull String imageId) throws CloudException {
+        getShares(imageId).add(PUBLIC);
+    }
+
+    public @Nonnull MachineImage captureImage(@Nonnull ImageCreateOptions options) throws CloudException {
+        VirtualMachine vm = SimulatedVirtualMachines.find(options.getVirtualMachineId());
+
+        if( vm == null || !vm.getProviderOwnerId().equals(getOwner()) ) {
+            throw notFound("virtual machine", options.getVirtualMachineId());
+        }
+        String imageId = newId("img");
+        MachineImage image = MachineImage.getImageInstance(getOwner(), getRegionId(), imageId, ImageClass.MACHINE, MachineImageState.PENDING, options.getName(), options.getDescription(), vm.getArchitecture(), vm.getPlatform());
+
+        image.setSoftware(options.getBundledSoftware() == null ? "" : options.getBundledSoftware());
+        image.setType(MachineImageType.VOLUME);
+        image.setCreationTimestamp(System.currentTimeMillis());
+        images.put(imageId, image);
+        transition(TYPE, imageId, MachineImageState.ACTIVE);
+        return image;
+    }
+
+    public void captureImageAsync(@Nonnull final ImageCreateOptions options, @Nonnull final AsynchronousTask<MachineImage> task) {
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    task.completeWithResult(captureImage(options));
+                }
+                catch( Throwable t ) {
+                    task.complete(t);
+                }
+            }
+        };
+
+        thread.setName("Simulated image capture of " + options.getVirtualMachineId());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public @Nullable MachineImage getImage(@Nonnull String imageId) {
+        MachineImage image = find(imageId);
+
+        if( image == null || !image.getProviderRegionId().equals(getRegionId()) || !isVisible(image) ) {
+            return null;
+        }
+        return image;
+    }
+
+    public @Nullable MachineImage getMachineImage(@Nonnull String imageId) {
+        return getImage(imageId);
+    }
+
+    public @Nonnull String getProviderTermForImage(@Nonnull Locale locale) {
+        return "image";
+    }
+
+    public @Nonnull String getProviderTermForImage(@Nonnull Locale locale, @Nonnull ImageClass cls) {
+        return "image";
+    }
+
+    public @Nonnull String getProviderTermForCustomImage(@Nonnull Locale locale, @Nonnull ImageClass cls) {
+        return "image";
+    }
+
+    public boolean hasPublicLibrary() {
+        return true;
+    }
+
+    public boolean isImageSharedWithPublic(@Nonnull String imageId) throws CloudException {
+        MachineImage image = find(imageId);
+
+        // anyone who can see an image may ask whether it is public, including for the public library
+        if( image == null || !isVisible(image) ) {
+            throw notFound(TYPE, imageId);
+        }
+        return getSharing(imageId).contains(PUBLIC);
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listImageStatus(@Nonnull ImageClass cls) {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( MachineImage image : listImages(cls) ) {
+            status.add(new ResourceStatus(image.getProviderMachineImageId(), image.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<MachineImage> listImages(@Nullable ImageFilterOptions options) {
+        ArrayList<MachineImage> list = new ArrayList<MachineImage>();
+        String owner = (options == null || options.getAccountNumber() == null ? getOwner() : options.getAccountNumber());
+
+        for( String imageId : images.keySet() ) {
+            MachineImage image = getImage(imageId);
+
+            if( image != null && image.getProviderOwnerId().equals(owner) && (options == null || options.matches(image)) ) {
+                list.add(image);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<MachineImage> listImages(@Nonnull ImageClass cls) {
+        return listImages(ImageFilterOptions.getInstance(cls));
+    }
+
+    public @Nonnull Iterable<MachineImage> listImages(@Nonnull ImageClass cls, @Nonnull String ownedBy) {
+        return listImages(ImageFilterOptions.getInstance(cls).withAccountNumber(ownedBy));
+    }
+
+    public @Nonnull Iterable<MachineImage> listMachineImages() {
+        return listImages(ImageClass.MACHINE);
+    }
+
+    public @Nonnull Iterable<MachineImage> listMachineImagesOwnedBy(@Nullable String accountNumber) {
+        return listImages(ImageClass.MACHINE, accountNumber == null ? getOwner() : accountNumber);
+    }
+
+    public @Nonnull Iterable<String> listShares(@Nonnull String imageId) throws CloudException {
+        require(imageId);
+        return listSharing(imageId);
+    }
+
+    public @Nonnull Iterable<ImageClass> listSupportedImageClasses() {
+        return Collections.singletonList(ImageClass.MACHINE);
+    }
+
+    public @Nonnull Iterable<MachineImageType> listSupportedImageTypes() {
+        return Collections.singletonList(MachineImageType.VOLUME);
+    }
+
+    public void remove(@Nonnull String imageId) throws CloudException {
+        remove(imageId, false);
+    }
+
+    public void remove(@Nonnull String imageId, boolean checkState) throws CloudException {
+        MachineImage image = require(imageId);
+
+        image.setCurrentState(MachineImageState.DELETED);
+        images.remove(imageId);
+        removeSharing(imageId);
+    }
+
+    public void removeAllImageShares(@Nonnull String imageId) throws CloudException {
+        getShares(imageId).clear();
+    }
+
+    public void removeImageShare(@Nonnull String imageId, @Nonnull String accountNumber) throws CloudException {
+        getShares(imageId).remove(accountNumber);
+    }
+
+    public void removePublicShare(@Nonnull String imageId) throws CloudException {
+        getShares(imageId).remove(PUBLIC);
+    }
+
+    public @Nonnull Iterable<MachineImage> searchImages(@Nullable String accountNumber, @Nullable String keyword, @Nullable Platform platform, @Nullable Architecture architecture, @Nullable ImageClass ... classes) {
+        ArrayList<MachineImage> list = new ArrayList<MachineImage>();
+
+        for( String imageId : images.keySet() ) {
+            MachineImage image = getImage(imageId);
+
+            if( image == null || (accountNumber != null && !accountNumber.equals(image.getProviderOwnerId())) ) {
+                continue;
+            }
+            if( keyword != null && !image.getName().contains(keyword) && !image.getDescription().contains(keyword) ) {
+                continue;
+            }
+            if( (platform != null && !platform.equals(image.getPlatform())) || (architecture != null && !architecture.equals(image.getArchitecture())) ) {
+                continue;
+            }
+            if( classes != null && classes.length > 0 ) {
+                boolean matches = false;
+
+                for( ImageClass cls : classes ) {
+                    if( cls.equals(image.getImageClass()) ) {
+                        matches = true;
+                    }
+                }
+                if( !matches ) {
+                    continue;
+                }
+            }
+            list.add(image);
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<MachineImage> searchMachineImages(@Nullable String keyword, @Nullable Platform platform, @Nullable Architecture architecture) {
+        return searchImages(null, keyword, platform, architecture, ImageClass.MACHINE);
+    }
+
+    public @Nonnull Iterable<MachineImage> searchPublicImages(@Nonnull ImageFilterOptions options) {
+        ArrayList<MachineImage> list = new ArrayList<MachineImage>();
+
+        for( String imageId : images.keySet() ) {
+            MachineImage image = getImage(imageId);
+
+            if( image != null && getSharing(imageId).contains(PUBLIC) && options.matches(image) ) {
+                list.add(image);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<MachineImage> searchPublicImages(@Nullable String keyword, @Nullable Platform platform, @Nullable Architecture architecture, @Nullable ImageClass ... classes) {
+        ArrayList<MachineImage> list = new ArrayList<MachineImage>();
+
+        for( MachineImage image : searchImages(null, keyword, platform, architecture, classes) ) {
+            if( getSharing(image.getProviderMachineImageId()).contains(PUBLIC) ) {
+                list.add(image);
+            }
+        }
+        return list;
+    }
+
+    public boolean supportsCustomImages() {
+        return true;
+    }
+
+    public boolean supportsImageCapture(@Nonnull MachineImageType type) {
+        return MachineImageType.VOLUME.equals(type);
+    }
+
+    public boolean supportsImageSharing() {
+        return true;
+    }
+
+    public boolean supportsImageSharingWithPublic() {
+        return true;
+    }
+
+    public boolean supportsPublicLibrary(@Nonnull ImageClass cls) {
+        return ImageClass.MACHINE.equals(cls);
+    }
+
+    public void updateTags(@Nonnull String imageId, @Nonnull Tag ... tags) throws CloudException {
+        updateTags(require(imageId).getTags(), tags);
+    }
+
+    public void updateTags(@Nonnull String[] imageIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String imageId : imageIds ) {
+            updateTags(imageId, tags);
+        }
+    }
+
+    public void removeTags(@Nonnull String imageId, @Nonnull Tag ... tags) throws CloudException {
+        removeTags(require(imageId).getTags(), tags);
+    }
+
+    public void removeTags(@Nonnull String[] imageIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String imageId : imageIds ) {
+            removeTags(imageId, tags);
+        }
+    }
+}
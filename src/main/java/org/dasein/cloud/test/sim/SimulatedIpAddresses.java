@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.OperationNotSupportedException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.network.AddressType;
+import org.dasein.cloud.network.IPVersion;
+import org.dasein.cloud.network.IpAddress;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulated support for public IPv4 addresses that may be requested, assigned to virtual machines, and released.
+ * Addresses assigned to a virtual machine are released from it when the virtual machine is terminated.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedIpAddresses extends SimulatedSupport {
+    static private final String TYPE = "IpAddress";
+
+    static private final ConcurrentHashMap<String,IpAddress> addresses = new ConcurrentHashMap<String, IpAddress>();
+    static private final AtomicInteger                       next      = new AtomicInteger();
+
+    static void releaseAll(@Nonnull String vmId) {
+        for( IpAddress address : addresses.values() ) {
+            synchronized( address ) {
+                if( vmId.equals(address.getServerId()) ) {
+                    unassign(vmId, address.getProviderIpAddressId());
+                    address.setServerId(null);
+                }
+            }
+        }
+    }
+
+    static private void unassign(@Nonnull String vmId, @Nonnull String addressId) {
+        VirtualMachine vm = SimulatedVirtualMachines.find(vmId);
+
+        if( vm != null && addressId.equals(vm.getProviderAssignedIpAddressId()) ) {
+            vm.setProviderAssignedIpAddressId(null);
+        }
+    }
+
+    SimulatedIpAddresses(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull IpAddress require(@Nonnull String addressId) throws CloudException {
+        IpAddress address = getIpAddress(addressId);
+
+        if( address == null ) {
+            throw notFound(TYPE, addressId);
+        }
+        return address;
+    }
+
+    public void assign(@Nonnull String addressId, @Nonnull String vmId) throws CloudException {
+        IpAddress address = require(addressId);
+        VirtualMachine vm = SimulatedVirtualMachines.find(vmId);
+
+        if( vm == null || VmState.TERMINATED.equals(vm.getCurrentState()) ) {
+            throw notFound("virtual machine", vmId);
+        }
+        synchronized( address ) {
+            if( address.getServerId() != null ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "AddressInUse", "Address " + addressId + " is assigned to " + address.getServerId());
+            }
+            address.setServerId(vmId);
+        }
+        vm.setProviderAssignedIpAddressId(addressId);
+    }
+
+    public @Nullable IpAddress getIpAddress(@Nonnull String addressId) {
+        IpAddress address = addresses.get(addressId);
+
+        if( address == null || !isOwner(addressId, getOwner()) || !getRegionId().equals(address.getRegionId()) ) {
+            return null;
+        }
+        return address;
+    }
+
+    public @Nonnull String getProviderTermForIpAddress(@Nonnull Locale locale) {
+        return "elastic IP";
+    }
+
+    public boolean isAssigned(@Nonnull AddressType type) {
+        return AddressType.PUBLIC.equals(type);
+    }
+
+    public boolean isAssigned(@Nonnull IPVersion version) {
+        return IPVersion.IPV4.equals(version);
+    }
+
+    public boolean isAssignablePostLaunch(@Nonnull IPVersion version) {
+        return IPVersion.IPV4.equals(version);
+    }
+
+    public boolean isRequestable(@Nonnull AddressType type) {
+        return AddressType.PUBLIC.equals(type);
+    }
+
+    public boolean isRequestable(@Nonnull IPVersion version) {
+        return IPVersion.IPV4.equals(version);
+    }
+
+    public @Nonnull Iterable<IpAddress> listPublicIpPool(boolean unassignedOnly) {
+        return listIpPool(IPVersion.IPV4, unassignedOnly);
+    }
+
+    public @Nonnull Iterable<IpAddress> listIpPool(@Nonnull IPVersion version, boolean unassignedOnly) {
+        ArrayList<IpAddress> list = new ArrayList<IpAddress>();
+
+        for( String addressId : addresses.keySet() ) {
+            IpAddress address = getIpAddress(addressId);
+
+            if( address != null && version.equals(address.getVersion()) && (!unassignedOnly || address.getServerId() == null) ) {
+                list.add(address);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listIpPoolStatus(@Nonnull IPVersion version) {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( IpAddress address : listIpPool(version, false) ) {
+            status.add(new ResourceStatus(address.getProviderIpAddressId(), address.getServerId() == null));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<IPVersion> listSupportedIPVersions() {
+        return Collections.singletonList(IPVersion.IPV4);
+    }
+
+    public void releaseFromPool(@Nonnull String addressId) throws CloudException {
+        require(addressId);
+        addresses.remove(addressId);
+        setOwner(addressId, null);
+    }
+
+    public void releaseFromServer(@Nonnull String addressId) throws CloudException {
+        IpAddress address = require(addressId);
+
+        synchronized( address ) {
+            if( address.getServerId() == null ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "IncorrectState", "Address " + addressId + " is not assigned");
+            }
+            unassign(address.getServerId(), addressId);
+            address.setServerId(null);
+        }
+    }
+
+    public @Nonnull String request(@Nonnull AddressType type) throws CloudException, OperationNotSupportedException {
+        if( !AddressType.PUBLIC.equals(type) ) {
+            throw new OperationNotSupportedException("Only public addresses may be requested");
+        }
+        return request(IPVersion.IPV4);
+    }
+
+    public @Nonnull String request(@Nonnull IPVersion version) throws CloudException, OperationNotSupportedException {
+        return request(version, null);
+    }
+
+    public @Nonnull String requestForVLAN(@Nonnull IPVersion version) throws CloudException, OperationNotSupportedException {
+        return request(version, "");
+    }
+
+    public @Nonnull String requestForVLAN(@Nonnull IPVersion version, @Nonnull String vlanId) throws CloudException, OperationNotSupportedException {
+        if( SimulatedVlans.find(vlanId) == null ) {
+            throw notFound("VLAN", vlanId);
+        }
+        return request(version, vlanId);
+    }
+
+    private @Nonnull String request(@Nonnull IPVersion version, @Nullable String vlanId) throws CloudException, OperationNotSupportedException {
+        if( !IPVersion.IPV4.equals(version) ) {
+            throw new OperationNotSupportedException("Only IPv4 addresses may be requested");
+        }
+        IpAddress address = new IpAddress();
+        String addressId = newId("eip");
+        int n = next.incrementAndGet();
+
+        address.setIpAddressId(addressId);
+        address.setAddress("203.0." + ((n >> 8) & 255) + "." + (n & 255));
+        address.setRegionId(getRegionId());
+        address.setAddressType(AddressType.PUBLIC);
+        address.setVersion(version);
+        address.setForVlan(vlanId != null);
+        address.setProviderVlanId(vlanId == null || vlanId.equals("") ? null : vlanId);
+        setOwner(addressId, getOwner());
+        addresses.put(addressId, address);
+        return addressId;
+    }
+
+    public boolean supportsVLANAddresses(@Nonnull IPVersion version) {
+        return IPVersion.IPV4.equals(version);
+    }
+}
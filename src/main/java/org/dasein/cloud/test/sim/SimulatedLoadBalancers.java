@@ -0,0 +1,327 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.Requirement;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.dc.DataCenter;
+import org.dasein.cloud.network.IPVersion;
+import org.dasein.cloud.network.LbAlgorithm;
+import org.dasein.cloud.network.LbEndpointState;
+import org.dasein.cloud.network.LbEndpointType;
+import org.dasein.cloud.network.LbListener;
+import org.dasein.cloud.network.LbPersistence;
+import org.dasein.cloud.network.LbProtocol;
+import org.dasein.cloud.network.LoadBalancer;
+import org.dasein.cloud.network.LoadBalancerAddressType;
+import org.dasein.cloud.network.LoadBalancerCreateOptions;
+import org.dasein.cloud.network.LoadBalancerEndpoint;
+import org.dasein.cloud.network.LoadBalancerState;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulated load balancer support. Load balancers are created in the pending state and become active after the
+ * transition time for LoadBalancer. Virtual machines and raw IP addresses may be added as endpoints at any time.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedLoadBalancers extends SimulatedSupport {
+    static private final String TYPE = "LoadBalancer";
+
+    static private final ConcurrentHashMap<String,Map<String,LoadBalancerEndpoint>> endpoints     = new ConcurrentHashMap<String, Map<String, LoadBalancerEndpoint>>();
+    static private final ConcurrentHashMap<String,LoadBalancer>                     loadBalancers = new ConcurrentHashMap<String, LoadBalancer>();
+    static private final AtomicInteger                                              next          = new AtomicInteger();
+
+    SimulatedLoadBalancers(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull LoadBalancer require(@Nonnull String loadBalancerId) throws CloudException {
+        LoadBalancer lb = getLoadBalancer(loadBalancerId);
+
+        if( lb == null ) {
+            throw notFound(TYPE, loadBalancerId);
+        }
+        return lb;
+    }
+
+    private void addEndpoints(@Nonnull String loadBalancerId, @Nonnull LbEndpointType type, @Nonnull String ... values) throws CloudException {
+        LoadBalancer lb = require(loadBalancerId);
+        Map<String,LoadBalancerEndpoint> list = endpoints.get(loadBalancerId);
+
+        synchronized( list ) {
+            for( String value : values ) {
+                if( LbEndpointType.VM.equals(type) && SimulatedVirtualMachines.find(value) == null ) {
+                    throw notFound("virtual machine", value);
+                }
+                list.put(value, LoadBalancerEndpoint.getInstance(type, value, LbEndpointState.ACTIVE));
+            }
+            updateServers(lb, list);
+        }
+    }
+
+    private void removeEndpoints(@Nonnull String loadBalancerId, @Nonnull String ... values) throws CloudException {
+        LoadBalancer lb = require(loadBalancerId);
+        Map<String,LoadBalancerEndpoint> list = endpoints.get(loadBalancerId);
+
+        synchronized( list ) {
+            for( String value : values ) {
+                list.remove(value);
+            }
+            updateServers(lb, list);
+        }
+    }
+
+    private void updateServers(@Nonnull LoadBalancer lb, @Nonnull Map<String,LoadBalancerEndpoint> list) {
+        ArrayList<String> servers = new ArrayList<String>();
+
+        for( LoadBalancerEndpoint endpoint : list.values() ) {
+            if( LbEndpointType.VM.equals(endpoint.getEndpointType()) ) {
+                servers.add(endpoint.getEndpointValue());
+            }
+        }
+        lb.setProviderServerIds(servers.toArray(new String[servers.size()]));
+    }
+
+    public void addDataCenters(@Nonnull String loadBalancerId, @Nonnull String ... dataCenterIds) throws CloudException {
+        LoadBalancer lb = require(loadBalancerId);
+
+        synchronized( lb ) {
+            LinkedHashSet<String> ids = new LinkedHashSet<String>(Arrays.asList(lb.getProviderDataCenterIds()));
+
+            ids.addAll(Arrays.asList(dataCenterIds));
+            lb.setProviderDataCenterIds(ids.toArray(new String[ids.size()]));
+        }
+    }
+
+    public void addIPEndpoints(@Nonnull String loadBalancerId, @Nonnull String ... addresses) throws CloudException {
+        addEndpoints(loadBalancerId, LbEndpointType.IP, addresses);
+    }
+
+    public void addServers(@Nonnull String loadBalancerId, @Nonnull String ... vmIds) throws CloudException {
+        addEndpoints(loadBalancerId, LbEndpointType.VM, vmIds);
+    }
+
+    public @Nonnull String create(@Nonnull String name, @Nonnull String description, @Nullable String addressId, @Nullable String[] dataCenterIds, @Nullable LbListener[] listeners, @Nullable String[] serverIds) throws CloudException {
+        LoadBalancerCreateOptions options = LoadBalancerCreateOptions.getInstance(name, description, addressId);
+
+        if( dataCenterIds != null ) {
+            options.limitedTo(dataCenterIds);
+        }
+        if( listeners != null ) {
+            options.havingListeners(listeners);
+        }
+        if( serverIds != null ) {
+            options.withVirtualMachines(serverIds);
+        }
+        return createLoadBalancer(options);
+    }
+
+    public @Nonnull String createLoadBalancer(@Nonnull LoadBalancerCreateOptions options) throws CloudException {
+        LbListener[] listeners = options.getListeners();
+
+        if( listeners == null || listeners.length < 1 ) {
+            throw new CloudException(CloudErrorType.GENERAL, 400, "ValidationError", "At least one listener is required");
+        }
+        String[] dataCenterIds = options.getProviderDataCenterIds();
+
+        if( dataCenterIds == null || dataCenterIds.length < 1 ) {
+            ArrayList<String> ids = new ArrayList<String>();
+
+            for( DataCenter dc : new SimulatedDataCenters(provider).listDataCenters(getRegionId()) ) {
+                ids.add(dc.getProviderDataCenterId());
+            }
+            dataCenterIds = ids.toArray(new String[ids.size()]);
+        }
+        int[] ports = new int[listeners.length];
+
+        for( int i=0; i<listeners.length; i++ ) {
+            ports[i] = listeners[i].getPublicPort();
+        }
+        String loadBalancerId = newId("lb");
+        int n = next.incrementAndGet();
+        LoadBalancer lb = LoadBalancer.getInstance(getOwner(), getRegionId(), loadBalancerId, LoadBalancerState.PENDING, options.getName(), options.getDescription(), LoadBalancerAddressType.IP, "192.0." + ((n >> 8) & 255) + "." + (n & 255), ports);
+
+        lb.withListeners(listeners).operatingIn(dataCenterIds).supportingTraffic(IPVersion.IPV4).createdAt(System.currentTimeMillis());
+        lb.setProviderServerIds(new String[0]);
+        endpoints.put(loadBalancerId, new LinkedHashMap<String, LoadBalancerEndpoint>());
+        loadBalancers.put(loadBalancerId, lb);
+        transition(TYPE, loadBalancerId, LoadBalancerState.ACTIVE);
+        if( options.getEndpoints() != null ) {
+            for( LoadBalancerEndpoint endpoint : options.getEndpoints() ) {
+                addEndpoints(loadBalancerId, endpoint.getEndpointType(), endpoint.getEndpointValue());
+            }
+        }
+        return loadBalancerId;
+    }
+
+    public @Nonnull LoadBalancerAddressType getAddressType() {
+        return LoadBalancerAddressType.IP;
+    }
+
+    public @Nullable LoadBalancer getLoadBalancer(@Nonnull String loadBalancerId) {
+        LoadBalancer lb = loadBalancers.get(loadBalancerId);
+
+        if( lb == null || !lb.getProviderOwnerId().equals(getOwner()) || !lb.getProviderRegionId().equals(getRegionId()) ) {
+            return null;
+        }
+        lb.setCurrentState(settle(loadBalancerId, lb.getCurrentState()));
+        return lb;
+    }
+
+    public int getMaxPublicPorts() {
+        return 10;
+    }
+
+    public @Nonnull String getProviderTermForLoadBalancer(@Nonnull Locale locale) {
+        return "load balancer";
+    }
+
+    public @Nonnull Requirement identifyListenersOnCreateRequirement() {
+        return Requirement.REQUIRED;
+    }
+
+    public boolean isAddressAssignedByProvider() {
+        return true;
+    }
+
+    public boolean isDataCenterLimited() {
+        return true;
+    }
+
+    public @Nonnull Iterable<LoadBalancerEndpoint> listEndpoints(@Nonnull String loadBalancerId) throws CloudException {
+        require(loadBalancerId);
+        Map<String,LoadBalancerEndpoint> list = endpoints.get(loadBalancerId);
+
+        synchronized( list ) {
+            return new ArrayList<LoadBalancerEndpoint>(list.values());
+        }
+    }
+
+    public @Nonnull Iterable<LoadBalancerEndpoint> listEndpoints(@Nonnull String loadBalancerId, @Nonnull LbEndpointType type, @Nonnull String ... values) throws CloudException {
+        ArrayList<LoadBalancerEndpoint> matches = new ArrayList<LoadBalancerEndpoint>();
+        List<String> filter = Arrays.asList(values);
+
+        for( LoadBalancerEndpoint endpoint : listEndpoints(loadBalancerId) ) {
+            if( type.equals(endpoint.getEndpointType()) && (filter.isEmpty() || filter.contains(endpoint.getEndpointValue())) ) {
+                matches.add(endpoint);
+            }
+        }
+        return matches;
+    }
+
+    public @Nonnull Iterable<LoadBalancer> listLoadBalancers() {
+        ArrayList<LoadBalancer> list = new ArrayList<LoadBalancer>();
+
+        for( String loadBalancerId : loadBalancers.keySet() ) {
+            LoadBalancer lb = getLoadBalancer(loadBalancerId);
+
+            if( lb != null ) {
+                list.add(lb);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listLoadBalancerStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( LoadBalancer lb : listLoadBalancers() ) {
+            status.add(new ResourceStatus(lb.getProviderLoadBalancerId(), lb.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<LbAlgorithm> listSupportedAlgorithms() {
+        return Arrays.asList(LbAlgorithm.ROUND_ROBIN, LbAlgorithm.LEAST_CONN);
+    }
+
+    public @Nonnull Iterable<LbEndpointType> listSupportedEndpointTypes() {
+        return Arrays.asList(LbEndpointType.VM, LbEndpointType.IP);
+    }
+
+    public @Nonnull Iterable<IPVersion> listSupportedIPVersions() {
+        return Collections.singletonList(IPVersion.IPV4);
+    }
+
+    public @Nonnull Iterable<LbPersistence> listSupportedPersistenceOptions() {
+        return Arrays.asList(LbPersistence.NONE, LbPersistence.COOKIE);
+    }
+
+    public @Nonnull Iterable<LbProtocol> listSupportedProtocols() {
+        return Arrays.asList(LbProtocol.HTTP, LbProtocol.HTTPS, LbProtocol.RAW_TCP);
+    }
+
+    public void remove(@Nonnull String loadBalancerId) throws CloudException {
+        removeLoadBalancer(loadBalancerId);
+    }
+
+    public void removeDataCenters(@Nonnull String loadBalancerId, @Nonnull String ... dataCenterIds) throws CloudException {
+        LoadBalancer lb = require(loadBalancerId);
+
+        synchronized( lb ) {
+            LinkedHashSet<String> ids = new LinkedHashSet<String>(Arrays.asList(lb.getProviderDataCenterIds()));
+
+            ids.removeAll(Arrays.asList(dataCenterIds));
+            if( ids.isEmpty() ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "ValidationError", "A load balancer must operate in at least one data center");
+            }
+            lb.setProviderDataCenterIds(ids.toArray(new String[ids.size()]));
+        }
+    }
+
+    public void removeIPEndpoints(@Nonnull String loadBalancerId, @Nonnull String ... addresses) throws CloudException {
+        removeEndpoints(loadBalancerId, addresses);
+    }
+
+    public void removeLoadBalancer(@Nonnull String loadBalancerId) throws CloudException {
+        LoadBalancer lb = require(loadBalancerId);
+
+        lb.setCurrentState(LoadBalancerState.TERMINATED);
+        loadBalancers.remove(loadBalancerId);
+        endpoints.remove(loadBalancerId);
+    }
+
+    public void removeServers(@Nonnull String loadBalancerId, @Nonnull String ... vmIds) throws CloudException {
+        removeEndpoints(loadBalancerId, vmIds);
+    }
+
+    public boolean requiresListenerOnCreate() {
+        return true;
+    }
+
+    public boolean supportsAddingEndpoints() {
+        return true;
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.Tag;
+import org.dasein.cloud.compute.Snapshot;
+import org.dasein.cloud.compute.SnapshotCreateOptions;
+import org.dasein.cloud.compute.SnapshotFilterOptions;
+import org.dasein.cloud.compute.SnapshotState;
+import org.dasein.cloud.compute.Volume;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated volume snapshot support. Snapshots are created in the pending state and become available after the
+ * transition time for Snapshot.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedSnapshots extends SimulatedSupport {
+    static private final String TYPE = "Snapshot";
+
+    static private final ConcurrentHashMap<String,Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+
+    static @Nullable Snapshot find(@Nullable String snapshotId) {
+        Snapshot snapshot = (snapshotId == null ? null : snapshots.get(snapshotId));
+
+        if( snapshot != null ) {
+            snapshot.setCurrentState(settle(snapshotId, snapshot.getCurrentState()));
+        }
+        return snapshot;
+    }
+
+    SimulatedSnapshots(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull Snapshot require(@Nonnull String snapshotId) throws CloudException {
+        Snapshot snapshot = find(snapshotId);
+
+        if( snapshot == null || !snapshot.getOwner().equals(getOwner()) ) {
+            throw notFound(TYPE, snapshotId);
+        }
+        return snapshot;
+    }
+
+    public void addSnapshotShare(@Nonnull String snapshotId, @Nonnull String accountNumber) throws CloudException {
+        getSharing(require(snapshotId).getProviderSnapshotId()).add(accountNumber);
+    }
+
+    public void addPublicShare(@Nonnull String snapshotId) throws CloudException {
+        getSharing(require(snapshotId).getProviderSnapshotId()).add(PUBLIC);
+    }
+
+    public @Nonnull String create(@Nonnull String volumeId, @Nonnull String description) throws CloudException {
+        return createSnapshot(SnapshotCreateOptions.getInstanceForCreate(volumeId, description, description));
+    }
+
+    public @Nonnull String createSnapshot(@Nonnull SnapshotCreateOptions options) throws CloudException {
+        int sizeInGb;
+
+        if( options.getSnapshotId() != null ) {
+            sizeInGb = require(options.getSnapshotId()).getSizeInGb();
+        }
+        else {
+            Volume volume = SimulatedVolumes.find(options.getVolumeId());
+
+            if( volume == null ) {
+                throw notFound("volume", options.getVolumeId());
+            }
+            sizeInGb = volume.getSizeInGigabytes();
+        }
+        Snapshot snapshot = new Snapshot();
+        String snapshotId = newId("snap");
+
+        snapshot.setProviderSnapshotId(snapshotId);
+        snapshot.setName(options.getName());
+        snapshot.setDescription(options.getDescription());
+        snapshot.setOwner(getOwner());
+        snapshot.setRegionId(getRegionId());
+        snapshot.setVolumeId(options.getVolumeId());
+        snapshot.setSizeInGb(sizeInGb);
+        snapshot.setSnapshotTimestamp(System.currentTimeMillis());
+        snapshot.setProgress("0%");
+        Map<String,String> meta = options.getMetaData();
+
+        if( meta != null ) {
+            for( Map.Entry<String,String> entry : meta.entrySet() ) {
+                snapshot.setTag(entry.getKey(), entry.getValue());
+            }
+        }
+        snapshot.setCurrentState(SnapshotState.PENDING);
+        snapshots.put(snapshotId, snapshot);
+        transition(TYPE, snapshotId, SnapshotState.AVAILABLE);
+        return snapshotId;
+    }
+
+    public @Nonnull String getProviderTermForSnapshot(@Nonnull Locale locale) {
+        return "snapshot";
+    }
+
+    public @Nullable Snapshot getSnapshot(@Nonnull String snapshotId) {
+        Snapshot snapshot = find(snapshotId);
+
+        if( snapshot == null || !getRegionId().equals(snapshot.getRegionId()) ) {
+            return null;
+        }
+        if( !snapshot.getOwner().equals(getOwner()) && !isSharedWith(snapshotId, getOwner()) ) {
+            return null;
+        }
+        if( SnapshotState.AVAILABLE.equals(snapshot.getCurrentState()) ) {
+            snapshot.setProgress("100%");
+        }
+        return snapshot;
+    }
+
+    public boolean isPublic(@Nonnull String snapshotId) throws CloudException {
+        return getSharing(require(snapshotId).getProviderSnapshotId()).contains(PUBLIC);
+    }
+
+    public @Nonnull Iterable<String> listShares(@Nonnull String snapshotId) throws CloudException {
+        return listSharing(require(snapshotId).getProviderSnapshotId());
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listSnapshotStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( Snapshot snapshot : listSnapshots() ) {
+            status.add(new ResourceStatus(snapshot.getProviderSnapshotId(), snapshot.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<Snapshot> listSnapshots() {
+        return listSnapshots(null);
+    }
+
+    public @Nonnull Iterable<Snapshot> listSnapshots(@Nullable SnapshotFilterOptions options) {
+        ArrayList<Snapshot> list = new ArrayList<Snapshot>();
+
+        for( String snapshotId : snapshots.keySet() ) {
+            Snapshot snapshot = getSnapshot(snapshotId);
+
+            if( snapshot != null && snapshot.getOwner().equals(getOwner()) && (options == null || options.matches(snapshot, getOwner())) ) {
+                list.add(snapshot);
+            }
+        }
+        return list;
+    }
+
+    public void remove(@Nonnull String snapshotId) throws CloudException {
+        Snapshot snapshot = require(snapshotId);
+
+        snapshot.setCurrentState(SnapshotState.DELETED);
+        snapshots.remove(snapshotId);
+        removeSharing(snapshotId);
+    }
+
+    public void removeAllSnapshotShares(@Nonnull String snapshotId) throws CloudException {
+        getSharing(require(snapshotId).getProviderSnapshotId()).clear();
+    }
+
+    public void removeSnapshotShare(@Nonnull String snapshotId, @Nonnull String accountNumber) throws CloudException {
+        getSharing(require(snapshotId).getProviderSnapshotId()).remove(accountNumber);
+    }
+
+    public void removePublicShare(@Nonnull String snapshotId) throws CloudException {
+        getSharing(require(snapshotId).getProviderSnapshotId()).remove(PUBLIC);
+    }
+
+    public @Nonnull Iterable<Snapshot> searchSnapshots(@Nonnull SnapshotFilterOptions options) {
+        ArrayList<Snapshot> list = new ArrayList<Snapshot>();
+
+        for( String snapshotId : snapshots.keySet() ) {
+            Snapshot snapshot = getSnapshot(snapshotId);
+
+            if( snapshot != null && options.matches(snapshot, getOwner()) ) {
+                list.add(snapshot);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Snapshot snapshot(@Nonnull String volumeId, @Nonnull String name, @Nonnull String description, @Nullable Tag ... tags) throws CloudException {
+        SnapshotCreateOptions options = SnapshotCreateOptions.getInstanceForCreate(volumeId, name, description);
+
+        if( tags != null ) {
+            for( Tag tag : tags ) {
+                options.withMetaData(tag.getKey(), tag.getValue());
+            }
+        }
+        return require(createSnapshot(options));
+    }
+
+    public boolean supportsSnapshotCopying() {
+        return true;
+    }
+
+    public boolean supportsSnapshotCreation() {
+        return true;
+    }
+
+    public boolean supportsSnapshotSharing() {
+        return true;
+    }
+
+    public boolean supportsSnapshotSharingWithPublic() {
+        return true;
+    }
+
+    public void updateTags(@Nonnull String snapshotId, @Nonnull Tag ... tags) throws CloudException {
+        updateTags(require(snapshotId).getTags(), tags);
+    }
+
+    public void updateTags(@Nonnull String[] snapshotIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String snapshotId : snapshotIds ) {
+            updateTags(snapshotId, tags);
+        }
+    }
+
+    public void removeTags(@Nonnull String snapshotId, @Nonnull Tag ... tags) throws CloudException {
+        removeTags(require(snapshotId).getTags(), tags);
+    }
+
+    public void removeTags(@Nonnull String[] snapshotIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String snapshotId : snapshotIds ) {
+            removeTags(snapshotId, tags);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.Tag;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Common behavior for the in-memory handlers behind the simulated cloud. Resources live in static maps so that every
+ * provider connected to the simulated cloud in the same JVM sees the same cloud, just as every provider connected to
+ * a real cloud does. Transitional states are modeled lazily: a change of state is scheduled with
+ * {@link #transition(String, String, Object)} and takes effect the first time the resource is read after the
+ * transition time for its type has passed.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+abstract class SimulatedSupport {
+    static private final AtomicLong                             ids     = new AtomicLong(System.currentTimeMillis() % 100000L);
+    static private final ConcurrentHashMap<String,Transition>   pending = new ConcurrentHashMap<String, Transition>();
+    static private final ConcurrentHashMap<String,String>       owners  = new ConcurrentHashMap<String, String>();
+    static private final ConcurrentHashMap<String,Set<String>>  shares  = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * The pseudo-account with which resources are shared to make them public.
+     */
+    static final String PUBLIC = "public";
+
+    static private class Transition {
+        long   readyAt;
+        Object target;
+    }
+
+    /**
+     * Provides the accounts with which a resource is shared, including {@link #PUBLIC} if it is shared with the public.
+     * @param id the unique ID of the resource
+     * @return the live set of accounts with which the resource is shared
+     */
+    static @Nonnull Set<String> getSharing(@Nonnull String id) {
+        Set<String> s = shares.get(id);
+
+        if( s == null ) {
+            shares.putIfAbsent(id, Collections.synchronizedSet(new TreeSet<String>()));
+            s = shares.get(id);
+        }
+        return s;
+    }
+
+    static boolean isSharedWith(@Nonnull String id, @Nonnull String accountNumber) {
+        Set<String> s = shares.get(id);
+
+        return (s != null && (s.contains(PUBLIC) || s.contains(accountNumber)));
+    }
+
+    static void removeSharing(@Nonnull String id) {
+        shares.remove(id);
+    }
+
+    static @Nonnull Iterable<String> listSharing(@Nonnull String id) {
+        ArrayList<String> list = new ArrayList<String>();
+        Set<String> s = getSharing(id);
+
+        synchronized( s ) {
+            for( String accountNumber : s ) {
+                if( !accountNumber.equals(PUBLIC) ) {
+                    list.add(accountNumber);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Records the owner of a resource whose Dasein Cloud model does not carry one.
+     * @param id the unique ID of the resource
+     * @param owner the account that owns the resource, or null to forget the resource
+     */
+    static void setOwner(@Nonnull String id, @Nullable String owner) {
+        if( owner == null ) {
+            owners.remove(id);
+        }
+        else {
+            owners.put(id, owner);
+        }
+    }
+
+    static boolean isOwner(@Nonnull String id, @Nonnull String owner) {
+        return owner.equals(owners.get(id));
+    }
+
+    /**
+     * Generates a new resource ID.
+     * @param prefix the resource type prefix (e.g. vm)
+     * @return a new resource ID unique to this JVM
+     */
+    static @Nonnull String newId(@Nonnull String prefix) {
+        return prefix + "-" + Long.toHexString(ids.incrementAndGet());
+    }
+
+    static @Nonnull CloudException notFound(@Nonnull String resourceType, @Nonnull String id) {
+        return new CloudException(CloudErrorType.GENERAL, 404, "NotFound", "No such " + resourceType + ": " + id);
+    }
+
+    /**
+     * Schedules a change of state for a resource once the transition time for its type has passed.
+     * @param resourceType the type of resource (e.g. VirtualMachine)
+     * @param id the unique ID of the resource
+     * @param target the state into which the resource transitions
+     */
+    static void transition(@Nonnull String resourceType, @Nonnull String id, @Nonnull Object target) {
+        Transition t = new Transition();
+
+        t.readyAt = System.currentTimeMillis() + Simulation.getTransitionTime(resourceType);
+        t.target = target;
+        pending.put(id, t);
+    }
+
+    /**
+     * Provides the current state of a resource, completing any scheduled transition whose time has passed.
+     * @param id the unique ID of the resource
+     * @param current the state of the resource as last recorded
+     * @param <T> the type of state
+     * @return the current state of the resource
+     */
+    @SuppressWarnings("unchecked")
+    static @Nonnull <T> T settle(@Nonnull String id, @Nonnull T current) {
+        Transition t = pending.get(id);
+
+        if( t == null || t.readyAt > System.currentTimeMillis() ) {
+            return current;
+        }
+        pending.remove(id, t);
+        return (T)t.target;
+    }
+
+    static void updateTags(@Nonnull Map<String,String> tags, @Nonnull Tag ... updates) {
+        for( Tag tag : updates ) {
+            tags.put(tag.getKey(), tag.getValue() == null ? "" : tag.getValue());
+        }
+    }
+
+    static void removeTags(@Nonnull Map<String,String> tags, @Nonnull Tag ... removals) {
+        for( Tag tag : removals ) {
+            tags.remove(tag.getKey());
+        }
+    }
+
+    protected SimulatedCloud provider;
+
+    SimulatedSupport(@Nonnull SimulatedCloud provider) {
+        this.provider = provider;
+    }
+
+    @Nonnull String getOwner() {
+        ProviderContext ctx = provider.getContext();
+        String account = (ctx == null ? null : ctx.getAccountNumber());
+
+        return (account == null ? SimulatedCloud.DEFAULT_ACCOUNT : account);
+    }
+
+    @Nonnull String getRegionId() {
+        ProviderContext ctx = provider.getContext();
+        String regionId = (ctx == null ? null : ctx.getRegionId());
+
+        return (regionId == null ? SimulatedDataCenters.REGION : regionId);
+    }
+
+    @Nullable String getDataCenterId(@Nullable String dataCenterId) {
+        return (dataCenterId == null ? SimulatedDataCenters.getDefaultDataCenterId(getRegionId()) : dataCenterId);
+    }
+
+    public boolean isSubscribed() {
+        return true;
+    }
+}
@@ -0,0 +1,392 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.Requirement;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.Tag;
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.ImageClass;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.cloud.compute.VMFilterOptions;
+import org.dasein.cloud.compute.VMLaunchOptions;
+import org.dasein.cloud.compute.VMScalingCapabilities;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VirtualMachineProduct;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.compute.VmStatistics;
+import org.dasein.cloud.network.RawAddress;
+import org.dasein.util.uom.storage.Gigabyte;
+import org.dasein.util.uom.storage.Megabyte;
+import org.dasein.util.uom.storage.Storage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulated virtual machine support. Virtual machines launch into the pending state and become running after the
+ * transition time for VirtualMachine. Terminated virtual machines remain visible in the terminated state, as they do
+ * in most clouds.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedVirtualMachines extends SimulatedSupport {
+    static private final String TYPE = "VirtualMachine";
+
+    static private final ConcurrentHashMap<String,VirtualMachine> vms       = new ConcurrentHashMap<String, VirtualMachine>();
+    static private final AtomicInteger                            addresses = new AtomicInteger();
+
+    static @Nullable VirtualMachine find(@Nonnull String vmId) {
+        VirtualMachine vm = vms.get(vmId);
+
+        if( vm != null ) {
+            vm.setCurrentState(settle(vmId, vm.getCurrentState()));
+        }
+        return vm;
+    }
+
+    static private @Nonnull VirtualMachineProduct getProduct(@Nonnull String id, int cpus, int ramInMb, int rootInGb, float rate) {
+        VirtualMachineProduct product = new VirtualMachineProduct();
+
+        product.setProviderProductId(id);
+        product.setName(id);
+        product.setDescription(cpus + " CPU, " + ramInMb + " MB RAM, " + rootInGb + " GB root volume");
+        product.setCpuCount(cpus);
+        product.setRamSize(new Storage<Megabyte>(ramInMb, Storage.MEGABYTE));
+        product.setRootVolumeSize(new Storage<Gigabyte>(rootInGb, Storage.GIGABYTE));
+        product.setStandardHourlyRate(rate);
+        return product;
+    }
+
+    static private @Nonnull Iterable<VirtualMachineProduct> getProducts() {
+        ArrayList<VirtualMachineProduct> products = new ArrayList<VirtualMachineProduct>();
+
+        products.add(getProduct("sim.small", 1, 1024, 10, 0.05f));
+        products.add(getProduct("sim.medium", 2, 2048, 20, 0.10f));
+        products.add(getProduct("sim.large", 4, 4096, 40, 0.20f));
+        return products;
+    }
+
+    static private @Nonnull String nextAddress(@Nonnull String prefix) {
+        int n = addresses.incrementAndGet();
+
+        return prefix + ((n >> 8) & 255) + "." + (n & 255);
+    }
+
+    SimulatedVirtualMachines(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull VirtualMachine require(@Nonnull String vmId) throws CloudException {
+        VirtualMachine vm = find(vmId);
+
+        if( vm == null || !vm.getProviderOwnerId().equals(getOwner()) ) {
+            throw notFound(TYPE, vmId);
+        }
+        return vm;
+    }
+
+    private void change(@Nonnull String vmId, @Nonnull VmState from, @Nonnull VmState during, @Nonnull VmState to) throws CloudException {
+        VirtualMachine vm = require(vmId);
+
+        synchronized( vm ) {
+            if( !from.equals(vm.getCurrentState()) ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "IncorrectState", "Virtual machine " + vmId + " is " + vm.getCurrentState() + ", not " + from);
+            }
+            vm.setCurrentState(during);
+            transition(TYPE, vmId, to);
+        }
+    }
+
+    public @Nullable VMScalingCapabilities describeVerticalScalingCapabilities() {
+        return null;
+    }
+
+    public void disableAnalytics(@Nonnull String vmId) throws CloudException {
+        require(vmId);
+    }
+
+    public void enableAnalytics(@Nonnull String vmId) throws CloudException {
+        require(vmId);
+    }
+
+    public @Nullable String getConsoleOutput(@Nonnull String vmId) throws CloudException {
+        require(vmId);
+        return "";
+    }
+
+    public int getMaximumVirtualMachineCount() {
+        return -1;
+    }
+
+    public @Nullable VirtualMachineProduct getProduct(@Nonnull String productId) {
+        for( VirtualMachineProduct product : getProducts() ) {
+            if( product.getProviderProductId().equals(productId) ) {
+                return product;
+            }
+        }
+        return null;
+    }
+
+    public @Nonnull String getProviderTermForServer(@Nonnull Locale locale) {
+        return "instance";
+    }
+
+    public @Nullable VirtualMachine getVirtualMachine(@Nonnull String vmId) {
+        VirtualMachine vm = find(vmId);
+
+        if( vm == null || !vm.getProviderOwnerId().equals(getOwner()) || !vm.getProviderRegionId().equals(getRegionId()) ) {
+            return null;
+        }
+        return vm;
+    }
+
+    public @Nonnull VmStatistics getVMStatistics(@Nonnull String vmId, long from, long to) throws CloudException {
+        VmStatistics stats = new VmStatistics();
+
+        // the simulated cloud collects no samples, so the statistics cover the period but are empty
+        require(vmId);
+        stats.setStartTimestamp(from);
+        stats.setEndTimestamp(to);
+        return stats;
+    }
+
+    public @Nonnull Requirement identifyImageRequirement(@Nonnull ImageClass cls) {
+        return (ImageClass.MACHINE.equals(cls) ? Requirement.REQUIRED : Requirement.NONE);
+    }
+
+    public @Nonnull Requirement identifyPasswordRequirement() {
+        return Requirement.OPTIONAL;
+    }
+
+    public @Nonnull Requirement identifyPasswordRequirement(@Nonnull Platform platform) {
+        return Requirement.OPTIONAL;
+    }
+
+    public @Nonnull Requirement identifyShellKeyRequirement() {
+        return Requirement.OPTIONAL;
+    }
+
+    public @Nonnull Requirement identifyShellKeyRequirement(@Nonnull Platform platform) {
+        return Requirement.OPTIONAL;
+    }
+
+    public @Nonnull Requirement identifyVlanRequirement() {
+        return Requirement.OPTIONAL;
+    }
+
+    public boolean isUserDataSupported() {
+        return true;
+    }
+
+    public @Nonnull VirtualMachine launch(@Nonnull VMLaunchOptions options) throws CloudException {
+        VirtualMachineProduct product = getProduct(options.getStandardProductId());
+        MachineImage image = SimulatedImages.find(options.getMachineImageId());
+
+        if( product == null ) {
+            throw notFound("product", options.getStandardProductId());
+        }
+        if( image == null ) {
+            throw notFound("machine image", options.getMachineImageId());
+        }
+        VirtualMachine vm = new VirtualMachine();
+        String vmId = newId("vm");
+        long now = System.currentTimeMillis();
+
+        vm.setProviderVirtualMachineId(vmId);
+        vm.setName(options.getFriendlyName());
+        vm.setDescription(options.getDescription() == null ? options.getFriendlyName() : options.getDescription());
+        vm.setProviderOwnerId(getOwner());
+        vm.setProviderRegionId(getRegionId());
+        vm.setProviderDataCenterId(getDataCenterId(options.getDataCenterId()));
+        vm.setProviderMachineImageId(image.getProviderMachineImageId());
+        vm.setProductId(product.getProviderProductId());
+        vm.setArchitecture(image.getArchitecture());
+        vm.setPlatform(image.getPlatform());
+        vm.setCreationTimestamp(now);
+        vm.setLastBootTimestamp(now);
+        if( options.getVlanId() != null && SimulatedVlans.findSubnet(options.getVlanId()) != null ) {
+            // launching into a subnet places the virtual machine in the subnet's VLAN
+            vm.setProviderSubnetId(options.getVlanId());
+            vm.setProviderVlanId(SimulatedVlans.findSubnet(options.getVlanId()).getProviderVlanId());
+        }
+        else {
+            vm.setProviderVlanId(options.getVlanId());
+        }
+        vm.setProviderFirewallIds(options.getFirewallIds() == null ? new String[0] : options.getFirewallIds());
+        vm.setProviderShellKeyIds(options.getBootstrapKey() == null ? new String[0] : new String[] { options.getBootstrapKey() });
+        vm.setRootUser(options.getBootstrapUser() == null ? "root" : options.getBootstrapUser());
+        if( options.getBootstrapPassword() != null ) {
+            vm.setRootPassword(options.getBootstrapPassword());
+        }
+        vm.setPrivateAddresses(new RawAddress(nextAddress("10.0.")));
+        vm.setPublicAddresses(new RawAddress(nextAddress("198.51.")));
+        vm.setClonable(false);
+        vm.setImagable(true);
+        vm.setPausable(true);
+        vm.setRebootable(true);
+        vm.setPersistent(true);
+        Map<String,Object> meta = options.getMetaData();
+
+        if( meta != null ) {
+            for( Map.Entry<String,Object> entry : meta.entrySet() ) {
+                vm.setTag(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        vm.setCurrentState(VmState.PENDING);
+        vms.put(vmId, vm);
+        transition(TYPE, vmId, VmState.RUNNING);
+        return vm;
+    }
+
+    public @Nonnull Iterable<String> listFirewalls(@Nonnull String vmId) throws CloudException {
+        return Arrays.asList(require(vmId).getProviderFirewallIds());
+    }
+
+    public @Nonnull Iterable<VirtualMachineProduct> listProducts(@Nonnull Architecture architecture) {
+        if( Architecture.I32.equals(architecture) || Architecture.I64.equals(architecture) ) {
+            return getProducts();
+        }
+        return Collections.emptyList();
+    }
+
+    public @Nonnull Iterable<Architecture> listSupportedArchitectures() {
+        return Arrays.asList(Architecture.I32, Architecture.I64);
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listVirtualMachineStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( VirtualMachine vm : listVirtualMachines() ) {
+            status.add(new ResourceStatus(vm.getProviderVirtualMachineId(), vm.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<VirtualMachine> listVirtualMachines() {
+        return listVirtualMachines(null);
+    }
+
+    public @Nonnull Iterable<VirtualMachine> listVirtualMachines(@Nullable VMFilterOptions options) {
+        ArrayList<VirtualMachine> list = new ArrayList<VirtualMachine>();
+
+        for( String vmId : vms.keySet() ) {
+            VirtualMachine vm = getVirtualMachine(vmId);
+
+            if( vm != null && (options == null || options.matches(vm)) ) {
+                list.add(vm);
+            }
+        }
+        return list;
+    }
+
+    public void pause(@Nonnull String vmId) throws CloudException {
+        change(vmId, VmState.RUNNING, VmState.PAUSING, VmState.PAUSED);
+    }
+
+    public void reboot(@Nonnull String vmId) throws CloudException {
+        change(vmId, VmState.RUNNING, VmState.REBOOTING, VmState.RUNNING);
+    }
+
+    public void resume(@Nonnull String vmId) throws CloudException {
+        change(vmId, VmState.SUSPENDED, VmState.PENDING, VmState.RUNNING);
+    }
+
+    public void start(@Nonnull String vmId) throws CloudException {
+        change(vmId, VmState.STOPPED, VmState.PENDING, VmState.RUNNING);
+    }
+
+    public void stop(@Nonnull String vmId) throws CloudException {
+        stop(vmId, false);
+    }
+
+    public void stop(@Nonnull String vmId, boolean force) throws CloudException {
+        change(vmId, VmState.RUNNING, VmState.STOPPING, VmState.STOPPED);
+    }
+
+    public boolean supportsPauseUnpause(@Nonnull VirtualMachine vm) {
+        return true;
+    }
+
+    public boolean supportsStartStop(@Nonnull VirtualMachine vm) {
+        return true;
+    }
+
+    public boolean supportsSuspendResume(@Nonnull VirtualMachine vm) {
+        return true;
+    }
+
+    public void suspend(@Nonnull String vmId) throws CloudException {
+        change(vmId, VmState.RUNNING, VmState.SUSPENDING, VmState.SUSPENDED);
+    }
+
+    public void terminate(@Nonnull String vmId) throws CloudException {
+        terminate(vmId, null);
+    }
+
+    public void terminate(@Nonnull String vmId, @Nullable String explanation) throws CloudException {
+        VirtualMachine vm = require(vmId);
+
+        synchronized( vm ) {
+            if( VmState.TERMINATED.equals(vm.getCurrentState()) ) {
+                return;
+            }
+            vm.setCurrentState(VmState.STOPPING);
+            vm.setTerminationTimestamp(System.currentTimeMillis());
+            transition(TYPE, vmId, VmState.TERMINATED);
+        }
+        SimulatedVolumes.detachAll(vmId);
+        SimulatedIpAddresses.releaseAll(vmId);
+    }
+
+    public void unpause(@Nonnull String vmId) throws CloudException {
+        change(vmId, VmState.PAUSED, VmState.PENDING, VmState.RUNNING);
+    }
+
+    public void updateTags(@Nonnull String vmId, @Nonnull Tag ... tags) throws CloudException {
+        updateTags(require(vmId).getTags(), tags);
+    }
+
+    public void updateTags(@Nonnull String[] vmIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String vmId : vmIds ) {
+            updateTags(vmId, tags);
+        }
+    }
+
+    public void removeTags(@Nonnull String vmId, @Nonnull Tag ... tags) throws CloudException {
+        removeTags(require(vmId).getTags(), tags);
+    }
+
+    public void removeTags(@Nonnull String[] vmIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String vmId : vmIds ) {
+            removeTags(vmId, tags);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.Requirement;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.Tag;
+import org.dasein.cloud.network.IPVersion;
+import org.dasein.cloud.network.Subnet;
+import org.dasein.cloud.network.SubnetCreateOptions;
+import org.dasein.cloud.network.SubnetState;
+import org.dasein.cloud.network.VLAN;
+import org.dasein.cloud.network.VLANState;
+import org.dasein.cloud.network.VlanCreateOptions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated VLAN and subnet support. VLANs and subnets are created in the pending state and become available after
+ * the transition times for VLAN and Subnet respectively. Each VLAN comes with a default firewall that goes away with it.
+ * A VLAN cannot be removed while it still has subnets.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedVlans extends SimulatedSupport {
+    static private final String TYPE = "VLAN";
+
+    static private final ConcurrentHashMap<String,Subnet> subnets = new ConcurrentHashMap<String, Subnet>();
+    static private final ConcurrentHashMap<String,VLAN>   vlans   = new ConcurrentHashMap<String, VLAN>();
+
+    static @Nullable VLAN find(@Nullable String vlanId) {
+        VLAN vlan = (vlanId == null ? null : vlans.get(vlanId));
+
+        if( vlan != null ) {
+            vlan.setCurrentState(settle(vlanId, vlan.getCurrentState()));
+        }
+        return vlan;
+    }
+
+    static @Nullable Subnet findSubnet(@Nonnull String subnetId) {
+        Subnet subnet = subnets.get(subnetId);
+
+        if( subnet != null ) {
+            SubnetState state = settle(subnetId, subnet.getCurrentState());
+
+            if( !state.equals(subnet.getCurrentState()) ) {
+                subnet = Subnet.getInstance(subnet.getProviderOwnerId(), subnet.getProviderRegionId(), subnet.getProviderVlanId(), subnetId, state, subnet.getName(), subnet.getDescription(), subnet.getCidr()).constrainedToDataCenter(subnet.getProviderDataCenterId()).supportingTraffic(subnet.getSupportedTraffic());
+                subnets.put(subnetId, subnet);
+            }
+        }
+        return subnet;
+    }
+
+    SimulatedVlans(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull VLAN require(@Nonnull String vlanId) throws CloudException {
+        VLAN vlan = getVlan(vlanId);
+
+        if( vlan == null ) {
+            throw notFound(TYPE, vlanId);
+        }
+        return vlan;
+    }
+
+    public boolean allowsNewSubnetCreation() {
+        return true;
+    }
+
+    public boolean allowsNewVlanCreation() {
+        return true;
+    }
+
+    public @Nonnull Subnet createSubnet(@Nonnull String cidr, @Nonnull String vlanId, @Nonnull String name, @Nonnull String description) throws CloudException {
+        return createSubnet(SubnetCreateOptions.getInstance(vlanId, cidr, name, description));
+    }
+
+    public @Nonnull Subnet createSubnet(@Nonnull SubnetCreateOptions options) throws CloudException {
+        VLAN vlan = require(options.getProviderVlanId());
+        String subnetId = newId("subnet");
+        String dataCenterId = getDataCenterId(options.getProviderDataCenterId());
+        IPVersion[] traffic = options.getSupportedTraffic();
+        Subnet subnet = Subnet.getInstance(getOwner(), getRegionId(), vlan.getProviderVlanId(), subnetId, SubnetState.PENDING, options.getName(), options.getDescription(), options.getCidr()).constrainedToDataCenter(dataCenterId).supportingTraffic(traffic == null || traffic.length < 1 ? new IPVersion[] { IPVersion.IPV4 } : traffic);
+
+        subnets.put(subnetId, subnet);
+        transition("Subnet", subnetId, SubnetState.AVAILABLE);
+        return subnet;
+    }
+
+    public @Nonnull VLAN createVlan(@Nonnull String cidr, @Nonnull String name, @Nonnull String description, @Nullable String domainName, @Nonnull String[] dnsServers, @Nonnull String[] ntpServers) throws CloudException {
+        return createVlan(VlanCreateOptions.getInstance(name, description, cidr, domainName, dnsServers, ntpServers));
+    }
+
+    public @Nonnull VLAN createVlan(@Nonnull VlanCreateOptions options) throws CloudException {
+        VLAN vlan = new VLAN();
+        String vlanId = newId("vpc");
+
+        vlan.setProviderVlanId(vlanId);
+        vlan.setName(options.getName());
+        vlan.setDescription(options.getDescription());
+        vlan.setCidr(options.getCidr());
+        vlan.setDomainName(options.getDomain());
+        vlan.setDnsServers(options.getDnsServers() == null ? new String[0] : options.getDnsServers());
+        vlan.setNtpServers(options.getNtpServers() == null ? new String[0] : options.getNtpServers());
+        vlan.setProviderOwnerId(getOwner());
+        vlan.setProviderRegionId(getRegionId());
+        vlan.setSupportedTraffic(IPVersion.IPV4);
+        vlan.setCurrentState(VLANState.PENDING);
+        vlans.put(vlanId, vlan);
+        transition(TYPE, vlanId, VLANState.AVAILABLE);
+        new SimulatedFirewalls(provider).createInVLAN(SimulatedFirewalls.DEFAULT, "Default firewall for " + vlanId, vlanId);
+        return vlan;
+    }
+
+    public int getMaxVlanCount() {
+        return 5;
+    }
+
+    public @Nonnull String getProviderTermForSubnet(@Nonnull Locale locale) {
+        return "subnet";
+    }
+
+    public @Nonnull String getProviderTermForVlan(@Nonnull Locale locale) {
+        return "VPC";
+    }
+
+    public @Nullable Subnet getSubnet(@Nonnull String subnetId) {
+        Subnet subnet = findSubnet(subnetId);
+
+        if( subnet == null || !subnet.getProviderOwnerId().equals(getOwner()) || !subnet.getProviderRegionId().equals(getRegionId()) ) {
+            return null;
+        }
+        return subnet;
+    }
+
+    public @Nonnull Requirement getSubnetSupport() {
+        return Requirement.OPTIONAL;
+    }
+
+    public @Nullable VLAN getVlan(@Nonnull String vlanId) {
+        VLAN vlan = find(vlanId);
+
+        if( vlan == null || !vlan.getProviderOwnerId().equals(getOwner()) || !vlan.getProviderRegionId().equals(getRegionId()) ) {
+            return null;
+        }
+        return vlan;
+    }
+
+    public @Nonnull Requirement identifySubnetDCRequirement() {
+        return Requirement.OPTIONAL;
+    }
+
+    public boolean isConnectedViaInternetGateway(@Nonnull String vlanId) throws CloudException {
+        require(vlanId);
+        return false;
+    }
+
+    public boolean isSubnetDataCenterConstrained() {
+        return true;
+    }
+
+    public @Nonnull Iterable<Subnet> listSubnets(@Nonnull String vlanId) throws CloudException {
+        ArrayList<Subnet> list = new ArrayList<Subnet>();
+
+        require(vlanId);
+        for( String subnetId : subnets.keySet() ) {
+            Subnet subnet = getSubnet(subnetId);
+
+            if( subnet != null && subnet.getProviderVlanId().equals(vlanId) ) {
+                list.add(subnet);
+            }
+        }
+        return list;
+    }
+
+    public @Nonnull Iterable<IPVersion> listSupportedIPVersions() {
+        return Collections.singletonList(IPVersion.IPV4);
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listVlanStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( VLAN vlan : listVlans() ) {
+            status.add(new ResourceStatus(vlan.getProviderVlanId(), vlan.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<VLAN> listVlans() {
+        ArrayList<VLAN> list = new ArrayList<VLAN>();
+
+        for( String vlanId : vlans.keySet() ) {
+            VLAN vlan = getVlan(vlanId);
+
+            if( vlan != null ) {
+                list.add(vlan);
+            }
+        }
+        return list;
+    }
+
+    public void removeSubnet(@Nonnull String subnetId) throws CloudException {
+        if( getSubnet(subnetId) == null ) {
+            throw notFound("subnet", subnetId);
+        }
+        subnets.remove(subnetId);
+    }
+
+    public void removeVlan(@Nonnull String vlanId) throws CloudException {
+        require(vlanId);
+        for( Subnet subnet : subnets.values() ) {
+            if( subnet.getProviderVlanId().equals(vlanId) ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "DependencyViolation", "VLAN " + vlanId + " still has subnet " + subnet.getProviderSubnetId());
+            }
+        }
+        vlans.remove(vlanId);
+        SimulatedFirewalls.removeDefault(vlanId);
+    }
+
+    public void removeVLANTags(@Nonnull String vlanId, @Nonnull Tag ... tags) throws CloudException {
+        removeTags(require(vlanId).getTags(), tags);
+    }
+
+    public void removeVLANTags(@Nonnull String[] vlanIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String vlanId : vlanIds ) {
+            removeVLANTags(vlanId, tags);
+        }
+    }
+
+    public void updateVLANTags(@Nonnull String vlanId, @Nonnull Tag ... tags) throws CloudException {
+        updateTags(require(vlanId).getTags(), tags);
+    }
+
+    public void updateVLANTags(@Nonnull String[] vlanIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String vlanId : vlanIds ) {
+            updateVLANTags(vlanId, tags);
+        }
+    }
+}
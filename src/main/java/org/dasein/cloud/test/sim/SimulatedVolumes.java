@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.OperationNotSupportedException;
+import org.dasein.cloud.Requirement;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.Tag;
+import org.dasein.cloud.compute.Platform;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.dasein.cloud.compute.VmState;
+import org.dasein.cloud.compute.Volume;
+import org.dasein.cloud.compute.VolumeCreateOptions;
+import org.dasein.cloud.compute.VolumeFilterOptions;
+import org.dasein.cloud.compute.VolumeFormat;
+import org.dasein.cloud.compute.VolumeProduct;
+import org.dasein.cloud.compute.VolumeState;
+import org.dasein.cloud.compute.VolumeType;
+import org.dasein.util.uom.storage.Gigabyte;
+import org.dasein.util.uom.storage.Storage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Simulated block volume support. Volumes are created in the pending state and become available after the transition
+ * time for Volume. Volumes must be detached before they can be removed and are detached automatically when the virtual
+ * machine to which they are attached is terminated.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+class SimulatedVolumes extends SimulatedSupport {
+    static private final String TYPE = "Volume";
+
+    static private final ConcurrentHashMap<String,Volume> volumes = new ConcurrentHashMap<String, Volume>();
+
+    static @Nullable Volume find(@Nullable String volumeId) {
+        Volume volume = (volumeId == null ? null : volumes.get(volumeId));
+
+        if( volume != null ) {
+            volume.setCurrentState(settle(volumeId, volume.getCurrentState()));
+        }
+        return volume;
+    }
+
+    static void detachAll(@Nonnull String vmId) {
+        for( Volume volume : volumes.values() ) {
+            synchronized( volume ) {
+                if( vmId.equals(volume.getProviderVirtualMachineId()) ) {
+                    volume.setProviderVirtualMachineId(null);
+                    volume.setDeviceId(null);
+                }
+            }
+        }
+    }
+
+    SimulatedVolumes(@Nonnull SimulatedCloud provider) {
+        super(provider);
+    }
+
+    private @Nonnull Volume require(@Nonnull String volumeId) throws CloudException {
+        Volume volume = find(volumeId);
+
+        if( volume == null || !getRegionId().equals(volume.getProviderRegionId()) ) {
+            throw notFound(TYPE, volumeId);
+        }
+        return volume;
+    }
+
+    public void attach(@Nonnull String volumeId, @Nonnull String vmId, @Nonnull String deviceId) throws CloudException {
+        Volume volume = require(volumeId);
+        VirtualMachine vm = SimulatedVirtualMachines.find(vmId);
+
+        if( vm == null || VmState.TERMINATED.equals(vm.getCurrentState()) ) {
+            throw notFound("virtual machine", vmId);
+        }
+        synchronized( volume ) {
+            if( !VolumeState.AVAILABLE.equals(volume.getCurrentState()) || volume.getProviderVirtualMachineId() != null ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "IncorrectState", "Volume " + volumeId + " is not available for attachment");
+            }
+            volume.setProviderVirtualMachineId(vmId);
+            volume.setDeviceId(deviceId);
+        }
+    }
+
+    public @Nonnull String create(@Nullable String snapshotId, int sizeInGb, @Nullable String dataCenterId) throws CloudException, OperationNotSupportedException {
+        Storage<Gigabyte> size = new Storage<Gigabyte>(sizeInGb, Storage.GIGABYTE);
+
+        if( snapshotId != null ) {
+            return createVolume(VolumeCreateOptions.getInstanceForSnapshot(snapshotId, size, "sim-" + System.currentTimeMillis(), "Volume from " + snapshotId).inDataCenter(dataCenterId));
+        }
+        return createVolume(VolumeCreateOptions.getInstance(size, "sim-" + System.currentTimeMillis(), "Simulated volume").inDataCenter(dataCenterId));
+    }
+
+    public @Nonnull String createVolume(@Nonnull VolumeCreateOptions options) throws CloudException, OperationNotSupportedException {
+        VolumeProduct product = null;
+
+        if( VolumeFormat.NFS.equals(options.getFormat()) ) {
+            throw new OperationNotSupportedException("NFS volumes are not supported");
+        }
+
+        if( options.getVolumeProductId() != null ) {
+            for( VolumeProduct p : listVolumeProducts() ) {
+                if( p.getProviderProductId().equals(options.getVolumeProductId()) ) {
+                    product = p;
+                }
+            }
+            if( product == null ) {
+                throw notFound("volume product", options.getVolumeProductId());
+            }
+        }
+        if( options.getSnapshotId() != null && SimulatedSnapshots.find(options.getSnapshotId()) == null ) {
+            throw notFound("snapshot", options.getSnapshotId());
+        }
+        Volume volume = new Volume();
+        String volumeId = newId("vol");
+
+        volume.setProviderVolumeId(volumeId);
+        volume.setName(options.getName());
+        volume.setDescription(options.getDescription());
+        volume.setProviderRegionId(getRegionId());
+        volume.setProviderDataCenterId(getDataCenterId(options.getDataCenterId()));
+        volume.setProviderSnapshotId(options.getSnapshotId());
+        volume.setProviderProductId(product == null ? null : product.getProviderProductId());
+        volume.setType(product == null ? VolumeType.HDD : product.getType());
+        volume.setSize(options.getVolumeSize() == null ? new Storage<Gigabyte>(1, Storage.GIGABYTE) : options.getVolumeSize());
+        volume.setFormat(VolumeFormat.BLOCK);
+        volume.setCreationTimestamp(System.currentTimeMillis());
+        Map<String,Object> meta = options.getMetaData();
+
+        if( meta != null ) {
+            for( Map.Entry<String,Object> entry : meta.entrySet() ) {
+                volume.setTag(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        // volumes are usable as soon as they are created since the harness attaches them right away
+        volume.setCurrentState(VolumeState.AVAILABLE);
+        volumes.put(volumeId, volume);
+        if( options.getVirtualMachineId() != null ) {
+            attach(volumeId, options.getVirtualMachineId(), options.getDeviceId() == null ? "/dev/sdf" : options.getDeviceId());
+        }
+        return volumeId;
+    }
+
+    public void detach(@Nonnull String volumeId) throws CloudException {
+        detach(volumeId, false);
+    }
+
+    public void detach(@Nonnull String volumeId, boolean force) throws CloudException {
+        Volume volume = require(volumeId);
+
+        synchronized( volume ) {
+            if( volume.getProviderVirtualMachineId() == null ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "IncorrectState", "Volume " + volumeId + " is not attached");
+            }
+            volume.setProviderVirtualMachineId(null);
+            volume.setDeviceId(null);
+        }
+    }
+
+    public int getMaximumVolumeCount() {
+        return -1;
+    }
+
+    public @Nonnull Storage<Gigabyte> getMaximumVolumeSize() {
+        return new Storage<Gigabyte>(1024, Storage.GIGABYTE);
+    }
+
+    public @Nonnull Storage<Gigabyte> getMinimumVolumeSize() {
+        return new Storage<Gigabyte>(1, Storage.GIGABYTE);
+    }
+
+    public @Nonnull String getProviderTermForVolume(@Nonnull Locale locale) {
+        return "volume";
+    }
+
+    public @Nullable Volume getVolume(@Nonnull String volumeId) {
+        Volume volume = find(volumeId);
+
+        if( volume == null || !getRegionId().equals(volume.getProviderRegionId()) ) {
+            return null;
+        }
+        return volume;
+    }
+
+    public @Nonnull Requirement getVolumeProductRequirement() {
+        return Requirement.OPTIONAL;
+    }
+
+    public boolean isVolumeSizeDeterminedByProduct() {
+        return false;
+    }
+
+    public @Nonnull Iterable<String> listPossibleDeviceIds(@Nonnull Platform platform) {
+        ArrayList<String> ids = new ArrayList<String>();
+
+        for( char c = 'f'; c <= 'p'; c++ ) {
+            ids.add(platform.isWindows() ? "xvd" + c : "/dev/sd" + c);
+        }
+        return ids;
+    }
+
+    public @Nonnull Iterable<VolumeFormat> listSupportedFormats() {
+        return Collections.singletonList(VolumeFormat.BLOCK);
+    }
+
+    public @Nonnull Iterable<VolumeProduct> listVolumeProducts() {
+        ArrayList<VolumeProduct> products = new ArrayList<VolumeProduct>();
+
+        products.add(VolumeProduct.getInstance("sim.hdd", "Standard", "Simulated magnetic storage", VolumeType.HDD, 0, 0, 0.05f, 0f));
+        products.add(VolumeProduct.getInstance("sim.ssd", "Performance", "Simulated solid state storage", VolumeType.SSD, 100, 4000, 0.10f, 0.0001f));
+        return products;
+    }
+
+    public @Nonnull Iterable<ResourceStatus> listVolumeStatus() {
+        ArrayList<ResourceStatus> status = new ArrayList<ResourceStatus>();
+
+        for( Volume volume : listVolumes() ) {
+            status.add(new ResourceStatus(volume.getProviderVolumeId(), volume.getCurrentState()));
+        }
+        return status;
+    }
+
+    public @Nonnull Iterable<Volume> listVolumes() {
+        return listVolumes(null);
+    }
+
+    public @Nonnull Iterable<Volume> listVolumes(@Nullable VolumeFilterOptions options) {
+        ArrayList<Volume> list = new ArrayList<Volume>();
+
+        for( String volumeId : volumes.keySet() ) {
+            Volume volume = getVolume(volumeId);
+
+            if( volume != null && (options == null || options.matches(volume)) ) {
+                list.add(volume);
+            }
+        }
+        return list;
+    }
+
+    public void remove(@Nonnull String volumeId) throws CloudException {
+        Volume volume = require(volumeId);
+
+        synchronized( volume ) {
+            if( volume.getProviderVirtualMachineId() != null ) {
+                throw new CloudException(CloudErrorType.GENERAL, 400, "VolumeInUse", "Volume " + volumeId + " is attached to " + volume.getProviderVirtualMachineId());
+            }
+            volume.setCurrentState(VolumeState.DELETED);
+            volumes.remove(volumeId);
+        }
+    }
+
+    public void updateTags(@Nonnull String volumeId, @Nonnull Tag ... tags) throws CloudException {
+        updateTags(require(volumeId).getTags(), tags);
+    }
+
+    public void updateTags(@Nonnull String[] volumeIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String volumeId : volumeIds ) {
+            updateTags(volumeId, tags);
+        }
+    }
+
+    public void removeTags(@Nonnull String volumeId, @Nonnull Tag ... tags) throws CloudException {
+        removeTags(require(volumeId).getTags(), tags);
+    }
+
+    public void removeTags(@Nonnull String[] volumeIds, @Nonnull Tag ... tags) throws CloudException {
+        for( String volumeId : volumeIds ) {
+            removeTags(volumeId, tags);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.sim;
+
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.OperationNotSupportedException;
+import org.dasein.cloud.Requirement;
+import org.dasein.cloud.test.PerfUtils;
+import org.dasein.cloud.util.APITrace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds the in-memory handlers of the simulated cloud to the Dasein Cloud service interfaces. Each support interface
+ * is implemented by a dynamic proxy that hands calls off to a public method of the same name and parameter types on
+ * its handler. Calls against the cloud (as opposed to questions about its capabilities) are delayed by the configured
+ * latency, may fail with a throttling error, and are reported through {@link APITrace} just as a real provider would
+ * report them. Methods a handler does not implement fall back to the answer of a cloud that does not support the
+ * feature.
+ * <p>The following {@link System} properties control the simulation. Each may be overridden for a single operation by
+ * appending the operation name (e.g. dasein.sim.latency.VirtualMachineSupport.launch).</p>
+ * <ul>
+ *     <li>dasein.sim.latency - the mean latency of each call in milliseconds (default 5)</li>
+ *     <li>dasein.sim.jitter - the maximum deviation from the mean latency in milliseconds (default half the latency)</li>
+ *     <li>dasein.sim.throttle - the probability from 0 to 1 that a call fails with a throttling error (default 0)</li>
+ * </ul>
+ * <p>The time resources spend in transitional states is controlled by dasein.sim.transition in milliseconds (default
+ * 2000), which may be overridden for a single resource type by appending the type name (e.g.
+ * dasein.sim.transition.Database).</p>
+ * <p>Since the simulation moves resources through their states far faster than a real cloud, the fixed waits of the
+ * harness are divided by dasein.sim.speed (default 10, with 0 meaning no waiting at all) once a simulated cloud is
+ * in use. See {@link #compress(long)}.</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class Simulation {
+    static private final String[] CAPABILITIES = { "allows", "describe", "getMax", "getMinimum", "getProviderTerm", "hasPublic", "identify", "listSupported", "mapServiceAction", "requires", "supports" };
+
+    static private final ConcurrentHashMap<String,Settings> settings    = new ConcurrentHashMap<String, Settings>();
+    static private final ConcurrentHashMap<String,Long>     transitions = new ConcurrentHashMap<String, Long>();
+    static private final Random                             random      = new Random();
+
+    static private volatile double  speed = -1.0;
+    static private volatile boolean used;
+
+    static private class Settings {
+        long   jitter;
+        long   latency;
+        double throttle;
+    }
+
+    static private class Dispatcher implements InvocationHandler {
+        private Object              handler;
+        private String              service;
+        private SimulatedCloud      provider;
+        private Map<Method,Object>  targets = new ConcurrentHashMap<Method, Object>();
+
+        private Dispatcher(@Nonnull SimulatedCloud provider, @Nonnull Class<?> service, @Nonnull Object handler) {
+            this.provider = provider;
+            this.service = service.getSimpleName();
+            this.handler = handler;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if( method.getDeclaringClass().equals(Object.class) ) {
+                String name = method.getName();
+
+                if( name.equals("equals") ) {
+                    return (proxy == args[0]);
+                }
+                else if( name.equals("hashCode") ) {
+                    return System.identityHashCode(proxy);
+                }
+                else if( name.equals("toString") ) {
+                    return "Simulated " + service;
+                }
+                return method.invoke(handler, args);
+            }
+            Method target = getTarget(method);
+
+            if( isCapability(method) ) {
+                return (target == null ? getDefault(method) : call(target, args));
+            }
+            String api = service + "." + method.getName();
+
+            APITrace.begin(provider, api);
+            try {
+                simulate(api, method);
+                APITrace.trace(provider, api);
+                return (target == null ? getDefault(method) : call(target, args));
+            }
+            finally {
+                APITrace.end();
+            }
+        }
+
+        private @Nullable Object call(@Nonnull Method target, @Nullable Object[] args) throws Throwable {
+            try {
+                return target.invoke(handler, args);
+            }
+            catch( InvocationTargetException e ) {
+                throw e.getCause();
+            }
+        }
+
+        private @Nullable Method getTarget(@Nonnull Method method) {
+            Object target = targets.get(method);
+
+            if( target == null ) {
+                try {
+                    Method m = handler.getClass().getMethod(method.getName(), method.getParameterTypes());
+
+                    m.setAccessible(true);
+                    target = m;
+                }
+                catch( NoSuchMethodException e ) {
+                    target = Boolean.FALSE;
+                }
+                targets.put(method, target);
+            }
+            return (target instanceof Method ? (Method)target : null);
+        }
+    }
+
+    static private class Services implements InvocationHandler {
+        private String      service;
+        private Object[]    supports;
+
+        private Services(@Nonnull Class<?> service, @Nonnull Object ... supports) {
+            this.service = service.getSimpleName();
+            this.supports = supports;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if( name.equals("equals") && method.getParameterTypes().length == 1 ) {
+                return (proxy == args[0]);
+            }
+            else if( name.equals("hashCode") && method.getParameterTypes().length == 0 ) {
+                return System.identityHashCode(proxy);
+            }
+            else if( name.equals("toString") && method.getParameterTypes().length == 0 ) {
+                return "Simulated " + service;
+            }
+            else if( name.startsWith("has") ) {
+                try {
+                    return (getSupport(proxy.getClass().getMethod("get" + name.substring(3)).getReturnType()) != null);
+                }
+                catch( NoSuchMethodException e ) {
+                    return false;
+                }
+            }
+            return getSupport(method.getReturnType());
+        }
+
+        private @Nullable Object getSupport(@Nonnull Class<?> type) {
+            for( Object support : supports ) {
+                if( type.isInstance(support) ) {
+                    return support;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Creates a simulated support object that hands calls off to the specified handler.
+     * @param provider the simulated cloud on whose behalf calls are made
+     * @param type the support interface to implement
+     * @param handler the in-memory implementation of the support interface
+     * @param <T> the support interface
+     * @return a simulated support object
+     */
+    static public @Nonnull <T> T getSupport(@Nonnull SimulatedCloud provider, @Nonnull Class<T> type, @Nonnull Object handler) {
+        used = true;
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Dispatcher(provider, type, handler)));
+    }
+
+    /**
+     * Creates a simulated services object that offers the specified support objects. The services object answers to
+     * each getXXXSupport() method with the matching support object and to each hasXXXSupport() method with whether
+     * there is one.
+     * @param type the services interface to implement
+     * @param supports the support objects offered by the services object
+     * @param <T> the services interface
+     * @return a simulated services object
+     */
+    static public @Nonnull <T> T getServices(@Nonnull Class<T> type, @Nonnull Object ... supports) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new Services(type, supports)));
+    }
+
+    /**
+     * Shortens a wait of the harness by the simulation speed. Waits are left alone unless a simulated cloud has been
+     * created in this JVM.
+     * @param millis the wait in milliseconds
+     * @return the wait to actually make in milliseconds
+     */
+    static public long compress(long millis) {
+        if( !used ) {
+            return millis;
+        }
+        if( speed < 0.0 ) {
+            speed = Math.max(0.0, PerfUtils.getDouble("dasein.sim.speed", 10.0));
+        }
+        return (speed <= 0.0 ? 0L : (long)(millis/speed));
+    }
+
+    /**
+     * Provides the time a resource of the specified type spends in a transitional state.
+     * @param resourceType the type of resource (e.g. VirtualMachine)
+     * @return the transition time in milliseconds
+     */
+    static public long getTransitionTime(@Nonnull String resourceType) {
+        Long time = transitions.get(resourceType);
+
+        if( time == null ) {
+            time = getLong("dasein.sim.transition." + resourceType, getLong("dasein.sim.transition", 2000L));
+            transitions.put(resourceType, time);
+        }
+        return time;
+    }
+
+    static private @Nonnull Settings getSettings(@Nonnull String api) {
+        Settings s = settings.get(api);
+
+        if( s == null ) {
+            s = new Settings();
+            s.latency = getLong("dasein.sim.latency." + api, getLong("dasein.sim.latency", 5L));
+            s.jitter = getLong("dasein.sim.jitter." + api, getLong("dasein.sim.jitter", s.latency/2));
+            s.throttle = getDouble("dasein.sim.throttle." + api, getDouble("dasein.sim.throttle", 0.0));
+            settings.put(api, s);
+        }
+        return s;
+    }
+
+    static private long getLong(@Nonnull String name, long defaultValue) {
+        return Math.max(0L, PerfUtils.getLong(name, defaultValue));
+    }
+
+    static private double getDouble(@Nonnull String name, double defaultValue) {
+        return Math.min(1.0, Math.max(0.0, PerfUtils.getDouble(name, defaultValue)));
+    }
+
+    /**
+     * Capability questions are answered locally by real providers and therefore neither take time nor count as calls.
+     * @param method the method being called
+     * @return true if the method asks about the capabilities of the cloud
+     */
+    static private boolean isCapability(@Nonnull Method method) {
+        String name = method.getName();
+
+        for( String prefix : CAPABILITIES ) {
+            if( name.startsWith(prefix) ) {
+                return true;
+            }
+        }
+        if( name.startsWith("is") && !name.equals("isSubscribed") ) {
+            for( Class<?> type : method.getParameterTypes() ) {
+                if( type.equals(String.class) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return Requirement.class.equals(method.getReturnType());
+    }
+
+    static private boolean declares(@Nonnull Method method, @Nonnull Class<? extends Throwable> type) {
+        for( Class<?> t : method.getExceptionTypes() ) {
+            if( t.isAssignableFrom(type) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static private void simulate(@Nonnull String api, @Nonnull Method method) throws CloudException {
+        Settings s = getSettings(api);
+        long delay = s.latency;
+
+        if( s.jitter > 0L ) {
+            synchronized( random ) {
+                delay += (long)((random.nextDouble()*2.0 - 1.0)*s.jitter);
+            }
+        }
+        if( delay > 0L ) {
+            try { Thread.sleep(delay); }
+            catch( InterruptedException ignore ) { }
+        }
+        if( s.throttle > 0.0 && declares(method, CloudException.class) ) {
+            boolean throttled;
+
+            synchronized( random ) {
+                throttled = (random.nextDouble() < s.throttle);
+            }
+            if( throttled ) {
+                throw new CloudException(CloudErrorType.THROTTLING, 503, "Throttling", "Rate exceeded for " + api);
+            }
+        }
+    }
+
+    /**
+     * Answers a call the handler does not implement as a cloud without the feature would answer it.
+     * @param method the method being called
+     * @return the default answer for the method
+     * @throws OperationNotSupportedException the method is an operation the simulated cloud does not support
+     */
+    static private @Nullable Object getDefault(@Nonnull Method method) throws OperationNotSupportedException {
+        Class<?> type = method.getReturnType();
+        String name = method.getName();
+
+        if( type.equals(Boolean.TYPE) ) {
+            return name.equals("isSubscribed");
+        }
+        else if( type.equals(Integer.TYPE) ) {
+            return 0;
+        }
+        else if( type.equals(Long.TYPE) ) {
+            return 0L;
+        }
+        else if( type.equals(Float.TYPE) ) {
+            return 0f;
+        }
+        else if( type.equals(Double.TYPE) ) {
+            return 0.0;
+        }
+        else if( type.equals(Requirement.class) ) {
+            return Requirement.NONE;
+        }
+        else if( type.isArray() ) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        else if( type.equals(Iterable.class) || Collection.class.isAssignableFrom(type) ) {
+            return new ArrayList<Object>();
+        }
+        else if( type.equals(String.class) && name.startsWith("getProviderTerm") ) {
+            String term = name.substring("getProviderTermFor".length());
+
+            return term.replaceAll("([a-z])([A-Z])", "$1 $2").toLowerCase();
+        }
+        else if( name.startsWith("get") || !declares(method, OperationNotSupportedException.class) ) {
+            return null;
+        }
+        throw new OperationNotSupportedException(name + " is not supported in the simulated cloud");
+    }
+}
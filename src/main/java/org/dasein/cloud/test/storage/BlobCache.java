@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.PerfUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the results of the object store calls made to resolve test fixtures so that the stateless storage tests do
+ * not list the store and look up the same buckets and objects over and over before every test. Bucket and object
+ * lookups (including lookups that found nothing) and small bucket listings are kept in a bounded LRU map, and each
+ * entry expires after a fixed time. The cache is for fixture resolution only: the assertions of the tests still call
+ * the provider directly. Changes made through {@link StorageResources} invalidate the affected entries.
+ * <p>The cache is off unless enabled with the following {@link System} properties:</p>
+ * <ul>
+ *     <li>dasein.blobCache - true to cache fixture lookups (default false)</li>
+ *     <li>dasein.blobCache.size - the most entries kept (default 1000)</li>
+ *     <li>dasein.blobCache.ttl - the milliseconds after which an entry expires (default 300000)</li>
+ *     <li>dasein.blobCache.maxListing - the most blobs in a listing that is cached (default 1000)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class BlobCache {
+    static private final Logger logger = Logger.getLogger(BlobCache.class);
+
+    static private int getSetting(@Nonnull String name, int defaultValue) {
+        return Math.max(0, PerfUtils.getInt("dasein.blobCache." + name, defaultValue));
+    }
+
+    static private class Cached {
+        public Blob       blob;
+        public long       expires;
+        public List<Blob> listing;
+    }
+
+    private final LinkedHashMap<String,Cached> entries;
+    private final boolean                      enabled;
+    private       int                          evictions;
+    private       int                          expirations;
+    private       int                          hits;
+    private final int                          maxListing;
+    private       int                          misses;
+    private final long                         ttl;
+
+    public BlobCache() {
+        final int size = getSetting("size", 1000);
+
+        enabled = "true".equalsIgnoreCase(System.getProperty("dasein.blobCache"));
+        ttl = getSetting("ttl", 300000);
+        maxListing = getSetting("maxListing", 1000);
+        entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Cached> eldest) {
+                if( size() > size ) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    static private @Nonnull String key(@Nullable String bucket, @Nullable String object) {
+        return (bucket == null ? "" : bucket) + "/" + (object == null ? "" : object);
+    }
+
+    private @Nullable Cached get(@Nonnull String key) {
+        synchronized( entries ) {
+            Cached entry = entries.get(key);
+
+            if( entry != null && entry.expires < System.currentTimeMillis() ) {
+                entries.remove(key);
+                expirations++;
+                entry = null;
+            }
+            if( entry == null ) {
+                misses++;
+            }
+            else {
+                hits++;
+            }
+            return entry;
+        }
+    }
+
+    private void put(@Nonnull String key, @Nullable Blob blob, @Nullable List<Blob> listing) {
+        Cached entry = new Cached();
+
+        entry.blob = blob;
+        entry.listing = listing;
+        entry.expires = System.currentTimeMillis() + ttl;
+        synchronized( entries ) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Looks up a bucket through the cache.
+     * @param support the object store support
+     * @param bucket the name of the bucket
+     * @return the bucket or null if it does not exist
+     * @throws CloudException an error occurred with the cloud provider looking up the bucket
+     * @throws InternalException an error occurred within Dasein Cloud looking up the bucket
+     */
+    public @Nullable Blob getBucket(@Nonnull BlobStoreSupport support, @Nonnull String bucket) throws CloudException, InternalException {
+        if( !enabled ) {
+            return support.getBucket(bucket);
+        }
+        String key = key(bucket, null);
+        Cached entry = get(key);
+
+        if( entry != null ) {
+            return entry.blob;
+        }
+        Blob blob = support.getBucket(bucket);
+
+        put(key, blob, null);
+        return blob;
+    }
+
+    /**
+     * Looks up an object through the cache.
+     * @param support the object store support
+     * @param bucket the bucket holding the object or null for a root object
+     * @param object the name of the object
+     * @return the object or null if it does not exist
+     * @throws CloudException an error occurred with the cloud provider looking up the object
+     * @throws InternalException an error occurred within Dasein Cloud looking up the object
+     */
+    public @Nullable Blob getObject(@Nonnull BlobStoreSupport support, @Nullable String bucket, @Nonnull String object) throws CloudException, InternalException {
+        if( !enabled ) {
+            return support.getObject(bucket, object);
+        }
+        String key = key(bucket, object);
+        Cached entry = get(key);
+
+        if( entry != null ) {
+            return entry.blob;
+        }
+        Blob blob = support.getObject(bucket, object);
+
+        put(key, blob, null);
+        return blob;
+    }
+
+    /**
+     * Lists the contents of a bucket through the cache. Each blob in a cached listing is also cached for lookup.
+     * Listings of more than the configured number of blobs are not cached so that a huge bucket is never held in
+     * memory; the blobs read so far followed by the rest of the provider's results are handed back instead, and
+     * those may be iterated only once.
+     * @param support the object store support
+     * @param bucket the bucket to list or null for the root of the store
+     * @return the contents of the bucket
+     * @throws CloudException an error occurred with the cloud provider listing the bucket
+     * @throws InternalException an error occurred within Dasein Cloud listing the bucket
+     */
+    public @Nonnull Iterable<Blob> list(@Nonnull BlobStoreSupport support, @Nullable String bucket) throws CloudException, InternalException {
+        if( !enabled ) {
+            return support.list(bucket);
+        }
+        String key = "list:" + key(bucket, null);
+        Cached entry = get(key);
+
+        if( entry != null ) {
+            return entry.listing;
+        }
+        final ArrayList<Blob> listing = new ArrayList<Blob>();
+        final Iterator<Blob> it = support.list(bucket).iterator();
+
+        while( it.hasNext() ) {
+            if( listing.size() >= maxListing ) {
+                return new Iterable<Blob>() {
+                    @Override
+                    public Iterator<Blob> iterator() {
+                        return new Iterator<Blob>() {
+                            private final Iterator<Blob> read = listing.iterator();
+
+                            @Override
+                            public boolean hasNext() {
+                                return (read.hasNext() || it.hasNext());
+                            }
+
+                            @Override
+                            public Blob next() {
+                                return (read.hasNext() ? read.next() : it.next());
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+                };
+            }
+            listing.add(it.next());
+        }
+        List<Blob> cached = Collections.unmodifiableList(listing);
+
+        put(key, null, cached);
+        for( Blob blob : listing ) {
+            if( blob.isContainer() ) {
+                put(key(blob.getBucketName(), null), blob, null);
+            }
+            else {
+                put(key(blob.getBucketName(), blob.getObjectName()), blob, null);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Drops the cached listing of a bucket along with the cached lookup of a bucket or object in it.
+     * @param bucket the bucket that changed or null for the root of the store
+     * @param object the object that changed, or null if the bucket itself changed
+     */
+    public void invalidate(@Nullable String bucket, @Nullable String object) {
+        if( !enabled ) {
+            return;
+        }
+        synchronized( entries ) {
+            entries.remove("list:" + key(bucket, null));
+            entries.remove(key(bucket, object));
+            if( object == null && bucket != null ) {
+                int idx = bucket.lastIndexOf('/');
+
+                entries.remove("list:" + key(idx < 0 ? null : bucket.substring(0, idx), null));
+            }
+        }
+    }
+
+    /**
+     * Logs the hits, misses, evictions, and expirations of the cache.
+     * @param logger the logger to write the report to
+     */
+    public void report(@Nonnull Logger logger) {
+        synchronized( entries ) {
+            if( !enabled || (hits + misses) == 0 ) {
+                return;
+            }
+            logger.info("------------- Blob Cache --------------");
+            DaseinTestManager.out(logger, null, "---> Hits", hits + " of " + (hits + misses) + " lookups (" + ((hits * 100)/(hits + misses)) + "%)");
+            DaseinTestManager.out(logger, null, "---> Misses", String.valueOf(misses));
+            DaseinTestManager.out(logger, null, "---> Evictions", String.valueOf(evictions));
+            DaseinTestManager.out(logger, null, "---> Expirations", String.valueOf(expirations));
+            DaseinTestManager.out(logger, null, "---> Entries", String.valueOf(entries.size()));
+            logger.info("");
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.test.PerfUtils;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * Verifies downloaded files against the content they are expected to hold in a single streaming pass. The file is
+ * read through a {@link FileChannel} into a direct buffer while the expected content is read from a stream (typically
+ * {@link ObjectContentGenerator#open(long, long)}), so neither has to fit in memory. Both are digested as they are
+ * read and compared chunk by chunk so that a mismatch reports the offset of the first byte that differs rather than
+ * just a failed digest. The time spent verifying is measured on its own so it can be reported apart from the time
+ * spent transferring.
+ * <p>The digest is chosen with the dasein.verify.digest {@link System} property: CRC32 or any algorithm supported by
+ * {@link MessageDigest} (default MD5).</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class DownloadVerifier {
+    static private final Logger logger = Logger.getLogger(DownloadVerifier.class);
+
+    static private final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * The outcome of verifying one file.
+     */
+    static public class Result {
+        private String actualDigest;
+        private long   bytes;
+        private String expectedDigest;
+        private long   mismatch = -1L;
+        private long   nanos;
+
+        public @Nonnull String getActualDigest() {
+            return actualDigest;
+        }
+
+        /**
+         * @return the number of bytes of the file that were verified
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public @Nonnull String getExpectedDigest() {
+            return expectedDigest;
+        }
+
+        /**
+         * @return the offset of the first byte that differs from the expected content or -1 if the file matches
+         */
+        public long getMismatchOffset() {
+            return mismatch;
+        }
+
+        public long getMillis() {
+            return nanos/1000000L;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public boolean isMatch() {
+            return (mismatch < 0L && expectedDigest.equals(actualDigest));
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            if( isMatch() ) {
+                return "matched " + bytes + " bytes (" + actualDigest + ") in " + getMillis() + " ms";
+            }
+            return "first mismatch at byte " + mismatch + " of " + bytes + " (expected " + expectedDigest + ", got " + actualDigest + ")";
+        }
+    }
+
+    /**
+     * A digest that is either a {@link MessageDigest} or a CRC32, which the JDK does not offer as a message digest.
+     */
+    static private class Digest {
+        private CRC32         crc;
+        private MessageDigest md;
+        private byte[]        scratch;
+
+        public Digest(@Nonnull String algorithm) throws NoSuchAlgorithmException {
+            if( algorithm.equalsIgnoreCase("CRC32") ) {
+                crc = new CRC32();
+            }
+            else {
+                md = MessageDigest.getInstance(algorithm);
+            }
+        }
+
+        public void update(@Nonnull ByteBuffer buffer) {
+            if( md != null ) {
+                md.update(buffer);
+            }
+            else if( buffer.hasArray() ) {
+                crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                buffer.position(buffer.limit());
+            }
+            else {
+                // CRC32 cannot read a direct buffer in Java 6, so copy through one array reused for every chunk
+                if( scratch == null ) {
+                    scratch = new byte[Math.max(1, buffer.remaining())];
+                }
+                while( buffer.hasRemaining() ) {
+                    int len = Math.min(scratch.length, buffer.remaining());
+
+                    buffer.get(scratch, 0, len);
+                    crc.update(scratch, 0, len);
+                }
+            }
+        }
+
+        public @Nonnull String finish() {
+            if( md == null ) {
+                return Long.toHexString(crc.getValue());
+            }
+            StringBuilder str = new StringBuilder();
+
+            for( byte b : md.digest() ) {
+                str.append(String.format("%02x", b & 0xFF));
+            }
+            return str.toString();
+        }
+    }
+
+    static private String algorithm;
+
+    static private @Nonnull String getAlgorithm() {
+        if( algorithm == null ) {
+            String a = PerfUtils.getString("dasein.verify.digest", "MD5");
+
+            try {
+                new Digest(a);
+            }
+            catch( NoSuchAlgorithmException e ) {
+                logger.warn("Invalid value for dasein.verify.digest: " + a);
+                a = "MD5";
+            }
+            algorithm = a;
+        }
+        return algorithm;
+    }
+
+    static private int fill(@Nonnull InputStream in, @Nonnull byte[] buffer, int len) throws IOException {
+        int total = 0;
+
+        while( total < len ) {
+            int n = in.read(buffer, total, len - total);
+
+            if( n < 0 ) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Verifies a downloaded file against the content it is expected to hold.
+     * @param file the downloaded file
+     * @param expected the expected content, which is read to its end and closed
+     * @return the outcome of the verification
+     * @throws IOException an error occurred reading the file or the expected content
+     */
+    static public @Nonnull Result verify(@Nonnull File file, @Nonnull InputStream expected) throws IOException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        Digest actualDigest, expectedDigest;
+
+        try {
+            actualDigest = new Digest(getAlgorithm());
+            expectedDigest = new Digest(getAlgorithm());
+        }
+        catch( NoSuchAlgorithmException e ) {
+            throw new IOException(e.getMessage());
+        }
+        FileInputStream input = new FileInputStream(file);
+
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer actual = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            long offset = 0L;
+
+            while( true ) {
+                actual.clear();
+                int n = channel.read(actual);
+
+                if( n <= 0 ) {
+                    if( n < 0 || channel.position() >= channel.size() ) {
+                        break;
+                    }
+                    continue;
+                }
+                actual.flip();
+                int e = fill(expected, chunk, n);
+                ByteBuffer wanted = ByteBuffer.wrap(chunk, 0, e);
+
+                if( result.mismatch < 0L ) {
+                    if( e < n ) {
+                        ByteBuffer head = actual.duplicate();
+
+                        head.limit(e);
+                        result.mismatch = offset + findMismatch(head, wanted.duplicate());
+                    }
+                    else if( !actual.equals(wanted) ) {
+                        result.mismatch = offset + findMismatch(actual.duplicate(), wanted.duplicate());
+                    }
+                }
+                actualDigest.update(actual);
+                expectedDigest.update(wanted);
+                offset += n;
+            }
+            result.bytes = offset;
+            // the file ended before the expected content did
+            int e;
+
+            while( (e = fill(expected, chunk, chunk.length)) > 0 ) {
+                if( result.mismatch < 0L ) {
+                    result.mismatch = offset;
+                }
+                expectedDigest.update(ByteBuffer.wrap(chunk, 0, e));
+            }
+        }
+        finally {
+            input.close();
+            expected.close();
+        }
+        result.actualDigest = actualDigest.finish();
+        result.expectedDigest = expectedDigest.finish();
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    static private long findMismatch(@Nonnull ByteBuffer actual, @Nonnull ByteBuffer expected) {
+        int i = 0;
+
+        while( actual.hasRemaining() && expected.hasRemaining() ) {
+            if( actual.get() != expected.get() ) {
+                return i;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private DownloadVerifier() { }
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.storage.BlobStoreSupport;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Produces the content of test objects without leaving files behind. {@link BlobStoreSupport#upload(File, String, String)}
+ * only accepts files, so the generator keeps the files it needs to a minimum:
+ * <ul>
+ *     <li>{@link #getScratchFile(String...)} rewrites a single scratch file per thread with the lines of a small text
+ *     object, so provisioning thousands of objects touches as many files as there are provisioning threads</li>
+ *     <li>{@link #getFile(long, long)} generates binary content of any size once, writing it through a memory-mapped
+ *     buffer, and hands the same pooled file to every upload of that seed and size</li>
+ *     <li>{@link #open(long, long)} streams the same binary content from memory for comparing with downloads</li>
+ * </ul>
+ * Binary content is deterministic: the bytes are a function of the seed and the offset only, generated in blocks of
+ * {@link #BLOCK_SIZE} bytes, so any part of an object can be regenerated without reading what precedes it.
+ * {@link #close()} deletes every file the generator created.
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ObjectContentGenerator {
+    static public final int BLOCK_SIZE = 64 * 1024;
+
+    static private final long MAP_WINDOW = 64L * 1024L * 1024L;
+
+    /**
+     * Fills a buffer with the content of one block of a seeded object.
+     * @param seed the seed of the object content
+     * @param index the index of the block within the object
+     * @param block the buffer of {@link #BLOCK_SIZE} bytes to fill
+     */
+    static public void fill(long seed, long index, @Nonnull byte[] block) {
+        new Random(seed * 31L + index).nextBytes(block);
+    }
+
+    private final ArrayList<File>      files   = new ArrayList<File>();
+    private final HashMap<String,File> pool    = new HashMap<String, File>();
+    private final ThreadLocal<File>    scratch = new ThreadLocal<File>();
+
+    public ObjectContentGenerator() { }
+
+    private @Nonnull File createFile(@Nonnull String suffix) throws IOException {
+        File file = File.createTempFile("dsntst", suffix);
+
+        file.deleteOnExit();
+        synchronized( files ) {
+            files.add(file);
+        }
+        return file;
+    }
+
+    /**
+     * Provides the file holding the seeded content of the specified size, generating it if no upload has needed that
+     * content before. The file is shared and must not be modified.
+     * @param seed the seed of the object content
+     * @param size the size of the object in bytes
+     * @return a file with the content
+     * @throws InternalException the file could not be written
+     */
+    public @Nonnull File getFile(long seed, long size) throws InternalException {
+        String key = seed + ":" + size;
+
+        synchronized( pool ) {
+            File file = pool.get(key);
+
+            if( file != null && file.exists() ) {
+                return file;
+            }
+            try {
+                file = createFile(".bin");
+                write(file, seed, size);
+            }
+            catch( IOException e ) {
+                throw new InternalException(e);
+            }
+            pool.put(key, file);
+            return file;
+        }
+    }
+
+    private void write(@Nonnull File file, long seed, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            byte[] block = new byte[BLOCK_SIZE];
+            long index = 0L;
+
+            raf.setLength(size);
+            for( long position=0L; position<size; position+=MAP_WINDOW ) {
+                long window = Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, window);
+
+                while( buffer.hasRemaining() ) {
+                    fill(seed, index++, block);
+                    buffer.put(block, 0, Math.min(block.length, buffer.remaining()));
+                }
+                buffer.force();
+            }
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Provides the scratch file of the current thread rewritten with the specified lines of text. The file is reused
+     * by the next call from the same thread, so it must be uploaded before the thread asks for another.
+     * @param lines the lines of the object or null for a default line
+     * @return the scratch file of the current thread
+     * @throws InternalException the file could not be written
+     */
+    public @Nonnull File getScratchFile(@Nullable String ... lines) throws InternalException {
+        try {
+            File file = scratch.get();
+
+            if( file == null || !file.exists() ) {
+                file = createFile("txt");
+                scratch.set(file);
+            }
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+
+            try {
+                if( lines == null ) {
+                    writer.write("This is a test of Dasein Cloud");
+                    writer.newLine();
+                }
+                else {
+                    for( String line : lines ) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                }
+            }
+            finally {
+                writer.close();
+            }
+            return file;
+        }
+        catch( IOException e ) {
+            throw new InternalException(e);
+        }
+    }
+
+    /**
+     * Streams the seeded content of the specified size from memory.
+     * @param seed the seed of the object content
+     * @param size the size of the object in bytes
+     * @return a stream of the same bytes as {@link #getFile(long, long)} holds for the seed and size
+     */
+    public @Nonnull InputStream open(final long seed, final long size) {
+        return new InputStream() {
+            private final byte[] block = new byte[BLOCK_SIZE];
+            private long         index = -1L;
+            private long         position;
+
+            private boolean load() {
+                if( position >= size ) {
+                    return false;
+                }
+                if( position/BLOCK_SIZE != index ) {
+                    index = position/BLOCK_SIZE;
+                    fill(seed, index, block);
+                }
+                return true;
+            }
+
+            @Override
+            public int read() {
+                if( !load() ) {
+                    return -1;
+                }
+                return block[(int)(position++ % BLOCK_SIZE)] & 0xFF;
+            }
+
+            @Override
+            public int read(@Nonnull byte[] b, int off, int len) {
+                if( len == 0 ) {
+                    return 0;
+                }
+                if( !load() ) {
+                    return -1;
+                }
+                int start = (int)(position % BLOCK_SIZE);
+                int n = (int)Math.min(Math.min(len, BLOCK_SIZE - start), size - position);
+
+                System.arraycopy(block, start, b, off, n);
+                position += n;
+                return n;
+            }
+
+            @Override
+            public long skip(long n) {
+                long skipped = Math.max(0L, Math.min(n, size - position));
+
+                position += skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return (int)Math.min(Integer.MAX_VALUE, size - position);
+            }
+        };
+    }
+
+    /**
+     * Deletes every file created by this generator.
+     * @return the number of files deleted
+     */
+    public int close() {
+        ArrayList<File> copy;
+
+        synchronized( files ) {
+            copy = new ArrayList<File>(files);
+            files.clear();
+        }
+        synchronized( pool ) {
+            pool.clear();
+        }
+        int count = 0;
+
+        for( File file : copy ) {
+            if( file.delete() ) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.ConsistencyMonitor;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.PerfUtils;
+import org.dasein.util.uom.storage.Byte;
+import org.dasein.util.uom.storage.Storage;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the operations an object store performs on the server side so that clients never download and re-upload
+ * the content: moving objects between buckets and renaming objects within a bucket. Each operation is timed once per
+ * object across several object sizes, and objects are moved both from a root bucket into a child bucket and back. The
+ * latency distribution of each operation is reported per size along with the ratio of the median latency for the
+ * largest size to that of the smallest. An operation that is truly performed on the server side takes roughly the
+ * same time regardless of the size of the object, so a ratio above the configured limit is flagged. After each
+ * operation the object is checked to be present with its full size under its new name and absent under its old one.
+ * <p>The tests upload a lot of data and do nothing unless dasein.serverSide is set to true. The following
+ * {@link System} properties control them:</p>
+ * <ul>
+ *     <li>dasein.serverSide - true to run the server-side operation tests (default false)</li>
+ *     <li>dasein.serverSide.sizes - object sizes with a B, KB, MB, or GB suffix (default 1KB,1MB,16MB)</li>
+ *     <li>dasein.serverSide.rounds - objects timed per size and operation (default 5)</li>
+ *     <li>dasein.serverSide.maxRatio - the largest acceptable ratio of the median latency for the largest size to
+ *     that of the smallest (default 4)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ObjectStoreServerSideTests {
+    static private final Logger logger = Logger.getLogger(ObjectStoreServerSideTests.class);
+
+    static private final String LABEL = "serverSide";
+
+    static private DaseinTestManager tm;
+
+    @BeforeClass
+    static public void configure() {
+        tm = new DaseinTestManager(ObjectStoreServerSideTests.class);
+    }
+
+    @AfterClass
+    static public void cleanUp() {
+        if( tm != null ) {
+            tm.close();
+        }
+    }
+
+    static private @Nonnull String summarize(@Nonnull List<Long> latencies) {
+        return "p50=" + PerfUtils.percentile(latencies, 0.5) + " p95=" + PerfUtils.percentile(latencies, 0.95) + " max=" + PerfUtils.percentile(latencies, 1.0) + " ms over " + latencies.size();
+    }
+
+    /**
+     * One server-side operation applied to an object.
+     */
+    static private abstract class Operation {
+        /**
+         * Applies the operation to an object.
+         * @param bucket the bucket holding the object
+         * @param object the name of the object
+         * @return the bucket and name of the object after the operation
+         * @throws CloudException an error occurred with the cloud provider performing the operation
+         * @throws InternalException an error occurred within Dasein Cloud performing the operation
+         */
+        public abstract @Nonnull String[] apply(@Nonnull String bucket, @Nonnull String object) throws CloudException, InternalException;
+    }
+
+    @Rule
+    public final TestName name = new TestName();
+
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
+    private BlobStoreSupport support;
+
+    public ObjectStoreServerSideTests() { }
+
+    @Before
+    public void before() {
+        tm.begin(name.getMethodName());
+        assumeTrue(!tm.isTestSkipped());
+        StorageServices services = tm.getProvider().getStorageServices();
+
+        support = (services == null ? null : services.getBlobStoreSupport());
+    }
+
+    @After
+    public void after() {
+        support = null;
+        tm.end();
+    }
+
+    private boolean isRunnable() throws CloudException, InternalException {
+        if( !"true".equalsIgnoreCase(System.getProperty("dasein.serverSide")) ) {
+            tm.ok("Server-side operation tests are not enabled (set dasein.serverSide=true to run them)");
+            return false;
+        }
+        if( support == null ) {
+            tm.ok("No object storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
+            return false;
+        }
+        if( !support.isSubscribed() ) {
+            tm.ok("Not subscribed to object storage so this test is not valid");
+            return false;
+        }
+        return true;
+    }
+
+    private @Nonnull String getRootBucket() {
+        StorageResources resources = DaseinTestManager.getStorageResources();
+        Blob root = (resources == null ? null : resources.getTestRootBucket(LABEL, true, "dsnside"));
+
+        if( root == null || root.getBucketName() == null ) {
+            fail("Unable to provision a bucket for server-side operation testing");
+        }
+        return root.getBucketName();
+    }
+
+    /**
+     * Identifies the bucket to which objects in the root bucket are moved. This is a child of the root bucket where
+     * nested buckets are supported and a second root bucket elsewhere.
+     * @param root the root bucket
+     * @return the name of the target bucket
+     * @throws CloudException an error occurred with the cloud provider checking for nested bucket support
+     * @throws InternalException an error occurred within Dasein Cloud checking for nested bucket support
+     */
+    private @Nonnull String getTargetBucket(@Nonnull String root) throws CloudException, InternalException {
+        StorageResources resources = DaseinTestManager.getStorageResources();
+        Blob target;
+
+        if( support.allowsNestedBuckets() ) {
+            target = resources.getTestChildBucket(LABEL, true, root, "dsnside");
+        }
+        else {
+            target = resources.getTestRootBucket(LABEL + "Target", true, "dsnside");
+        }
+        if( target == null || target.getBucketName() == null ) {
+            fail("Unable to provision a target bucket for server-side operation testing");
+        }
+        return target.getBucketName();
+    }
+
+    private void assertMoved(@Nonnull String fromBucket, @Nonnull String fromObject, @Nonnull String toBucket, @Nonnull String toObject, long size) throws CloudException, InternalException {
+        Storage<Byte> actual = support.getObjectSize(toBucket, toObject);
+
+        assertNotNull("The object " + toObject + " was not found in " + toBucket + " after the operation", actual);
+        assertEquals("The object " + toObject + " in " + toBucket + " does not have the original size", size, actual.getQuantity().longValue());
+        assertNull("The object " + fromObject + " is still in " + fromBucket + " after the operation", support.getObjectSize(fromBucket, fromObject));
+    }
+
+    /**
+     * Uploads the objects for each size, times an operation applied to each of them in turn, and reports the latency
+     * distribution for each size.
+     * @param label the label under which the results are reported
+     * @param bucket the bucket into which the objects are uploaded
+     * @param operation the operation to time
+     * @return the median latency for each size in the order the sizes are configured
+     * @throws Exception an error occurred setting up or performing the operation
+     */
+    private @Nonnull List<Long> measure(@Nonnull String label, @Nonnull String bucket, @Nonnull Operation operation) throws Exception {
+        ObjectContentGenerator generator = new ObjectContentGenerator();
+        ArrayList<Long> medians = new ArrayList<Long>();
+        int rounds = PerfUtils.getPositiveInt("dasein.serverSide.rounds", 5);
+
+        try {
+            for( String size : PerfUtils.getList("dasein.serverSide.sizes", "1KB,1MB,16MB") ) {
+                size = size.trim();
+                long bytes = PerfUtils.parseSize(size);
+                File content = generator.getFile(bytes, bytes);
+                ArrayList<String[]> objects = new ArrayList<String[]>();
+                ArrayList<Long> latencies = new ArrayList<Long>();
+
+                try {
+                    for( int i=0; i<rounds; i++ ) {
+                        String object = "dsnside-" + size.toLowerCase() + "-" + i + ".bin";
+
+                        support.upload(content, bucket, object);
+                        objects.add(new String[] { bucket, object });
+                    }
+                    ConsistencyMonitor.settle("Object", true);
+                    for( int i=0; i<objects.size(); i++ ) {
+                        String[] from = objects.get(i);
+                        long start = System.nanoTime();
+                        String[] to = operation.apply(from[0], from[1]);
+
+                        latencies.add((System.nanoTime() - start)/1000000L);
+                        objects.set(i, to);
+                    }
+                    ConsistencyMonitor.settle("Object", true);
+                    for( int i=0; i<objects.size(); i++ ) {
+                        String[] to = objects.get(i);
+
+                        assertMoved(bucket, "dsnside-" + size.toLowerCase() + "-" + i + ".bin", to[0], to[1], bytes);
+                    }
+                    tm.out(label + " " + size, summarize(latencies));
+                    medians.add(PerfUtils.percentile(latencies, 0.5));
+                }
+                finally {
+                    for( String[] object : objects ) {
+                        try {
+                            support.removeObject(object[0], object[1]);
+                        }
+                        catch( Throwable ignore ) {
+                            // ignore
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            generator.close();
+        }
+        return medians;
+    }
+
+    private void checkSizeIndependence(@Nonnull String label, @Nonnull List<Long> medians) {
+        if( medians.size() < 2 ) {
+            return;
+        }
+        // latencies under a millisecond are noise, so they count as one
+        double ratio = Math.max(medians.get(medians.size() - 1), 1L)/(double)Math.max(medians.get(0), 1L);
+
+        tm.out(label + " Size Dependence", String.format("%.2f", ratio) + "x from smallest to largest");
+        if( ratio > PerfUtils.getDouble("dasein.serverSide.maxRatio", 4.0) ) {
+            tm.warn(label + " latency grows " + String.format("%.2f", ratio) + "x with object size, which suggests it is not performed on the server side");
+        }
+    }
+
+    @Test
+    public void moveObjects() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        String root = getRootBucket();
+        final String target = getTargetBucket(root);
+        String direction = (support.allowsNestedBuckets() ? "Root->Child" : "Root->Root");
+
+        List<Long> out = measure("Move " + direction, root, new Operation() {
+            public @Nonnull String[] apply(@Nonnull String bucket, @Nonnull String object) throws CloudException, InternalException {
+                support.move(bucket, object, target);
+                return new String[] { target, object };
+            }
+        });
+        checkSizeIndependence("Move " + direction, out);
+
+        final String back = root;
+        List<Long> in = measure("Move " + (support.allowsNestedBuckets() ? "Child->Root" : "Root->Root (Back)"), target, new Operation() {
+            public @Nonnull String[] apply(@Nonnull String bucket, @Nonnull String object) throws CloudException, InternalException {
+                support.move(bucket, object, back);
+                return new String[] { back, object };
+            }
+        });
+        checkSizeIndependence("Move Back", in);
+    }
+
+    @Test
+    public void renameObjects() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        String root = getRootBucket();
+
+        List<Long> medians = measure("Rename", root, new Operation() {
+            public @Nonnull String[] apply(@Nonnull String bucket, @Nonnull String object) throws CloudException, InternalException {
+                String renamed = "renamed-" + object;
+
+                support.renameObject(bucket, object, renamed);
+                return new String[] { bucket, renamed };
+            }
+        });
+        checkSizeIndependence("Rename", medians);
+    }
+}
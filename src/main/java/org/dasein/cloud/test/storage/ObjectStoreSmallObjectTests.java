@@ -0,0 +1,503 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.PerfUtils;
+import org.dasein.cloud.test.StreamingProbe;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
+
+import javax.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures how an object store implementation copes with buckets holding very many small objects, which is where
+ * listing cost shows up in production. The first test to need it seeds a bucket with the configured number of small
+ * objects through batched parallel uploads; the seeded bucket is shared by the tests and cleared when they finish.
+ * The tests report:
+ * <ul>
+ *     <li>put, get, exists (object size), and remove operations per second on a separate set of objects</li>
+ *     <li>listing throughput of the seeded bucket in objects/s, along with the API calls (pages) and heap growth of a
+ *     listing, for a single lister and for several listing in parallel</li>
+ *     <li>listing time while other threads add and remove objects in the same bucket</li>
+ * </ul>
+ * <p>The tests do nothing unless dasein.smallObjects is set. The following {@link System} properties control
+ * them:</p>
+ * <ul>
+ *     <li>dasein.smallObjects - the number of objects with which to seed the bucket (e.g. 100000)</li>
+ *     <li>dasein.smallObjects.threads - the number of operations run in parallel (default 16)</li>
+ *     <li>dasein.smallObjects.batch - the number of objects uploaded per seeding batch (default 1000)</li>
+ *     <li>dasein.smallObjects.ops - the number of operations timed for each of put, get, exists, and remove (default
+ *     1000)</li>
+ *     <li>dasein.smallObjects.listers - the number of listings run in parallel (default 4)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ObjectStoreSmallObjectTests {
+    static private final Logger logger = Logger.getLogger(ObjectStoreSmallObjectTests.class);
+
+    static private final String LABEL = "smallObjects";
+
+    static private DaseinTestManager tm;
+
+    static private String bucket;
+    static private int    seeded;
+
+    @BeforeClass
+    static public void configure() {
+        tm = new DaseinTestManager(ObjectStoreSmallObjectTests.class);
+    }
+
+    @AfterClass
+    static public void cleanUp() {
+        try {
+            if( bucket != null && tm != null ) {
+                StorageServices services = tm.getProvider().getStorageServices();
+                BlobStoreSupport support = (services == null ? null : services.getBlobStoreSupport());
+
+                if( support != null ) {
+                    try {
+                        support.clearBucket(bucket);
+                    }
+                    catch( Throwable t ) {
+                        logger.warn("Failed to clear " + bucket + " of small test objects: " + t.getMessage());
+                    }
+                }
+            }
+        }
+        finally {
+            bucket = null;
+            seeded = 0;
+            if( tm != null ) {
+                tm.close();
+            }
+        }
+    }
+
+    static private int getObjectCount() {
+        return PerfUtils.getInt("dasein.smallObjects", 0);
+    }
+
+    /**
+     * One operation of a timed phase.
+     */
+    static private abstract class Operation {
+        public final String verb;
+
+        public Operation(@Nonnull String verb) {
+            this.verb = verb;
+        }
+
+        public abstract void run(int index) throws Exception;
+    }
+
+    /**
+     * The result of running one operation against many objects in parallel.
+     */
+    static private class Phase {
+        public int              errors;
+        public final List<Long> latencies = new ArrayList<Long>();
+        public double           seconds;
+        public final String     verb;
+
+        public Phase(@Nonnull String verb) {
+            this.verb = verb;
+        }
+
+        @Override
+        public @Nonnull String toString() {
+            return String.format("%.1f ops/s", latencies.size()/seconds) + " latency p50=" + PerfUtils.percentile(latencies, 0.5) + " p95=" + PerfUtils.percentile(latencies, 0.95) + " ms errors=" + errors;
+        }
+    }
+
+    /**
+     * The result of listing a bucket once.
+     */
+    static private class Listing {
+        public long calls;
+        public int  count;
+        public long firstMillis = -1L;
+        public long heapGrowth;
+        public long millis;
+
+        @Override
+        public @Nonnull String toString() {
+            return count + " objects in " + millis + " ms (" + String.format("%.1f", count/(Math.max(millis, 1L)/1000.0)) + " objects/s) first=" + firstMillis + " ms calls=" + calls + " heap=+" + (heapGrowth/1024L) + " KB";
+        }
+    }
+
+    @Rule
+    public final TestName name = new TestName();
+
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
+    private BlobStoreSupport support;
+
+    public ObjectStoreSmallObjectTests() { }
+
+    @Before
+    public void before() {
+        tm.begin(name.getMethodName());
+        assumeTrue(!tm.isTestSkipped());
+        StorageServices services = tm.getProvider().getStorageServices();
+
+        support = (services == null ? null : services.getBlobStoreSupport());
+    }
+
+    @After
+    public void after() {
+        support = null;
+        tm.end();
+    }
+
+    private boolean isRunnable() throws CloudException, InternalException {
+        if( getObjectCount() < 1 ) {
+            tm.ok("Small object tests are not enabled (set dasein.smallObjects to the number of objects to seed)");
+            return false;
+        }
+        if( support == null ) {
+            tm.ok("No object storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
+            return false;
+        }
+        if( !support.isSubscribed() ) {
+            tm.ok("Not subscribed to object storage so this test is not valid");
+            return false;
+        }
+        return true;
+    }
+
+    private @Nonnull String getBucket() {
+        if( bucket == null ) {
+            StorageResources resources = DaseinTestManager.getStorageResources();
+            Blob b = (resources == null ? null : resources.getTestRootBucket(LABEL, true, "dsnsmall"));
+
+            assertNotNull("Unable to provision a bucket for the small object tests", b);
+            assertNotNull("The bucket for the small object tests has no name", b.getBucketName());
+            bucket = b.getBucketName();
+        }
+        return bucket;
+    }
+
+    private @Nonnull Phase runPhase(int count, final @Nonnull Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PerfUtils.getPositiveInt("dasein.smallObjects.threads", 16));
+        final Phase phase = new Phase(operation.verb);
+
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+            long start = System.nanoTime();
+
+            for( int i=0; i<count; i++ ) {
+                final int index = i;
+
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        long t = System.nanoTime();
+
+                        try {
+                            operation.run(index);
+                            synchronized( phase ) {
+                                phase.latencies.add((System.nanoTime() - t)/1000000L);
+                            }
+                        }
+                        catch( Throwable e ) {
+                            synchronized( phase ) {
+                                if( phase.errors++ == 0 ) {
+                                    tm.warn("Failed to " + operation.verb + " object " + index + ": " + e.getMessage());
+                                }
+                            }
+                        }
+                    }
+                }));
+            }
+            for( Future<?> f : futures ) {
+                f.get();
+            }
+            synchronized( phase ) {
+                phase.seconds = Math.max(System.nanoTime() - start, 1L)/1000000000.0;
+                return phase;
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private void seed() throws Exception {
+        int count = getObjectCount();
+
+        if( seeded >= count ) {
+            return;
+        }
+        final String b = getBucket();
+        StorageResources resources = DaseinTestManager.getStorageResources();
+        final ObjectContentGenerator content = resources.getContentGenerator();
+        int batch = PerfUtils.getPositiveInt("dasein.smallObjects.batch", 1000);
+        long start = System.currentTimeMillis();
+
+        for( int i=seeded; i<count; i+=batch ) {
+            final int first = i;
+
+            Phase result = runPhase(Math.min(batch, count - i), new Operation("upload") {
+                public void run(int index) throws Exception {
+                    int n = first + index;
+
+                    support.upload(content.getScratchFile("Dasein Cloud small object " + n), b, "dsnsmall-" + n + ".txt");
+                }
+            });
+
+            if( result.errors > 0 ) {
+                fail(result.errors + " of " + Math.min(batch, count - i) + " uploads failed while seeding " + b);
+            }
+            seeded = Math.min(count, i + batch);
+            logger.debug("Seeded " + seeded + " of " + count + " small objects: " + result);
+        }
+        tm.out("Seeded", seeded + " objects in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private @Nonnull Listing list(@Nonnull String b) throws CloudException, InternalException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long heapPeak = heapBefore;
+        long callsBefore = StreamingProbe.countApiCalls(tm.getProvider());
+        long start = System.nanoTime();
+        Listing listing = new Listing();
+
+        for( Blob item : support.list(b) ) {
+            if( listing.count++ == 0 ) {
+                listing.firstMillis = (System.nanoTime() - start)/1000000L;
+            }
+            if( listing.count % 1000 == 0 ) {
+                heapPeak = Math.max(heapPeak, memory.getHeapMemoryUsage().getUsed());
+            }
+            if( item == null ) {
+                fail("The listing of " + b + " returned a null object");
+            }
+        }
+        listing.millis = (System.nanoTime() - start)/1000000L;
+        listing.calls = StreamingProbe.countApiCalls(tm.getProvider()) - callsBefore;
+        listing.heapGrowth = Math.max(0L, Math.max(heapPeak, memory.getHeapMemoryUsage().getUsed()) - heapBefore);
+        return listing;
+    }
+
+    @Test
+    public void objectOperations() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        final String b = getBucket();
+        final ObjectContentGenerator content = DaseinTestManager.getStorageResources().getContentGenerator();
+        int ops = PerfUtils.getPositiveInt("dasein.smallObjects.ops", 1000);
+        Phase put, get, check, remove;
+
+        try {
+            put = runPhase(ops, new Operation("put") {
+                public void run(int index) throws Exception {
+                    support.upload(content.getScratchFile("Dasein Cloud small object operation " + index), b, "dsnsmallop-" + index + ".txt");
+                }
+            });
+            tm.out("Put", put);
+            get = runPhase(ops, new Operation("get") {
+                public void run(int index) throws Exception {
+                    if( support.getObject(b, "dsnsmallop-" + index + ".txt") == null ) {
+                        throw new CloudException("Object not found");
+                    }
+                }
+            });
+            tm.out("Get", get);
+            check = runPhase(ops, new Operation("check") {
+                public void run(int index) throws Exception {
+                    if( support.getObjectSize(b, "dsnsmallop-" + index + ".txt") == null ) {
+                        throw new CloudException("Object not found");
+                    }
+                }
+            });
+            tm.out("Exists", check);
+        }
+        finally {
+            remove = runPhase(ops, new Operation("remove") {
+                public void run(int index) throws Exception {
+                    support.removeObject(b, "dsnsmallop-" + index + ".txt");
+                }
+            });
+            tm.out("Remove", remove);
+        }
+        for( Phase phase : new Phase[] { put, get, check, remove } ) {
+            if( phase.errors > 0 ) {
+                fail(phase.errors + " of " + ops + " " + phase.verb + " operations failed");
+            }
+        }
+    }
+
+    @Test
+    public void listLargeBucket() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        seed();
+        final String b = getBucket();
+        Listing listing = list(b);
+
+        tm.out("Single Listing", listing);
+        if( listing.count < seeded ) {
+            tm.warn("Only " + listing.count + " of " + seeded + " seeded objects were listed");
+        }
+        int listers = PerfUtils.getPositiveInt("dasein.smallObjects.listers", 4);
+        ExecutorService executor = Executors.newFixedThreadPool(listers);
+
+        try {
+            ArrayList<Future<Listing>> futures = new ArrayList<Future<Listing>>();
+            long start = System.nanoTime();
+
+            for( int i=0; i<listers; i++ ) {
+                futures.add(executor.submit(new Callable<Listing>() {
+                    public Listing call() throws Exception {
+                        return list(b);
+                    }
+                }));
+            }
+            long objects = 0L;
+            long slowest = 0L;
+
+            for( Future<Listing> f : futures ) {
+                Listing l = f.get();
+
+                objects += l.count;
+                slowest = Math.max(slowest, l.millis);
+            }
+            double seconds = Math.max(System.nanoTime() - start, 1L)/1000000000.0;
+
+            tm.out("Parallel Listing", listers + " listers " + String.format("%.1f", objects/seconds) + " objects/s slowest=" + slowest + " ms");
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void listLargeBucketUnderMutation() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        seed();
+        final String b = getBucket();
+        final ObjectContentGenerator content = DaseinTestManager.getStorageResources().getContentGenerator();
+        final int mutators = Math.max(1, PerfUtils.getPositiveInt("dasein.smallObjects.threads", 16)/4);
+        final boolean[] stop = new boolean[1];
+        final int[] mutations = new int[mutators];
+        ExecutorService executor = Executors.newFixedThreadPool(mutators);
+        Listing baseline = list(b);
+        Listing listing;
+
+        tm.out("Quiet Listing", baseline);
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+
+            for( int i=0; i<mutators; i++ ) {
+                final int thread = i;
+
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        while( true ) {
+                            synchronized( stop ) {
+                                if( stop[0] ) {
+                                    return;
+                                }
+                            }
+                            String object = "dsnsmallmut-" + thread + "-" + (mutations[thread] % 10) + ".txt";
+
+                            try {
+                                if( mutations[thread] % 20 < 10 ) {
+                                    support.upload(content.getScratchFile("Dasein Cloud mutation " + mutations[thread]), b, object);
+                                }
+                                else {
+                                    support.removeObject(b, object);
+                                }
+                            }
+                            catch( Throwable ignore ) {
+                                // ignore
+                            }
+                            mutations[thread]++;
+                        }
+                    }
+                }));
+            }
+            listing = list(b);
+            synchronized( stop ) {
+                stop[0] = true;
+            }
+            for( Future<?> f : futures ) {
+                f.get();
+            }
+        }
+        finally {
+            synchronized( stop ) {
+                stop[0] = true;
+            }
+            executor.shutdown();
+            for( int i=0; i<mutators; i++ ) {
+                for( int j=0; j<10; j++ ) {
+                    try {
+                        support.removeObject(b, "dsnsmallmut-" + i + "-" + j + ".txt");
+                    }
+                    catch( Throwable ignore ) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        int total = 0;
+
+        for( int m : mutations ) {
+            total += m;
+        }
+        tm.out("Mutating Listing", listing);
+        tm.out("Mutations During Listing", total + " by " + mutators + " threads");
+        tm.out("Slowdown", String.format("%.2fx", Math.max(listing.millis, 1L)/(double)Math.max(baseline.millis, 1L)));
+        if( listing.count < seeded ) {
+            tm.warn("Only " + listing.count + " of " + seeded + " seeded objects were listed while the bucket was changing");
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.BlobStoreSupport;
+import org.dasein.cloud.storage.FileTransfer;
+import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.PerfUtils;
+import org.dasein.util.CalendarWrapper;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures how an object store implementation performs when moving real amounts of data through
+ * {@link BlobStoreSupport#upload(File, String, String)} and {@link BlobStoreSupport#download(String, String, File)}.
+ * Each test sweeps every combination of object size, concurrency, and bucket layout and reports, for each
+ * combination, the throughput in MB/s and objects/s and the latency of each transfer. Downloads additionally report
+ * the time to first byte and the time until the {@link FileTransfer} reports completion. Downloaded files are then
+ * checked against the uploaded content by {@link DownloadVerifier}, and the verification throughput is reported on
+ * its own so it does not skew the transfer figures. The objects are removed after each combination is measured.
+ * <p>The tests move a lot of data and do nothing unless dasein.throughput is set to true. The following
+ * {@link System} properties control the sweep:</p>
+ * <ul>
+ *     <li>dasein.throughput - true to run the throughput tests (default false)</li>
+ *     <li>dasein.throughput.sizes - object sizes with a B, KB, MB, or GB suffix (default 1KB,64KB,1MB,16MB)</li>
+ *     <li>dasein.throughput.concurrency - numbers of transfers in flight at once (default 1,4)</li>
+ *     <li>dasein.throughput.layouts - root (objects at the root of the store), bucket (all objects in one bucket), or
+ *     spread (objects spread over one child bucket per concurrent transfer) (default bucket,spread)</li>
+ *     <li>dasein.throughput.rounds - transfers per concurrent worker for each combination (default 2)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class ObjectStoreThroughputTests {
+    static private final String LABEL = "throughput";
+
+    static private DaseinTestManager tm;
+
+    @BeforeClass
+    static public void configure() {
+        tm = new DaseinTestManager(ObjectStoreThroughputTests.class);
+    }
+
+    @AfterClass
+    static public void cleanUp() {
+        if( tm != null ) {
+            tm.close();
+        }
+    }
+
+    /**
+     * The measurements of one combination of object size, concurrency, and layout.
+     */
+    static private class Cell {
+        public final ArrayList<Long> completions = new ArrayList<Long>();
+        public       int             errors;
+        public final ArrayList<Long> latencies   = new ArrayList<Long>();
+        public final ArrayList<Long> firstBytes  = new ArrayList<Long>();
+        public       long            transferred;
+        public       long            verifiedBytes;
+        public       int             verifiedObjects;
+        public       long            verifyNanos;
+
+        public synchronized void record(long bytes, long latency, long firstByte, long completion) {
+            transferred += bytes;
+            latencies.add(latency);
+            if( firstByte >= 0L ) {
+                firstBytes.add(firstByte);
+            }
+            if( completion >= 0L ) {
+                completions.add(completion);
+            }
+        }
+
+        public synchronized void fail(@Nonnull Throwable t) {
+            if( errors++ == 0 ) {
+                tm.warn("Transfer failed: " + t.getMessage());
+            }
+        }
+
+        public synchronized void verified(@Nonnull String object, @Nonnull DownloadVerifier.Result result) {
+            verifiedObjects++;
+            verifiedBytes += result.getBytes();
+            verifyNanos += result.getNanos();
+            if( !result.isMatch() && errors++ == 0 ) {
+                tm.warn("Verification of " + object + " failed: " + result);
+            }
+        }
+
+        public synchronized @Nonnull String summarizeVerification() {
+            double seconds = Math.max(verifyNanos, 1L)/1000000000.0;
+
+            return String.format("%.2f MB/s over %d objects", (verifiedBytes/(1024.0 * 1024.0))/seconds, verifiedObjects);
+        }
+
+        public synchronized @Nonnull String summarize(long wallNanos) {
+            double seconds = Math.max(wallNanos, 1L)/1000000000.0;
+            StringBuilder str = new StringBuilder();
+
+            str.append(String.format("%.2f MB/s %.1f objects/s", (transferred/(1024.0 * 1024.0))/seconds, latencies.size()/seconds));
+            str.append(" latency p50=").append(PerfUtils.percentile(latencies, 0.5)).append(" p95=").append(PerfUtils.percentile(latencies, 0.95)).append(" ms");
+            if( !firstBytes.isEmpty() ) {
+                str.append(" ttfb p50=").append(PerfUtils.percentile(firstBytes, 0.5)).append(" p95=").append(PerfUtils.percentile(firstBytes, 0.95)).append(" ms");
+            }
+            if( !completions.isEmpty() ) {
+                str.append(" complete p50=").append(PerfUtils.percentile(completions, 0.5)).append(" p95=").append(PerfUtils.percentile(completions, 0.95)).append(" ms");
+            }
+            str.append(" errors=").append(errors);
+            return str.toString();
+        }
+    }
+
+    @Rule
+    public final TestName name = new TestName();
+
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
+    private BlobStoreSupport support;
+
+    public ObjectStoreThroughputTests() { }
+
+    @Before
+    public void before() {
+        tm.begin(name.getMethodName());
+        assumeTrue(!tm.isTestSkipped());
+        StorageServices services = tm.getProvider().getStorageServices();
+
+        support = (services == null ? null : services.getBlobStoreSupport());
+    }
+
+    @After
+    public void after() {
+        support = null;
+        tm.end();
+    }
+
+    private boolean isRunnable() throws CloudException, InternalException {
+        if( !"true".equalsIgnoreCase(System.getProperty("dasein.throughput")) ) {
+            tm.ok("Throughput tests are not enabled (set dasein.throughput=true to run them)");
+            return false;
+        }
+        if( support == null ) {
+            tm.ok("No object storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
+            return false;
+        }
+        if( !support.isSubscribed() ) {
+            tm.ok("Not subscribed to object storage so this test is not valid");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Identifies the buckets into which the objects of a combination are placed.
+     * @param layout the bucket layout
+     * @param concurrency the number of concurrent transfers
+     * @return the bucket names, with a null name for the root of the store, or null if the layout is not supported
+     */
+    private @Nullable String[] getBuckets(@Nonnull String layout, int concurrency) throws CloudException, InternalException {
+        StorageResources resources = DaseinTestManager.getStorageResources();
+
+        if( layout.equals("root") ) {
+            return (support.allowsRootObjects() ? new String[] { null } : null);
+        }
+        Blob root = (resources == null ? null : resources.getTestRootBucket(LABEL, true, "dsntput"));
+
+        if( root == null ) {
+            fail("Unable to provision a bucket for throughput testing");
+        }
+        if( layout.equals("bucket") ) {
+            return new String[] { root.getBucketName() };
+        }
+        if( layout.equals("spread") ) {
+            if( !support.allowsNestedBuckets() ) {
+                return null;
+            }
+            String[] buckets = new String[concurrency];
+
+            for( int i=0; i<concurrency; i++ ) {
+                Blob child = resources.getTestChildBucket(LABEL + i, true, root.getBucketName(), "dsntput");
+
+                if( child == null || child.getBucketName() == null ) {
+                    fail("Unable to provision a child bucket for throughput testing");
+                }
+                buckets[i] = child.getBucketName();
+            }
+            return buckets;
+        }
+        tm.warn("Unknown bucket layout: " + layout);
+        return null;
+    }
+
+    private void remove(@Nonnull String[] buckets, @Nonnull List<String> objects) {
+        for( int i=0; i<objects.size(); i++ ) {
+            try {
+                support.removeObject(buckets[i % buckets.length], objects.get(i));
+            }
+            catch( Throwable ignore ) {
+                // ignore
+            }
+        }
+    }
+
+    private void upload(@Nonnull ExecutorService executor, @Nonnull final File content, @Nonnull final String[] buckets, @Nonnull final List<String> objects, @Nullable final Cell cell) throws Exception {
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for( int i=0; i<objects.size(); i++ ) {
+            final String bucket = buckets[i % buckets.length];
+            final String object = objects.get(i);
+
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    long start = System.nanoTime();
+
+                    try {
+                        support.upload(content, bucket, object);
+                        if( cell != null ) {
+                            cell.record(content.length(), (System.nanoTime() - start)/1000000L, -1L, -1L);
+                        }
+                    }
+                    catch( Throwable t ) {
+                        if( cell != null ) {
+                            cell.fail(t);
+                        }
+                    }
+                }
+            }));
+        }
+        for( Future<?> f : futures ) {
+            f.get();
+        }
+    }
+
+    private void download(@Nonnull ExecutorService executor, final long size, @Nonnull final String[] buckets, @Nonnull final List<String> objects, @Nonnull final File[] targets, @Nonnull final Cell cell) throws Exception {
+        ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for( int i=0; i<objects.size(); i++ ) {
+            final String bucket = buckets[i % buckets.length];
+            final String object = objects.get(i);
+            final int index = i;
+
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    File target = null;
+
+                    try {
+                        target = File.createTempFile("dsntput", ".dl");
+
+                        long start = System.nanoTime();
+                        TransferMonitor monitor = new TransferMonitor(support.download(bucket, object, target), target, start);
+
+                        if( !monitor.await(CalendarWrapper.HOUR) ) {
+                            throw new CloudException("Timed out downloading " + object);
+                        }
+                        if( monitor.getTask().getTransferError() != null ) {
+                            throw monitor.getTask().getTransferError();
+                        }
+                        if( target.length() != size ) {
+                            throw new CloudException("Downloaded " + target.length() + " bytes of " + object + " instead of " + size);
+                        }
+                        cell.record(size, monitor.getAllBytesMillis(), monitor.getFirstByteMillis(), monitor.getCompletionMillis());
+                        targets[index] = target;
+                    }
+                    catch( Throwable t ) {
+                        cell.fail(t);
+                        if( target != null && target.exists() ) {
+                            //noinspection ResultOfMethodCallIgnored
+                            target.delete();
+                        }
+                    }
+                }
+            }));
+        }
+        for( Future<?> f : futures ) {
+            f.get();
+        }
+    }
+
+    private void sweep(boolean downloads) throws Exception {
+        ObjectContentGenerator generator = new ObjectContentGenerator();
+        int rounds = PerfUtils.getPositiveInt("dasein.throughput.rounds", 2);
+
+        try {
+            for( String size : PerfUtils.getList("dasein.throughput.sizes", "1KB,64KB,1MB,16MB") ) {
+                long bytes = PerfUtils.parseSize(size);
+                File content = generator.getFile(bytes, bytes);
+
+                for( String c : PerfUtils.getList("dasein.throughput.concurrency", "1,4") ) {
+                    int concurrency = Integer.parseInt(c);
+
+                    for( String layout : PerfUtils.getList("dasein.throughput.layouts", "bucket,spread") ) {
+                        String[] buckets = getBuckets(layout, concurrency);
+                        String label = (downloads ? "Download " : "Upload ") + size + " x" + concurrency + " " + layout;
+
+                        if( buckets == null ) {
+                            tm.out(label, "not supported");
+                            continue;
+                        }
+                        ArrayList<String> objects = new ArrayList<String>();
+
+                        for( int i=0; i<concurrency*rounds; i++ ) {
+                            objects.add("dsntput-" + size.toLowerCase() + "-" + i + ".bin");
+                        }
+                        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+                        File[] targets = new File[objects.size()];
+                        Cell cell = new Cell();
+
+                        try {
+                            long start;
+
+                            if( downloads ) {
+                                upload(executor, content, buckets, objects, null);
+                                start = System.nanoTime();
+                                download(executor, bytes, buckets, objects, targets, cell);
+                            }
+                            else {
+                                start = System.nanoTime();
+                                upload(executor, content, buckets, objects, cell);
+                            }
+                            tm.out(label, cell.summarize(System.nanoTime() - start));
+                            if( downloads ) {
+                                for( int i=0; i<targets.length; i++ ) {
+                                    if( targets[i] != null ) {
+                                        cell.verified(objects.get(i), DownloadVerifier.verify(targets[i], generator.open(bytes, bytes)));
+                                    }
+                                }
+                                tm.out("Verify " + size + " x" + concurrency + " " + layout, cell.summarizeVerification());
+                            }
+                        }
+                        finally {
+                            executor.shutdown();
+                            remove(buckets, objects);
+                            for( File target : targets ) {
+                                if( target != null && target.exists() ) {
+                                    //noinspection ResultOfMethodCallIgnored
+                                    target.delete();
+                                }
+                            }
+                        }
+                        if( cell.errors > 0 ) {
+                            fail(cell.errors + " of " + objects.size() + " transfers failed or did not match for " + label);
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            generator.close();
+        }
+    }
+
+    @Test
+    public void uploadThroughput() throws Exception {
+        if( isRunnable() ) {
+            sweep(false);
+        }
+    }
+
+    @Test
+    public void downloadThroughput() throws Exception {
+        if( isRunnable() ) {
+            sweep(true);
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.storage.Blob;
+import org.dasein.cloud.storage.OfflineStoreRequest;
+import org.dasein.cloud.storage.OfflineStoreRequestAction;
+import org.dasein.cloud.storage.OfflineStoreRequestStatus;
+import org.dasein.cloud.storage.OfflineStoreSupport;
+import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.PerfUtils;
+import org.dasein.cloud.test.TimelineRecorder;
+import org.dasein.util.CalendarWrapper;
+import org.dasein.util.uom.storage.Byte;
+import org.dasein.util.uom.storage.Storage;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures how an offline store implementation copes with large archives, where every call is slow and requests take
+ * hours to complete. The tests report:
+ * <ul>
+ *     <li>the throughput of listing the requests of every bucket in parallel and of reading the results of every
+ *     completed list request, in requests/s and blobs/s; results are counted as they are iterated and never held in
+ *     memory, so the results are also handed to a {@link org.dasein.cloud.test.StreamingProbe}</li>
+ *     <li>the latency from submission to completion of a batch of list and download requests made concurrently, both
+ *     as observed by polling and as reported by the provider's timestamps</li>
+ * </ul>
+ * <p>The tests do nothing unless dasein.offlineThroughput is true. The following {@link System} properties control
+ * them:</p>
+ * <ul>
+ *     <li>dasein.offlineThroughput.threads - the number of calls made in parallel (default 8)</li>
+ *     <li>dasein.offlineThroughput.batch - the number of list requests and of download requests submitted together
+ *     (default 4)</li>
+ *     <li>dasein.offlineThroughput.interval - the milliseconds between polls of pending requests (default 60000)</li>
+ *     <li>dasein.offlineThroughput.timeout - the most milliseconds to wait for submitted requests (default 6 hours)</li>
+ * </ul>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class OfflineStoreThroughputTests {
+    static private final Logger logger = Logger.getLogger(OfflineStoreThroughputTests.class);
+
+    static private DaseinTestManager tm;
+
+    @BeforeClass
+    static public void configure() {
+        tm = new DaseinTestManager(OfflineStoreThroughputTests.class);
+    }
+
+    @AfterClass
+    static public void cleanUp() {
+        if( tm != null ) {
+            tm.close();
+        }
+    }
+
+    static private @Nonnull String summarize(@Nonnull List<Long> values) {
+        if( values.isEmpty() ) {
+            return "none";
+        }
+        return values.size() + " p50=" + PerfUtils.percentile(values, 0.5) + " p95=" + PerfUtils.percentile(values, 0.95) + " max=" + PerfUtils.percentile(values, 1.0) + " ms";
+    }
+
+    static private double perSecond(long count, long nanos) {
+        return count/(Math.max(nanos, 1L)/1000000000.0);
+    }
+
+    /**
+     * What was found listing the requests of one or more buckets and reading the results of completed list requests.
+     */
+    static private class Tally {
+        public long blobs;
+        public long bytes;
+        public long failed;
+        public long firstNanos = -1L;
+        public long pending;
+        public long requests;
+        public long resultNanos;
+        public long results;
+
+        public void add(@Nonnull Tally other) {
+            blobs += other.blobs;
+            bytes += other.bytes;
+            failed += other.failed;
+            pending += other.pending;
+            requests += other.requests;
+            resultNanos += other.resultNanos;
+            results += other.results;
+            if( other.firstNanos >= 0L && (firstNanos < 0L || other.firstNanos < firstNanos) ) {
+                firstNanos = other.firstNanos;
+            }
+        }
+    }
+
+    /**
+     * A request submitted by the latency test and its progress.
+     */
+    static private class Submission {
+        public OfflineStoreRequestAction action;
+        public String                    bucket;
+        public long                      observedMillis = -1L;
+        public long                      reportedMillis = -1L;
+        public String                    requestId;
+        public OfflineStoreRequestStatus status;
+        public long                      submitted;
+    }
+
+    @Rule
+    public final TestName name = new TestName();
+
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
+    private ExecutorService     executor;
+    private OfflineStoreSupport support;
+
+    public OfflineStoreThroughputTests() { }
+
+    @Before
+    public void before() {
+        tm.begin(name.getMethodName());
+        assumeTrue(!tm.isTestSkipped());
+        StorageServices services = tm.getProvider().getStorageServices();
+
+        support = (services == null ? null : services.getOfflineStorageSupport());
+        executor = Executors.newFixedThreadPool((int)PerfUtils.getPositiveLong("dasein.offlineThroughput.threads", 8L));
+    }
+
+    @After
+    public void after() {
+        if( executor != null ) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        support = null;
+        tm.end();
+    }
+
+    private boolean isRunnable() throws CloudException, InternalException {
+        if( !"true".equalsIgnoreCase(System.getProperty("dasein.offlineThroughput")) ) {
+            tm.ok("Offline store throughput tests are not enabled (set dasein.offlineThroughput to true)");
+            return false;
+        }
+        if( support == null ) {
+            tm.ok("No offline storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
+            return false;
+        }
+        if( !support.isSubscribed() ) {
+            tm.ok("Not subscribed to offline storage so this test is not valid");
+            return false;
+        }
+        return true;
+    }
+
+    private @Nonnull List<String> listBuckets() throws CloudException, InternalException {
+        ArrayList<String> buckets = new ArrayList<String>();
+
+        for( Blob bucket : support.list(null) ) {
+            if( bucket.isContainer() && bucket.getBucketName() != null ) {
+                buckets.add(bucket.getBucketName());
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Reads the results of a completed list request, counting what is listed as it is iterated.
+     * @param bucket the bucket that was listed
+     * @param requestId the completed list request
+     * @param tally the tally into which the results are counted
+     * @throws CloudException an error occurred with the cloud provider reading the results
+     * @throws InternalException an error occurred within Dasein Cloud reading the results
+     */
+    private void readResult(@Nonnull String bucket, @Nonnull String requestId, @Nonnull Tally tally) throws CloudException, InternalException {
+        long start = System.nanoTime();
+        Iterable<Blob> result = tm.stream("getListRequestResult").of(support.getListRequestResult(bucket, requestId));
+
+        assertNotNull("The results of list request " + requestId + " for " + bucket + " are null", result);
+        for( Blob blob : result ) {
+            if( tally.firstNanos < 0L ) {
+                tally.firstNanos = System.nanoTime() - start;
+            }
+            if( blob != null ) {
+                Storage<Byte> size = blob.getSize();
+
+                tally.blobs++;
+                if( size != null ) {
+                    tally.bytes += size.getQuantity().longValue();
+                }
+            }
+        }
+        tally.resultNanos += System.nanoTime() - start;
+        tally.results++;
+    }
+
+    private @Nonnull Tally tallyBucket(@Nonnull String bucket) throws CloudException, InternalException {
+        Tally tally = new Tally();
+
+        for( OfflineStoreRequest request : support.listRequests(bucket) ) {
+            tally.requests++;
+            if( OfflineStoreRequestStatus.IN_PROGRESS.equals(request.getStatus()) ) {
+                tally.pending++;
+            }
+            else if( OfflineStoreRequestStatus.FAILED.equals(request.getStatus()) ) {
+                tally.failed++;
+            }
+            else if( OfflineStoreRequestStatus.SUCCEEDED.equals(request.getStatus()) && OfflineStoreRequestAction.LIST.equals(request.getAction()) ) {
+                readResult(bucket, request.getRequestId(), tally);
+            }
+        }
+        return tally;
+    }
+
+    @Test
+    public void listRequestResults() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> buckets = listBuckets();
+        ArrayList<Future<Tally>> futures = new ArrayList<Future<Tally>>();
+
+        for( final String bucket : buckets ) {
+            futures.add(executor.submit(new Callable<Tally>() {
+                public Tally call() throws Exception {
+                    return tallyBucket(bucket);
+                }
+            }));
+        }
+        Tally total = new Tally();
+        String firstError = null;
+        int errors = 0;
+
+        for( int i=0; i<futures.size(); i++ ) {
+            try {
+                total.add(futures.get(i).get());
+            }
+            catch( ExecutionException e ) {
+                // the cause may be an AssertionError from the streaming probe or from readResult()
+                if( errors++ == 0 ) {
+                    firstError = "Failed to tally the requests of " + buckets.get(i) + ": " + e.getCause().getMessage();
+                    tm.warn(firstError);
+                }
+            }
+        }
+        long nanos = System.nanoTime() - start;
+
+        tm.out("Buckets", buckets.size() + " (" + errors + " errors)");
+        tm.out("Requests", total.requests + " (" + total.pending + " in progress, " + total.failed + " failed) in " + (nanos/1000000L) + " ms (" + String.format("%.1f", perSecond(total.requests, nanos)) + " requests/s)");
+        tm.out("List Results", String.valueOf(total.results));
+        if( total.results > 0 ) {
+            tm.out("First Blob", (total.firstNanos/1000000L) + " ms");
+            tm.out("Blobs", total.blobs + " (" + total.bytes + " bytes) at " + String.format("%.1f", perSecond(total.blobs, total.resultNanos)) + " blobs/s");
+        }
+        else {
+            tm.ok("No completed list requests were found to read");
+        }
+        if( errors > 0 ) {
+            fail(errors + " of " + buckets.size() + " buckets could not be tallied (" + firstError + ")");
+        }
+    }
+
+    private @Nonnull Future<?> submit(final @Nonnull String bucket, final @Nullable String object, final @Nonnull List<Submission> submissions) {
+        return executor.submit(new Runnable() {
+            public void run() {
+                Submission s = new Submission();
+
+                s.action = (object == null ? OfflineStoreRequestAction.LIST : OfflineStoreRequestAction.DOWNLOAD);
+                s.bucket = bucket;
+                s.submitted = System.nanoTime();
+                try {
+                    OfflineStoreRequest request = (object == null ? support.createListRequest(bucket) : support.createDownloadRequest(bucket, object));
+
+                    s.requestId = request.getRequestId();
+                    s.status = request.getStatus();
+                }
+                catch( CloudException e ) {
+                    if( e.getHttpCode() == 404 ) {
+                        tm.out("Couldn't make " + s.action + " request for bucket (too new): " + bucket);
+                    }
+                    else {
+                        tm.warn("Failed to make " + s.action + " request for " + bucket + ": " + e.getMessage());
+                    }
+                    return;
+                }
+                catch( Throwable t ) {
+                    tm.warn("Failed to make " + s.action + " request for " + bucket + ": " + t.getMessage());
+                    return;
+                }
+                synchronized( submissions ) {
+                    submissions.add(s);
+                }
+            }
+        });
+    }
+
+    private @Nullable String findObject(@Nonnull String bucket) throws CloudException, InternalException {
+        for( OfflineStoreRequest request : support.listRequests(bucket) ) {
+            if( OfflineStoreRequestStatus.SUCCEEDED.equals(request.getStatus()) && OfflineStoreRequestAction.LIST.equals(request.getAction()) ) {
+                Iterator<Blob> it = support.getListRequestResult(bucket, request.getRequestId()).iterator();
+
+                while( it.hasNext() ) {
+                    Blob blob = it.next();
+
+                    if( blob != null && blob.getObjectName() != null ) {
+                        return blob.getObjectName();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private void poll(final @Nonnull Submission s) throws CloudException, InternalException {
+        OfflineStoreRequest request = support.getRequest(s.bucket, s.requestId);
+
+        if( request == null ) {
+            s.status = OfflineStoreRequestStatus.FAILED;
+            return;
+        }
+        s.status = request.getStatus();
+        if( !OfflineStoreRequestStatus.IN_PROGRESS.equals(s.status) ) {
+            s.observedMillis = (System.nanoTime() - s.submitted)/1000000L;
+            if( request.getCreationTimestamp() > 0L && request.getCompletionTimestamp() >= request.getCreationTimestamp() ) {
+                s.reportedMillis = request.getCompletionTimestamp() - request.getCreationTimestamp();
+            }
+        }
+    }
+
+    @Test
+    public void requestLatency() throws Exception {
+        if( !isRunnable() ) {
+            return;
+        }
+        int batch = (int)PerfUtils.getPositiveLong("dasein.offlineThroughput.batch", 4L);
+        List<String> buckets = listBuckets();
+        final ArrayList<Submission> submissions = new ArrayList<Submission>();
+        ArrayList<Future<?>> submits = new ArrayList<Future<?>>();
+        int submitted = 0;
+
+        for( String bucket : buckets ) {
+            if( submitted >= batch ) {
+                break;
+            }
+            submits.add(submit(bucket, null, submissions));
+            submitted++;
+        }
+        int downloads = 0;
+
+        for( String bucket : buckets ) {
+            if( downloads >= batch ) {
+                break;
+            }
+            String object = findObject(bucket);
+
+            if( object != null ) {
+                submits.add(submit(bucket, object, submissions));
+                downloads++;
+            }
+        }
+        submitted += downloads;
+        if( submitted < 1 ) {
+            tm.ok("No buckets were found in which to make requests");
+            return;
+        }
+        for( Future<?> f : submits ) {
+            f.get();
+        }
+        long timeout = System.currentTimeMillis() + PerfUtils.getPositiveLong("dasein.offlineThroughput.timeout", CalendarWrapper.HOUR * 6L);
+        long interval = PerfUtils.getPositiveLong("dasein.offlineThroughput.interval", CalendarWrapper.MINUTE);
+        ArrayList<Submission> pending = new ArrayList<Submission>();
+
+        tm.out("Submitted", submitted + " (" + downloads + " downloads)");
+        while( System.currentTimeMillis() < timeout ) {
+            pending.clear();
+            synchronized( submissions ) {
+                for( Submission s : submissions ) {
+                    if( s.observedMillis < 0L && !OfflineStoreRequestStatus.FAILED.equals(s.status) ) {
+                        pending.add(s);
+                    }
+                }
+            }
+            if( pending.isEmpty() ) {
+                break;
+            }
+            ArrayList<Future<?>> polls = new ArrayList<Future<?>>();
+
+            for( final Submission s : pending ) {
+                polls.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        poll(s);
+                        return null;
+                    }
+                }));
+            }
+            for( Future<?> f : polls ) {
+                try {
+                    f.get();
+                }
+                catch( ExecutionException e ) {
+                    logger.warn("Failed to poll a request: " + e.getCause().getMessage());
+                }
+            }
+            boolean waiting = false;
+
+            for( Submission s : pending ) {
+                if( s.observedMillis < 0L && !OfflineStoreRequestStatus.FAILED.equals(s.status) ) {
+                    waiting = true;
+                }
+            }
+            if( !waiting ) {
+                break;
+            }
+            TimelineRecorder.pause(interval);
+        }
+        ArrayList<Long> listObserved = new ArrayList<Long>(), listReported = new ArrayList<Long>();
+        ArrayList<Long> downloadObserved = new ArrayList<Long>(), downloadReported = new ArrayList<Long>();
+        int failed = 0, unfinished = 0;
+
+        synchronized( submissions ) {
+            for( Submission s : submissions ) {
+                boolean list = OfflineStoreRequestAction.LIST.equals(s.action);
+
+                if( OfflineStoreRequestStatus.SUCCEEDED.equals(s.status) ) {
+                    (list ? listObserved : downloadObserved).add(s.observedMillis);
+                    if( s.reportedMillis >= 0L ) {
+                        (list ? listReported : downloadReported).add(s.reportedMillis);
+                    }
+                }
+                else if( OfflineStoreRequestStatus.FAILED.equals(s.status) ) {
+                    failed++;
+                }
+                else {
+                    unfinished++;
+                }
+            }
+            tm.out("Accepted", submissions.size() + " of " + submitted);
+        }
+        tm.out("List Latency", summarize(listObserved));
+        tm.out("List Latency (Reported)", summarize(listReported));
+        tm.out("Download Latency", summarize(downloadObserved));
+        tm.out("Download Latency (Reported)", summarize(downloadReported));
+        tm.out("Failed", String.valueOf(failed));
+        if( unfinished > 0 ) {
+            tm.warn(unfinished + " requests were still in progress when the test timed out");
+        }
+    }
+}
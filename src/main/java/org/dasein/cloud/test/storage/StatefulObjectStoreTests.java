@@ -26,7 +26,9 @@ import org.dasein.cloud.storage.Blob;
 import org.dasein.cloud.storage.BlobStoreSupport;
 import org.dasein.cloud.storage.FileTransfer;
 import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.TimelineRecorder;
 import org.dasein.util.CalendarWrapper;
 import org.dasein.util.uom.storage.*;
 import org.dasein.util.uom.storage.Byte;
@@ -37,13 +39,12 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
@@ -64,6 +65,11 @@ public class StatefulObjectStoreTests {
     @BeforeClass
     static public void configure() {
         tm = new DaseinTestManager(StatefulObjectStoreTests.class);
+        StorageResources resources = DaseinTestManager.getStorageResources();
+
+        if( resources != null ) {
+            resources.preprovision(StatefulObjectStoreTests.class);
+        }
     }
 
     @AfterClass
@@ -76,6 +82,9 @@ public class StatefulObjectStoreTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private Blob testObject;
     private Blob testBucket;
 
@@ -186,16 +195,21 @@ public class StatefulObjectStoreTests {
     }
 
     private void assertFile(@Nonnull File file) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+        String separator = System.getProperty("line.separator");
+        byte[] expected = (LINE_ONE + separator + LINE_TWO + separator).getBytes();
+        DownloadVerifier.Result result = DownloadVerifier.verify(file, new ByteArrayInputStream(expected));
 
-        try {
-            assertEquals("The first line of the downloaded file does not match", LINE_ONE, reader.readLine());
-            assertEquals("The second line of the downloaded file does not match", LINE_TWO, reader.readLine());
-            assertEquals("There are extra lines in the downloaded file", null, reader.readLine());
-        }
-        finally {
-            reader.close();
+        tm.out("Verified", result);
+        assertTrue("The downloaded file does not match the uploaded content: " + result, result.isMatch());
+    }
+
+    private boolean isListed(@Nonnull BlobStoreSupport support, @Nonnull Blob object) throws CloudException, InternalException {
+        for( Blob item : support.list(object.getBucketName()) ) {
+            if( !item.isContainer() && object.getObjectName() != null && object.getObjectName().equals(item.getObjectName()) ) {
+                return true;
+            }
         }
+        return false;
     }
 
     @Test
@@ -293,6 +307,7 @@ public class StatefulObjectStoreTests {
             support.removeBucket(bucket.getBucketName());
 
             long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
+            long delay = 0L;
 
             while( timeout > System.currentTimeMillis() ) {
                 try {
@@ -306,7 +321,8 @@ public class StatefulObjectStoreTests {
                 catch( Throwable ignore ) {
                     // ignore
                 }
-                try { Thread.sleep(5000L); }
+                delay = ConsistencyMonitor.getBackoff(delay);
+                try { TimelineRecorder.pause(delay); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", bucket);
@@ -346,6 +362,7 @@ public class StatefulObjectStoreTests {
             support.removeBucket(bucket.getBucketName());
 
             long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
+            long delay = 0L;
 
             while( timeout > System.currentTimeMillis() ) {
                 try {
@@ -359,7 +376,8 @@ public class StatefulObjectStoreTests {
                 catch( Throwable ignore ) {
                     // ignore
                 }
-                try { Thread.sleep(5000L); }
+                delay = ConsistencyMonitor.getBackoff(delay);
+                try { TimelineRecorder.pause(delay); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", bucket);
@@ -431,7 +449,7 @@ public class StatefulObjectStoreTests {
             return;
         }
 
-        BlobStoreSupport support = services.getBlobStoreSupport();
+        final BlobStoreSupport support = services.getBlobStoreSupport();
 
         if( support == null ) {
             tm.ok("No object storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -441,10 +459,21 @@ public class StatefulObjectStoreTests {
             StorageResources resources = DaseinTestManager.getStorageResources();
 
             if( resources != null ) {
-                Blob blob = resources.provisionChildObject(support, "upload", testBucket.getBucketName(), "dsnobj", LINE_ONE, LINE_TWO);
+                final Blob blob = resources.provisionChildObject(support, "upload", testBucket.getBucketName(), "dsnobj", LINE_ONE, LINE_TWO);
 
                 tm.out("Uploaded", blob);
                 assertNotNull("Uploaded blob returned a null object", blob);
+                tm.checkConsistency("Object", true, new ConsistencyMonitor.Probe() {
+                    @Override
+                    public boolean reflects() throws CloudException, InternalException {
+                        return (support.getObject(blob.getBucketName(), blob.getObjectName()) != null);
+                    }
+                }, new ConsistencyMonitor.Probe() {
+                    @Override
+                    public boolean reflects() throws CloudException, InternalException {
+                        return isListed(support, blob);
+                    }
+                });
             }
             else {
                 fail("Failed to initialize storage resources for all tests");
@@ -479,14 +508,20 @@ public class StatefulObjectStoreTests {
             File targetFile = File.createTempFile("dsndl", ".dl");
 
             try {
+                long start = System.nanoTime();
                 FileTransfer task;
 
                 //noinspection ConstantConditions
                 task = support.download(null, testObject.getObjectName(), targetFile);
-                while( !task.isComplete() ) {
-                    try { Thread.sleep(1000L); }
-                    catch( InterruptedException e ) { }
+                TransferMonitor monitor = new TransferMonitor(task, targetFile, start);
+
+                try {
+                    assertTrue("The download did not complete within 20 minutes", monitor.await(CalendarWrapper.MINUTE * 20L));
+                }
+                catch( InterruptedException e ) {
+                    fail("Interrupted while waiting for the download to complete");
                 }
+                tm.out("Transfer", monitor);
                 //noinspection ThrowableResultOfMethodCallIgnored
                 if( task.getTransferError() != null ) {
                     throw new CloudException(task.getTransferError());
@@ -533,14 +568,20 @@ public class StatefulObjectStoreTests {
             File targetFile = File.createTempFile("dsndl", ".dl");
 
             try {
+                long start = System.nanoTime();
                 FileTransfer task;
 
                 //noinspection ConstantConditions
                 task = support.download(testObject.getBucketName(), testObject.getObjectName(), targetFile);
-                while( !task.isComplete() ) {
-                    try { Thread.sleep(1000L); }
-                    catch( InterruptedException e ) { }
+                TransferMonitor monitor = new TransferMonitor(task, targetFile, start);
+
+                try {
+                    assertTrue("The download did not complete within 20 minutes", monitor.await(CalendarWrapper.MINUTE * 20L));
+                }
+                catch( InterruptedException e ) {
+                    fail("Interrupted while waiting for the download to complete");
                 }
+                tm.out("Transfer", monitor);
                 //noinspection ThrowableResultOfMethodCallIgnored
                 if( task.getTransferError() != null ) {
                     throw new CloudException(task.getTransferError());
@@ -588,6 +629,7 @@ public class StatefulObjectStoreTests {
             //noinspection ConstantConditions
             support.removeObject(object.getBucketName(), object.getObjectName());
             long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
+            long delay = 0L;
 
             while( timeout > System.currentTimeMillis() ) {
                 try {
@@ -601,7 +643,8 @@ public class StatefulObjectStoreTests {
                 catch( Throwable ignore ) {
                     // ignore
                 }
-                try { Thread.sleep(5000L); }
+                delay = ConsistencyMonitor.getBackoff(delay);
+                try { TimelineRecorder.pause(delay); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", object);
@@ -630,7 +673,7 @@ public class StatefulObjectStoreTests {
             return;
         }
 
-        BlobStoreSupport support = services.getBlobStoreSupport();
+        final BlobStoreSupport support = services.getBlobStoreSupport();
 
         if( support == null ) {
             tm.ok("No object storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
@@ -641,9 +684,23 @@ public class StatefulObjectStoreTests {
 
             tm.out("Before", object);
             assertNotNull("The test object does not really exist", object);
+            final Blob removed = object;
+
             //noinspection ConstantConditions
             support.removeObject(object.getBucketName(), object.getObjectName());
+            tm.checkConsistency("Object", false, new ConsistencyMonitor.Probe() {
+                @Override
+                public boolean reflects() throws CloudException, InternalException {
+                    return (support.getObject(removed.getBucketName(), removed.getObjectName()) == null);
+                }
+            }, new ConsistencyMonitor.Probe() {
+                @Override
+                public boolean reflects() throws CloudException, InternalException {
+                    return !isListed(support, removed);
+                }
+            });
             long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
+            long delay = 0L;
 
             while( timeout > System.currentTimeMillis() ) {
                 try {
@@ -657,7 +714,8 @@ public class StatefulObjectStoreTests {
                 catch( Throwable ignore ) {
                     // ignore
                 }
-                try { Thread.sleep(5000L); }
+                delay = ConsistencyMonitor.getBackoff(delay);
+                try { TimelineRecorder.pause(delay); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", object);
@@ -698,6 +756,7 @@ public class StatefulObjectStoreTests {
             support.clearBucket(bucket.getBucketName());
 
             long timeout = System.currentTimeMillis() + CalendarWrapper.MINUTE;
+            long delay = 0L;
 
             while( timeout > System.currentTimeMillis() ) {
                 try {
@@ -711,7 +770,8 @@ public class StatefulObjectStoreTests {
                 catch( Throwable ignore ) {
                     // ignore
                 }
-                try { Thread.sleep(5000L); }
+                delay = ConsistencyMonitor.getBackoff(delay);
+                try { TimelineRecorder.pause(delay); }
                 catch( InterruptedException ignore ) { }
             }
             tm.out("After", bucket);
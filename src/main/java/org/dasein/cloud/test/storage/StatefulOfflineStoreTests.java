@@ -34,6 +34,7 @@ import org.dasein.cloud.test.DaseinTestManager;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -64,6 +65,9 @@ public class StatefulOfflineStoreTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     @Before
     public void before() {
         tm.begin(name.getMethodName());
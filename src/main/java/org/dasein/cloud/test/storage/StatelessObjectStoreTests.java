@@ -32,6 +32,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -58,6 +59,11 @@ public class StatelessObjectStoreTests {
     @BeforeClass
     static public void configure() {
         tm = new DaseinTestManager(StatelessObjectStoreTests.class);
+        StorageResources resources = DaseinTestManager.getStorageResources();
+
+        if( resources != null ) {
+            resources.preprovision(StatelessObjectStoreTests.class);
+        }
     }
 
     @AfterClass
@@ -70,6 +76,9 @@ public class StatelessObjectStoreTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     private Blob testChildBucket;
     private Blob testChildObject;
     private Blob testRootBucket;
@@ -87,14 +96,15 @@ public class StatelessObjectStoreTests {
         testChildObject = tm.getTestObject(DaseinTestManager.STATELESS, false, false);
         if( testChildObject != null && name.getMethodName().equals("childObjectContent") ) {
             StorageServices services = tm.getProvider().getStorageServices();
+            StorageResources resources = DaseinTestManager.getStorageResources();
 
-            if( services != null ) {
+            if( services != null && resources != null ) {
                 BlobStoreSupport support = services.getBlobStoreSupport();
 
                 if( support != null ) {
                     try {
                         //noinspection ConstantConditions
-                        testRootBucket = support.getBucket(testChildObject.getBucketName());
+                        testRootBucket = resources.getBlobCache().getBucket(support, testChildObject.getBucketName());
                     }
                     catch( Throwable ignore ) {
                         // ignore
@@ -202,13 +212,13 @@ public class StatelessObjectStoreTests {
             tm.ok("No object storage is supported in " + tm.getContext().getRegionId() + " of " + tm.getProvider().getCloudName());
             return;
         }
-        Iterable<Blob> items = support.list(null);
+        Iterable<Blob> items = tm.stream("list").of(support.list(null));
         int count = 0;
 
         assertNotNull("Items returned may not be null", items);
         for( Blob item : items ) {
             count++;
-            tm.out("Item", item);
+            tm.item("Item", item);
         }
         tm.out("Total Root Items", count);
         if( count < 1 ) {
@@ -389,13 +399,13 @@ public class StatelessObjectStoreTests {
             return;
         }
         if( testRootBucket != null ) {
-            Iterable<Blob> items = support.list(testRootBucket.getBucketName());
+            Iterable<Blob> items = tm.stream("list").of(support.list(testRootBucket.getBucketName()));
             int count = 0;
 
             assertNotNull("Items returned may not be null", items);
             for( Blob item : items ) {
                 count++;
-                tm.out("Item", item);
+                tm.item("Item", item);
             }
             tm.out("Total Items in " + testRootBucket.getBucketName(), count);
             if( count < 1 ) {
@@ -630,13 +640,13 @@ public class StatelessObjectStoreTests {
             return;
         }
         if( testChildBucket != null ) {
-            Iterable<Blob> items = support.list(testChildBucket.getBucketName());
+            Iterable<Blob> items = tm.stream("list").of(support.list(testChildBucket.getBucketName()));
             int count = 0;
 
             assertNotNull("Items returned may not be null", items);
             for( Blob item : items ) {
                 count++;
-                tm.out("Item", item);
+                tm.item("Item", item);
             }
             tm.out("Total Items in " + testChildBucket.getBucketName(), count);
             if( count < 1 ) {
@@ -35,6 +35,7 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
+import org.junit.rules.TestWatcher;
 
 import java.util.Locale;
 
@@ -60,6 +61,9 @@ public class StatelessOfflineStoreTests {
     @Rule
     public final TestName name = new TestName();
 
+    @Rule
+    public final TestWatcher watcher = tm.watcher();
+
     @Before
     public void before() {
         tm.begin(name.getMethodName());
@@ -26,18 +26,28 @@ import org.dasein.cloud.InternalException;
 import org.dasein.cloud.storage.Blob;
 import org.dasein.cloud.storage.BlobStoreSupport;
 import org.dasein.cloud.storage.StorageServices;
+import org.dasein.cloud.test.ConsistencyMonitor;
 import org.dasein.cloud.test.DaseinTestManager;
+import org.dasein.cloud.test.InterceptingProvider;
+import org.dasein.cloud.test.PerfUtils;
+import org.dasein.cloud.test.TimelineRecorder;
+import org.dasein.util.CalendarWrapper;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * [Class Documentation]
@@ -55,15 +65,363 @@ public class StorageResources {
     private final HashMap<String,Blob> testRootBuckets = new HashMap<String, Blob>();
     private final HashMap<String,Blob> testRootObjects = new HashMap<String, Blob>();
 
+    private final BlobCache              cache   = new BlobCache();
+    private final ObjectContentGenerator content = new ObjectContentGenerator();
+
+    private final HashMap<String,Future<Blob>> fixtures = new HashMap<String, Future<Blob>>();
+    private       ExecutorService              fixtureExecutor;
+    private final TreeSet<String>              preprovisioned = new TreeSet<String>();
+
     private CloudProvider provider;
 
     public StorageResources(@Nonnull CloudProvider provider) {
         this.provider = provider;
     }
 
+    /**
+     * The kinds of test fixture managed by these resources.
+     */
+    static public enum Fixture { ROOT_BUCKET, CHILD_BUCKET, ROOT_OBJECT, CHILD_OBJECT }
+
+    static private final int FIXTURE_THREADS = 4;
+
+    static private @Nonnull String getFixtureKey(@Nonnull Fixture fixture, @Nonnull String label) {
+        return fixture.name() + ":" + label;
+    }
+
+    /**
+     * Starts provisioning the shared fixtures of the specified object store test suites in the background so that the
+     * tests find them ready rather than creating them inline in their before() hooks. This is called by the storage
+     * test suite and by the object store test classes as they start, so nothing is provisioned in runs that include no
+     * storage tests; each suite's fixtures are prepared only once, and only for suites that the inclusions and
+     * exclusions do not skip. The fixtures form a small dependency graph: the stateful and removable root buckets and
+     * the removable root object are created at once, while the stateful child bucket and the child objects are created
+     * as soon as the stateful root bucket exists. The lookups of existing fixtures for the stateless tests run
+     * alongside them, but when both suites are prepared together the removable fixtures wait for those lookups so the
+     * stateless tests never settle on something a stateful test deletes. Pre-provisioning is turned off by setting the
+     * dasein.storage.preprovision {@link System} property to false.
+     * @param suites the test classes whose fixtures are to be prepared ({@link StatefulObjectStoreTests} and/or
+     * {@link StatelessObjectStoreTests}; other classes are ignored)
+     */
+    public void preprovision(@Nonnull Class<?> ... suites) {
+        if( "false".equalsIgnoreCase(System.getProperty("dasein.storage.preprovision")) ) {
+            return;
+        }
+        boolean stateful = false, stateless = false;
+
+        synchronized( preprovisioned ) {
+            for( Class<?> suite : suites ) {
+                String name = suite.getSimpleName();
+
+                if( !DaseinTestManager.isSuiteIncluded(name) || !preprovisioned.add(name) ) {
+                    continue;
+                }
+                if( suite.equals(StatefulObjectStoreTests.class) ) {
+                    stateful = true;
+                }
+                else if( suite.equals(StatelessObjectStoreTests.class) ) {
+                    stateless = true;
+                }
+            }
+        }
+        if( !stateful && !stateless ) {
+            return;
+        }
+        StorageServices services = provider.getStorageServices();
+        final BlobStoreSupport support = (services == null ? null : services.getBlobStoreSupport());
+
+        try {
+            if( support == null || !support.isSubscribed() ) {
+                return;
+            }
+            boolean nested = support.allowsNestedBuckets();
+            boolean rootObjects = support.allowsRootObjects();
+            ArrayList<Future<Blob>> lookups = new ArrayList<Future<Blob>>();
+
+            synchronized( fixtures ) {
+                if( fixtureExecutor == null ) {
+                    fixtureExecutor = Executors.newFixedThreadPool(FIXTURE_THREADS);
+                }
+            }
+            if( stateless ) {
+                lookups.add(prepare(Fixture.ROOT_BUCKET, DaseinTestManager.STATELESS, null, new Callable<Blob>() {
+                    public Blob call() {
+                        return findStatelessRootBucket();
+                    }
+                }));
+                if( nested ) {
+                    lookups.add(prepare(Fixture.CHILD_BUCKET, DaseinTestManager.STATELESS, null, new Callable<Blob>() {
+                        public Blob call() {
+                            return findStatelessChildBucket();
+                        }
+                    }));
+                }
+                if( rootObjects ) {
+                    lookups.add(prepare(Fixture.ROOT_OBJECT, DaseinTestManager.STATELESS, null, new Callable<Blob>() {
+                        public Blob call() {
+                            return findStatelessRootObject();
+                        }
+                    }));
+                }
+                lookups.add(prepare(Fixture.CHILD_OBJECT, DaseinTestManager.STATELESS, null, new Callable<Blob>() {
+                    public Blob call() {
+                        return findStatelessChildObject();
+                    }
+                }));
+            }
+            if( stateful ) {
+                final Future<Blob> root = prepare(Fixture.ROOT_BUCKET, DaseinTestManager.STATEFUL, null, new Callable<Blob>() {
+                    public Blob call() throws Exception {
+                        return provisionRootBucket(support, DaseinTestManager.STATEFUL, "dsnbkt", false, true);
+                    }
+                });
+
+                if( nested ) {
+                    prepare(Fixture.CHILD_BUCKET, DaseinTestManager.STATEFUL, null, new Callable<Blob>() {
+                        public Blob call() throws Exception {
+                            return provisionChildBucket(support, DaseinTestManager.STATEFUL, root.get().getBucketName(), "dsnbkt", false, true);
+                        }
+                    });
+                }
+                prepare(Fixture.CHILD_OBJECT, DaseinTestManager.STATEFUL, null, new Callable<Blob>() {
+                    public Blob call() throws Exception {
+                        return provisionChildObject(support, DaseinTestManager.STATEFUL, root.get().getBucketName(), "dsnobj");
+                    }
+                });
+                prepare(Fixture.ROOT_BUCKET, DaseinTestManager.REMOVED, lookups, new Callable<Blob>() {
+                    public Blob call() throws Exception {
+                        return provisionRootBucket(support, DaseinTestManager.REMOVED, "dsnbkt", false, true);
+                    }
+                });
+                if( rootObjects ) {
+                    prepare(Fixture.ROOT_OBJECT, DaseinTestManager.REMOVED, lookups, new Callable<Blob>() {
+                        public Blob call() throws Exception {
+                            return provisionRootObject(support, DaseinTestManager.REMOVED, "dsnobj");
+                        }
+                    });
+                }
+                prepare(Fixture.CHILD_OBJECT, DaseinTestManager.REMOVED, lookups, new Callable<Blob>() {
+                    public Blob call() throws Exception {
+                        return provisionChildObject(support, DaseinTestManager.REMOVED, root.get().getBucketName(), "dsnobj");
+                    }
+                });
+            }
+        }
+        catch( Throwable t ) {
+            logger.warn("Unable to pre-provision storage test fixtures: " + t.getMessage());
+        }
+    }
+
+    /**
+     * Submits the preparation of a fixture. A fixture may only depend on fixtures submitted before it, which
+     * guarantees that everything it waits on has already been picked up by the pool.
+     * @param fixture the kind of fixture
+     * @param label the label of the fixture
+     * @param after fixtures that must be settled, successfully or not, before this one is prepared
+     * @param task the preparation of the fixture
+     * @return the future fixture
+     */
+    private @Nonnull Future<Blob> prepare(@Nonnull Fixture fixture, @Nonnull String label, final @Nullable List<Future<Blob>> after, final @Nonnull Callable<Blob> task) {
+        Future<Blob> future = fixtureExecutor.submit(new Callable<Blob>() {
+            public Blob call() throws Exception {
+                if( after != null ) {
+                    for( Future<Blob> f : after ) {
+                        try {
+                            f.get();
+                        }
+                        catch( Throwable ignore ) {
+                            // ignore
+                        }
+                    }
+                }
+                return task.call();
+            }
+        });
+
+        synchronized( fixtures ) {
+            fixtures.put(getFixtureKey(fixture, label), future);
+        }
+        return future;
+    }
+
+    /**
+     * Provides the fixture being prepared in the background by {@link #preprovision(Class[])} for the specified label.
+     * @param fixture the kind of fixture
+     * @param label the label of the fixture
+     * @return the future fixture or null if the fixture is not being prepared in the background
+     */
+    public @Nullable Future<Blob> getFixture(@Nonnull Fixture fixture, @Nonnull String label) {
+        synchronized( fixtures ) {
+            return fixtures.get(getFixtureKey(fixture, label));
+        }
+    }
+
+    /**
+     * Waits for a fixture being prepared in the background. A failed or timed out preparation is logged and
+     * otherwise ignored, leaving the caller to look up or provision the fixture as it would have without it.
+     * @param fixture the kind of fixture
+     * @param label the label of the fixture
+     */
+    private void awaitFixture(@Nonnull Fixture fixture, @Nonnull String label) {
+        Future<Blob> future = getFixture(fixture, label);
+
+        if( future != null ) {
+            try {
+                future.get(CalendarWrapper.MINUTE * 20L, TimeUnit.MILLISECONDS);
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to pre-provision the " + label + " " + fixture + " test fixture: " + t.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Spaces out teardown calls so that concurrent deletion stays under a fixed number of calls per second.
+     */
+    static private class RateLimiter {
+        private final long interval;
+        private long       next;
+
+        public RateLimiter(int perSecond) {
+            interval = (perSecond < 1 ? 0L : 1000000000L/perSecond);
+        }
+
+        public void acquire() {
+            long wait;
+
+            if( interval == 0L ) {
+                return;
+            }
+            synchronized( this ) {
+                long now = System.nanoTime();
+
+                if( next < now ) {
+                    next = now;
+                }
+                wait = next - now;
+                next += interval;
+            }
+            if( wait >= 1000000L ) {
+                try { TimelineRecorder.pause(wait/1000000L); }
+                catch( InterruptedException ignore ) { }
+            }
+        }
+    }
+
+    static private int getTeardownSetting(@Nonnull String name, int defaultValue) {
+        return PerfUtils.getInt("dasein.teardown." + name, defaultValue);
+    }
+
+    static private @Nullable String getBucketPath(@Nonnull Blob bucket) {
+        String name = bucket.getBucketName();
+        String object = bucket.getObjectName();
+
+        if( name == null ) {
+            return object;
+        }
+        return (object == null ? name : name + "/" + object);
+    }
+
+    static private int getDepth(@Nonnull String path) {
+        int depth = 0;
+
+        for( int i=0; i<path.length(); i++ ) {
+            if( path.charAt(i) == '/' ) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Removes the objects in the specified list concurrently and waits for all removals to finish.
+     * @param support the object store support
+     * @param executor the pool on which removals run
+     * @param limiter the limit on the rate of removals
+     * @param objects the objects to remove
+     * @param leftovers the objects that could not be removed, to which failures are added
+     * @return the number of objects removed or found to be already gone
+     */
+    private int removeObjects(final @Nonnull BlobStoreSupport support, @Nonnull ExecutorService executor, final @Nonnull RateLimiter limiter, @Nonnull List<Blob> objects, final @Nonnull List<String> leftovers) {
+        ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        int count = 0;
+
+        for( final Blob object : objects ) {
+            futures.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    String bucket = object.getBucketName();
+                    String name = object.getObjectName();
+
+                    if( name == null ) {
+                        return false; // not possible
+                    }
+                    try {
+                        limiter.acquire();
+                        support.removeObject(bucket, name);
+                        return true;
+                    }
+                    catch( Throwable t ) {
+                        try {
+                            limiter.acquire();
+                            if( support.getObject(bucket, name) == null ) {
+                                return true;
+                            }
+                        }
+                        catch( Throwable ignore ) {
+                            // ignore
+                        }
+                        synchronized( leftovers ) {
+                            leftovers.add(bucket + "/" + name + " (" + t.getMessage() + ")");
+                        }
+                        return false;
+                    }
+                }
+            }));
+        }
+        for( Future<Boolean> f : futures ) {
+            try {
+                if( f.get() ) {
+                    count++;
+                }
+            }
+            catch( Throwable ignore ) {
+                // ignore
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tears down the test objects and buckets. The tracked test objects are removed first, concurrently on a bounded
+     * pool and subject to a rate limit. Each test bucket is then listed and any objects it still holds (for example,
+     * from a throughput or scale run) are removed the same way before the bucket itself is removed. Buckets are
+     * removed deepest first so child buckets are gone before their parents. The following {@link System} properties
+     * control teardown:
+     * <ul>
+     *     <li>dasein.teardown.threads - the number of removals run in parallel (default 16)</li>
+     *     <li>dasein.teardown.rate - the most removal calls per second, 0 for no limit (default 200)</li>
+     * </ul>
+     * @return the number of test objects and buckets removed
+     */
     public int close() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, getTeardownSetting("threads", 16)));
+        RateLimiter limiter = new RateLimiter(getTeardownSetting("rate", 200));
+        ArrayList<String> leftovers = new ArrayList<String>();
+        long start = System.currentTimeMillis();
+        int buckets = 0, objects = 0;
         int count = 0;
 
+        if( fixtureExecutor != null ) {
+            fixtureExecutor.shutdown();
+            try {
+                fixtureExecutor.awaitTermination(CalendarWrapper.MINUTE * 20L, TimeUnit.MILLISECONDS);
+            }
+            catch( InterruptedException ignore ) {
+                // ignore
+            }
+        }
+        cache.report(logger);
         try {
             StorageServices services = provider.getStorageServices();
 
@@ -71,100 +429,60 @@ public class StorageResources {
                 BlobStoreSupport support = services.getBlobStoreSupport();
 
                 if( support != null ) {
+                    ArrayList<Blob> tracked = new ArrayList<Blob>();
+
                     for( Map.Entry<String,Blob> entry : testRootObjects.entrySet() ) {
                         if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                String bucket = entry.getValue().getBucketName();
-                                String object = entry.getValue().getObjectName();
-
-                                if( object == null ) {
-                                    continue; // not possible
-                                }
-                                Blob blob = support.getObject(bucket, object);
-
-                                if( blob != null ) {
-                                    support.removeObject(bucket, object);
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test root object " + entry.getValue() + ": " + t.getMessage());
-                            }
+                            tracked.add(entry.getValue());
                         }
                     }
-
                     for( Map.Entry<String,Blob> entry : testChildObjects.entrySet() ) {
                         if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                String bucket = entry.getValue().getBucketName();
-                                String object = entry.getValue().getObjectName();
-
-                                if( object == null ) {
-                                    continue; // not possible
-                                }
-                                Blob blob = support.getObject(bucket, object);
-
-                                if( blob != null ) {
-                                    support.removeObject(bucket, object);
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test child object " + entry.getValue() + ": " + t.getMessage());
-                            }
+                            tracked.add(entry.getValue());
                         }
                     }
-                    for( Map.Entry<String,Blob> entry : testChildBuckets.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                String bucket = entry.getValue().getBucketName();
+                    count = removeObjects(support, executor, limiter, tracked, leftovers);
+                    objects = count;
 
-                                if( bucket == null ) {
-                                    bucket = entry.getValue().getObjectName();
-                                    if( bucket == null ) {
-                                        continue; // not possible
-                                    }
-                                }
-                                else {
-                                    bucket = bucket + "/" + entry.getValue().getObjectName();
-                                }
-                                Blob blob = support.getBucket(bucket);
+                    ArrayList<Map.Entry<String,Blob>> entries = new ArrayList<Map.Entry<String, Blob>>(testChildBuckets.entrySet());
+                    ArrayList<String> paths = new ArrayList<String>();
 
-                                if( blob != null ) {
-                                    support.removeBucket(bucket);
-                                    count++;
-                                }
-                                else {
-                                    count++;
-                                }
-                            }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test child bucket " + entry.getValue() + ": " + t.getMessage());
-                            }
+                    entries.addAll(testRootBuckets.entrySet());
+                    for( Map.Entry<String,Blob> entry : entries ) {
+                        String path = (entry.getKey().equals(DaseinTestManager.STATELESS) ? null : getBucketPath(entry.getValue()));
+
+                        if( path != null && !paths.contains(path) ) {
+                            paths.add(path);
                         }
                     }
-                    for( Map.Entry<String,Blob> entry : testRootBuckets.entrySet() ) {
-                        if( !entry.getKey().equals(DaseinTestManager.STATELESS) ) {
-                            try {
-                                Blob blob = support.getBucket(entry.getValue().getBucketName());
+                    Collections.sort(paths, new Comparator<String>() {
+                        @Override
+                        public int compare(String p1, String p2) {
+                            return (getDepth(p2) - getDepth(p1));
+                        }
+                    });
+                    for( String path : paths ) {
+                        try {
+                            if( support.getBucket(path) == null ) {
+                                count++;
+                                continue;
+                            }
+                            ArrayList<Blob> contents = new ArrayList<Blob>();
 
-                                if( blob != null ) {
-                                    support.removeBucket(entry.getValue().getBucketName());
-                                    count++;
-                                }
-                                else {
-                                    count++;
+                            for( Blob item : support.list(path) ) {
+                                if( !item.isContainer() ) {
+                                    contents.add(item);
                                 }
                             }
-                            catch( Throwable t ) {
-                                logger.warn("Failed to remove test root bucket " + entry.getValue() + ": " + t.getMessage());
-                            }
+                            objects += removeObjects(support, executor, limiter, contents, leftovers);
+                            limiter.acquire();
+                            support.removeBucket(path);
+                            buckets++;
+                            count++;
+                        }
+                        catch( Throwable t ) {
+                            logger.warn("Failed to remove test bucket " + path + ": " + t.getMessage());
+                            leftovers.add(path + " (" + t.getMessage() + ")");
                         }
                     }
                 }
@@ -173,6 +491,19 @@ public class StorageResources {
         catch( Throwable ignore ) {
             // ignore
         }
+        finally {
+            executor.shutdown();
+        }
+        if( objects > 0 || buckets > 0 || !leftovers.isEmpty() ) {
+            long millis = Math.max(1L, System.currentTimeMillis() - start);
+
+            logger.info("---------- Storage Teardown ----------");
+            DaseinTestManager.out(logger, null, "---> Objects Removed", objects + " in " + millis + " ms (" + String.format("%.1f", objects/(millis/1000.0)) + " objects/s)");
+            DaseinTestManager.out(logger, null, "---> Buckets Removed", String.valueOf(buckets));
+            DaseinTestManager.out(logger, null, "---> Leftovers", leftovers.size() + (leftovers.isEmpty() ? "" : " " + leftovers));
+            logger.info("");
+        }
+        content.close();
         provider.close();
         return count;
     }
@@ -218,19 +549,26 @@ public class StorageResources {
     }
 
     public @Nullable Blob getTestRootBucket(@Nonnull String label, boolean provisionIfNull, @Nullable String namePrefix) {
+        awaitFixture(Fixture.ROOT_BUCKET, label);
         if( label.equals(DaseinTestManager.STATELESS) ) {
-            for( Map.Entry<String,Blob> entry : testRootBuckets.entrySet() ) {
-                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
-                    Blob bucket = entry.getValue();
+            synchronized( testRootBuckets ) {
+                for( Map.Entry<String,Blob> entry : testRootBuckets.entrySet() ) {
+                    if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
+                        Blob bucket = entry.getValue();
 
-                    if( bucket != null ) {
-                        return bucket;
+                        if( bucket != null ) {
+                            return bucket;
+                        }
                     }
                 }
             }
             return findStatelessRootBucket();
         }
-        Blob bucket = testRootBuckets.get(label);
+        Blob bucket;
+
+        synchronized( testRootBuckets ) {
+            bucket = testRootBuckets.get(label);
+        }
 
         if( bucket != null ) {
             return bucket;
@@ -254,20 +592,41 @@ public class StorageResources {
         return null;
     }
 
+    /**
+     * @return the cache through which test fixtures are resolved
+     */
+    public @Nonnull BlobCache getBlobCache() {
+        return cache;
+    }
+
+    /**
+     * @return the generator of the content of the objects provisioned through these resources
+     */
+    public @Nonnull ObjectContentGenerator getContentGenerator() {
+        return content;
+    }
+
     public @Nullable Blob getTestChildBucket(@Nonnull String label, boolean provisionIfNull, @Nullable String parentBucket, @Nullable String namePrefix) {
+        awaitFixture(Fixture.CHILD_BUCKET, label);
         if( label.equals(DaseinTestManager.STATELESS) ) {
-            for( Map.Entry<String,Blob> entry : testChildBuckets.entrySet() ) {
-                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
-                    Blob bucket = entry.getValue();
+            synchronized( testChildBuckets ) {
+                for( Map.Entry<String,Blob> entry : testChildBuckets.entrySet() ) {
+                    if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
+                        Blob bucket = entry.getValue();
 
-                    if( bucket != null ) {
-                        return bucket;
+                        if( bucket != null ) {
+                            return bucket;
+                        }
                     }
                 }
             }
             return findStatelessChildBucket();
         }
-        Blob bucket = testChildBuckets.get(label);
+        Blob bucket;
+
+        synchronized( testChildBuckets ) {
+            bucket = testChildBuckets.get(label);
+        }
 
         if( bucket != null ) {
             return bucket;
@@ -303,19 +662,26 @@ public class StorageResources {
     }
 
     public @Nullable Blob getTestRootObject(@Nonnull String label, boolean provisionIfNull, @Nullable String namePrefix) {
+        awaitFixture(Fixture.ROOT_OBJECT, label);
         if( label.equals(DaseinTestManager.STATELESS) ) {
-            for( Map.Entry<String,Blob> entry : testRootObjects.entrySet() ) {
-                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
-                    Blob bucket = entry.getValue();
+            synchronized( testRootObjects ) {
+                for( Map.Entry<String,Blob> entry : testRootObjects.entrySet() ) {
+                    if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
+                        Blob bucket = entry.getValue();
 
-                    if( bucket != null ) {
-                        return bucket;
+                        if( bucket != null ) {
+                            return bucket;
+                        }
                     }
                 }
             }
             return findStatelessRootObject();
         }
-        Blob object = testRootObjects.get(label);
+        Blob object;
+
+        synchronized( testRootObjects ) {
+            object = testRootObjects.get(label);
+        }
 
         if( object != null ) {
             return object;
@@ -340,19 +706,26 @@ public class StorageResources {
     }
 
     public @Nullable Blob getTestChildObject(@Nonnull String label, boolean provisionIfNull, @Nullable String parentBucket, @Nullable String namePrefix) {
+        awaitFixture(Fixture.CHILD_OBJECT, label);
         if( label.equals(DaseinTestManager.STATELESS) ) {
-            for( Map.Entry<String,Blob> entry : testChildObjects.entrySet() ) {
-                if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
-                    Blob bucket = entry.getValue();
+            synchronized( testChildObjects ) {
+                for( Map.Entry<String,Blob> entry : testChildObjects.entrySet() ) {
+                    if( !entry.getKey().startsWith(DaseinTestManager.REMOVED) ) {
+                        Blob bucket = entry.getValue();
 
-                    if( bucket != null ) {
-                        return bucket;
+                        if( bucket != null ) {
+                            return bucket;
+                        }
                     }
                 }
             }
             return findStatelessChildObject();
         }
-        Blob object = testChildObjects.get(label);
+        Blob object;
+
+        synchronized( testChildObjects ) {
+            object = testChildObjects.get(label);
+        }
 
         if( object != null ) {
             return object;
@@ -395,15 +768,17 @@ public class StorageResources {
 
             try {
                 if( support != null && support.allowsNestedBuckets() && support.isSubscribed() ) {
-                    Iterable<Blob> roots = support.list(null);
+                    Iterable<Blob> roots = cache.list(support, null);
 
                     for( Blob root : roots ) {
                         if( root.isContainer() ) {
-                            Iterable<Blob> options = support.list(root.getBucketName());
+                            Iterable<Blob> options = cache.list(support, root.getBucketName());
 
                             for( Blob option : options ) {
                                 if( option.isContainer() ) {
-                                    testChildBuckets.put(DaseinTestManager.STATELESS, option);
+                                    synchronized( testChildBuckets ) {
+                                        testChildBuckets.put(DaseinTestManager.STATELESS, option);
+                                    }
                                     return option;
                                 }
                             }
@@ -426,15 +801,17 @@ public class StorageResources {
 
             try {
                 if( support != null && support.isSubscribed() ) {
-                    Iterable<Blob> options = support.list(null);
+                    Iterable<Blob> options = cache.list(support, null);
                     Blob defaultBlob = null;
 
                     for( Blob option : options ) {
                         if( option.isContainer() ) {
-                            Iterable<Blob> children = support.list(option.getBucketName());
+                            Iterable<Blob> children = cache.list(support, option.getBucketName());
 
                             if( children.iterator().hasNext() ) {
-                                testRootBuckets.put(DaseinTestManager.STATELESS, option);
+                                synchronized( testRootBuckets ) {
+                                    testRootBuckets.put(DaseinTestManager.STATELESS, option);
+                                }
                                 return option;
                             }
                             if( defaultBlob == null ) {
@@ -443,7 +820,9 @@ public class StorageResources {
                         }
                     }
                     if( defaultBlob != null ) {
-                        testRootBuckets.put(DaseinTestManager.STATELESS, defaultBlob);
+                        synchronized( testRootBuckets ) {
+                            testRootBuckets.put(DaseinTestManager.STATELESS, defaultBlob);
+                        }
                         return defaultBlob;
                     }
                 }
@@ -463,15 +842,17 @@ public class StorageResources {
 
             try {
                 if( support != null && support.isSubscribed() ) {
-                    Iterable<Blob> roots = support.list(null);
+                    Iterable<Blob> roots = cache.list(support, null);
 
                     for( Blob root : roots ) {
                         if( root.isContainer() ) {
-                            Iterable<Blob> options = support.list(root.getBucketName());
+                            Iterable<Blob> options = cache.list(support, root.getBucketName());
 
                             for( Blob option : options ) {
                                 if( !option.isContainer() ) {
-                                    testChildObjects.put(DaseinTestManager.STATELESS, option);
+                                    synchronized( testChildObjects ) {
+                                        testChildObjects.put(DaseinTestManager.STATELESS, option);
+                                    }
                                     return option;
                                 }
                             }
@@ -494,11 +875,13 @@ public class StorageResources {
 
             try {
                 if( support != null && support.allowsRootObjects() && support.isSubscribed() ) {
-                    Iterable<Blob> options = support.list(null);
+                    Iterable<Blob> options = cache.list(support, null);
 
                     for( Blob option : options ) {
                         if( !option.isContainer() ) {
-                            testRootObjects.put(DaseinTestManager.STATELESS, option);
+                            synchronized( testRootObjects ) {
+                                testRootObjects.put(DaseinTestManager.STATELESS, option);
+                            }
                             return option;
                         }
                     }
@@ -512,9 +895,11 @@ public class StorageResources {
     }
 
     public @Nonnull Blob provisionRootBucket(@Nonnull BlobStoreSupport support, @Nonnull String label, @Nonnull String namePrefix, boolean useName, boolean findFreeName) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String name = (useName ? namePrefix : (namePrefix + random.nextInt(10000)));
         Blob blob = support.createBucket(name, findFreeName);
 
+        cache.invalidate(blob.getBucketName(), null);
         synchronized( testRootBuckets ) {
             while( testRootBuckets.containsKey(label) ) {
                 label = label + random.nextInt(9);
@@ -525,10 +910,12 @@ public class StorageResources {
     }
 
     public @Nonnull Blob provisionChildBucket(@Nonnull BlobStoreSupport support, @Nonnull String label, @Nonnull String parentBucket, @Nonnull String namePrefix, boolean useName, boolean findFreeName) throws CloudException, InternalException {
+        support = InterceptingProvider.asFixture(support);
         String name = (useName ? namePrefix : (namePrefix + random.nextInt(10000)));
 
         Blob blob = support.createBucket(parentBucket + "/" + name, findFreeName);
 
+        cache.invalidate(getBucketPath(blob), null);
         synchronized( testChildBuckets ) {
             while( testChildBuckets.containsKey(label) ) {
                 label = label + random.nextInt(9);
@@ -539,70 +926,32 @@ public class StorageResources {
     }
 
     public @Nonnull Blob provisionRootObject(@Nonnull BlobStoreSupport support, @Nonnull String label, @Nonnull String namePrefix, @Nullable String ... lines) throws CloudException, InternalException {
-        try {
-            File file = File.createTempFile("dsntst", "txt");
-
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
-
-            if( lines == null ) {
-                writer.write("This is a test of Dasein Cloud");
-                writer.newLine();
-            }
-            else {
-                for( String line : lines ) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
-            writer.flush();
-            writer.close();
+        support = InterceptingProvider.asFixture(support);
+        Blob blob = support.upload(content.getScratchFile(lines), null, namePrefix + random.nextInt(10000) + ".txt");
 
-            Blob blob = support.upload(file, null, namePrefix + random.nextInt(10000) + ".txt");
-
-            synchronized( testChildObjects ) {
-                while( testChildObjects.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testChildObjects.put(label, blob);
+        cache.invalidate(null, blob.getObjectName());
+        synchronized( testRootObjects ) {
+            while( testRootObjects.containsKey(label) ) {
+                label = label + random.nextInt(9);
             }
-            return blob;
-        }
-        catch( IOException e ) {
-            throw new InternalException(e);
+            testRootObjects.put(label, blob);
         }
+        ConsistencyMonitor.settle("Object", true);
+        return blob;
     }
 
     public @Nonnull Blob provisionChildObject(@Nonnull BlobStoreSupport support, @Nonnull String label, @Nonnull String parentBucket, @Nonnull String namePrefix, @Nullable String ... lines) throws CloudException, InternalException {
-        try {
-            File file = File.createTempFile("dsntst", "txt");
-
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
-
-            if( lines == null ) {
-                writer.write("This is a test of Dasein Cloud");
-                writer.newLine();
-            }
-            else {
-                for( String line : lines ) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
-            writer.flush();
-            writer.close();
+        support = InterceptingProvider.asFixture(support);
+        Blob blob = support.upload(content.getScratchFile(lines), parentBucket, namePrefix + random.nextInt(10000) + ".txt");
 
-            Blob blob = support.upload(file, parentBucket, namePrefix + random.nextInt(10000) + ".txt");
-
-            synchronized( testChildObjects ) {
-                while( testChildObjects.containsKey(label) ) {
-                    label = label + random.nextInt(9);
-                }
-                testChildObjects.put(label, blob);
+        cache.invalidate(parentBucket, blob.getObjectName());
+        synchronized( testChildObjects ) {
+            while( testChildObjects.containsKey(label) ) {
+                label = label + random.nextInt(9);
             }
-            return blob;
-        }
-        catch( IOException e ) {
-            throw new InternalException(e);
+            testChildObjects.put(label, blob);
         }
+        ConsistencyMonitor.settle("Object", true);
+        return blob;
     }
 }
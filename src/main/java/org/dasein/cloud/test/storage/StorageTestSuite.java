@@ -36,6 +36,10 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+        ObjectStoreServerSideTests.class,
+        ObjectStoreSmallObjectTests.class,
+        ObjectStoreThroughputTests.class,
+        OfflineStoreThroughputTests.class,
         StatefulObjectStoreTests.class,
         StatefulOfflineStoreTests.class,
         StatelessObjectStoreTests.class,
@@ -45,6 +49,11 @@ public class StorageTestSuite {
   @BeforeClass
   static public void setup() {
     DaseinTestManager.init();
+    StorageResources resources = DaseinTestManager.getStorageResources();
+
+    if( resources != null ) {
+      resources.preprovision(StatefulObjectStoreTests.class, StatelessObjectStoreTests.class);
+    }
   }
 
   @AfterClass
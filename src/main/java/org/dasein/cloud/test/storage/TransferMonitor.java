@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2009-2013 Dell, Inc.
+ * See annotations for authorship information
+ *
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.test.storage;
+
+import org.dasein.cloud.storage.FileTransfer;
+import org.dasein.cloud.test.PerfUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Waits for a {@link FileTransfer} to complete without sleeping a fixed interval between checks. The wait is made on
+ * the monitor of the transfer itself, which {@link org.dasein.cloud.AsynchronousTask} notifies whenever the transfer
+ * completes or its percentage changes, so a completed transfer wakes the waiting test immediately. Progress that is
+ * not notified (bytes transferred or written to the target file) is sampled every few milliseconds while waiting.
+ * The monitor records the time to the first byte, the time until all bytes were transferred, the time until the
+ * transfer reported completion, and a progress sample each time the byte count changed.
+ * <pre>
+ *     TransferMonitor monitor = new TransferMonitor(support.download(bucket, object, file), file);
+ *
+ *     monitor.await(CalendarWrapper.MINUTE * 10L);
+ * </pre>
+ * <p>The interval at which progress is sampled is set in milliseconds with the dasein.transfer.sampleInterval
+ * {@link System} property (default 10).</p>
+ * @version 2013.07 initial version
+ * @since 2013.07
+ */
+public class TransferMonitor {
+    static private long sampleInterval = -1L;
+
+    static private long getSampleInterval() {
+        if( sampleInterval < 0L ) {
+            sampleInterval = PerfUtils.getPositiveLong("dasein.transfer.sampleInterval", 10L);
+        }
+        return sampleInterval;
+    }
+
+    /**
+     * Waits for many transfers running in parallel to complete.
+     * @param monitors the monitors of the transfers
+     * @param timeout the most milliseconds to wait for all of them
+     * @return true if all transfers completed within the timeout
+     * @throws InterruptedException the waiting thread was interrupted
+     */
+    static public boolean awaitAll(@Nonnull Collection<TransferMonitor> monitors, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        for( TransferMonitor monitor : monitors ) {
+            if( !monitor.await(Math.max(0L, deadline - System.currentTimeMillis())) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The progress of a transfer at a point in time.
+     */
+    static public class Sample {
+        private long bytes;
+        private long millis;
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the milliseconds since the transfer was handed to the monitor
+         */
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private       long              allBytes  = -1L;
+    private       long              complete  = -1L;
+    private       long              firstByte = -1L;
+    private       long              lastBytes;
+    private final ArrayList<Sample> samples   = new ArrayList<Sample>();
+    private final long              start;
+    private final File              target;
+    private final FileTransfer      task;
+
+    /**
+     * Starts monitoring a transfer. The transfer should be handed to the monitor as soon as it is returned by the
+     * provider since all times are measured from the construction of the monitor.
+     * @param task the transfer to monitor
+     * @param target the file being written by a download, or null to rely only on the transfer's byte count
+     */
+    public TransferMonitor(@Nonnull FileTransfer task, @Nullable File target) {
+        this(task, target, System.nanoTime());
+    }
+
+    /**
+     * Starts monitoring a transfer whose times are measured from the specified instant. Implementations that
+     * transfer some or all of the content before returning the {@link FileTransfer} are measured fairly by taking
+     * the instant just before the call that started the transfer.
+     * @param task the transfer to monitor
+     * @param target the file being written by a download, or null to rely only on the transfer's byte count
+     * @param startNanos the value of {@link System#nanoTime()} when the transfer was started
+     */
+    public TransferMonitor(@Nonnull FileTransfer task, @Nullable File target, long startNanos) {
+        this.start = startNanos;
+        this.task = task;
+        this.target = target;
+    }
+
+    private void sample() {
+        long now = (System.nanoTime() - start)/1000000L;
+        long bytes = task.getBytesTransferred();
+
+        if( target != null ) {
+            bytes = Math.max(bytes, target.length());
+        }
+        if( bytes > 0L && firstByte < 0L ) {
+            firstByte = now;
+        }
+        if( bytes != lastBytes ) {
+            Sample s = new Sample();
+
+            s.bytes = bytes;
+            s.millis = now;
+            samples.add(s);
+            lastBytes = bytes;
+        }
+        long total = task.getBytesToTransfer();
+
+        if( allBytes < 0L && total > 0L && bytes >= total ) {
+            allBytes = now;
+        }
+        if( complete < 0L && task.isComplete() ) {
+            complete = now;
+            if( allBytes < 0L && task.getTransferError() == null ) {
+                allBytes = now;
+            }
+            if( firstByte < 0L && bytes > 0L ) {
+                firstByte = now;
+            }
+        }
+    }
+
+    /**
+     * Waits for the transfer to complete.
+     * @param timeout the most milliseconds to wait
+     * @return true if the transfer completed within the timeout
+     * @throws InterruptedException the waiting thread was interrupted
+     */
+    public boolean await(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long interval = getSampleInterval();
+
+        synchronized( task ) {
+            sample();
+            while( complete < 0L ) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if( remaining <= 0L ) {
+                    return false;
+                }
+                task.wait(Math.min(remaining, interval));
+                sample();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the milliseconds until all bytes were transferred or -1 if that has not been observed
+     */
+    public long getAllBytesMillis() {
+        return allBytes;
+    }
+
+    /**
+     * @return the milliseconds until the transfer reported completion or -1 if it has not completed
+     */
+    public long getCompletionMillis() {
+        return complete;
+    }
+
+    /**
+     * @return the milliseconds until the first byte was transferred or -1 if no bytes have been observed
+     */
+    public long getFirstByteMillis() {
+        return firstByte;
+    }
+
+    /**
+     * @return the progress observed each time the number of bytes transferred changed
+     */
+    public @Nonnull List<Sample> getSamples() {
+        synchronized( task ) {
+            return Collections.unmodifiableList(new ArrayList<Sample>(samples));
+        }
+    }
+
+    public @Nonnull FileTransfer getTask() {
+        return task;
+    }
+
+    @Override
+    public @Nonnull String toString() {
+        return "first byte=" + firstByte + " ms all bytes=" + allBytes + " ms complete=" + complete + " ms samples=" + samples.size();
+    }
+}